@@ -0,0 +1,275 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.os.SystemClock;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.common.Tracks;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Serves fixture HLS playlists from a local HTTP server and checks the player prepares them
+ * through the tuned HLS factory.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AudioMediaSourceFactoryTest {
+
+    private static final String MASTER_PLAYLIST =
+        "#EXTM3U\n" +
+        "#EXT-X-STREAM-INF:BANDWIDTH=128000,CODECS=\"mp4a.40.2\"\n" +
+        "audio/index.m3u8\n";
+
+    private static final String MEDIA_PLAYLIST =
+        "#EXTM3U\n" +
+        "#EXT-X-VERSION:3\n" +
+        "#EXT-X-TARGETDURATION:10\n" +
+        "#EXT-X-MEDIA-SEQUENCE:0\n" +
+        "#EXTINF:10.0,\n" +
+        "segment0.aac\n" +
+        "#EXTINF:10.0,\n" +
+        "segment1.aac\n" +
+        "#EXT-X-ENDLIST\n";
+
+    private static final String DASH_MANIFEST =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<MPD xmlns=\"urn:mpeg:dash:schema:mpd:2011\" type=\"static\"" +
+        " mediaPresentationDuration=\"PT20S\" minBufferTime=\"PT2S\"" +
+        " profiles=\"urn:mpeg:dash:profile:isoff-live:2011\">\n" +
+        "  <Period>\n" +
+        "    <AdaptationSet contentType=\"audio\" mimeType=\"audio/mp4\">\n" +
+        "      <Representation id=\"audio\" codecs=\"mp4a.40.2\" bandwidth=\"128000\"" +
+        " audioSamplingRate=\"44100\">\n" +
+        "        <SegmentTemplate timescale=\"1000\" duration=\"10000\" startNumber=\"1\"" +
+        " initialization=\"init.mp4\" media=\"segment$Number$.m4s\"/>\n" +
+        "      </Representation>\n" +
+        "    </AdaptationSet>\n" +
+        "  </Period>\n" +
+        "</MPD>\n";
+
+    // Waiting for the tracks fails the test only after this long
+    private static final long STARTUP_TIMEOUT_MS = 5000;
+    // Fixtures are served from loopback, so getting the tracks should take well under this
+    private static final long STARTUP_BUDGET_MS = 1000;
+
+    private FixtureServer server;
+    private ExoPlayer player;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FixtureServer();
+        server.put("/master.m3u8", "application/x-mpegURL", MASTER_PLAYLIST);
+        server.put("/audio/index.m3u8", "application/x-mpegURL", MEDIA_PLAYLIST);
+        server.put("/manifest.mpd", "application/dash+xml", DASH_MANIFEST);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        releasePlayer();
+        server.stop();
+    }
+
+    @Test
+    public void hlsMasterPlaylistPreparesWithoutDownloadingSegments() throws Exception {
+        Startup startup = prepareUntilTracks(MediaItem.fromUri(server.url("/master.m3u8")));
+
+        assertTrue(
+            "Preparing took " + startup.durationMs + "ms",
+            startup.durationMs < STARTUP_BUDGET_MS
+        );
+
+        // Chunkless preparation gets the tracks from the playlists alone
+        assertEquals(0, startup.segmentRequests);
+        assertEquals(1, server.countRequests("/master.m3u8"));
+        assertEquals(1, server.countRequests("/audio/index.m3u8"));
+    }
+
+    @Test
+    public void forcedStreamTypeOverridesTheUri() throws Exception {
+        // Nothing in the URI or the response says HLS, only the forced stream type does
+        server.put("/stream", "application/octet-stream", MASTER_PLAYLIST);
+
+        MediaItem mediaItem = AudioMediaSourceFactory.setStreamType(
+            new MediaItem.Builder().setUri(server.url("/stream")),
+            StreamType.HLS
+        ).build();
+
+        Startup startup = prepareUntilTracks(mediaItem);
+
+        // Read as a master playlist, the variant playlist it points to is requested next
+        assertEquals(0, startup.segmentRequests);
+        assertEquals(1, server.countRequests("/stream"));
+        assertEquals(1, server.countRequests("/audio/index.m3u8"));
+    }
+
+    @Test
+    public void dashManifestIsRequestedOnEveryPrepare() throws Exception {
+        prepareUntilTracks(MediaItem.fromUri(server.url("/manifest.mpd")));
+        releasePlayer();
+        prepareUntilTracks(MediaItem.fromUri(server.url("/manifest.mpd")));
+
+        // Manifests bypass the media cache, so the second prepare can't be served from it
+        assertEquals(2, server.countRequests("/manifest.mpd"));
+    }
+
+    /**
+     * Prepares a new player for the item and waits until its tracks are known.
+     */
+    private Startup prepareUntilTracks(MediaItem mediaItem) throws InterruptedException {
+        CountDownLatch tracksLatch = new CountDownLatch(1);
+        Startup startup = new Startup();
+        long startMs = SystemClock.elapsedRealtime();
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+            player = new ExoPlayer.Builder(context)
+                .setMediaSourceFactory(new AudioMediaSourceFactory(context))
+                .build();
+            player.addListener(
+                new Player.Listener() {
+                    @Override
+                    public void onTracksChanged(Tracks tracks) {
+                        if (!tracks.isEmpty() && tracksLatch.getCount() > 0) {
+                            startup.durationMs = SystemClock.elapsedRealtime() - startMs;
+                            startup.segmentRequests = server.countRequests(".aac");
+                            tracksLatch.countDown();
+                        }
+                    }
+                }
+            );
+            player.setMediaItem(mediaItem);
+            player.prepare();
+        });
+
+        assertTrue(
+            "Tracks were not available in time",
+            tracksLatch.await(STARTUP_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        );
+
+        return startup;
+    }
+
+    private void releasePlayer() {
+        if (player != null) {
+            ExoPlayer releasedPlayer = player;
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(releasedPlayer::release);
+            player = null;
+        }
+    }
+
+    private static class Startup {
+
+        volatile long durationMs;
+        volatile long segmentRequests = -1;
+    }
+
+    /**
+     * Minimal HTTP/1.1 server that answers GET requests from a map of fixtures and counts them.
+     */
+    private static class FixtureServer {
+
+        private final Map<String, String[]> fixtures = new ConcurrentHashMap<>();
+        private final List<String> requests = new CopyOnWriteArrayList<>();
+        private ServerSocket serverSocket;
+        private Thread thread;
+
+        void put(String path, String contentType, String body) {
+            fixtures.put(path, new String[] { contentType, body });
+        }
+
+        void start() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            thread = new Thread(this::acceptLoop, "FixtureServer");
+            thread.start();
+        }
+
+        void stop() {
+            try {
+                serverSocket.close();
+            } catch (IOException ignored) {}
+        }
+
+        String url(String path) {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + path;
+        }
+
+        long countRequests(String pathSuffix) {
+            long count = 0;
+
+            for (String path : requests) {
+                if (path.endsWith(pathSuffix)) {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    handle(socket);
+                } catch (IOException ignored) {}
+            }
+        }
+
+        private void handle(Socket socket) throws IOException {
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)
+            );
+            String requestLine = reader.readLine();
+            if (requestLine == null) {
+                return;
+            }
+
+            // Skip the headers
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {}
+
+            String path = requestLine.split(" ")[1];
+            requests.add(path);
+
+            String[] fixture = fixtures.get(path);
+            byte[] body = fixture == null
+                ? new byte[0]
+                : fixture[1].getBytes(StandardCharsets.UTF_8);
+            String headers =
+                (fixture == null ? "HTTP/1.1 404 Not Found\r\n" : "HTTP/1.1 200 OK\r\n") +
+                "Content-Type: " +
+                (fixture == null ? "text/plain" : fixture[0]) +
+                "\r\n" +
+                "Content-Length: " +
+                body.length +
+                "\r\n" +
+                "Connection: close\r\n\r\n";
+
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(headers.getBytes(StandardCharsets.UTF_8));
+            outputStream.write(body);
+            outputStream.flush();
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads notification artwork off the main thread.
+ *
+ * Artwork is read from https, file://, content:// or the app's public assets, decoded with
+ * subsampling and downscaled to notification size before it is handed to the media session.
+ * Results are kept in an in-memory LRU cache and an on-disk cache keyed by source, so changing
+ * metadata or rebuilding the queue doesn't decode the same image again. Artwork from http(s)
+ * sources is fetched again once it is older than {@link #MAX_AGE_MS}, so an image replaced on the
+ * server shows up; if that fetch fails the cached artwork keeps being used.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class ArtworkLoader {
+
+    private static final String TAG = "ArtworkLoader";
+    private static final String CACHE_DIRECTORY = "artwork-cache";
+    // Bump when the file layout changes, older files are never read again and get trimmed
+    private static final int DISK_CACHE_VERSION = 2;
+
+    public static final int MAX_ARTWORK_SIZE_PX = 512;
+    public static final long MAX_AGE_MS = 24 * 60 * 60 * 1000L; // 1 day
+
+    private static final int MEMORY_CACHE_BYTES = 4 * 1024 * 1024; // 4MB
+    private static final long DISK_CACHE_BYTES = 16L * 1024 * 1024; // 16MB
+    private static final int JPEG_QUALITY = 90;
+
+    public interface Callback {
+        /**
+         * Called on the loader thread with the encoded artwork, or null if it couldn't be loaded.
+         */
+        void onArtworkLoaded(@Nullable byte[] artworkData);
+    }
+
+    private static final LruCache<String, Artwork> memoryCache = new LruCache<String, Artwork>(
+        MEMORY_CACHE_BYTES
+    ) {
+        @Override
+        protected int sizeOf(String key, Artwork value) {
+            return value.data.length;
+        }
+    };
+
+    private static final Map<String, List<Callback>> pendingCallbacks = new HashMap<>();
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(
+            () -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            },
+            "AudioPlayerArtwork"
+        );
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * @return the artwork if it is already in the memory cache and not expired, without touching
+     *         the disk
+     */
+    @Nullable
+    public static byte[] getCached(String source) {
+        Artwork artwork = memoryCache.get(source);
+
+        return artwork != null && !artwork.isExpired(source) ? artwork.data : null;
+    }
+
+    /**
+     * Loads the artwork in the background. Concurrent requests for one source share a single load.
+     * A memory cache hit is handed back on the loader thread too.
+     */
+    public static void load(Context context, String source, Callback callback) {
+        byte[] cached = getCached(source);
+        if (cached != null) {
+            // Dispatched like a load, so the callback always runs on the loader thread
+            executor.execute(() -> callback.onArtworkLoaded(cached));
+            return;
+        }
+
+        synchronized (pendingCallbacks) {
+            List<Callback> callbacks = pendingCallbacks.get(source);
+
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            pendingCallbacks.put(source, callbacks);
+        }
+
+        Context appContext = context.getApplicationContext();
+
+        executor.execute(() -> {
+            byte[] artworkData = null;
+
+            try {
+                artworkData = loadBlocking(appContext, source);
+            } catch (Exception ex) {
+                Log.w(TAG, "Could not load the artwork source: " + source, ex);
+            }
+
+            List<Callback> callbacks;
+
+            synchronized (pendingCallbacks) {
+                callbacks = pendingCallbacks.remove(source);
+            }
+
+            for (Callback pendingCallback : callbacks) {
+                pendingCallback.onArtworkLoaded(artworkData);
+            }
+        });
+    }
+
+    private static byte[] loadBlocking(Context context, String source) throws IOException {
+        File cacheFile = getCacheFile(context, source);
+        Artwork cached = memoryCache.get(source);
+
+        if (cached == null && cacheFile.exists()) {
+            cached = readFromDisk(cacheFile);
+        }
+
+        if (cached != null && !cached.isExpired(source)) {
+            cacheFile.setLastModified(System.currentTimeMillis());
+            memoryCache.put(source, cached);
+
+            return cached.data;
+        }
+
+        byte[] artworkData;
+
+        try {
+            artworkData = downscale(readSource(context, source));
+        } catch (IOException ex) {
+            if (cached == null) {
+                throw ex;
+            }
+
+            Log.w(TAG, "Could not refresh the artwork, using the cached one: " + source, ex);
+            return cached.data;
+        }
+
+        if (artworkData == null) {
+            Log.w(TAG, "Could not decode the artwork source: " + source);
+            return cached != null ? cached.data : null;
+        }
+
+        Artwork artwork = new Artwork(artworkData, System.currentTimeMillis());
+        memoryCache.put(source, artwork);
+        writeToDisk(context, cacheFile, artwork);
+
+        return artworkData;
+    }
+
+    /**
+     * Only artwork from the network can change without its source changing.
+     */
+    private static boolean canExpire(String source) {
+        String scheme = Uri.parse(source).getScheme();
+
+        return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+    }
+
+    private static byte[] readSource(Context context, String source) throws IOException {
+        DataSource dataSource = new DefaultDataSource.Factory(
+            context,
+            RobustHlsConfig.createRobustHttpDataSourceFactory()
+        ).createDataSource();
+
+        try {
+            dataSource.open(new DataSpec(toUri(source)));
+
+            return DataSourceUtil.readToEnd(dataSource);
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Sources without a scheme are paths inside the web app's public assets.
+     */
+    static Uri toUri(String source) {
+        Uri uri = Uri.parse(source);
+
+        if (uri.getScheme() == null) {
+            return Uri.parse("asset:///public/" + source.replaceFirst("^/+", ""));
+        }
+
+        return uri;
+    }
+
+    @Nullable
+    private static byte[] downscale(byte[] encoded) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(encoded, 0, encoded.length, bounds);
+
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+
+        // Subsample while decoding so a 1200x1200 image never needs a full-size bitmap
+        int sampleSize = 1;
+        while (
+            bounds.outWidth / (sampleSize * 2) >= MAX_ARTWORK_SIZE_PX &&
+            bounds.outHeight / (sampleSize * 2) >= MAX_ARTWORK_SIZE_PX
+        ) {
+            sampleSize *= 2;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+
+        Bitmap bitmap = BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
+        if (bitmap == null) {
+            return null;
+        }
+
+        float scale = Math.min(
+            1f,
+            (float) MAX_ARTWORK_SIZE_PX / Math.max(bitmap.getWidth(), bitmap.getHeight())
+        );
+
+        if (scale < 1f) {
+            Bitmap scaled = Bitmap.createScaledBitmap(
+                bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)),
+                true
+            );
+            bitmap.recycle();
+            bitmap = scaled;
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bitmap.compress(
+            bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG,
+            JPEG_QUALITY,
+            outputStream
+        );
+        bitmap.recycle();
+
+        return outputStream.toByteArray();
+    }
+
+    static byte[] readFile(File file) throws IOException {
+        byte[] buffer = new byte[(int) file.length()];
+
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            int offset = 0;
+            int readLength;
+
+            while (
+                offset < buffer.length &&
+                (readLength = inputStream.read(buffer, offset, buffer.length - offset)) != -1
+            ) {
+                offset += readLength;
+            }
+        }
+
+        return buffer;
+    }
+
+    private static File getCacheDirectory(Context context) {
+        return new File(context.getCacheDir(), CACHE_DIRECTORY);
+    }
+
+    private static File getCacheFile(Context context, String source) {
+        return new File(
+            getCacheDirectory(context),
+            hash(source + "@" + MAX_ARTWORK_SIZE_PX + "#" + DISK_CACHE_VERSION)
+        );
+    }
+
+    /**
+     * Cache files start with the time the artwork was fetched, followed by the encoded image.
+     */
+    @Nullable
+    private static Artwork readFromDisk(File cacheFile) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(readFile(cacheFile));
+            long fetchedAtMs = buffer.getLong();
+            byte[] artworkData = new byte[buffer.remaining()];
+            buffer.get(artworkData);
+
+            return new Artwork(artworkData, fetchedAtMs);
+        } catch (IOException | RuntimeException ex) {
+            Log.w(TAG, "Could not read the cached artwork, fetching it again.", ex);
+            cacheFile.delete();
+
+            return null;
+        }
+    }
+
+    private static void writeToDisk(Context context, File cacheFile, Artwork artwork) {
+        File directory = getCacheDirectory(context);
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create the artwork cache directory.");
+            return;
+        }
+
+        File tempFile = new File(directory, cacheFile.getName() + ".tmp");
+
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            outputStream.write(
+                ByteBuffer.allocate(Long.BYTES).putLong(artwork.fetchedAtMs).array()
+            );
+            outputStream.write(artwork.data);
+        } catch (IOException ex) {
+            Log.w(TAG, "Could not write the artwork to the disk cache.", ex);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(cacheFile)) {
+            tempFile.delete();
+            return;
+        }
+
+        trimDiskCache(directory);
+    }
+
+    private static void trimDiskCache(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+
+        if (totalBytes <= DISK_CACHE_BYTES) {
+            return;
+        }
+
+        // Least recently used first, reads refresh the modification time
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        for (File file : files) {
+            if (totalBytes <= DISK_CACHE_BYTES) {
+                break;
+            }
+
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+                value.getBytes(StandardCharsets.UTF_8)
+            );
+            StringBuilder builder = new StringBuilder();
+
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+
+            return builder.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    private static class Artwork {
+
+        final byte[] data;
+        final long fetchedAtMs;
+
+        Artwork(byte[] data, long fetchedAtMs) {
+            this.data = data;
+            this.fetchedAtMs = fetchedAtMs;
+        }
+
+        boolean isExpired(String source) {
+            return canExpire(source) && System.currentTimeMillis() - fetchedAtMs >= MAX_AGE_MS;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.app.Notification;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.offline.Download;
+import androidx.media3.exoplayer.offline.DownloadManager;
+import androidx.media3.exoplayer.offline.DownloadNotificationHelper;
+import androidx.media3.exoplayer.offline.DownloadService;
+import androidx.media3.exoplayer.scheduler.PlatformScheduler;
+import androidx.media3.exoplayer.scheduler.Scheduler;
+import java.util.List;
+
+/**
+ * Runs the downloads in the foreground so they continue while the app is in the background.
+ * When the requirements aren't met (e.g. no network) the platform scheduler restarts the service
+ * once they are.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class AudioDownloadService extends DownloadService {
+
+    public static final String DOWNLOAD_CHANNEL_ID = "download_channel";
+
+    private static final int FOREGROUND_NOTIFICATION_ID = 7301;
+    private static final int JOB_ID = 7302;
+
+    private DownloadNotificationHelper notificationHelper;
+
+    public AudioDownloadService() {
+        super(
+            FOREGROUND_NOTIFICATION_ID,
+            DEFAULT_FOREGROUND_NOTIFICATION_UPDATE_INTERVAL,
+            DOWNLOAD_CHANNEL_ID,
+            R.string.audio_player_download_channel_name,
+            0
+        );
+    }
+
+    @Override
+    protected DownloadManager getDownloadManager() {
+        return AudioDownloads.getDownloadManager(this);
+    }
+
+    @Nullable
+    @Override
+    protected Scheduler getScheduler() {
+        return new PlatformScheduler(this, JOB_ID);
+    }
+
+    @Override
+    protected Notification getForegroundNotification(
+        List<Download> downloads,
+        int notMetRequirements
+    ) {
+        if (notificationHelper == null) {
+            notificationHelper = new DownloadNotificationHelper(this, DOWNLOAD_CHANNEL_ID);
+        }
+
+        return notificationHelper.buildProgressNotification(
+            this,
+            android.R.drawable.stat_sys_download,
+            null,
+            null,
+            downloads,
+            notMetRequirements
+        );
+    }
+}
@@ -0,0 +1,308 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.NoOpCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.media3.exoplayer.offline.DefaultDownloadIndex;
+import androidx.media3.exoplayer.offline.DefaultDownloaderFactory;
+import androidx.media3.exoplayer.offline.Download;
+import androidx.media3.exoplayer.offline.DownloadCursor;
+import androidx.media3.exoplayer.offline.DownloadManager;
+import androidx.media3.exoplayer.offline.DownloadRequest;
+import androidx.media3.exoplayer.offline.DownloadService;
+import androidx.media3.exoplayer.scheduler.Requirements;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.json.JSONObject;
+
+/**
+ * Persistent downloads for offline playback.
+ *
+ * Downloads are kept in their own cache in the app's files directory, separate from the
+ * evictable streaming {@link MediaCache}, so they survive until removed. The download state is
+ * stored in a database and Media3's {@link DownloadManager} resumes unfinished downloads when it
+ * is created again after the process was killed.
+ *
+ * Players read through the download cache before the streaming cache, so a source that was
+ * downloaded plays from the device without any change on the JS side.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class AudioDownloads {
+
+    private static final String TAG = "AudioDownloads";
+    private static final String DOWNLOAD_DIRECTORY = "audio-downloads";
+
+    public static final int DEFAULT_MAX_PARALLEL_DOWNLOADS = 2;
+
+    private static int maxParallelDownloads = DEFAULT_MAX_PARALLEL_DOWNLOADS;
+    private static boolean requireUnmeteredNetwork = false;
+
+    private static SimpleCache downloadCache;
+    private static DefaultDownloadIndex downloadIndex;
+    private static DownloadManager downloadManager;
+
+    /**
+     * Reads the optional `downloads` object of the plugin config. Must be called before the
+     * download manager is first used, otherwise it only applies after the process restarts.
+     */
+    public static synchronized void configure(@Nullable JSONObject config) {
+        if (config == null) {
+            return;
+        }
+
+        maxParallelDownloads = Math.max(
+            1,
+            config.optInt("maxParallelDownloads", DEFAULT_MAX_PARALLEL_DOWNLOADS)
+        );
+        requireUnmeteredNetwork = config.optBoolean("requireUnmeteredNetwork", false);
+
+        if (downloadManager != null) {
+            applyConfiguration(downloadManager);
+        }
+    }
+
+    public static synchronized SimpleCache getDownloadCache(Context context) {
+        if (downloadCache == null) {
+            Context appContext = context.getApplicationContext();
+
+            // Downloads are only removed on request, never evicted
+            downloadCache = new SimpleCache(
+                new File(appContext.getFilesDir(), DOWNLOAD_DIRECTORY),
+                new NoOpCacheEvictor(),
+                MediaCache.getDatabaseProvider(appContext)
+            );
+        }
+
+        return downloadCache;
+    }
+
+    /**
+     * The download states the download manager keeps, can be read from any thread.
+     */
+    public static synchronized DefaultDownloadIndex getDownloadIndex(Context context) {
+        if (downloadIndex == null) {
+            downloadIndex = new DefaultDownloadIndex(
+                MediaCache.getDatabaseProvider(context.getApplicationContext())
+            );
+        }
+
+        return downloadIndex;
+    }
+
+    /**
+     * Must be called on the main thread, which the download manager reports its events on.
+     */
+    public static synchronized DownloadManager getDownloadManager(Context context) {
+        if (downloadManager == null) {
+            Context appContext = context.getApplicationContext();
+
+            CacheDataSource.Factory cacheDataSourceFactory = new CacheDataSource.Factory()
+                .setCache(getDownloadCache(appContext))
+                .setCacheKeyFactory(MediaCache.getCacheKeyFactory())
+                .setUpstreamDataSourceFactory(RobustHlsConfig.createRobustHttpDataSourceFactory());
+
+            downloadManager = new DownloadManager(
+                appContext,
+                getDownloadIndex(appContext),
+                // Each download already runs on its own thread, segments are fetched one by one
+                new DefaultDownloaderFactory(cacheDataSourceFactory, Runnable::run)
+            );
+            applyConfiguration(downloadManager);
+
+            Log.i(TAG, "Created download manager");
+        }
+
+        return downloadManager;
+    }
+
+    /**
+     * Wraps the streaming data source factory so completed downloads are read from the device.
+     * Nothing is ever written to the download cache from here.
+     */
+    public static DataSource.Factory createPlaybackDataSourceFactory(
+        Context context,
+        DataSource.Factory streamingFactory
+    ) {
+        return new CacheDataSource.Factory()
+            .setCache(getDownloadCache(context))
+            .setCacheKeyFactory(MediaCache.getCacheKeyFactory())
+            .setUpstreamDataSourceFactory(streamingFactory)
+            .setCacheWriteDataSinkFactory(null)
+            .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+    }
+
+    /**
+     * Whether a completed download exists for the source, so playing it doesn't need the
+     * network. For HLS and DASH sources every segment has been downloaded, not just the manifest.
+     */
+    public static boolean isDownloaded(Context context, Uri uri) {
+        String key = MediaCache.buildCacheKey(uri);
+
+        try (
+            DownloadCursor cursor = getDownloadIndex(context).getDownloads(Download.STATE_COMPLETED)
+        ) {
+            while (cursor.moveToNext()) {
+                if (key.equals(MediaCache.buildCacheKey(cursor.getDownload().request.uri))) {
+                    return true;
+                }
+            }
+        } catch (IOException ex) {
+            Log.w(TAG, "Could not read the download index", ex);
+        }
+
+        return false;
+    }
+
+    public static DownloadRequest buildRequest(
+        String id,
+        String source,
+        @Nullable StreamType streamType,
+        @Nullable String title
+    ) {
+        Uri uri = Uri.parse(source);
+        StreamType resolvedStreamType = streamType != null
+            ? streamType
+            : StreamType.detect(source);
+
+        DownloadRequest.Builder builder = new DownloadRequest.Builder(id, uri).setMimeType(
+            resolvedStreamType.getMimeType()
+        );
+
+        if (title != null) {
+            builder.setData(title.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Adds the download, or restarts it if one with the same ID exists.
+     *
+     * @param isAppInBackground Since API 26 a background app can only start the download service
+     *                          as a foreground service
+     */
+    public static void add(Context context, DownloadRequest request, boolean isAppInBackground) {
+        DownloadService.sendAddDownload(
+            context,
+            AudioDownloadService.class,
+            request,
+            isAppInBackground
+        );
+    }
+
+    /**
+     * @param isAppInBackground See {@link #add}
+     */
+    public static void remove(Context context, String id, boolean isAppInBackground) {
+        DownloadService.sendRemoveDownload(
+            context,
+            AudioDownloadService.class,
+            id,
+            isAppInBackground
+        );
+    }
+
+    /**
+     * Starts the download service if downloads were left unfinished when the process died, so
+     * they continue without waiting for the next download request.
+     * Must be called on the main thread.
+     */
+    public static void resumePendingDownloads(Context context) {
+        if (!hasPendingDownloads(context)) {
+            return;
+        }
+
+        try {
+            DownloadService.start(context, AudioDownloadService.class);
+            Log.i(TAG, "Resuming pending downloads");
+        } catch (Exception ex) {
+            // The platform scheduler restarts the service later
+            Log.w(TAG, "Could not start the download service", ex);
+        }
+    }
+
+    /**
+     * @return whether any download still has work to do, so the download service must run
+     */
+    public static boolean hasPendingDownloads(Context context) {
+        for (Download download : getDownloadManager(context).getCurrentDownloads()) {
+            if (!download.isTerminalState()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public static JSArray getDownloads(Context context) throws IOException {
+        JSArray downloads = new JSArray();
+
+        try (
+            DownloadCursor cursor = getDownloadManager(context).getDownloadIndex().getDownloads()
+        ) {
+            while (cursor.moveToNext()) {
+                downloads.put(toJSObject(cursor.getDownload()));
+            }
+        }
+
+        return downloads;
+    }
+
+    public static JSObject toJSObject(Download download) {
+        float percentDownloaded = download.getPercentDownloaded();
+
+        return new JSObject()
+            .put("id", download.request.id)
+            .put("audioSource", download.request.uri.toString())
+            .put(
+                "title",
+                download.request.data.length > 0
+                    ? new String(download.request.data, StandardCharsets.UTF_8)
+                    : null
+            )
+            .put("state", stateName(download.state))
+            .put("percentDownloaded", percentDownloaded < 0 ? -1 : percentDownloaded)
+            .put("bytesDownloaded", download.getBytesDownloaded())
+            .put("contentLength", download.contentLength);
+    }
+
+    private static String stateName(@Download.State int state) {
+        switch (state) {
+            case Download.STATE_QUEUED:
+                return "queued";
+            case Download.STATE_STOPPED:
+                return "stopped";
+            case Download.STATE_DOWNLOADING:
+                return "downloading";
+            case Download.STATE_COMPLETED:
+                return "completed";
+            case Download.STATE_FAILED:
+                return "failed";
+            case Download.STATE_REMOVING:
+                return "removing";
+            case Download.STATE_RESTARTING:
+                return "restarting";
+            default:
+                return "unknown";
+        }
+    }
+
+    private static void applyConfiguration(DownloadManager manager) {
+        manager.setMaxParallelDownloads(maxParallelDownloads);
+        manager.setRequirements(
+            new Requirements(
+                requireUnmeteredNetwork ? Requirements.NETWORK_UNMETERED : Requirements.NETWORK
+            )
+        );
+    }
+}
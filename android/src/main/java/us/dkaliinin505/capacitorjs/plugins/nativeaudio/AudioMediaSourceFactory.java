@@ -0,0 +1,148 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.exoplayer.dash.DashMediaSource;
+import androidx.media3.exoplayer.dash.DefaultDashChunkSource;
+import androidx.media3.exoplayer.drm.DrmSessionManagerProvider;
+import androidx.media3.exoplayer.hls.HlsMediaSource;
+import androidx.media3.exoplayer.source.MediaSource;
+import androidx.media3.exoplayer.source.ProgressiveMediaSource;
+import androidx.media3.exoplayer.upstream.LoadErrorHandlingPolicy;
+
+/**
+ * Resolves each media item to an HLS, DASH or progressive media source built on the tuned
+ * network settings and the shared media cache.
+ *
+ * The type comes from the stream type forced from JS, then from the item's MIME type, otherwise
+ * from the URI. HLS playlists and DASH manifests are never read from the shared media cache,
+ * whatever their URL looks like, so live playlists can't go stale. Decoded loops are read from
+ * memory instead, see {@link LoopBuffers}.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class AudioMediaSourceFactory implements MediaSource.Factory {
+
+    private static final String TAG = "AudioMediaSourceFactory";
+
+    // Request extra carrying a stream type forced from JS, as progressive has no MIME type
+    private static final String EXTRA_STREAM_TYPE = "audioplayer.streamType";
+
+    private final HlsMediaSource.Factory hlsFactory;
+    private final DashMediaSource.Factory dashFactory;
+    private final ProgressiveMediaSource.Factory progressiveFactory;
+    private final ProgressiveMediaSource.Factory loopFactory;
+
+    public AudioMediaSourceFactory(Context context) {
+        DataSource.Factory dataSourceFactory = RobustHlsConfig.createCachedDataSourceFactory(
+            context
+        );
+        DataSource.Factory manifestDataSourceFactory =
+            RobustHlsConfig.createManifestDataSourceFactory(context);
+
+        hlsFactory = RobustHlsConfig.createRobustHlsFactory(dataType ->
+            dataType == C.DATA_TYPE_MANIFEST
+                ? manifestDataSourceFactory.createDataSource()
+                : dataSourceFactory.createDataSource()
+        );
+        dashFactory = new DashMediaSource.Factory(
+            new DefaultDashChunkSource.Factory(dataSourceFactory),
+            manifestDataSourceFactory
+        );
+        progressiveFactory = new ProgressiveMediaSource.Factory(dataSourceFactory);
+        loopFactory = new ProgressiveMediaSource.Factory(new LoopDataSource.Factory());
+
+        setLoadErrorHandlingPolicy(new RetryLoadErrorHandlingPolicy(context));
+    }
+
+    @Override
+    public MediaSource.Factory setDrmSessionManagerProvider(
+        DrmSessionManagerProvider drmSessionManagerProvider
+    ) {
+        hlsFactory.setDrmSessionManagerProvider(drmSessionManagerProvider);
+        dashFactory.setDrmSessionManagerProvider(drmSessionManagerProvider);
+        progressiveFactory.setDrmSessionManagerProvider(drmSessionManagerProvider);
+        loopFactory.setDrmSessionManagerProvider(drmSessionManagerProvider);
+
+        return this;
+    }
+
+    @Override
+    public MediaSource.Factory setLoadErrorHandlingPolicy(
+        LoadErrorHandlingPolicy loadErrorHandlingPolicy
+    ) {
+        hlsFactory.setLoadErrorHandlingPolicy(loadErrorHandlingPolicy);
+        dashFactory.setLoadErrorHandlingPolicy(loadErrorHandlingPolicy);
+        progressiveFactory.setLoadErrorHandlingPolicy(loadErrorHandlingPolicy);
+        loopFactory.setLoadErrorHandlingPolicy(loadErrorHandlingPolicy);
+
+        return this;
+    }
+
+    @Override
+    public @C.ContentType int[] getSupportedTypes() {
+        return new int[] { C.CONTENT_TYPE_HLS, C.CONTENT_TYPE_DASH, C.CONTENT_TYPE_OTHER };
+    }
+
+    @Override
+    public MediaSource createMediaSource(MediaItem mediaItem) {
+        if (
+            mediaItem.localConfiguration != null &&
+            LoopBuffers.isLoopUri(mediaItem.localConfiguration.uri)
+        ) {
+            return loopFactory.createMediaSource(mediaItem);
+        }
+
+        StreamType streamType = resolveStreamType(mediaItem);
+        Log.d(TAG, "Creating " + streamType + " media source for: " + mediaItem.mediaId);
+
+        switch (streamType) {
+            case HLS:
+                return hlsFactory.createMediaSource(mediaItem);
+            case DASH:
+                return dashFactory.createMediaSource(mediaItem);
+            default:
+                return progressiveFactory.createMediaSource(mediaItem);
+        }
+    }
+
+    /**
+     * Forces the stream type of the item instead of detecting it from the URI.
+     */
+    public static MediaItem.Builder setStreamType(
+        MediaItem.Builder builder,
+        StreamType streamType
+    ) {
+        Bundle extras = new Bundle();
+        extras.putString(EXTRA_STREAM_TYPE, streamType.name());
+
+        return builder
+            .setMimeType(streamType.getMimeType())
+            .setRequestMetadata(new MediaItem.RequestMetadata.Builder().setExtras(extras).build());
+    }
+
+    public static StreamType resolveStreamType(MediaItem mediaItem) {
+        if (mediaItem.localConfiguration == null) {
+            return StreamType.PROGRESSIVE;
+        }
+
+        Bundle extras = mediaItem.requestMetadata.extras;
+        String forcedStreamType = extras != null ? extras.getString(EXTRA_STREAM_TYPE) : null;
+
+        if (forcedStreamType != null) {
+            return StreamType.valueOf(forcedStreamType);
+        }
+
+        StreamType streamType = StreamType.fromMimeType(mediaItem.localConfiguration.mimeType);
+        if (streamType != null) {
+            return streamType;
+        }
+
+        return StreamType.detect(mediaItem.localConfiguration.uri.toString());
+    }
+}
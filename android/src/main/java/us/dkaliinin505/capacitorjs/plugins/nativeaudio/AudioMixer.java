@@ -0,0 +1,106 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.audio.AudioProcessor;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultRenderersFactory;
+import androidx.media3.exoplayer.RenderersFactory;
+import androidx.media3.exoplayer.audio.AudioSink;
+import org.json.JSONObject;
+
+/**
+ * Optional in-process mixing of background music sources into the notification player's output.
+ *
+ * A mixed source still has its own player for loading, decoding, retries and events, but its
+ * audio sink writes the decoded audio into a {@link MixerTrack} instead of an AudioTrack. The
+ * notification player mixes every track into its own output with a {@link MixingAudioProcessor},
+ * so all sources share one AudioTrack. The clock of a mixed source follows how much of its audio
+ * was mixed, minus the notification player's output latency (see {@link MixerOutputSink}). Mixed
+ * sources are only heard while the notification source plays.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class AudioMixer {
+
+    private static final String TAG = "AudioMixer";
+
+    private static final MixingAudioProcessor processor = new MixingAudioProcessor();
+
+    private static volatile boolean isEnabled = false;
+    private static volatile long outputLatencyUs = 0;
+
+    /**
+     * @param config The `mixing` object from the plugin config, null when not set
+     */
+    public static void configure(JSONObject config) {
+        isEnabled = config != null && config.optBoolean("enabled", false);
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public static boolean shouldMix(AudioSource audioSource) {
+        return isEnabled && audioSource.isBackgroundMusic && !audioSource.useForNotification;
+    }
+
+    public static MixerTrack addTrack(String audioId) {
+        MixerTrack track = new MixerTrack(audioId);
+        processor.addTrack(track);
+        AudioOffloadController.getInstance().onMixerTracksChanged();
+        Log.d(TAG, "Mixing audio source: " + audioId);
+
+        return track;
+    }
+
+    public static void removeTrack(MixerTrack track) {
+        processor.removeTrack(track);
+        AudioOffloadController.getInstance().onMixerTracksChanged();
+        Log.d(TAG, "Stopped mixing audio source: " + track.audioId);
+    }
+
+    public static boolean hasTracks() {
+        return processor.hasTracks();
+    }
+
+    /**
+     * Set by the notification player's {@link MixerOutputSink}.
+     */
+    static void setOutputLatencyUs(long latencyUs) {
+        outputLatencyUs = latencyUs;
+    }
+
+    /**
+     * How long audio mixed now takes until it is heard. Can be called from any thread.
+     */
+    public static long getOutputLatencyUs() {
+        return outputLatencyUs;
+    }
+
+    /**
+     * For the notification player, mixes the tracks into its output.
+     */
+    public static AudioProcessor getMixingProcessor() {
+        return processor;
+    }
+
+    /**
+     * For a mixed source's player, writes its audio into the track.
+     */
+    public static RenderersFactory createTrackRenderersFactory(Context context, MixerTrack track) {
+        return new DefaultRenderersFactory(context) {
+            @Override
+            protected AudioSink buildAudioSink(
+                Context context,
+                boolean enableFloatOutput,
+                boolean enableAudioTrackPlaybackParams
+            ) {
+                return new MixerAudioSink(
+                    track,
+                    super.buildAudioSink(context, false, enableAudioTrackPlaybackParams)
+                );
+            }
+        };
+    }
+}
@@ -0,0 +1,221 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.TrackSelectionParameters;
+import androidx.media3.common.TrackSelectionParameters.AudioOffloadPreferences;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import com.getcapacitor.JSObject;
+import java.util.List;
+import org.json.JSONObject;
+
+/**
+ * Hands decoding of the notification player over to the audio hardware when that saves power.
+ *
+ * Offload is only requested while the app is in the background and the notification source is
+ * the only source playing. As soon as another source (e.g. background music) plays, it has to be
+ * mixed with the notification audio on the CPU, so offload is turned off again. The player falls
+ * back to regular decoding on its own when the device can't offload the format.
+ *
+ * Offloaded audio goes to the hardware as is and skips the audio processors of the player's
+ * DefaultAudioSink, so offload is never requested while one of them has work to do: with loudness
+ * normalization enabled (the gain processor) or while any source is mixed (the mixing processor,
+ * from the moment the mixed source's player is created, before it plays). Offload is toggled
+ * mid-stream by changing the track selection parameters. The player then selects the tracks
+ * again and configures its sink again, and a sink configured without offload rebuilds its
+ * processing chain from the same processors, so they are set up again when offload turns off.
+ *
+ * Everything except the static methods runs on the main looper, which the notification player
+ * also runs on.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class AudioOffloadController
+    implements ExoPlayer.AudioOffloadListener, AudioSources.Listener {
+
+    private static final String TAG = "AudioOffloadController";
+
+    private static volatile boolean isEnabled = false;
+
+    private static AudioOffloadController instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private ExoPlayer player;
+    private AudioSources audioSources;
+    private boolean isAppInBackground = false;
+
+    // Guarded by this, also read by the metrics
+    private boolean isRequested = false;
+    private boolean isOffloaded = false;
+    private boolean isSleeping = false;
+    private long offloadedSinceMs = -1;
+    private long offloadedTimeMs = 0;
+    private int offloadCount = 0;
+
+    private AudioOffloadController() {}
+
+    public static synchronized AudioOffloadController getInstance() {
+        if (instance == null) {
+            instance = new AudioOffloadController();
+        }
+
+        return instance;
+    }
+
+    /**
+     * @param config The `audioOffload` object from the plugin config, null when not set
+     */
+    public static void configure(JSONObject config) {
+        isEnabled = config != null && config.optBoolean("enabled", false);
+    }
+
+    public void attach(ExoPlayer player, AudioSources audioSources) {
+        detach();
+
+        this.player = player;
+        this.audioSources = audioSources;
+
+        player.addAudioOffloadListener(this);
+        audioSources.addListener(this);
+
+        update();
+    }
+
+    public void detach() {
+        if (player != null) {
+            setOffloadRequested(false);
+            player.removeAudioOffloadListener(this);
+            player = null;
+        }
+
+        if (audioSources != null) {
+            audioSources.removeListener(this);
+            audioSources = null;
+        }
+
+        onOffloadedPlayback(false);
+        onSleepingForOffloadChanged(false);
+    }
+
+    /**
+     * Can be called from any thread.
+     */
+    public void setAppInBackground(boolean isAppInBackground) {
+        handler.post(() -> {
+            this.isAppInBackground = isAppInBackground;
+            update();
+        });
+    }
+
+    @Override
+    public void onPlayingSourcesChanged(AudioSources audioSources) {
+        handler.post(this::update);
+    }
+
+    /**
+     * Can be called from any thread.
+     */
+    public void onMixerTracksChanged() {
+        handler.post(this::update);
+    }
+
+    @Override
+    public synchronized void onOffloadedPlayback(boolean isOffloadedPlayback) {
+        if (isOffloadedPlayback == isOffloaded) {
+            return;
+        }
+
+        isOffloaded = isOffloadedPlayback;
+
+        if (isOffloaded) {
+            offloadedSinceMs = SystemClock.elapsedRealtime();
+            offloadCount++;
+        } else {
+            offloadedTimeMs += SystemClock.elapsedRealtime() - offloadedSinceMs;
+            offloadedSinceMs = -1;
+        }
+
+        Log.i(TAG, "Offloaded playback " + (isOffloaded ? "started" : "stopped"));
+    }
+
+    @Override
+    public synchronized void onSleepingForOffloadChanged(boolean isSleepingForOffload) {
+        isSleeping = isSleepingForOffload;
+    }
+
+    public static JSObject statsToJSObject() {
+        return getInstance().toJSObject();
+    }
+
+    private void update() {
+        if (player == null) {
+            return;
+        }
+
+        // Offloaded audio skips the audio processors, so it can't be normalized or mixed into
+        setOffloadRequested(
+            isEnabled &&
+            !LoudnessNormalizer.isEnabled() &&
+            !AudioMixer.hasTracks() &&
+            isAppInBackground &&
+            isOnlyNotificationPlaying()
+        );
+    }
+
+    private boolean isOnlyNotificationPlaying() {
+        if (audioSources == null) {
+            return false;
+        }
+
+        List<AudioSource> playingSources = audioSources.getPlayingSources();
+
+        return playingSources.size() == 1 && playingSources.get(0).useForNotification;
+    }
+
+    private void setOffloadRequested(boolean isOffloadRequested) {
+        synchronized (this) {
+            if (isOffloadRequested == isRequested) {
+                return;
+            }
+
+            isRequested = isOffloadRequested;
+        }
+
+        AudioOffloadPreferences preferences = isOffloadRequested
+            ? new AudioOffloadPreferences.Builder()
+                .setAudioOffloadMode(AudioOffloadPreferences.AUDIO_OFFLOAD_MODE_ENABLED)
+                // Keeps queued tracks gapless, formats without gapless support aren't offloaded
+                .setIsGaplessSupportRequired(true)
+                .build()
+            : AudioOffloadPreferences.DEFAULT;
+
+        TrackSelectionParameters parameters = player
+            .getTrackSelectionParameters()
+            .buildUpon()
+            .setAudioOffloadPreferences(preferences)
+            .build();
+        player.setTrackSelectionParameters(parameters);
+
+        Log.i(TAG, "Audio offload " + (isOffloadRequested ? "requested" : "turned off"));
+    }
+
+    private synchronized JSObject toJSObject() {
+        long totalOffloadedTimeMs = offloadedTimeMs;
+
+        if (isOffloaded) {
+            totalOffloadedTimeMs += SystemClock.elapsedRealtime() - offloadedSinceMs;
+        }
+
+        return new JSObject()
+            .put("enabled", isEnabled)
+            .put("requested", isRequested)
+            .put("active", isOffloaded)
+            .put("sleeping", isSleeping)
+            .put("activeTimeMs", totalOffloadedTimeMs)
+            .put("activationCount", offloadCount);
+    }
+}
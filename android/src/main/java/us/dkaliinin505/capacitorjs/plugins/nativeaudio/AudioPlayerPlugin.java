@@ -8,11 +8,14 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Base64;
 import android.util.Log;
+import androidx.media3.common.C;
 import androidx.media3.session.MediaController;
 import androidx.media3.session.SessionCommand;
 import androidx.media3.session.SessionResult;
 import androidx.media3.session.SessionToken;
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -20,7 +23,13 @@ import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 import us.dkaliinin505.capacitorjs.plugins.nativeaudio.exceptions.DestroyNotAllowedException;
 
 @CapacitorPlugin(name = "AudioPlayer")
@@ -28,12 +37,24 @@ public class AudioPlayerPlugin extends Plugin {
 
     private static final String TAG = "AudioPlayerPlugin";
 
+    private static final long DEFAULT_METRICS_INTERVAL_MS = 10000;
+    private static final long MIN_METRICS_INTERVAL_MS = 1000;
+
     private ListenableFuture<MediaController> audioMediaControllerFuture;
     private MediaController audioMediaController;
 
     private AudioSources audioSources = new AudioSources();
+    private MediaPreloader mediaPreloader;
+    private ProgressTicker progressTicker;
+    private DownloadEventReporter downloadEventReporter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private HashMap<String, Runnable> metricsReporters = new HashMap<>();
+    private List<String> networkChangeCallbackIds = new ArrayList<>();
+    private final ConnectivityMonitor.Listener networkListener = this::onNetworkChanged;
     private HashMap<String, String> appOnStartCallbackIds = new HashMap<>();
     private HashMap<String, String> appOnStopCallbackIds = new HashMap<>();
+    // Between onStop and onStart, services can only be started in the foreground
+    private volatile boolean isAppInBackground = false;
 
     @Override
     public void load() {
@@ -42,6 +63,22 @@ public class AudioPlayerPlugin extends Plugin {
         super.load();
 
         createNotificationChannel();
+        configureMemory();
+
+        JSONObject config = getConfig().getConfigJSON();
+        RetryPolicy.configure(config.optJSONObject("retryPolicy"));
+        AudioDownloads.configure(config.optJSONObject("downloads"));
+        AudioOffloadController.configure(config.optJSONObject("audioOffload"));
+        AudioMixer.configure(config.optJSONObject("mixing"));
+        SoundEffects.configure(config.optJSONObject("soundEffects"));
+        LoopBuffers.configure(config.optJSONObject("seamlessLoop"));
+        LoudnessNormalizer.configure(config.optJSONObject("loudnessNormalization"));
+
+        mediaPreloader = new MediaPreloader(getContext());
+        progressTicker = new ProgressTicker(this, audioSources);
+        downloadEventReporter = new DownloadEventReporter(this);
+        ConnectivityMonitor.getInstance(getContext()).addListener(networkListener);
+        mainHandler.post(() -> AudioDownloads.resumePendingDownloads(getContext()));
     }
 
     @PluginMethod
@@ -73,6 +110,20 @@ public class AudioPlayerPlugin extends Plugin {
                 call.getBoolean("isBackgroundMusic", false),
                 call.getBoolean("loop", false)
             );
+            audioSource.setBufferProfile(
+                BufferProfile.fromValue(call.getData().opt("bufferProfile"))
+            );
+            audioSource.setStreamType(StreamType.fromValue(call.getString("streamType")));
+
+            if (call.getBoolean("seamlessLoop", false)) {
+                Double loopStart = call.getDouble("loopStart");
+                Double loopEnd = call.getDouble("loopEnd");
+
+                audioSource.setSeamlessLoop(
+                    loopStart != null ? Math.round(loopStart * 1000) : 0,
+                    loopEnd != null ? Math.round(loopEnd * 1000) : C.TIME_UNSET
+                );
+            }
 
             if (audioSources.count() == 0 && !audioSource.useForNotification) {
                 throw new RuntimeException(
@@ -219,7 +270,7 @@ public class AudioPlayerPlugin extends Plugin {
 
             AudioSource audioSource = audioSources.get(audioId(call));
 
-            postToLooper("changeAudioSource", call, () -> {
+            postToPlayer("changeAudioSource", call, audioSources.get(audioId(call)), () -> {
                 audioSource.changeAudioSource(call.getString("source"));
 
                 call.resolve();
@@ -238,7 +289,7 @@ public class AudioPlayerPlugin extends Plugin {
 
             AudioSource audioSource = audioSources.get(audioId(call));
 
-            postToLooper("changeMetadata", call, () -> {
+            postToPlayer("changeMetadata", call, audioSources.get(audioId(call)), () -> {
                 audioSource.changeMetadata(
                     new AudioMetadata(
                         call.getString("albumTitle"),
@@ -262,9 +313,14 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("getDuration", call, () -> {
+            postToPlayer("getDuration", call, audioSources.get(audioId(call)), () -> {
+                AudioSource audioSource = audioSources.get(audioId(call));
+                long durationMs = audioSource.getDurationMs();
+
                 call.resolve(
-                    new JSObject().put("duration", audioSources.get(audioId(call)).getDuration())
+                    new JSObject()
+                        .put("duration", audioSource.getDuration())
+                        .put("durationMs", durationMs == C.TIME_UNSET ? -1 : durationMs)
                 );
             });
         } catch (Exception ex) {
@@ -279,10 +335,17 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("getCurrentTime", call, () -> {
+            postToPlayer("getCurrentTime", call, audioSources.get(audioId(call)), () -> {
+                AudioSource audioSource = audioSources.get(audioId(call));
+                long currentTimeMs = audioSource.getCurrentTimeMs();
+                long bufferedPositionMs = audioSource.getBufferedPositionMs();
+
                 call.resolve(
                     new JSObject()
-                        .put("currentTime", audioSources.get(audioId(call)).getCurrentTime())
+                        .put("currentTime", currentTimeMs / 1000.0)
+                        .put("currentTimeMs", currentTimeMs)
+                        .put("bufferedPosition", bufferedPositionMs / 1000.0)
+                        .put("bufferedPositionMs", bufferedPositionMs)
                 );
             });
         } catch (Exception ex) {
@@ -297,7 +360,7 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("play", call, () -> {
+            postToPlayer("play", call, audioSources.get(audioId(call)), () -> {
                 audioSources.get(audioId(call)).play();
 
                 call.resolve();
@@ -314,7 +377,7 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("pause", call, () -> {
+            postToPlayer("pause", call, audioSources.get(audioId(call)), () -> {
                 audioSources.get(audioId(call)).pause();
 
                 call.resolve();
@@ -331,8 +394,15 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("seek", call, () -> {
-                audioSources.get(audioId(call)).seek(call.getInt("timeInSeconds"));
+            postToPlayer("seek", call, audioSources.get(audioId(call)), () -> {
+                AudioSource audioSource = audioSources.get(audioId(call));
+                Long timeMs = call.getLong("timeMs");
+
+                if (timeMs != null) {
+                    audioSource.seekMs(timeMs);
+                } else {
+                    audioSource.seek(call.getDouble("timeInSeconds"));
+                }
 
                 call.resolve();
             });
@@ -348,7 +418,7 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("stop", call, () -> {
+            postToPlayer("stop", call, audioSources.get(audioId(call)), () -> {
                 audioSources.get(audioId(call)).stop();
 
                 call.resolve();
@@ -365,7 +435,7 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("setVolume", call, () -> {
+            postToPlayer("setVolume", call, audioSources.get(audioId(call)), () -> {
                 audioSources.get(audioId(call)).setVolume(call.getFloat("volume"));
 
                 call.resolve();
@@ -382,8 +452,18 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("setRate", call, () -> {
-                audioSources.get(audioId(call)).setRate(call.getFloat("rate"));
+            postToPlayer("setRate", call, audioSources.get(audioId(call)), () -> {
+                AudioSource audioSource = audioSources.get(audioId(call));
+                float rate = call.getFloat("rate");
+
+                if (audioSource.isMixed() && rate != 1) {
+                    call.reject(
+                        "There was an issue setting the rate of the audio, mixed audio sources always play at a rate of 1."
+                    );
+                    return;
+                }
+
+                audioSource.setRate(rate);
 
                 call.resolve();
             });
@@ -399,7 +479,7 @@ public class AudioPlayerPlugin extends Plugin {
                 return;
             }
 
-            postToLooper("isPlaying", call, () -> {
+            postToPlayer("isPlaying", call, audioSources.get(audioId(call)), () -> {
                 call.resolve(
                     new JSObject().put("isPlaying", audioSources.get(audioId(call)).isPlaying())
                 );
@@ -409,6 +489,41 @@ public class AudioPlayerPlugin extends Plugin {
         }
     }
 
+    @PluginMethod
+    public void batch(PluginCall call) {
+        try {
+            JSArray ops = call.getArray("ops");
+            if (ops == null || ops.length() == 0) {
+                call.reject("There was an issue running the batch, ops are required.");
+                return;
+            }
+
+            // Validate everything first so a batch never runs partially because of a typo
+            List<BatchOperation> operations = new ArrayList<>();
+
+            for (int i = 0; i < ops.length(); i++) {
+                operations.add(BatchOperation.fromJSON(i, ops.optJSONObject(i), audioSources));
+            }
+
+            BatchRunner.run(
+                operations,
+                audioId ->
+                    PlaybackCommandExecutor.getInstance().getLooperFor(audioSources.get(audioId)),
+                operation -> {
+                    AudioSource audioSource = audioSources.get(operation.audioId);
+                    if (audioSource == null) {
+                        throw new IllegalStateException("The audio source was destroyed.");
+                    }
+
+                    return operation.execute(audioSource);
+                },
+                call::resolve
+            );
+        } catch (Exception ex) {
+            call.reject("There was an issue running the batch.", ex);
+        }
+    }
+
     @PluginMethod
     public void destroy(PluginCall call) {
         try {
@@ -431,13 +546,17 @@ public class AudioPlayerPlugin extends Plugin {
             appOnStartCallbackIds.remove(audioId);
             appOnStopCallbackIds.remove(audioId);
 
-            postToLooper("destroy", call, () -> {
+            postToPlayer("destroy", call, audioSources.get(audioId(call)), () -> {
                 if (audioSource.useForNotification) {
                     releaseMediaController();
+                    audioSources.getPlayerPool().clear();
                 } else {
                     audioSource.releasePlayer();
                 }
 
+                progressTicker.removeSource(audioId);
+                mediaPreloader.cancel(audioId);
+                PlaybackMetrics.remove(audioId);
                 audioSources.remove(audioId);
 
                 call.resolve();
@@ -447,6 +566,305 @@ public class AudioPlayerPlugin extends Plugin {
         }
     }
 
+    @PluginMethod
+    public void setQueue(PluginCall call) {
+        try {
+            if (!audioSourceExists("setQueue", call)) {
+                return;
+            }
+
+            AudioSource audioSource = audioSources.get(audioId(call));
+            List<AudioQueueItem> items = queueItems(call);
+
+            postToPlayer("setQueue", call, audioSources.get(audioId(call)), () -> {
+                audioSource.setQueue(items, call.getInt("startIndex", 0));
+
+                call.resolve();
+            });
+        } catch (Exception ex) {
+            call.reject("There was an issue setting the queue.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void appendToQueue(PluginCall call) {
+        try {
+            if (!audioSourceExists("appendToQueue", call)) {
+                return;
+            }
+
+            AudioSource audioSource = audioSources.get(audioId(call));
+            List<AudioQueueItem> items = queueItems(call);
+
+            postToPlayer("appendToQueue", call, audioSources.get(audioId(call)), () -> {
+                audioSource.appendToQueue(items);
+
+                call.resolve();
+            });
+        } catch (Exception ex) {
+            call.reject("There was an issue appending to the queue.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void removeFromQueue(PluginCall call) {
+        try {
+            if (!audioSourceExists("removeFromQueue", call)) {
+                return;
+            }
+
+            postToPlayer("removeFromQueue", call, audioSources.get(audioId(call)), () -> {
+                audioSources.get(audioId(call)).removeFromQueue(call.getInt("index"));
+
+                call.resolve();
+            });
+        } catch (Exception ex) {
+            call.reject("There was an issue removing from the queue.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void moveQueueItem(PluginCall call) {
+        try {
+            if (!audioSourceExists("moveQueueItem", call)) {
+                return;
+            }
+
+            postToPlayer("moveQueueItem", call, audioSources.get(audioId(call)), () -> {
+                audioSources
+                    .get(audioId(call))
+                    .moveQueueItem(call.getInt("fromIndex"), call.getInt("toIndex"));
+
+                call.resolve();
+            });
+        } catch (Exception ex) {
+            call.reject("There was an issue moving the queue item.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void skipTo(PluginCall call) {
+        try {
+            if (!audioSourceExists("skipTo", call)) {
+                return;
+            }
+
+            postToPlayer("skipTo", call, audioSources.get(audioId(call)), () -> {
+                audioSources.get(audioId(call)).skipTo(call.getInt("index"));
+
+                call.resolve();
+            });
+        } catch (Exception ex) {
+            call.reject("There was an issue skipping to the queue item.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void preload(PluginCall call) {
+        try {
+            if (!audioSourceExists("preload", call)) {
+                return;
+            }
+
+            JSArray sources = call.getArray("sources");
+            if (sources == null) {
+                call.reject("There was an issue preloading the audio, sources are required.");
+                return;
+            }
+
+            List<String> sourceList = new ArrayList<>();
+
+            for (int i = 0; i < sources.length(); i++) {
+                Object source = sources.opt(i);
+
+                if (!(source instanceof String)) {
+                    call.reject(
+                        String.format(
+                            "There was an issue preloading the audio, source %s is not a string.",
+                            i
+                        )
+                    );
+                    return;
+                }
+
+                sourceList.add((String) source);
+            }
+
+            mediaPreloader.preload(
+                audioId(call),
+                sourceList,
+                call.getLong("bytesPerItem", MediaPreloader.DEFAULT_BYTES_PER_ITEM),
+                new MediaPreloader.Callback() {
+                    @Override
+                    public void onComplete(List<MediaPreloader.Result> results) {
+                        JSArray resultArray = new JSArray();
+
+                        for (MediaPreloader.Result result : results) {
+                            resultArray.put(
+                                new JSObject()
+                                    .put("source", result.source)
+                                    .put("status", result.status)
+                                    .put("bytesCached", result.bytesCached)
+                            );
+                        }
+
+                        call.resolve(new JSObject().put("results", resultArray));
+                    }
+
+                    @Override
+                    public void onReleased() {
+                        call.reject(
+                            "There was an issue preloading the audio, the player was released."
+                        );
+                    }
+
+                    @Override
+                    public void onFailed(Exception ex) {
+                        call.reject("There was an issue preloading the audio.", ex);
+                    }
+                }
+            );
+        } catch (Exception ex) {
+            call.reject("There was an issue preloading the audio.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void cancelPreload(PluginCall call) {
+        try {
+            call.resolve(
+                new JSObject().put("cancelled", mediaPreloader.cancel(audioId(call)))
+            );
+        } catch (Exception ex) {
+            call.reject("There was an issue cancelling the preload.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void download(PluginCall call) {
+        try {
+            String source = call.getString("audioSource");
+
+            if (source == null) {
+                call.reject("There was an issue downloading the audio, audioSource is required.");
+                return;
+            }
+
+            String id = call.getString("id", source);
+
+            AudioDownloads.add(
+                getContext(),
+                AudioDownloads.buildRequest(
+                    id,
+                    source,
+                    StreamType.fromValue(call.getString("streamType")),
+                    call.getString("title")
+                ),
+                isAppInBackground
+            );
+
+            call.resolve(new JSObject().put("id", id));
+        } catch (Exception ex) {
+            call.reject("There was an issue downloading the audio.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void removeDownload(PluginCall call) {
+        try {
+            String id = call.getString("id");
+
+            if (id == null) {
+                call.reject("There was an issue removing the download, id is required.");
+                return;
+            }
+
+            AudioDownloads.remove(getContext(), id, isAppInBackground);
+            call.resolve();
+        } catch (Exception ex) {
+            call.reject("There was an issue removing the download.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void getDownloads(PluginCall call) {
+        // The download manager belongs to the main looper
+        postToLooper("getDownloads", call, () -> {
+            try {
+                call.resolve(
+                    new JSObject().put("downloads", AudioDownloads.getDownloads(getContext()))
+                );
+            } catch (IOException ex) {
+                call.reject("There was an issue getting the downloads.", ex);
+            }
+        });
+    }
+
+    @PluginMethod
+    public void getCacheStats(PluginCall call) {
+        try {
+            long hitBytes = MediaCache.getHitBytes();
+            long missBytes = MediaCache.getMissBytes();
+            long totalBytes = hitBytes + missBytes;
+
+            call.resolve(
+                new JSObject()
+                    .put("hitBytes", hitBytes)
+                    .put("missBytes", missBytes)
+                    .put("hitRatio", totalBytes == 0 ? 0 : (double) hitBytes / totalBytes)
+                    .put("cacheSizeBytes", MediaCache.getCacheSpace())
+                    .put("maxBytes", MediaCache.getMaxBytes())
+            );
+        } catch (Exception ex) {
+            call.reject("There was an issue getting the cache stats.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void getPlayerPoolStats(PluginCall call) {
+        try {
+            PlayerPool playerPool = audioSources.getPlayerPool();
+
+            call.resolve(
+                new JSObject()
+                    .put("hits", playerPool.getHits())
+                    .put("misses", playerPool.getMisses())
+                    .put("evictions", playerPool.getEvictions())
+                    .put("idle", playerPool.idleCount())
+            );
+        } catch (Exception ex) {
+            call.reject("There was an issue getting the player pool stats.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void getCommandStats(PluginCall call) {
+        try {
+            PlaybackCommandExecutor executor = PlaybackCommandExecutor.getInstance();
+
+            call.resolve(
+                new JSObject()
+                    .put("executed", executor.getExecutedCount())
+                    .put("queueDepth", executor.getQueueDepth())
+                    .put("maxQueueDepth", executor.getMaxQueueDepth())
+                    .put("averageQueueLatencyMs", executor.getAverageQueueLatencyMs())
+                    .put("maxQueueLatencyMs", executor.getMaxQueueLatencyMs())
+                    .put("averageExecutionMs", executor.getAverageExecutionMs())
+            );
+        } catch (Exception ex) {
+            call.reject("There was an issue getting the command stats.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void getPlaybackMetrics(PluginCall call) {
+        try {
+            call.resolve(PlaybackMetrics.toJSObject(audioId(call)));
+        } catch (Exception ex) {
+            call.reject("There was an issue getting the playback metrics.", ex);
+        }
+    }
+
     @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
     public void onAppGainsFocus(PluginCall call) {
         call.setKeepAlive(true);
@@ -535,12 +953,268 @@ public class AudioPlayerPlugin extends Plugin {
         audioSources.get(audioId(call)).setOnAudioStalled(call.getCallbackId());
     }
 
+    @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
+    public void onQueueIndexChange(PluginCall call) {
+        if (!audioSourceExists("onQueueIndexChange", call)) {
+            return;
+        }
+
+        call.setKeepAlive(true);
+        getBridge().saveCall(call);
+
+        audioSources.get(audioId(call)).setOnQueueIndexChange(call.getCallbackId());
+    }
+
+    @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
+    public void onProgress(PluginCall call) {
+        // Without an audio ID every playing source is reported in one message
+        if (audioId(call) != null && !audioSourceExists("onProgress", call)) {
+            return;
+        }
+
+        call.setKeepAlive(true);
+        getBridge().saveCall(call);
+
+        progressTicker.subscribe(
+            call.getCallbackId(),
+            audioId(call),
+            call.getLong("intervalMs", ProgressTicker.DEFAULT_INTERVAL_MS)
+        );
+    }
+
+    /**
+     * Stops an `onProgress` subscription. Registering it again with a new interval changes how
+     * often progress is reported.
+     */
+    @PluginMethod
+    public void removeProgressListener(PluginCall call) {
+        String callbackId = call.getString("callbackId");
+
+        if (callbackId == null) {
+            call.reject(
+                "There was an issue removing the progress listener, callbackId is required."
+            );
+            return;
+        }
+
+        progressTicker.unsubscribe(callbackId);
+
+        PluginCall savedCall = getBridge().getSavedCall(callbackId);
+
+        if (savedCall != null) {
+            getBridge().releaseCall(savedCall);
+        }
+
+        call.resolve();
+    }
+
+    @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
+    public void onMetrics(PluginCall call) {
+        call.setKeepAlive(true);
+        getBridge().saveCall(call);
+
+        String callbackId = call.getCallbackId();
+        long intervalMs = Math.max(
+            MIN_METRICS_INTERVAL_MS,
+            call.getLong("intervalMs", DEFAULT_METRICS_INTERVAL_MS)
+        );
+
+        Runnable reporter = new Runnable() {
+            @Override
+            public void run() {
+                PluginCall savedCall = getBridge().getSavedCall(callbackId);
+
+                if (savedCall == null) {
+                    metricsReporters.remove(callbackId);
+                    return;
+                }
+
+                savedCall.resolve(PlaybackMetrics.toJSObject(null));
+                mainHandler.postDelayed(this, intervalMs);
+            }
+        };
+
+        mainHandler.post(() -> {
+            metricsReporters.put(callbackId, reporter);
+            mainHandler.postDelayed(reporter, intervalMs);
+        });
+    }
+
+    /**
+     * Stops an `onMetrics` reporter. Registering it again with a new interval changes how often
+     * metrics are reported.
+     */
+    @PluginMethod
+    public void removeMetricsListener(PluginCall call) {
+        String callbackId = call.getString("callbackId");
+
+        if (callbackId == null) {
+            call.reject(
+                "There was an issue removing the metrics listener, callbackId is required."
+            );
+            return;
+        }
+
+        mainHandler.post(() -> {
+            Runnable reporter = metricsReporters.remove(callbackId);
+
+            if (reporter != null) {
+                mainHandler.removeCallbacks(reporter);
+            }
+
+            PluginCall savedCall = getBridge().getSavedCall(callbackId);
+
+            if (savedCall != null) {
+                getBridge().releaseCall(savedCall);
+            }
+
+            call.resolve();
+        });
+    }
+
+    @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
+    public void onNetworkChange(PluginCall call) {
+        call.setKeepAlive(true);
+        getBridge().saveCall(call);
+
+        String callbackId = call.getCallbackId();
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance(getContext());
+
+        mainHandler.post(() -> {
+            networkChangeCallbackIds.add(callbackId);
+
+            // Start with the current state so the app doesn't have to wait for a change
+            call.resolve(networkStatus(monitor.isOnline(), monitor.isMetered()));
+        });
+    }
+
+    @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
+    public void onDownloadProgress(PluginCall call) {
+        call.setKeepAlive(true);
+        getBridge().saveCall(call);
+
+        downloadEventReporter.subscribe(call.getCallbackId());
+    }
+
+    @PluginMethod
+    public void loadEffect(PluginCall call) {
+        try {
+            String effectId = call.getString("effectId");
+            String source = call.getString("source");
+
+            if (effectId == null || source == null) {
+                call.reject(
+                    "There was an issue loading the sound effect, effectId and source are required."
+                );
+                return;
+            }
+
+            SoundEffects.getInstance(getContext())
+                .load(effectId, source, call.getInt("maxVoices", 2), error -> {
+                    if (error != null) {
+                        call.reject("There was an issue loading the sound effect.", error);
+                    } else {
+                        call.resolve();
+                    }
+                });
+        } catch (Exception ex) {
+            call.reject("There was an issue loading the sound effect.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void playEffect(PluginCall call) {
+        try {
+            String effectId = call.getString("effectId");
+
+            if (effectId == null) {
+                call.reject("There was an issue playing the sound effect, effectId is required.");
+                return;
+            }
+
+            SoundEffects.getInstance(getContext())
+                .play(effectId, call.getFloat("volume", 1f), error -> {
+                    if (error != null) {
+                        call.reject("There was an issue playing the sound effect.", error);
+                    } else {
+                        call.resolve();
+                    }
+                });
+        } catch (Exception ex) {
+            call.reject("There was an issue playing the sound effect.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void unloadEffect(PluginCall call) {
+        try {
+            String effectId = call.getString("effectId");
+
+            if (effectId == null) {
+                call.reject("There was an issue unloading the sound effect, effectId is required.");
+                return;
+            }
+
+            SoundEffects.getInstance(getContext()).unload(effectId);
+            call.resolve();
+        } catch (Exception ex) {
+            call.reject("There was an issue unloading the sound effect.", ex);
+        }
+    }
+
+    @PluginMethod
+    public void getWaveform(PluginCall call) {
+        try {
+            if (!audioSourceExists("getWaveform", call)) {
+                return;
+            }
+
+            AudioSource audioSource = audioSources.get(audioId(call));
+            int buckets = call.getInt("buckets", 0);
+
+            if (buckets < 1 || buckets > WaveformLoader.MAX_BUCKETS) {
+                call.reject(
+                    String.format(
+                        "There was an issue getting the waveform, buckets must be between 1 and %s.",
+                        WaveformLoader.MAX_BUCKETS
+                    )
+                );
+                return;
+            }
+
+            if (audioSource.getStreamType() != StreamType.PROGRESSIVE) {
+                call.reject(
+                    "There was an issue getting the waveform, HLS and DASH streams aren't supported."
+                );
+                return;
+            }
+
+            WaveformLoader.load(getContext(), audioSource.source, buckets, (waveform, error) -> {
+                if (error != null) {
+                    call.reject("There was an issue getting the waveform.", error);
+                    return;
+                }
+
+                call.resolve(
+                    new JSObject()
+                        .put("buckets", waveform.getBucketCount())
+                        .put("durationMs", waveform.durationMs)
+                        .put("peaks", Base64.encodeToString(waveform.peaks, Base64.NO_WRAP))
+                );
+            });
+        } catch (Exception ex) {
+            call.reject("There was an issue getting the waveform.", ex);
+        }
+    }
+
     @Override
     protected void handleOnStart() {
         Log.i(TAG, "Handling onStart");
 
         super.handleOnStart();
 
+        isAppInBackground = false;
+        AudioOffloadController.getInstance().setAppInBackground(false);
         makeAppStatusChangeCallbacks(appOnStartCallbackIds);
     }
 
@@ -549,6 +1223,8 @@ public class AudioPlayerPlugin extends Plugin {
         Log.i(TAG, "Handling onStop");
 
         makeAppStatusChangeCallbacks(appOnStopCallbackIds);
+        isAppInBackground = true;
+        AudioOffloadController.getInstance().setAppInBackground(true);
 
         super.handleOnStop();
     }
@@ -558,6 +1234,29 @@ public class AudioPlayerPlugin extends Plugin {
         Log.i(TAG, "Handling onDestroy");
 
         releaseMediaController();
+        audioSources.getPlayerPool().clear();
+
+        if (progressTicker != null) {
+            progressTicker.release();
+        }
+
+        if (downloadEventReporter != null) {
+            downloadEventReporter.release();
+        }
+
+        ConnectivityMonitor.getInstance(getContext()).removeListener(networkListener);
+        networkChangeCallbackIds.clear();
+
+        for (Runnable reporter : metricsReporters.values()) {
+            mainHandler.removeCallbacks(reporter);
+        }
+        metricsReporters.clear();
+
+        if (mediaPreloader != null) {
+            mediaPreloader.release();
+        }
+
+        SoundEffects.releaseInstance();
 
         super.handleOnDestroy();
     }
@@ -630,6 +1329,34 @@ public class AudioPlayerPlugin extends Plugin {
         return call.getString("audioId");
     }
 
+    private List<AudioQueueItem> queueItems(PluginCall call) throws JSONException {
+        JSArray items = call.getArray("items");
+        if (items == null || items.length() == 0) {
+            throw new IllegalArgumentException("At least one queue item is required.");
+        }
+
+        List<AudioQueueItem> queueItems = new ArrayList<>();
+
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject item = items.getJSONObject(i);
+
+            queueItems.add(
+                new AudioQueueItem(
+                    item.optString("id", null),
+                    item.getString("audioSource"),
+                    new AudioMetadata(
+                        item.optString("albumTitle", null),
+                        item.optString("artistName", null),
+                        item.optString("friendlyTitle", null),
+                        item.optString("artworkSource", null)
+                    )
+                )
+            );
+        }
+
+        return queueItems;
+    }
+
     private boolean audioSourceExists(String methodName, PluginCall call) {
         return audioSourceExists(methodName, call, true);
     }
@@ -673,6 +1400,56 @@ public class AudioPlayerPlugin extends Plugin {
         manager.createNotificationChannel(playbackChannel);
     }
 
+    private void configureMemory() {
+        JSONObject config = getConfig().getConfigJSON();
+
+        List<String> ignoredQueryParams = new ArrayList<>();
+        JSONArray ignoredQueryParamsArray = config.optJSONArray("cacheKeyIgnoredQueryParams");
+
+        if (ignoredQueryParamsArray != null) {
+            for (int i = 0; i < ignoredQueryParamsArray.length(); i++) {
+                ignoredQueryParams.add(ignoredQueryParamsArray.optString(i));
+            }
+        }
+
+        MediaCache.configure(
+            config.optLong("cacheMaxBytes", MediaCache.DEFAULT_MAX_BYTES),
+            config.optBoolean("cacheKeyStripQueryParams", false),
+            ignoredQueryParams
+        );
+        BufferMemoryBudget.configure(
+            config.optLong("bufferBudgetBytes", BufferMemoryBudget.DEFAULT_BUDGET_BYTES)
+        );
+    }
+
+    /**
+     * Called on the main looper. Retries waiting for the network are scheduled again and players
+     * pick the buffer profile for the new network type.
+     */
+    private void onNetworkChanged(boolean isOnline, boolean isMetered) {
+        for (AudioSource audioSource : audioSources.getAllSources()) {
+            PlaybackCommandExecutor.getInstance()
+                .execute(audioSource, () -> audioSource.onNetworkChanged(isOnline));
+        }
+
+        JSObject status = networkStatus(isOnline, isMetered);
+
+        for (String callbackId : new ArrayList<>(networkChangeCallbackIds)) {
+            PluginCall call = getBridge().getSavedCall(callbackId);
+
+            if (call == null) {
+                networkChangeCallbackIds.remove(callbackId);
+                continue;
+            }
+
+            call.resolve(status);
+        }
+    }
+
+    private JSObject networkStatus(boolean isOnline, boolean isMetered) {
+        return new JSObject().put("online", isOnline).put("metered", isMetered);
+    }
+
     private void makeAppStatusChangeCallbacks(HashMap<String, String> callbackIds) {
         for (String callbackId : callbackIds.values()) {
             PluginCall call = getBridge().getSavedCall(callbackId);
@@ -686,19 +1463,36 @@ public class AudioPlayerPlugin extends Plugin {
     }
 
     private void postToLooper(String methodName, PluginCall call, Runnable callback) {
-        new Handler(Looper.getMainLooper()).post(() -> {
-            try {
-                callback.run();
-            } catch (Exception ex) {
-                call.reject(
-                    String.format(
-                        "There was an issue posting to the looper for method %s",
-                        methodName
-                    ),
-                    ex
-                );
-            }
-        });
+        mainHandler.post(() -> runCommand(methodName, call, callback));
+    }
+
+    /**
+     * Posts the callback to the thread the audio source's player must be used from. Commands
+     * for the same audio source run in the order they were posted.
+     */
+    private void postToPlayer(
+        String methodName,
+        PluginCall call,
+        AudioSource audioSource,
+        Runnable callback
+    ) {
+        PlaybackCommandExecutor.getInstance()
+            .execute(audioSource, () -> runCommand(methodName, call, callback));
+    }
+
+    private void runCommand(String methodName, PluginCall call, Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception ex) {
+            call.reject(
+                String.format("There was an issue posting to the looper for method %s", methodName),
+                ex
+            );
+        }
+    }
+
+    public ProgressTicker getProgressTicker() {
+        return progressTicker;
     }
 
     public void handlePlayNextCallback(String callbackId) {
@@ -2,17 +2,19 @@ package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
 
 import android.content.Intent;
 import android.os.IBinder;
-import android.os.PowerManager;
 import android.util.Log;
 import androidx.annotation.Nullable;
 import androidx.annotation.OptIn;
 import androidx.media3.common.AudioAttributes;
 import androidx.media3.common.C;
 import androidx.media3.common.Player;
+import androidx.media3.common.audio.AudioProcessor;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.exoplayer.ExoPlayer;
 import androidx.media3.session.MediaSession;
 import androidx.media3.session.MediaSessionService;
+import java.util.ArrayList;
+import java.util.List;
 
 public class AudioPlayerService extends MediaSessionService {
 
@@ -20,29 +22,65 @@ public class AudioPlayerService extends MediaSessionService {
     public static final String PLAYBACK_CHANNEL_ID = "playback_channel";
 
     private MediaSession mediaSession = null;
-    private PowerManager.WakeLock wakeLock = null;
-    private WiFiLockManager wifiLockManager = null;
+    private ExoPlayer player = null;
+    private PlaybackMetricsListener metricsListener = null;
+    private BudgetedLoadControl loadControl = null;
+    private AudioSource notificationSource = null;
+    private final ConnectivityMonitor.Listener networkListener = (isOnline, isMetered) -> {
+        if (loadControl == null) {
+            return;
+        }
+
+        loadControl.setProfile(
+            notificationSource != null
+                ? notificationSource.getBufferProfile()
+                : BufferProfile.forNetwork(BufferProfile.LONG_FORM, isMetered)
+        );
+    };
 
+    @OptIn(markerClass = UnstableApi.class)
     @Override
     public void onCreate() {
         Log.i(TAG, "Service being created");
         super.onCreate();
 
-        // Acquire wake lock to prevent network disconnections
-        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
-        wakeLock = powerManager.newWakeLock(
-            PowerManager.PARTIAL_WAKE_LOCK,
-            "AudioPlayerService::WakeLock"
+        ConnectivityMonitor connectivityMonitor = ConnectivityMonitor.getInstance(this);
+        // The notification source isn't known yet. Its profile is applied once it is, except
+        // for the back buffer, which the player only reads when it is built.
+        loadControl = RobustHlsConfig.createLoadControl(
+            BufferProfile.forNetwork(BufferProfile.LONG_FORM, connectivityMonitor.isMetered()),
+            true
         );
-        wakeLock.acquire(10 * 60 * 1000L /*10 minutes*/);
+        connectivityMonitor.addListener(networkListener);
+
+        // Normalize the notification source before mixing the other sources into it
+        List<AudioProcessor> audioProcessors = new ArrayList<>();
+        GainAudioProcessor gainProcessor = null;
+
+        if (LoudnessNormalizer.isEnabled()) {
+            gainProcessor = new GainAudioProcessor();
+            audioProcessors.add(gainProcessor);
+        }
 
-        // Acquire WiFi lock for stable streaming
-        wifiLockManager = new WiFiLockManager(this);
-        wifiLockManager.acquireLock();
+        if (AudioMixer.isEnabled()) {
+            audioProcessors.add(AudioMixer.getMixingProcessor());
+        }
 
         // Create ExoPlayer with robust configuration for long playback sessions
-        ExoPlayer player = new ExoPlayer.Builder(this)
-            .setLoadControl(RobustHlsConfig.createRobustLoadControl())
+        ExoPlayer.Builder builder = audioProcessors.isEmpty()
+            ? new ExoPlayer.Builder(this)
+            : new ExoPlayer.Builder(
+                this,
+                PlayerPool.createRenderersFactory(
+                    this,
+                    AudioMixer.isEnabled(),
+                    audioProcessors.toArray(new AudioProcessor[0])
+                )
+            );
+
+        player = builder
+            .setLoadControl(loadControl)
+            .setMediaSourceFactory(RobustHlsConfig.createMediaSourceFactory(this))
             .setAudioAttributes(
                 new AudioAttributes.Builder()
                     .setUsage(C.USAGE_MEDIA)
@@ -50,17 +88,45 @@ public class AudioPlayerService extends MediaSessionService {
                     .build(),
                 true
             )
-            .setWakeMode(C.WAKE_MODE_NETWORK)
             .setHandleAudioBecomingNoisy(true)  // Pause when headphones disconnected
             .build();
 
         player.setPlayWhenReady(false);
 
+        if (gainProcessor != null) {
+            LoudnessNormalizer.attach(this, player, gainProcessor);
+        }
+
         mediaSession = new MediaSession.Builder(this, player)
             .setCallback(new MediaSessionCallback(this))
             .build();
     }
 
+    /**
+     * Called once the plugin hands the audio sources to the session, which is when the ID of
+     * the notification source becomes known.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    public void onAudioSourcesSet(AudioSources audioSources) {
+        AudioSource notificationSource = audioSources.forNotification();
+
+        if (player == null || notificationSource == null) {
+            return;
+        }
+
+        this.notificationSource = notificationSource;
+        loadControl.setProfile(notificationSource.getBufferProfile());
+
+        if (metricsListener != null) {
+            player.removeAnalyticsListener(metricsListener);
+        }
+
+        metricsListener = new PlaybackMetricsListener(notificationSource.id);
+        player.addAnalyticsListener(metricsListener);
+
+        AudioOffloadController.getInstance().attach(player, audioSources);
+    }
+
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.i(TAG, "Service starting");
@@ -93,19 +159,25 @@ public class AudioPlayerService extends MediaSessionService {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        BufferMemoryBudget.onTrimMemory(level);
+    }
+
     @Override
     public void onDestroy() {
         Log.i(TAG, "Service being destroyed");
 
-        // Release wake lock
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
-        }
+        // Nothing can play once the service is gone
+        PlaybackLockManager.getInstance(this).releaseAll();
 
-        // Release WiFi lock
-        if (wifiLockManager != null) {
-            wifiLockManager.releaseLock();
-        }
+        ConnectivityMonitor.getInstance(this).removeListener(networkListener);
+        loadControl = null;
+        notificationSource = null;
+
+        AudioOffloadController.getInstance().detach();
 
         AudioSources audioSources = getAudioSourcesFromMediaSession();
         if (audioSources != null) {
@@ -114,6 +186,7 @@ public class AudioPlayerService extends MediaSessionService {
         }
 
         if (mediaSession != null) {
+            player = null;
             mediaSession.getPlayer().release();
             mediaSession.release();
             mediaSession = null;
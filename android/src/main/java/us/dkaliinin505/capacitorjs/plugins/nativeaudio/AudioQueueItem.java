@@ -0,0 +1,14 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+public class AudioQueueItem {
+
+    public String id;
+    public String source;
+    public AudioMetadata audioMetadata;
+
+    AudioQueueItem(String id, String source, AudioMetadata audioMetadata) {
+        this.id = id;
+        this.source = source;
+        this.audioMetadata = audioMetadata;
+    }
+}
@@ -11,8 +11,8 @@ import androidx.media3.common.MediaMetadata;
 import androidx.media3.common.Player;
 import androidx.media3.exoplayer.ExoPlayer;
 import androidx.media3.exoplayer.source.MediaSource;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public class AudioSource extends Binder {
 
@@ -31,15 +31,35 @@ public class AudioSource extends Binder {
     public String onPlayNextCallbackId;
     public String onPlayPreviousCallbackId;
     public String onAudioStalledCallbackId;
+    public String onQueueIndexChangeCallbackId;
 
     public AudioPlayerPlugin pluginOwner;
 
-    private Player player;
+    private volatile Player player;
     private PlayerEventListener playerEventListener;
+    private PlaybackMetricsListener metricsListener;
+    private BudgetedLoadControl loadControl;
+    private MixerTrack mixerTrack;
     private Context context;
-
-    private boolean isPlaying = false;
-    private boolean isStopped = true;
+    private PlayerPool playerPool;
+    private volatile AudioSources registry;
+    private BufferProfile bufferProfile;
+    private StreamType streamType;
+    private boolean isPooledPlayer = false;
+
+    private boolean isSeamlessLoop = false;
+    private long loopStartMs = 0;
+    private long loopEndMs = C.TIME_UNSET;
+    // The decoded loop the player plays, pinned in LoopBuffers until it is released
+    private Uri loopBufferUri;
+    private LoopBuffer loopBuffer;
+    // Decoded while the source was playing, switched to at the next repeat
+    private Uri pendingLoopBufferUri;
+
+    private volatile boolean isPlaying = false;
+    private volatile boolean isStopped = true;
+
+    private final List<AudioQueueItem> queue = new ArrayList<>();
 
     public AudioSource(
         AudioPlayerPlugin pluginOwner,
@@ -59,6 +79,9 @@ public class AudioSource extends Binder {
         this.loopAudio = loopAudio;
     }
 
+    /**
+     * Must be called on the command executor's looper, which the player is bound to.
+     */
     public void initialize(Context context) {
         if (useForNotification || player != null) {
             return;
@@ -67,14 +90,43 @@ public class AudioSource extends Binder {
         this.context = context;
         setIsStopped();
 
-        // Create ExoPlayer with robust configuration for long playback sessions
-        player = new ExoPlayer.Builder(context)
-            .setLoadControl(RobustHlsConfig.createRobustLoadControl())
-            .setWakeMode(C.WAKE_MODE_NETWORK)
-            .build();
+        BufferProfile profile = getBufferProfile();
+
+        if (AudioMixer.shouldMix(this)) {
+            // Mixed sources need their own sink, so they can't use pooled players
+            mixerTrack = AudioMixer.addTrack(id);
+            loadControl = RobustHlsConfig.createLoadControl(profile, false);
+            player = PlayerPool.buildPlayer(
+                context,
+                loadControl,
+                AudioMixer.createTrackRenderersFactory(context, mixerTrack)
+            );
+
+            if (LoudnessNormalizer.isEnabled()) {
+                LoudnessNormalizer.attach(context, (ExoPlayer) player, mixerTrack);
+            }
+        } else if (playerPool != null) {
+            player = playerPool.acquire(context, profile);
+            loadControl = playerPool.getLoadControl((ExoPlayer) player);
+            isPooledPlayer = true;
+        } else {
+            loadControl = RobustHlsConfig.createLoadControl(profile, false);
+            player = PlayerPool.buildPlayer(context, loadControl);
+        }
+
+        metricsListener = new PlaybackMetricsListener(id);
+        ((ExoPlayer) player).addAnalyticsListener(metricsListener);
+
+        if (isSeamlessLoop) {
+            useLoopBuffer(LoopBuffers.acquireCached(source, loopStartMs, loopEndMs));
+        }
 
         setPlayerAttributes();
         player.prepare();
+
+        if (isSeamlessLoop && loopBufferUri == null) {
+            loadLoopBuffer();
+        }
     }
 
     public void setPlayerAttributes() {
@@ -99,14 +151,25 @@ public class AudioSource extends Binder {
 
     public void changeAudioSource(String newSource) {
         source = newSource;
+        queue.clear();
 
         Player player = getPlayer();
 
+        releaseLoopBuffers();
+
+        if (isSeamlessLoop) {
+            useLoopBuffer(LoopBuffers.acquireCached(source, loopStartMs, loopEndMs));
+        }
+
         // Update the media item instead of setting media source directly
         player.setMediaItem(buildMediaItem());
         player.setPlayWhenReady(false);
         player.prepare();
 
+        if (isSeamlessLoop && loopBufferUri == null) {
+            loadLoopBuffer();
+        }
+
         // Reset retry count when changing sources
         if (playerEventListener != null) {
             playerEventListener.resetRetryCount();
@@ -118,27 +181,135 @@ public class AudioSource extends Binder {
 
         var currentMediaItem = getPlayer().getCurrentMediaItem();
         if (currentMediaItem != null) {
+            int currentIndex = getPlayer().getCurrentMediaItemIndex();
             var newMediaItem = currentMediaItem
                 .buildUpon()
-                .setMediaMetadata(getMediaMetadata())
+                .setMediaMetadata(getMediaMetadata(metadata))
                 .build();
 
-            getPlayer().replaceMediaItem(0, newMediaItem);
+            if (isQueueMode() && currentIndex < queue.size()) {
+                queue.get(currentIndex).audioMetadata = metadata;
+            }
+
+            getPlayer().replaceMediaItem(currentIndex, newMediaItem);
         }
     }
 
-    public float getDuration() {
-        long duration = getPlayer().getDuration();
+    public void setQueue(List<AudioQueueItem> items, int startIndex) {
+        if (!useForNotification) {
+            throw new IllegalStateException(
+                "A queue can only be used on the audio source with useForNotification = true."
+            );
+        }
 
-        if (duration == C.TIME_UNSET) {
-            return -1;
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("A queue must contain at least one item.");
         }
 
-        return duration / 1000;
+        checkQueueIndex(startIndex, items.size());
+
+        queue.clear();
+        queue.addAll(items);
+        updateCurrentQueueItem(startIndex);
+
+        Player player = getPlayer();
+        player.setMediaItems(buildMediaItems(items), startIndex, 0);
+        player.setPlayWhenReady(false);
+        player.prepare();
+
+        if (playerEventListener != null) {
+            playerEventListener.resetRetryCount();
+        }
+    }
+
+    public void appendToQueue(List<AudioQueueItem> items) {
+        ensureQueueMode();
+
+        queue.addAll(items);
+        getPlayer().addMediaItems(buildMediaItems(items));
+    }
+
+    public void removeFromQueue(int index) {
+        ensureQueueMode();
+        checkQueueIndex(index, queue.size());
+
+        if (queue.size() == 1) {
+            throw new IllegalStateException("The last item of the queue cannot be removed.");
+        }
+
+        queue.remove(index);
+        getPlayer().removeMediaItem(index);
+    }
+
+    public void moveQueueItem(int fromIndex, int toIndex) {
+        ensureQueueMode();
+        checkQueueIndex(fromIndex, queue.size());
+        checkQueueIndex(toIndex, queue.size());
+
+        queue.add(toIndex, queue.remove(fromIndex));
+        getPlayer().moveMediaItem(fromIndex, toIndex);
+    }
+
+    public void skipTo(int index) {
+        ensureQueueMode();
+        checkQueueIndex(index, queue.size());
+
+        getPlayer().seekToDefaultPosition(index);
+    }
+
+    public boolean isQueueMode() {
+        return !queue.isEmpty();
     }
 
-    public float getCurrentTime() {
-        return getPlayer().getCurrentPosition() / 1000;
+    public int getQueueIndex() {
+        return isQueueMode() ? getPlayer().getCurrentMediaItemIndex() : 0;
+    }
+
+    public int getQueueSize() {
+        return isQueueMode() ? queue.size() : 1;
+    }
+
+    public void onQueueItemTransition(int index) {
+        if (isQueueMode() && index >= 0 && index < queue.size()) {
+            updateCurrentQueueItem(index);
+        }
+    }
+
+    public AudioQueueItem getQueueItem(int index) {
+        return index >= 0 && index < queue.size() ? queue.get(index) : null;
+    }
+
+    /**
+     * @return the duration in seconds with millisecond precision, or -1 while it is unknown
+     */
+    public double getDuration() {
+        long durationMs = getDurationMs();
+
+        return durationMs == C.TIME_UNSET ? -1 : durationMs / 1000.0;
+    }
+
+    public long getDurationMs() {
+        // The stream of a decoded loop is hours long
+        return loopBuffer != null ? loopBuffer.getDurationMs() : getPlayer().getDuration();
+    }
+
+    /**
+     * @return the position in seconds with millisecond precision
+     */
+    public double getCurrentTime() {
+        return getCurrentTimeMs() / 1000.0;
+    }
+
+    public long getCurrentTimeMs() {
+        long positionMs = getPlayer().getCurrentPosition();
+
+        return loopBuffer != null ? loopBuffer.toSourcePositionMs(positionMs) : positionMs;
+    }
+
+    public long getBufferedPositionMs() {
+        long positionMs = getPlayer().getBufferedPosition();
+
+        return loopBuffer != null ? loopBuffer.toSourcePositionMs(positionMs) : positionMs;
     }
 
     public void play() {
@@ -158,8 +329,15 @@ public class AudioSource extends Binder {
         getPlayer().pause();
     }
 
-    public void seek(long timeInSeconds) {
-        getPlayer().seekTo(timeInSeconds * 1000);
+    public void seek(double timeInSeconds) {
+        seekMs(Math.round(timeInSeconds * 1000));
+    }
+
+    public void seekMs(long timeMs) {
+        // Positions in a decoded loop's stream up to the loop end are positions in the source
+        long maxTimeMs = loopBuffer != null ? loopBuffer.getDurationMs() : Long.MAX_VALUE;
+
+        getPlayer().seekTo(Math.min(Math.max(0, timeMs), maxTimeMs));
     }
 
     public void stop() {
@@ -175,9 +353,17 @@ public class AudioSource extends Binder {
     }
 
     public void setRate(float rate) {
+        if (isMixed() && rate != 1) {
+            throw new IllegalStateException("A mixed audio source always plays at a rate of 1.");
+        }
+
         getPlayer().setPlaybackSpeed(rate);
     }
 
+    public boolean isMixed() {
+        return mixerTrack != null;
+    }
+
     public void setOnReady(String callbackId) {
         onReadyCallbackId = callbackId;
     }
@@ -202,6 +388,44 @@ public class AudioSource extends Binder {
         onAudioStalledCallbackId = callbackId;
     }
 
+    /**
+     * Loops from a decoded copy of the loop region instead of repeating the source, which
+     * restarts the decoder and leaves a gap at every repeat. Only for looping sources that
+     * aren't used for the notification.
+     *
+     * @param loopEndMs C.TIME_UNSET to loop until the end of the source
+     */
+    public void setSeamlessLoop(long loopStartMs, long loopEndMs) {
+        if (!loopAudio || useForNotification) {
+            Log.w(
+                TAG,
+                "Seamless loops are only used with loop = true and useForNotification = false: " +
+                id
+            );
+            return;
+        }
+
+        isSeamlessLoop = true;
+        this.loopStartMs = Math.max(0, loopStartMs);
+        this.loopEndMs = loopEndMs;
+    }
+
+    /**
+     * Called when the player repeats the current item.
+     */
+    public void onLoopRepeated() {
+        Uri uri = pendingLoopBufferUri;
+
+        if (uri != null) {
+            pendingLoopBufferUri = null;
+            switchToLoopBuffer(uri, 0);
+        }
+    }
+
+    public void setOnQueueIndexChange(String callbackId) {
+        onQueueIndexChangeCallbackId = callbackId;
+    }
+
     public boolean isPlaying() {
         if (getPlayer() == null) {
             return false;
@@ -220,17 +444,33 @@ public class AudioSource extends Binder {
 
     public void setIsPlaying() {
         this.isStopped = false;
-        this.isPlaying = true;
+        setPlayingFlag(true);
     }
 
     public void setIsPaused() {
         this.isStopped = false;
-        this.isPlaying = false;
+        setPlayingFlag(false);
     }
 
     public void setIsStopped() {
         this.isStopped = true;
-        this.isPlaying = false;
+        setPlayingFlag(false);
+    }
+
+    private void setPlayingFlag(boolean isPlaying) {
+        this.isPlaying = isPlaying;
+
+        AudioSources registry = this.registry;
+        if (registry != null) {
+            registry.onPlayingChanged(this);
+        }
+    }
+
+    /**
+     * The playing flag alone, without checking whether the player exists.
+     */
+    boolean isPlayingFlagSet() {
+        return isPlaying;
     }
 
     public Player getPlayer() {
@@ -241,17 +481,115 @@ public class AudioSource extends Binder {
         this.player = player;
     }
 
+    /**
+     * Can be called from any thread, the player is released on its own looper.
+     */
     public void releasePlayer() {
+        MediaPreloader.setSourceBuffering(id, false);
+        MediaPreloader.setSourceLoading(id, false);
+
+        if (pluginOwner != null) {
+            PlaybackLockManager.getInstance(pluginOwner.getContext()).remove(id);
+
+            if (pluginOwner.getProgressTicker() != null) {
+                pluginOwner.getProgressTicker().onSourceReleased(id);
+            }
+        }
+
+        Player player = this.player;
+
+        if (player != null && !player.getApplicationLooper().isCurrentThread()) {
+            PlaybackCommandExecutor.getInstance()
+                .execute(player.getApplicationLooper(), this::releasePlayer);
+            return;
+        }
+
         if (player != null) {
             if (playerEventListener != null) {
+                playerEventListener.release();
                 player.removeListener(playerEventListener);
             }
-            player.release();
-            player = null;
+
+            if (metricsListener != null && player instanceof ExoPlayer) {
+                ((ExoPlayer) player).removeAnalyticsListener(metricsListener);
+                metricsListener = null;
+            }
+
+            if (isPooledPlayer) {
+                playerPool.release((ExoPlayer) player);
+            } else {
+                player.release();
+            }
+
+            this.player = null;
             playerEventListener = null;
+            loadControl = null;
+            isPooledPlayer = false;
+        }
+
+        if (mixerTrack != null) {
+            AudioMixer.removeTrack(mixerTrack);
+            mixerTrack = null;
+        }
+
+        releaseLoopBuffers();
+    }
+
+    public BufferProfile getBufferProfile() {
+        if (bufferProfile != null) {
+            return bufferProfile;
+        }
+
+        // The notification source is never initialized, so it only has the plugin's context
+        Context context = this.context != null
+            ? this.context
+            : pluginOwner != null ? pluginOwner.getContext() : null;
+        boolean isMetered =
+            context != null && ConnectivityMonitor.getInstance(context).isMetered();
+
+        return BufferProfile.forNetwork(BufferProfile.defaultFor(source), isMetered);
+    }
+
+    /**
+     * Swaps the default buffer profile when the network switches between metered and unmetered.
+     * A profile set from JS is kept as is. Must be called on the player's thread.
+     */
+    public void onNetworkChanged(boolean isOnline) {
+        if (loadControl != null && bufferProfile == null) {
+            loadControl.setProfile(getBufferProfile());
+        }
+
+        if (isOnline && playerEventListener != null) {
+            playerEventListener.onNetworkAvailable();
         }
     }
 
+    public void setBufferProfile(BufferProfile bufferProfile) {
+        this.bufferProfile = bufferProfile;
+    }
+
+    public void setStreamType(StreamType streamType) {
+        this.streamType = streamType;
+    }
+
+    /**
+     * @return the forced stream type, otherwise the one detected from the source
+     */
+    public StreamType getStreamType() {
+        return streamType != null ? streamType : StreamType.detect(source);
+    }
+
+    public void setPlayerPool(PlayerPool playerPool) {
+        this.playerPool = playerPool;
+    }
+
+    /**
+     * Set when the source is added to the registry, which indexes it by its playing flag.
+     */
+    public void setRegistry(AudioSources registry) {
+        this.registry = registry;
+    }
+
     public void setEventListener(PlayerEventListener listener) {
         playerEventListener = listener;
     }
@@ -265,43 +603,193 @@ public class AudioSource extends Binder {
     }
 
     public MediaItem buildMediaItem() {
-        return new MediaItem.Builder().setMediaMetadata(getMediaMetadata()).setUri(source).build();
+        MediaItem.Builder builder = new MediaItem.Builder()
+            .setMediaMetadata(getMediaMetadata())
+            .setUri(source);
+
+        if (loopBufferUri != null) {
+            return builder.setUri(loopBufferUri).build();
+        }
+
+        if (streamType != null) {
+            AudioMediaSourceFactory.setStreamType(builder, streamType);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Decodes the loop in the background. Until then the source is repeated as usual.
+     */
+    private void loadLoopBuffer() {
+        String loopSource = source;
+
+        LoopBuffers.load(context, loopSource, loopStartMs, loopEndMs, uri -> {
+            if (uri == null) {
+                return;
+            }
+
+            PlaybackCommandExecutor.getInstance()
+                .execute(this, () -> attachLoopBuffer(loopSource, uri));
+        });
+    }
+
+    private void attachLoopBuffer(String loopSource, Uri uri) {
+        Player player = getPlayer();
+
+        // Released, changed or already looping from memory while the loop was decoding
+        if (player == null || !loopSource.equals(source) || loopBufferUri != null) {
+            LoopBuffers.release(uri);
+            return;
+        }
+
+        if (player.isPlaying()) {
+            // Switching now would be heard, the next repeat has a gap anyway
+            pendingLoopBufferUri = uri;
+        } else {
+            switchToLoopBuffer(uri, player.getCurrentPosition());
+        }
+    }
+
+    private void switchToLoopBuffer(Uri uri, long positionMs) {
+        useLoopBuffer(uri);
+
+        if (loopBuffer == null) {
+            return;
+        }
+
+        // Past the loop end, the stream continues at the loop start
+        long startPositionMs = positionMs < loopBuffer.getDurationMs()
+            ? positionMs
+            : loopBuffer.getLoopStartMs();
+
+        Log.d(TAG, "Looping from memory: " + id);
+        getPlayer().setMediaItem(buildMediaItem(), startPositionMs);
+    }
+
+    private void useLoopBuffer(Uri uri) {
+        loopBufferUri = uri;
+        loopBuffer = uri != null ? LoopBuffers.get(uri) : null;
+    }
+
+    private void releaseLoopBuffers() {
+        if (loopBufferUri != null) {
+            LoopBuffers.release(loopBufferUri);
+        }
+
+        if (pendingLoopBufferUri != null) {
+            LoopBuffers.release(pendingLoopBufferUri);
+        }
+
+        loopBufferUri = null;
+        loopBuffer = null;
+        pendingLoopBufferUri = null;
+    }
+
+    private List<MediaItem> buildMediaItems(List<AudioQueueItem> items) {
+        List<MediaItem> mediaItems = new ArrayList<>();
+
+        for (AudioQueueItem item : items) {
+            MediaItem.Builder builder = new MediaItem.Builder()
+                .setMediaMetadata(getMediaMetadata(item.audioMetadata))
+                .setUri(item.source);
+
+            if (item.id != null) {
+                builder.setMediaId(item.id);
+            }
+
+            mediaItems.add(builder.build());
+        }
+
+        return mediaItems;
+    }
+
+    /**
+     * Decodes the artwork in the background and attaches it to every media item that uses it
+     * once it is ready.
+     */
+    private void loadArtwork(String artworkSource) {
+        ArtworkLoader.load(pluginOwner.getContext(), artworkSource, artworkData -> {
+            if (artworkData == null) {
+                return;
+            }
+
+            PlaybackCommandExecutor.getInstance()
+                .execute(this, () -> attachArtwork(artworkSource, artworkData));
+        });
+    }
+
+    private void attachArtwork(String artworkSource, byte[] artworkData) {
+        Player player = getPlayer();
+        if (player == null) {
+            return;
+        }
+
+        for (int i = 0; i < player.getMediaItemCount(); i++) {
+            AudioMetadata itemMetadata = isQueueMode()
+                ? (i < queue.size() ? queue.get(i).audioMetadata : null)
+                : audioMetadata;
+
+            // The metadata may have changed while the artwork was loading
+            if (itemMetadata == null || !artworkSource.equals(itemMetadata.artworkSource)) {
+                continue;
+            }
+
+            MediaItem mediaItem = player.getMediaItemAt(i);
+
+            player.replaceMediaItem(
+                i,
+                mediaItem
+                    .buildUpon()
+                    .setMediaMetadata(
+                        mediaItem.mediaMetadata
+                            .buildUpon()
+                            .setArtworkData(artworkData, MediaMetadata.PICTURE_TYPE_FRONT_COVER)
+                            .build()
+                    )
+                    .build()
+            );
+        }
+    }
+
+    private void updateCurrentQueueItem(int index) {
+        AudioQueueItem item = queue.get(index);
+
+        source = item.source;
+        audioMetadata = item.audioMetadata;
+    }
+
+    private void ensureQueueMode() {
+        if (!isQueueMode()) {
+            throw new IllegalStateException("No queue has been set, call setQueue first.");
+        }
+    }
+
+    private void checkQueueIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                String.format("Queue index %s is out of bounds for a queue of %s items.", index, size)
+            );
+        }
     }
 
     private MediaMetadata getMediaMetadata() {
+        return getMediaMetadata(audioMetadata);
+    }
+
+    private MediaMetadata getMediaMetadata(AudioMetadata audioMetadata) {
         MediaMetadata.Builder builder = new MediaMetadata.Builder()
             .setAlbumTitle(audioMetadata.albumTitle == null ? "" : audioMetadata.albumTitle)
             .setArtist(audioMetadata.artistName == null ? "" : audioMetadata.artistName)
             .setTitle(audioMetadata.songTitle == null ? "" : audioMetadata.songTitle);
 
         if (useForNotification && audioMetadata.artworkSource != null) {
-            try {
-                if (audioMetadata.artworkSource.startsWith("https:")) {
-                    builder.setArtworkUri(Uri.parse(audioMetadata.artworkSource));
-                } else {
-                    int bufferLength = 4 * 0x400; // 4KB
-                    byte[] buffer = new byte[bufferLength];
-                    int readLength;
-                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-                    InputStream inputStream = pluginOwner
-                        .getContext()
-                        .getAssets()
-                        .open("public/" + audioMetadata.artworkSource);
-
-                    while ((readLength = inputStream.read(buffer, 0, bufferLength)) != -1) {
-                        outputStream.write(buffer, 0, readLength);
-                    }
-
-                    inputStream.close();
-
-                    builder.maybeSetArtworkData(
-                        outputStream.toByteArray(),
-                        MediaMetadata.PICTURE_TYPE_OTHER
-                    );
-                }
-            } catch (Exception ex) {
-                Log.w(TAG, "Could not load the artwork source.", ex);
+            byte[] artworkData = ArtworkLoader.getCached(audioMetadata.artworkSource);
+
+            if (artworkData != null) {
+                builder.setArtworkData(artworkData, MediaMetadata.PICTURE_TYPE_FRONT_COVER);
+            } else {
+                loadArtwork(audioMetadata.artworkSource);
             }
         }
 
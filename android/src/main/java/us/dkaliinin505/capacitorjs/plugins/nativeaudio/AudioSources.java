@@ -3,41 +3,89 @@ package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
 import android.os.Binder;
 import android.util.Log;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import us.dkaliinin505.capacitorjs.plugins.nativeaudio.exceptions.AudioSourceAlreadyExistsException;
 
+/**
+ * Registry of the audio sources, shared by the plugin's bridge thread, the main looper, the
+ * command executor's thread and the media session service.
+ *
+ * Lookups are lock-free. Writes take a lock so the notification slot and the secondary indexes
+ * (playing sources, background music sources) always agree with the sources map. Every method
+ * returning several sources returns a snapshot that is safe to iterate while sources change.
+ */
 public class AudioSources extends Binder {
 
     private static final String TAG = "AudioSources";
-    private HashMap<String, AudioSource> audioSources = new HashMap<>();
+
+    public interface Listener {
+        /**
+         * Called on the thread that changed the set of playing sources, outside of any lock.
+         */
+        void onPlayingSourcesChanged(AudioSources audioSources);
+    }
+
+    private final Map<String, AudioSource> audioSources = new ConcurrentHashMap<>();
+    private final Set<String> playingSourceIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> backgroundMusicSourceIds = ConcurrentHashMap.newKeySet();
+    private final PlayerPool playerPool = new PlayerPool();
+    private final Object writeLock = new Object();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile AudioSource notificationSource;
 
     public AudioSource get(String sourceId) {
-        return audioSources.get(sourceId);
+        return sourceId == null ? null : audioSources.get(sourceId);
     }
 
     public void add(AudioSource source) throws AudioSourceAlreadyExistsException {
-        if (exists(source)) {
-            throw new AudioSourceAlreadyExistsException(source.id);
+        boolean isPlayingChanged = false;
+
+        synchronized (writeLock) {
+            if (audioSources.putIfAbsent(source.id, source) != null) {
+                throw new AudioSourceAlreadyExistsException(source.id);
+            }
+
+            // Set before the flag is read below, so no playing change can be missed
+            source.setRegistry(this);
+
+            if (source.useForNotification) {
+                notificationSource = source;
+            }
+
+            if (source.isBackgroundMusic) {
+                backgroundMusicSourceIds.add(source.id);
+            }
+
+            if (source.isPlayingFlagSet()) {
+                isPlayingChanged = playingSourceIds.add(source.id);
+            }
+        }
+
+        if (isPlayingChanged) {
+            notifyPlayingSourcesChanged();
         }
 
-        audioSources.put(source.id, source);
+        source.setPlayerPool(playerPool);
         Log.d(TAG, "Added audio source: " + source.id + ", total count: " + count());
     }
 
     public boolean remove(String sourceId) {
-        if (!exists(sourceId)) {
+        AudioSource removedSource = detach(sourceId);
+
+        if (removedSource == null) {
             return false;
         }
 
-        AudioSource removedSource = audioSources.remove(sourceId);
-        if (removedSource != null) {
-            // Clean up the audio source
-            try {
-                removedSource.releasePlayer();
-            } catch (Exception e) {
-                Log.w(TAG, "Error releasing player for source: " + sourceId, e);
-            }
+        // Clean up the audio source
+        try {
+            removedSource.releasePlayer();
+        } catch (Exception e) {
+            Log.w(TAG, "Error releasing player for source: " + sourceId, e);
         }
 
         Log.d(TAG, "Removed audio source: " + sourceId + ", remaining count: " + count());
@@ -49,56 +97,113 @@ public class AudioSources extends Binder {
     }
 
     public boolean exists(String sourceId) {
-        return audioSources.containsKey(sourceId);
+        return sourceId != null && audioSources.containsKey(sourceId);
     }
 
     public boolean hasNotification() {
-        return forNotification() != null;
+        return notificationSource != null;
     }
 
     public AudioSource forNotification() {
-        for (AudioSource audioSource : audioSources.values()) {
-            if (audioSource.useForNotification) {
-                return audioSource;
+        return notificationSource;
+    }
+
+    public int count() {
+        return audioSources.size();
+    }
+
+    /**
+     * Called by the audio source whenever its playing flag changes. The flag is read again under
+     * the lock, so concurrent changes always leave the index matching the latest flag. Sources
+     * that were already removed are ignored so a late player event can't put them back.
+     */
+    void onPlayingChanged(AudioSource source) {
+        boolean isPlayingChanged;
+
+        synchronized (writeLock) {
+            if (audioSources.get(source.id) != source) {
+                return;
+            }
+
+            if (source.isPlayingFlagSet()) {
+                isPlayingChanged = playingSourceIds.add(source.id);
+            } else {
+                isPlayingChanged = playingSourceIds.remove(source.id);
             }
         }
 
-        return null;
+        if (isPlayingChanged) {
+            notifyPlayingSourcesChanged();
+        }
     }
 
-    public int count() {
-        return audioSources.size();
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public List<AudioSource> getPlayingSources() {
+        return snapshot(playingSourceIds);
+    }
+
+    public List<AudioSource> getBackgroundMusicSources() {
+        return snapshot(backgroundMusicSourceIds);
+    }
+
+    public boolean isAnyPlaying() {
+        return !playingSourceIds.isEmpty();
     }
 
     public void destroyAllNonNotificationSources() {
-        List<AudioSource> sourcesToRemove = new ArrayList<>();
+        int destroyedCount = 0;
 
-        for (AudioSource audioSource : audioSources.values()) {
+        for (AudioSource audioSource : getAllSources()) {
             if (audioSource.useForNotification) {
                 continue;
             }
 
+            if (detach(audioSource.id) == null) {
+                continue;
+            }
+
             try {
                 audioSource.releasePlayer();
             } catch (Exception e) {
                 Log.w(TAG, "Error releasing player for source: " + audioSource.id, e);
             }
 
-            sourcesToRemove.add(audioSource);
-        }
-
-        for (AudioSource sourceToRemove : sourcesToRemove) {
-            audioSources.remove(sourceToRemove.id);
-            Log.d(TAG, "Destroyed non-notification source: " + sourceToRemove.id);
+            destroyedCount++;
+            Log.d(TAG, "Destroyed non-notification source: " + audioSource.id);
         }
 
-        Log.d(TAG, "Destroyed " + sourcesToRemove.size() + " non-notification sources");
+        playerPool.clear();
+        Log.d(TAG, "Destroyed " + destroyedCount + " non-notification sources");
     }
 
     public void destroyAllSources() {
-        Log.d(TAG, "Destroying all " + count() + " audio sources");
+        List<AudioSource> sources;
+
+        boolean isPlayingChanged;
 
-        for (AudioSource audioSource : audioSources.values()) {
+        synchronized (writeLock) {
+            sources = new ArrayList<>(audioSources.values());
+            isPlayingChanged = !playingSourceIds.isEmpty();
+            audioSources.clear();
+            playingSourceIds.clear();
+            backgroundMusicSourceIds.clear();
+            notificationSource = null;
+        }
+
+        if (isPlayingChanged) {
+            notifyPlayingSourcesChanged();
+        }
+
+        Log.d(TAG, "Destroying all " + sources.size() + " audio sources");
+
+        for (AudioSource audioSource : sources) {
             try {
                 audioSource.releasePlayer();
             } catch (Exception e) {
@@ -106,10 +211,14 @@ public class AudioSources extends Binder {
             }
         }
 
-        audioSources.clear();
+        playerPool.clear();
         Log.d(TAG, "All audio sources destroyed");
     }
 
+    public PlayerPool getPlayerPool() {
+        return playerPool;
+    }
+
     public List<AudioSource> getAllSources() {
         return new ArrayList<>(audioSources.values());
     }
@@ -117,4 +226,57 @@ public class AudioSources extends Binder {
     public boolean isEmpty() {
         return audioSources.isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * Removes the source and its index entries without releasing its player.
+     */
+    private AudioSource detach(String sourceId) {
+        if (sourceId == null) {
+            return null;
+        }
+
+        AudioSource removedSource;
+        boolean isPlayingChanged;
+
+        synchronized (writeLock) {
+            removedSource = audioSources.remove(sourceId);
+
+            if (removedSource == null) {
+                return null;
+            }
+
+            isPlayingChanged = playingSourceIds.remove(sourceId);
+            backgroundMusicSourceIds.remove(sourceId);
+
+            if (notificationSource == removedSource) {
+                notificationSource = null;
+            }
+        }
+
+        if (isPlayingChanged) {
+            notifyPlayingSourcesChanged();
+        }
+
+        return removedSource;
+    }
+
+    private void notifyPlayingSourcesChanged() {
+        for (Listener listener : listeners) {
+            listener.onPlayingSourcesChanged(this);
+        }
+    }
+
+    private List<AudioSource> snapshot(Set<String> sourceIds) {
+        List<AudioSource> sources = new ArrayList<>();
+
+        for (String sourceId : sourceIds) {
+            AudioSource audioSource = audioSources.get(sourceId);
+
+            if (audioSource != null) {
+                sources.add(audioSource);
+            }
+        }
+
+        return sources;
+    }
+}
@@ -0,0 +1,144 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import androidx.media3.common.C;
+import com.getcapacitor.JSObject;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONObject;
+
+/**
+ * A single command of a batch call. Every operation of a batch is validated before any of them
+ * runs, so a typo never leaves a batch half applied.
+ */
+public class BatchOperation {
+
+    public static final List<String> METHODS = Arrays.asList(
+        "play",
+        "pause",
+        "stop",
+        "seek",
+        "setVolume",
+        "setRate",
+        "getCurrentTime",
+        "getDuration",
+        "isPlaying"
+    );
+
+    public final String method;
+    public final String audioId;
+
+    private final JSONObject params;
+
+    private BatchOperation(String method, String audioId, JSONObject params) {
+        this.method = method;
+        this.audioId = audioId;
+        this.params = params;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the operation is unknown, targets a missing audio
+     *                                  source or lacks a parameter
+     */
+    public static BatchOperation fromJSON(int index, JSONObject op, AudioSources audioSources) {
+        if (op == null) {
+            throw new IllegalArgumentException(
+                String.format("Operation %s is not an object.", index)
+            );
+        }
+
+        String method = op.optString("method", null);
+        String audioId = op.optString("audioId", null);
+
+        if (method == null || !METHODS.contains(method)) {
+            throw new IllegalArgumentException(
+                String.format("Operation %s has an unsupported method: %s", index, method)
+            );
+        }
+
+        if (audioId == null || !audioSources.exists(audioId)) {
+            throw new IllegalArgumentException(
+                String.format("Operation %s targets an unknown audio source: %s", index, audioId)
+            );
+        }
+
+        switch (method) {
+            case "seek":
+                if (!(op.opt("timeMs") instanceof Number)) {
+                    requireNumber(index, op, "timeInSeconds");
+                }
+                break;
+            case "setVolume":
+                requireNumber(index, op, "volume");
+                break;
+            case "setRate":
+                requireNumber(index, op, "rate");
+                break;
+        }
+
+        return new BatchOperation(method, audioId, op);
+    }
+
+    /**
+     * Must be called on the audio source's player looper, see
+     * {@link PlaybackCommandExecutor#getLooperFor}. Returns the value of getters, or null for
+     * commands.
+     */
+    public JSObject execute(AudioSource audioSource) {
+        switch (method) {
+            case "play":
+                audioSource.play();
+                break;
+            case "pause":
+                audioSource.pause();
+                break;
+            case "stop":
+                audioSource.stop();
+                break;
+            case "seek":
+                if (params.opt("timeMs") instanceof Number) {
+                    audioSource.seekMs(params.optLong("timeMs"));
+                } else {
+                    audioSource.seek(params.optDouble("timeInSeconds"));
+                }
+                break;
+            case "setVolume":
+                audioSource.setVolume((float) params.optDouble("volume"));
+                break;
+            case "setRate":
+                audioSource.setRate((float) params.optDouble("rate"));
+                break;
+            case "getCurrentTime":
+                long currentTimeMs = audioSource.getCurrentTimeMs();
+                long bufferedPositionMs = audioSource.getBufferedPositionMs();
+
+                return new JSObject()
+                    .put("currentTime", currentTimeMs / 1000.0)
+                    .put("currentTimeMs", currentTimeMs)
+                    .put("bufferedPosition", bufferedPositionMs / 1000.0)
+                    .put("bufferedPositionMs", bufferedPositionMs);
+            case "getDuration":
+                long durationMs = audioSource.getDurationMs();
+
+                return new JSObject()
+                    .put("duration", audioSource.getDuration())
+                    .put("durationMs", durationMs == C.TIME_UNSET ? -1 : durationMs);
+            case "isPlaying":
+                return new JSObject().put("isPlaying", audioSource.isPlaying());
+        }
+
+        return null;
+    }
+
+    private static void requireNumber(int index, JSONObject op, String name) {
+        if (!(op.opt(name) instanceof Number)) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Operation %s (%s) requires a numeric %s.",
+                    index,
+                    op.optString("method"),
+                    name
+                )
+            );
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.os.Looper;
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the operations of a batch on the threads their audio sources' players live on.
+ *
+ * The operations of each thread are posted as a single command as soon as the batch is run, so
+ * they keep their place among the other commands posted for the same sources. The notification
+ * source lives on the main looper and the other sources on the command thread. When a batch
+ * spans both, each command waits for the other one to be reached, at most
+ * {@link #START_TIMEOUT_MS}, before running its operations, so the sources start together.
+ *
+ * The operations of one thread run in order and stop at the first one that fails, the ones
+ * after it on that thread are reported as skipped. The other thread's operations still run.
+ */
+public class BatchRunner {
+
+    private static final String TAG = "BatchRunner";
+
+    public static final long START_TIMEOUT_MS = 50;
+
+    public interface LooperResolver {
+        Looper getLooper(String audioId);
+    }
+
+    public interface OperationRunner {
+        /**
+         * Called on the looper of the operation's audio source.
+         *
+         * @throws Exception to fail the operation
+         * @return the value of getters, or null for commands
+         */
+        JSObject run(BatchOperation operation) throws Exception;
+    }
+
+    public interface Callback {
+        /**
+         * Called on the thread whose operations finished last.
+         */
+        void onBatchCompleted(JSObject result);
+    }
+
+    public static void run(
+        List<BatchOperation> operations,
+        LooperResolver looperResolver,
+        OperationRunner operationRunner,
+        Callback callback
+    ) {
+        Map<Looper, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            Looper looper = looperResolver.getLooper(operations.get(i).audioId);
+
+            if (!groups.containsKey(looper)) {
+                groups.put(looper, new ArrayList<>());
+            }
+
+            groups.get(looper).add(i);
+        }
+
+        JSObject[] results = new JSObject[operations.size()];
+        CountDownLatch arrivedGroups = new CountDownLatch(groups.size());
+        AtomicInteger pendingGroups = new AtomicInteger(groups.size());
+
+        for (Map.Entry<Looper, List<Integer>> group : groups.entrySet()) {
+            PlaybackCommandExecutor.getInstance()
+                .execute(group.getKey(), () -> {
+                    arrivedGroups.countDown();
+
+                    try {
+                        if (!arrivedGroups.await(START_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                            Log.w(TAG, "Starting the batch before every thread was reached");
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    runGroup(operations, group.getValue(), operationRunner, results);
+
+                    if (pendingGroups.decrementAndGet() == 0) {
+                        callback.onBatchCompleted(toResult(results));
+                    }
+                });
+        }
+    }
+
+    private static void runGroup(
+        List<BatchOperation> operations,
+        List<Integer> indexes,
+        OperationRunner operationRunner,
+        JSObject[] results
+    ) {
+        Integer failedIndex = null;
+
+        for (int index : indexes) {
+            BatchOperation operation = operations.get(index);
+            JSObject result = new JSObject()
+                .put("method", operation.method)
+                .put("audioId", operation.audioId);
+
+            if (failedIndex != null) {
+                results[index] = result
+                    .put("success", false)
+                    .put("skipped", true)
+                    .put("error", String.format("Skipped, operation %s failed.", failedIndex));
+                continue;
+            }
+
+            try {
+                JSObject value = operationRunner.run(operation);
+                result.put("success", true);
+
+                if (value != null) {
+                    result.put("value", value);
+                }
+            } catch (Exception ex) {
+                Log.w(TAG, "Batch operation " + operation.method + " failed", ex);
+                result.put("success", false);
+                result.put("error", ex.getMessage());
+                failedIndex = index;
+            }
+
+            results[index] = result;
+        }
+    }
+
+    private static JSObject toResult(JSObject[] results) {
+        Integer failedIndex = null;
+        JSArray resultArray = new JSArray();
+
+        for (int i = 0; i < results.length; i++) {
+            if (
+                failedIndex == null &&
+                !results[i].optBoolean("success") &&
+                !results[i].optBoolean("skipped")
+            ) {
+                failedIndex = i;
+            }
+
+            resultArray.put(results[i]);
+        }
+
+        JSObject result = new JSObject().put("results", resultArray);
+
+        if (failedIndex != null) {
+            result.put("failedIndex", failedIndex);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.DefaultLoadControl;
+
+/**
+ * {@link DefaultLoadControl} whose allocator counts towards the shared {@link BufferMemoryBudget},
+ * that stops loading once the budget is used up and takes its buffer durations and byte cap from
+ * a {@link BufferProfile} that can be swapped when the player is reused.
+ *
+ * The back buffer is read by the player once when it is built, so a swapped profile keeps the
+ * back buffer the player was built with. {@link PlayerPool} only reuses players for profiles with
+ * the same back buffer.
+ *
+ * The priority (notification) source keeps loading up to its rebuffer threshold even when the
+ * budget is exhausted so it can never stall because of background sources.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class BudgetedLoadControl extends DefaultLoadControl {
+
+    private final boolean isPriority;
+    private final int backBufferMs;
+    private volatile BufferProfile profile;
+
+    // Only accessed from the playback thread
+    private boolean isLoading = false;
+
+    public BudgetedLoadControl(BufferProfile profile, boolean isPriority) {
+        super(
+            BufferMemoryBudget.createAllocator(),
+            profile.minBufferMs,
+            profile.maxBufferMs,
+            profile.bufferForPlaybackMs,
+            profile.bufferForPlaybackAfterRebufferMs,
+            C.LENGTH_UNSET,
+            true,
+            profile.backBufferMs,
+            true
+        );
+
+        this.profile = profile;
+        this.isPriority = isPriority;
+        backBufferMs = profile.backBufferMs;
+    }
+
+    @Override
+    public boolean shouldContinueLoading(Parameters parameters) {
+        BufferProfile profile = this.profile;
+
+        if (!BufferMemoryBudget.canAllocate(isPriority)) {
+            if (
+                !isPriority ||
+                parameters.bufferedDurationUs >= msToUs(profile.bufferForPlaybackAfterRebufferMs)
+            ) {
+                isLoading = false;
+                return false;
+            }
+        }
+
+        long maxBufferUs = msToUs(profile.maxBufferMs);
+        long minBufferUs = msToUs(profile.minBufferMs);
+
+        if (parameters.playbackSpeed > 1) {
+            // The playback speed is faster than real time, so scale up the minimum buffer
+            minBufferUs = Math.min(
+                Util.getMediaDurationForPlayoutDuration(minBufferUs, parameters.playbackSpeed),
+                maxBufferUs
+            );
+        }
+
+        boolean isByteCapReached =
+            getAllocator().getTotalBytesAllocated() >= profile.maxBufferBytes;
+
+        // Time goes first: the byte cap only stops loading once the minimum buffer is reached
+        if (parameters.bufferedDurationUs < minBufferUs) {
+            isLoading = true;
+        } else if (parameters.bufferedDurationUs >= maxBufferUs || isByteCapReached) {
+            isLoading = false;
+        }
+
+        return isLoading;
+    }
+
+    @Override
+    public boolean shouldStartPlayback(Parameters parameters) {
+        BufferProfile profile = this.profile;
+
+        long bufferedDurationUs = Util.getPlayoutDurationForMediaDuration(
+            parameters.bufferedDurationUs,
+            parameters.playbackSpeed
+        );
+        long minBufferDurationUs = msToUs(
+            parameters.rebuffering
+                ? profile.bufferForPlaybackAfterRebufferMs
+                : profile.bufferForPlaybackMs
+        );
+
+        if (parameters.targetLiveOffsetUs != C.TIME_UNSET) {
+            minBufferDurationUs = Math.min(parameters.targetLiveOffsetUs / 2, minBufferDurationUs);
+        }
+
+        // When the memory budget is used up there is nothing more to wait for
+        return (
+            minBufferDurationUs <= 0 ||
+            bufferedDurationUs >= minBufferDurationUs ||
+            !BufferMemoryBudget.canAllocate(isPriority)
+        );
+    }
+
+    public void setProfile(BufferProfile profile) {
+        this.profile = profile;
+    }
+
+    public BufferProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * The back buffer the player was built with, whatever the current profile says.
+     */
+    public int getBackBufferMs() {
+        return backBufferMs;
+    }
+
+    public boolean isPriority() {
+        return isPriority;
+    }
+
+    private static long msToUs(int ms) {
+        return ms * 1000L;
+    }
+}
@@ -0,0 +1,133 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.ComponentCallbacks2;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.media3.common.C;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide memory budget for the media buffers of every player.
+ *
+ * Every player has its own {@link DefaultAllocator}, as its load control resets and resizes the
+ * allocator when that player is prepared, stopped or released. The budget is checked against
+ * the memory held by all of them together. Background sources may only use part of the budget
+ * so the notification source always has room to keep loading.
+ */
+public class BufferMemoryBudget {
+
+    private static final String TAG = "BufferMemoryBudget";
+
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024; // 64MB
+
+    // Share of the budget that background sources can use before they stop loading
+    private static final float BACKGROUND_BUDGET_FRACTION = 0.5f;
+    // How long a reduced budget is kept after the last memory trim signal
+    private static final long TRIM_RECOVERY_MS = 60000; // 1 minute
+
+    // Guarded by allocators, released players' allocators go away with the player
+    private static final Set<DefaultAllocator> allocators = Collections.newSetFromMap(
+        new WeakHashMap<>()
+    );
+
+    private static volatile long budgetBytes = DEFAULT_BUDGET_BYTES;
+    private static volatile float trimFactor = 1f;
+    private static volatile long lastTrimMs = 0;
+
+    /**
+     * Creates an allocator for one player that counts towards the budget.
+     */
+    public static DefaultAllocator createAllocator() {
+        DefaultAllocator allocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+
+        synchronized (allocators) {
+            allocators.add(allocator);
+        }
+
+        return allocator;
+    }
+
+    public static void configure(long budgetBytes) {
+        BufferMemoryBudget.budgetBytes = budgetBytes > 0 ? budgetBytes : DEFAULT_BUDGET_BYTES;
+    }
+
+    public static long getBudgetBytes() {
+        return (long) (budgetBytes * getTrimFactor());
+    }
+
+    public static long getAllocatedBytes() {
+        long allocatedBytes = 0;
+
+        synchronized (allocators) {
+            for (DefaultAllocator allocator : allocators) {
+                allocatedBytes += allocator.getTotalBytesAllocated();
+            }
+        }
+
+        return allocatedBytes;
+    }
+
+    /**
+     * Whether a player may allocate more buffer memory.
+     *
+     * @param isPriority Whether the player belongs to the notification source.
+     */
+    public static boolean canAllocate(boolean isPriority) {
+        long limit = getBudgetBytes();
+
+        if (!isPriority) {
+            limit = (long) (limit * BACKGROUND_BUDGET_FRACTION);
+        }
+
+        return getAllocatedBytes() < limit;
+    }
+
+    public static void onTrimMemory(int level) {
+        float factor;
+
+        switch (level) {
+            case ComponentCallbacks2.TRIM_MEMORY_COMPLETE:
+            case ComponentCallbacks2.TRIM_MEMORY_MODERATE:
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+                factor = 0.25f;
+                break;
+            case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+                factor = 0.5f;
+                break;
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
+                factor = 0.75f;
+                break;
+            default:
+                // TRIM_MEMORY_UI_HIDDEN only means the app went to the background
+                return;
+        }
+
+        trimFactor = Math.min(getTrimFactor(), factor);
+        lastTrimMs = SystemClock.elapsedRealtime();
+
+        // Give back the buffer memory that is no longer in use
+        synchronized (allocators) {
+            for (DefaultAllocator allocator : allocators) {
+                allocator.trim();
+            }
+        }
+
+        Log.i(TAG, "Buffer memory budget reduced to " + getBudgetBytes() + " bytes, level: " + level);
+    }
+
+    /**
+     * The reduction of the last memory trim signal, which no longer applies once the recovery
+     * time has passed.
+     */
+    private static float getTrimFactor() {
+        if (SystemClock.elapsedRealtime() - lastTrimMs > TRIM_RECOVERY_MS) {
+            return 1f;
+        }
+
+        return trimFactor;
+    }
+}
@@ -0,0 +1,163 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.net.Uri;
+import org.json.JSONObject;
+
+/**
+ * Buffer durations a player uses to decide when to load and when to start playing.
+ */
+public class BufferProfile {
+
+    // Short sound effects and stingers: start as soon as anything is decoded
+    public static final BufferProfile LOW_LATENCY = new BufferProfile(
+        "lowLatency",
+        2000,
+        10000,
+        250,
+        1000,
+        0,
+        4 * 1024 * 1024 // 4MB
+    );
+    public static final BufferProfile BALANCED = new BufferProfile(
+        "balanced",
+        15000,
+        50000,
+        1000,
+        2500,
+        15000,
+        16 * 1024 * 1024 // 16MB
+    );
+    // Long streams on flaky networks: keep a deep buffer to ride out connection drops
+    public static final BufferProfile LONG_FORM = new BufferProfile(
+        "longForm",
+        60000,
+        300000,
+        2500,
+        5000,
+        60000,
+        32 * 1024 * 1024 // 32MB
+    );
+    // Files on the device: reading is fast so there is no need to buffer ahead
+    public static final BufferProfile LOCAL = new BufferProfile(
+        "local",
+        1000,
+        5000,
+        100,
+        500,
+        0,
+        4 * 1024 * 1024 // 4MB
+    );
+
+    public final String name;
+    public final int minBufferMs;
+    public final int maxBufferMs;
+    public final int bufferForPlaybackMs;
+    public final int bufferForPlaybackAfterRebufferMs;
+    public final int backBufferMs;
+    // Once minBufferMs is buffered, loading also stops when the buffer holds this many bytes
+    public final int maxBufferBytes;
+
+    BufferProfile(
+        String name,
+        int minBufferMs,
+        int maxBufferMs,
+        int bufferForPlaybackMs,
+        int bufferForPlaybackAfterRebufferMs,
+        int backBufferMs,
+        int maxBufferBytes
+    ) {
+        if (
+            bufferForPlaybackMs < 0 ||
+            bufferForPlaybackAfterRebufferMs < 0 ||
+            backBufferMs < 0 ||
+            maxBufferBytes <= 0 ||
+            minBufferMs < bufferForPlaybackMs ||
+            minBufferMs < bufferForPlaybackAfterRebufferMs ||
+            maxBufferMs < minBufferMs
+        ) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Invalid buffer profile %s. Buffer durations must be positive, minBufferMs must be between the playback buffers and maxBufferMs and maxBufferBytes must be above 0.",
+                    name
+                )
+            );
+        }
+
+        this.name = name;
+        this.minBufferMs = minBufferMs;
+        this.maxBufferMs = maxBufferMs;
+        this.bufferForPlaybackMs = bufferForPlaybackMs;
+        this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+        this.backBufferMs = backBufferMs;
+        this.maxBufferBytes = maxBufferBytes;
+    }
+
+    /**
+     * @param value Either the name of a preset or an object with custom durations.
+     * @return The profile, or null when no value was given.
+     */
+    public static BufferProfile fromValue(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return null;
+        }
+
+        if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+
+            return new BufferProfile(
+                "custom",
+                json.optInt("minBufferMs", BALANCED.minBufferMs),
+                json.optInt("maxBufferMs", BALANCED.maxBufferMs),
+                json.optInt("bufferForPlaybackMs", BALANCED.bufferForPlaybackMs),
+                json.optInt(
+                    "bufferForPlaybackAfterRebufferMs",
+                    BALANCED.bufferForPlaybackAfterRebufferMs
+                ),
+                json.optInt("backBufferMs", BALANCED.backBufferMs),
+                json.optInt("maxBufferBytes", BALANCED.maxBufferBytes)
+            );
+        }
+
+        switch (value.toString()) {
+            case "lowLatency":
+                return LOW_LATENCY;
+            case "balanced":
+                return BALANCED;
+            case "longForm":
+                return LONG_FORM;
+            case "local":
+                return LOCAL;
+            default:
+                throw new IllegalArgumentException("Unknown buffer profile: " + value);
+        }
+    }
+
+    /**
+     * The profile used when none was given: local files don't need to buffer ahead,
+     * everything else keeps the deep buffer for long streams.
+     */
+    public static BufferProfile defaultFor(String source) {
+        String scheme = source == null ? null : Uri.parse(source).getScheme();
+
+        if (
+            scheme != null &&
+            (scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))
+        ) {
+            return LONG_FORM;
+        }
+
+        return LOCAL;
+    }
+
+    /**
+     * On metered networks a deep buffer costs the user data they may never play, so the long
+     * form profile falls back to the balanced one.
+     */
+    public static BufferProfile forNetwork(BufferProfile profile, boolean isMetered) {
+        if (isMetered && profile == LONG_FORM) {
+            return BALANCED;
+        }
+
+        return profile;
+    }
+}
@@ -0,0 +1,151 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of whether the device is online and whether the network is metered.
+ *
+ * The state is updated by a {@link ConnectivityManager.NetworkCallback} instead of being queried
+ * on every use, so checking it from retries and stall callbacks is free. Listeners are called on
+ * the main looper, only when the state actually changes.
+ */
+public class ConnectivityMonitor {
+
+    private static final String TAG = "ConnectivityMonitor";
+
+    public interface Listener {
+        void onNetworkChanged(boolean isOnline, boolean isMetered);
+    }
+
+    private static ConnectivityMonitor instance;
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean isOnline;
+    private volatile boolean isMetered;
+
+    private final ConnectivityManager.NetworkCallback networkCallback =
+        new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                mainHandler.post(ConnectivityMonitor.this::update);
+            }
+
+            @Override
+            public void onLost(Network network) {
+                mainHandler.post(ConnectivityMonitor.this::update);
+            }
+
+            @Override
+            public void onCapabilitiesChanged(
+                Network network,
+                NetworkCapabilities networkCapabilities
+            ) {
+                mainHandler.post(ConnectivityMonitor.this::update);
+            }
+        };
+
+    private ConnectivityMonitor(Context context) {
+        connectivityManager = (ConnectivityManager) context
+            .getApplicationContext()
+            .getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        readState();
+
+        if (connectivityManager == null) {
+            return;
+        }
+
+        try {
+            connectivityManager.registerNetworkCallback(
+                new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build(),
+                networkCallback
+            );
+        } catch (Exception ex) {
+            // Without the callback the state is still read again on every update() call
+            Log.w(TAG, "Could not register the network callback", ex);
+        }
+    }
+
+    public static synchronized ConnectivityMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConnectivityMonitor(context);
+        }
+
+        return instance;
+    }
+
+    public boolean isOnline() {
+        return isOnline;
+    }
+
+    public boolean isMetered() {
+        return isMetered;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void update() {
+        boolean wasOnline = isOnline;
+        boolean wasMetered = isMetered;
+
+        readState();
+
+        if (wasOnline == isOnline && wasMetered == isMetered) {
+            return;
+        }
+
+        Log.i(TAG, "Network changed, online: " + isOnline + ", metered: " + isMetered);
+
+        for (Listener listener : listeners) {
+            listener.onNetworkChanged(isOnline, isMetered);
+        }
+    }
+
+    private void readState() {
+        if (connectivityManager == null) {
+            // Don't block playback because the state can't be known
+            isOnline = true;
+            isMetered = false;
+            return;
+        }
+
+        try {
+            Network network = connectivityManager.getActiveNetwork();
+            NetworkCapabilities capabilities = network == null
+                ? null
+                : connectivityManager.getNetworkCapabilities(network);
+
+            isOnline =
+                capabilities != null &&
+                capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+            isMetered =
+                capabilities != null &&
+                !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        } catch (Exception ex) {
+            Log.w(TAG, "Error checking network availability", ex);
+
+            isOnline = true;
+            isMetered = false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.offline.Download;
+import androidx.media3.exoplayer.offline.DownloadManager;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends download state changes to JS, plus a progress update every second for each running
+ * download, since the download manager itself only reports state changes. The ticker only runs
+ * while something is downloading. The public methods can be called from any thread, everything
+ * else runs on the main looper the download manager reports on.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class DownloadEventReporter implements DownloadManager.Listener {
+
+    public static final long PROGRESS_INTERVAL_MS = 1000;
+
+    private final AudioPlayerPlugin plugin;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable progressRunnable = this::reportProgress;
+
+    // Only accessed on the main looper
+    private final List<String> callbackIds = new ArrayList<>();
+    @Nullable
+    private DownloadManager downloadManager;
+    private boolean isTicking = false;
+
+    public DownloadEventReporter(AudioPlayerPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void subscribe(String callbackId) {
+        handler.post(() -> {
+            callbackIds.add(callbackId);
+
+            if (downloadManager == null) {
+                downloadManager = AudioDownloads.getDownloadManager(plugin.getContext());
+                downloadManager.addListener(this);
+            }
+
+            updateTicker();
+        });
+    }
+
+    public void release() {
+        handler.post(() -> {
+            handler.removeCallbacks(progressRunnable);
+            isTicking = false;
+            callbackIds.clear();
+
+            if (downloadManager != null) {
+                downloadManager.removeListener(this);
+                downloadManager = null;
+            }
+        });
+    }
+
+    @Override
+    public void onDownloadChanged(
+        DownloadManager downloadManager,
+        Download download,
+        @Nullable Exception finalException
+    ) {
+        JSObject data = AudioDownloads.toJSObject(download);
+
+        // Media3 only records that a download failed, the cause is only known right now
+        if (download.state == Download.STATE_FAILED && finalException != null) {
+            data.put("error", finalException.getMessage());
+        }
+
+        emit(data);
+        updateTicker();
+    }
+
+    @Override
+    public void onDownloadRemoved(DownloadManager downloadManager, Download download) {
+        emit(AudioDownloads.toJSObject(download).put("state", "removed"));
+        updateTicker();
+    }
+
+    private void updateTicker() {
+        boolean hasRunningDownload = false;
+
+        if (downloadManager != null && !callbackIds.isEmpty()) {
+            for (Download download : downloadManager.getCurrentDownloads()) {
+                if (download.state == Download.STATE_DOWNLOADING) {
+                    hasRunningDownload = true;
+                    break;
+                }
+            }
+        }
+
+        if (hasRunningDownload && !isTicking) {
+            isTicking = true;
+            handler.postDelayed(progressRunnable, PROGRESS_INTERVAL_MS);
+        } else if (!hasRunningDownload && isTicking) {
+            isTicking = false;
+            handler.removeCallbacks(progressRunnable);
+        }
+    }
+
+    private void reportProgress() {
+        isTicking = false;
+
+        if (downloadManager == null) {
+            return;
+        }
+
+        for (Download download : downloadManager.getCurrentDownloads()) {
+            if (download.state == Download.STATE_DOWNLOADING) {
+                emit(AudioDownloads.toJSObject(download));
+            }
+        }
+
+        updateTicker();
+    }
+
+    private void emit(JSObject data) {
+        for (String callbackId : new ArrayList<>(callbackIds)) {
+            PluginCall call = plugin.getBridge().getSavedCall(callbackId);
+
+            if (call == null) {
+                callbackIds.remove(callbackId);
+                continue;
+            }
+
+            call.resolve(data);
+        }
+    }
+}
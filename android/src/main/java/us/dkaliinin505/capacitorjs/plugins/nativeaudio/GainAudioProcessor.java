@@ -0,0 +1,95 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.audio.BaseAudioProcessor;
+import androidx.media3.common.util.UnstableApi;
+import java.nio.ByteBuffer;
+
+/**
+ * Applies the loudness normalization gain to a player's decoded audio, before it is written to
+ * the player's AudioTrack. Gain changes are ramped over one buffer so they don't click, except
+ * where a new item starts, see {@link NormalizingAudioRenderer}.
+ *
+ * Only 16-bit PCM output is processed. With any other output format the processor stays inactive
+ * and the source plays at its original loudness.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class GainAudioProcessor extends BaseAudioProcessor
+    implements LoudnessNormalizer.GainTarget {
+
+    private static final String TAG = "GainAudioProcessor";
+
+    private volatile float targetGain = 1;
+
+    // Only accessed on the playback thread
+    private float gain = 1;
+
+    @Override
+    public void setNormalizationGain(float gain) {
+        targetGain = gain;
+    }
+
+    /**
+     * Changes the gain without a ramp, for the audio of a new item. Must be called on the
+     * playback thread, between buffers.
+     */
+    public void switchNormalizationGain(float gain) {
+        targetGain = gain;
+        this.gain = gain;
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT) {
+            Log.w(TAG, "Can't normalize " + inputAudioFormat + ", playing it as is");
+            return AudioFormat.NOT_SET;
+        }
+
+        return inputAudioFormat;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int sampleCount = inputBuffer.remaining() / 2;
+
+        if (sampleCount == 0) {
+            return;
+        }
+
+        int channelCount = inputAudioFormat.channelCount;
+        int frameCount = sampleCount / channelCount;
+        float startGain = gain;
+        float endGain = targetGain;
+        gain = endGain;
+
+        ByteBuffer outputBuffer = replaceOutputBuffer(sampleCount * 2);
+
+        if (startGain == 1 && endGain == 1) {
+            outputBuffer.put(inputBuffer);
+            outputBuffer.flip();
+            return;
+        }
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            float frameGain = startGain + ((endGain - startGain) * frame) / frameCount;
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                int sample = Math.round(inputBuffer.getShort() * frameGain);
+                outputBuffer.putShort(
+                    (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample))
+                );
+            }
+        }
+
+        // Leaves nothing behind if the buffer ends in a partial frame
+        inputBuffer.position(inputBuffer.limit());
+        outputBuffer.flip();
+    }
+
+    @Override
+    protected void onReset() {
+        gain = targetGain;
+    }
+}
@@ -0,0 +1,203 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.datasource.TransferListener;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stops retrying against a host that keeps failing.
+ *
+ * After a number of consecutive failures the circuit for the host opens and retries are refused
+ * until a cooldown has passed. Then a single probe is let through while everyone else keeps
+ * waiting: if it connects the circuit closes again, if it fails the cooldown starts over. A probe
+ * that never reports back is given up on after another cooldown.
+ *
+ * Only failures that say something about the host count: server errors, timeouts and failed
+ * connections. Client errors such as 404 are the request's fault.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class HostCircuitBreaker {
+
+    private static final String TAG = "HostCircuitBreaker";
+
+    public static final int FAILURE_THRESHOLD = 5;
+    public static final long COOLDOWN_MS = 30000; // 30 seconds
+
+    private static final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Closes the circuit of a host as soon as a connection to it succeeds.
+     */
+    public static final TransferListener TRANSFER_LISTENER = new TransferListener() {
+        @Override
+        public void onTransferInitializing(
+            DataSource source,
+            DataSpec dataSpec,
+            boolean isNetwork
+        ) {}
+
+        @Override
+        public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            if (isNetwork) {
+                recordSuccess(dataSpec.uri.getHost());
+            }
+        }
+
+        @Override
+        public void onBytesTransferred(
+            DataSource source,
+            DataSpec dataSpec,
+            boolean isNetwork,
+            int bytesTransferred
+        ) {}
+
+        @Override
+        public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+    };
+
+    /**
+     * Whether an attempt against the host may go ahead now. Once the cooldown has passed, the
+     * first caller gets the half-open probe and everyone else is refused until it reports back.
+     */
+    public static boolean allowRequest(@Nullable String host) {
+        HostState state = host == null ? null : hosts.get(host);
+
+        if (state == null) {
+            return true;
+        }
+
+        synchronized (state) {
+            if (state.openedAtMs == 0) {
+                return true;
+            }
+
+            if (getRemainingCooldownMs(state) > 0) {
+                return false;
+            }
+
+            Log.i(TAG, "Letting a probe through to host: " + host);
+            state.probeStartedAtMs = SystemClock.elapsedRealtime();
+
+            return true;
+        }
+    }
+
+    /**
+     * Doesn't take the probe, call {@link #allowRequest} right before the attempt.
+     *
+     * @return how long until the next attempt against the host may be allowed, 0 if it may be
+     *         allowed now
+     */
+    public static long getRemainingCooldownMs(@Nullable String host) {
+        HostState state = host == null ? null : hosts.get(host);
+
+        if (state == null) {
+            return 0;
+        }
+
+        synchronized (state) {
+            return getRemainingCooldownMs(state);
+        }
+    }
+
+    private static long getRemainingCooldownMs(HostState state) {
+        if (state.openedAtMs == 0) {
+            return 0;
+        }
+
+        // While a probe is out, wait for its result
+        long waitFromMs = Math.max(state.openedAtMs, state.probeStartedAtMs);
+
+        return Math.max(0, waitFromMs + COOLDOWN_MS - SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Whether the load error counts against the host: a 5xx response, a timeout or a failed
+     * connection.
+     */
+    public static boolean isHostFailure(IOException exception) {
+        if (exception instanceof HttpDataSource.InvalidResponseCodeException) {
+            return ((HttpDataSource.InvalidResponseCodeException) exception).responseCode >= 500;
+        }
+
+        if (exception instanceof HttpDataSource.CleartextNotPermittedException) {
+            return false;
+        }
+
+        // Any other HTTP error happened while connecting or reading, timeouts included
+        return exception instanceof HttpDataSource.HttpDataSourceException;
+    }
+
+    public static void recordFailure(@Nullable String host) {
+        if (host == null) {
+            return;
+        }
+
+        HostState state = hosts.get(host);
+        if (state == null) {
+            state = new HostState();
+            HostState existing = hosts.putIfAbsent(host, state);
+
+            if (existing != null) {
+                state = existing;
+            }
+        }
+
+        synchronized (state) {
+            state.consecutiveFailures++;
+
+            if (state.consecutiveFailures >= FAILURE_THRESHOLD) {
+                if (state.openedAtMs == 0) {
+                    Log.w(TAG, "Opening circuit for host: " + host);
+                }
+
+                // A failure while half-open reopens the circuit and restarts the cooldown
+                state.openedAtMs = SystemClock.elapsedRealtime();
+                state.probeStartedAtMs = 0;
+            }
+        }
+    }
+
+    public static void recordSuccess(@Nullable String host) {
+        if (host == null) {
+            return;
+        }
+
+        HostState state = hosts.remove(host);
+
+        if (state != null && state.openedAtMs != 0) {
+            Log.i(TAG, "Closing circuit for host: " + host);
+        }
+    }
+
+    /**
+     * Whether the host's circuit is open or half-open. Doesn't take the probe.
+     */
+    public static boolean isOpen(@Nullable String host) {
+        HostState state = host == null ? null : hosts.get(host);
+
+        if (state == null) {
+            return false;
+        }
+
+        synchronized (state) {
+            return state.openedAtMs != 0;
+        }
+    }
+
+    private static class HostState {
+
+        int consecutiveFailures = 0;
+        long openedAtMs = 0;
+        long probeStartedAtMs = 0;
+    }
+}
@@ -0,0 +1,200 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import androidx.media3.common.C;
+
+/**
+ * A decoded loop that is played as one endless WAV stream: the audio up to the loop end once,
+ * then the region between the loop start and the loop end over and over.
+ *
+ * The PCM is only ever copied out, so looping costs no decoding and has no boundary where the
+ * player could leave a gap. Stream positions before the loop end are the same as positions in
+ * the source, so the intro and seeking need no mapping.
+ */
+public class LoopBuffer {
+
+    public static final int HEADER_SIZE = 44;
+
+    private static final int BYTES_PER_SAMPLE = 2;
+    // What fits in the 32-bit RIFF size, which counts everything after itself
+    private static final long MAX_DATA_SIZE = 0xFFFFFFFFL - (HEADER_SIZE - 8);
+
+    private final short[] samples;
+    private final int sampleRate;
+    private final int channelCount;
+    private final long loopStartFrame;
+    private final long loopEndFrame;
+    private final long dataSize;
+    private final byte[] header;
+
+    /**
+     * @param loopEndMs C.TIME_UNSET to loop until the end of the source
+     */
+    public LoopBuffer(PcmDecoder.Decoded decoded, long loopStartMs, long loopEndMs) {
+        sampleRate = decoded.sampleRate;
+        channelCount = decoded.channelCount;
+
+        long frameCount = decoded.getFrameCount();
+        loopStartFrame = Math.min(Math.max(0, msToFrames(loopStartMs)), frameCount);
+        loopEndFrame = loopEndMs == C.TIME_UNSET
+            ? frameCount
+            : Math.min(msToFrames(loopEndMs), frameCount);
+
+        if (loopEndFrame <= loopStartFrame) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "The loop starting at %sms is empty for a source of %sms.",
+                    loopStartMs,
+                    framesToMs(frameCount)
+                )
+            );
+        }
+
+        // Nothing after the loop end is ever played
+        if (loopEndFrame < frameCount) {
+            samples = new short[(int) (loopEndFrame * channelCount)];
+            System.arraycopy(decoded.samples, 0, samples, 0, samples.length);
+        } else {
+            samples = decoded.samples;
+        }
+
+        long frameSize = (long) channelCount * BYTES_PER_SAMPLE;
+        dataSize = MAX_DATA_SIZE / frameSize * frameSize;
+        header = createHeader();
+    }
+
+    /**
+     * @return the length of the stream, including the header
+     */
+    public long getLength() {
+        return HEADER_SIZE + dataSize;
+    }
+
+    /**
+     * @return the memory the PCM takes up
+     */
+    public long getSizeBytes() {
+        return (long) samples.length * BYTES_PER_SAMPLE;
+    }
+
+    public long getLoopStartMs() {
+        return framesToMs(loopStartFrame);
+    }
+
+    /**
+     * @return the duration of the source up to the loop end
+     */
+    public long getDurationMs() {
+        return framesToMs(loopEndFrame);
+    }
+
+    /**
+     * Maps a position in the stream to the position in the source it plays.
+     */
+    public long toSourcePositionMs(long streamPositionMs) {
+        long durationMs = getDurationMs();
+
+        if (streamPositionMs < durationMs) {
+            return streamPositionMs;
+        }
+
+        long loopStartMs = getLoopStartMs();
+        long loopDurationMs = Math.max(1, durationMs - loopStartMs);
+
+        return loopStartMs + (streamPositionMs - durationMs) % loopDurationMs;
+    }
+
+    /**
+     * Copies the stream from the given position, like a file read.
+     *
+     * @return the number of bytes read, or C.RESULT_END_OF_INPUT at the end of the stream
+     */
+    public int read(long position, byte[] buffer, int offset, int length) {
+        long streamLength = getLength();
+
+        if (position >= streamLength) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        int count = (int) Math.min(length, streamLength - position);
+        int copied = 0;
+
+        while (copied < count && position + copied < HEADER_SIZE) {
+            buffer[offset + copied] = header[(int) (position + copied)];
+            copied++;
+        }
+
+        long loopStartByte = loopStartFrame * channelCount * BYTES_PER_SAMPLE;
+        long loopEndByte = (long) samples.length * BYTES_PER_SAMPLE;
+
+        while (copied < count) {
+            long dataPosition = position + copied - HEADER_SIZE;
+
+            if (dataPosition >= loopEndByte) {
+                dataPosition =
+                    loopStartByte + ((dataPosition - loopEndByte) % (loopEndByte - loopStartByte));
+            }
+
+            // Copy up to the loop end in one go, then map the position back to the loop start
+            int runLength = (int) Math.min(count - copied, loopEndByte - dataPosition);
+
+            for (int i = 0; i < runLength; i++) {
+                long bytePosition = dataPosition + i;
+                short sample = samples[(int) (bytePosition >> 1)];
+
+                // Little endian
+                buffer[offset + copied + i] = (bytePosition & 1) == 0
+                    ? (byte) sample
+                    : (byte) (sample >> 8);
+            }
+
+            copied += runLength;
+        }
+
+        return count;
+    }
+
+    private byte[] createHeader() {
+        int blockAlign = channelCount * BYTES_PER_SAMPLE;
+        byte[] header = new byte[HEADER_SIZE];
+
+        putAscii(header, 0, "RIFF");
+        putInt(header, 4, dataSize + HEADER_SIZE - 8);
+        putAscii(header, 8, "WAVE");
+        putAscii(header, 12, "fmt ");
+        putInt(header, 16, 16);
+        putShort(header, 20, 1); // PCM
+        putShort(header, 22, channelCount);
+        putInt(header, 24, sampleRate);
+        putInt(header, 28, (long) sampleRate * blockAlign);
+        putShort(header, 32, blockAlign);
+        putShort(header, 34, BYTES_PER_SAMPLE * 8);
+        putAscii(header, 36, "data");
+        putInt(header, 40, dataSize);
+
+        return header;
+    }
+
+    private long msToFrames(long ms) {
+        return ms * sampleRate / 1000;
+    }
+
+    private long framesToMs(long frames) {
+        return frames * 1000 / sampleRate;
+    }
+
+    private static void putAscii(byte[] target, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            target[offset + i] = (byte) value.charAt(i);
+        }
+    }
+
+    private static void putShort(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >> 8);
+    }
+
+    private static void putInt(byte[] target, int offset, long value) {
+        putShort(target, offset, (int) value);
+        putShort(target, offset + 2, (int) (value >> 16));
+    }
+}
@@ -0,0 +1,305 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONObject;
+
+/**
+ * Decodes loops for seamless looping and keeps them in memory.
+ *
+ * Each loop is identified by its source and loop points and is played through a URI with its
+ * own scheme, which {@link AudioMediaSourceFactory} reads with a {@link LoopDataSource}. Loops
+ * that are in use are pinned. Unused loops stay cached until the cache is over its budget, so
+ * recreating a background bed doesn't decode it again.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class LoopBuffers {
+
+    private static final String TAG = "LoopBuffers";
+
+    public static final String SCHEME = "audioplayer-loop";
+    private static final String KEY_PARAMETER = "key";
+
+    public static final long DEFAULT_MAX_DURATION_MS = 60000; // 1 minute
+    public static final long DEFAULT_CACHE_MAX_BYTES = 32L * 1024 * 1024; // 32MB
+
+    private static volatile long maxDurationMs = DEFAULT_MAX_DURATION_MS;
+    private static volatile long cacheMaxBytes = DEFAULT_CACHE_MAX_BYTES;
+
+    public interface Callback {
+        /**
+         * Called on the decoder thread with the loop's URI, or null if it couldn't be decoded.
+         * The loop is acquired for the caller, who must release it.
+         */
+        void onLoopBufferLoaded(@Nullable Uri uri);
+    }
+
+    // Guarded by entries, in order of last use
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(
+        16,
+        0.75f,
+        true
+    );
+    private static long cachedBytes = 0;
+
+    private static final Map<String, List<Callback>> pendingCallbacks = new HashMap<>();
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(
+            () -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            },
+            "AudioPlayerLoopDecoder"
+        );
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * @param config The `seamlessLoop` object from the plugin config, null when not set
+     */
+    public static void configure(JSONObject config) {
+        if (config == null) {
+            return;
+        }
+
+        maxDurationMs = Math.max(0, config.optLong("maxDurationMs", DEFAULT_MAX_DURATION_MS));
+        cacheMaxBytes = Math.max(0, config.optLong("cacheMaxBytes", DEFAULT_CACHE_MAX_BYTES));
+    }
+
+    public static boolean isLoopUri(Uri uri) {
+        return SCHEME.equals(uri.getScheme());
+    }
+
+    /**
+     * @return the loop's URI if it is already decoded, acquired for the caller, otherwise null
+     */
+    @Nullable
+    public static Uri acquireCached(String source, long loopStartMs, long loopEndMs) {
+        String key = getKey(source, loopStartMs, loopEndMs);
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+
+            if (entry == null) {
+                return null;
+            }
+
+            entry.referenceCount++;
+
+            return toUri(key);
+        }
+    }
+
+    /**
+     * Decodes the loop in the background. Concurrent requests for one loop share a single decode.
+     *
+     * @param loopEndMs C.TIME_UNSET to loop until the end of the source
+     */
+    public static void load(
+        Context context,
+        String source,
+        long loopStartMs,
+        long loopEndMs,
+        Callback callback
+    ) {
+        Uri cachedUri = acquireCached(source, loopStartMs, loopEndMs);
+        if (cachedUri != null) {
+            callback.onLoopBufferLoaded(cachedUri);
+            return;
+        }
+
+        String key = getKey(source, loopStartMs, loopEndMs);
+
+        synchronized (pendingCallbacks) {
+            List<Callback> callbacks = pendingCallbacks.get(key);
+
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            pendingCallbacks.put(key, callbacks);
+        }
+
+        Context appContext = context.getApplicationContext();
+
+        executor.execute(() -> {
+            LoopBuffer loopBuffer = null;
+
+            try {
+                loopBuffer = decode(appContext, source, loopStartMs, loopEndMs);
+            } catch (Exception ex) {
+                Log.w(TAG, "Could not decode the loop, it loops with gaps: " + source, ex);
+            }
+
+            List<Callback> callbacks;
+
+            synchronized (pendingCallbacks) {
+                callbacks = pendingCallbacks.remove(key);
+            }
+
+            if (loopBuffer != null) {
+                synchronized (entries) {
+                    Entry entry = entries.get(key);
+
+                    if (entry == null) {
+                        entry = new Entry(loopBuffer);
+                        entries.put(key, entry);
+                        cachedBytes += loopBuffer.getSizeBytes();
+                    }
+
+                    entry.referenceCount += callbacks.size();
+                    evict();
+                }
+            }
+
+            for (Callback pendingCallback : callbacks) {
+                pendingCallback.onLoopBufferLoaded(loopBuffer != null ? toUri(key) : null);
+            }
+        });
+    }
+
+    /**
+     * @return the loop, or null if it isn't cached
+     */
+    @Nullable
+    public static LoopBuffer get(Uri uri) {
+        String key = uri.getQueryParameter(KEY_PARAMETER);
+
+        synchronized (entries) {
+            Entry entry = key != null ? entries.get(key) : null;
+
+            return entry != null ? entry.loopBuffer : null;
+        }
+    }
+
+    /**
+     * Unpins a loop acquired through acquireCached or load. It stays cached while it fits.
+     */
+    public static void release(Uri uri) {
+        String key = uri.getQueryParameter(KEY_PARAMETER);
+
+        synchronized (entries) {
+            Entry entry = key != null ? entries.get(key) : null;
+
+            if (entry != null && entry.referenceCount > 0) {
+                entry.referenceCount--;
+                evict();
+            }
+        }
+    }
+
+    private static LoopBuffer decode(
+        Context context,
+        String source,
+        long loopStartMs,
+        long loopEndMs
+    ) throws IOException {
+        PcmDecoder.Decoded decoded = PcmDecoder.decode(readSource(context, source), maxDurationMs);
+        LoopBuffer loopBuffer = new LoopBuffer(decoded, loopStartMs, loopEndMs);
+
+        if (loopBuffer.getSizeBytes() > cacheMaxBytes) {
+            throw new IOException(
+                String.format(
+                    "The loop needs %s bytes, more than the cache of %s bytes.",
+                    loopBuffer.getSizeBytes(),
+                    cacheMaxBytes
+                )
+            );
+        }
+
+        Log.d(TAG, "Decoded loop of " + loopBuffer.getSizeBytes() + " bytes: " + source);
+
+        return loopBuffer;
+    }
+
+    private static byte[] readSource(Context context, String source) throws IOException {
+        // Goes through the media cache and the downloads like the player
+        DataSource dataSource = RobustHlsConfig.createCachedDataSourceFactory(context)
+            .createDataSource();
+
+        try {
+            dataSource.open(new DataSpec(Uri.parse(source)));
+
+            return DataSourceUtil.readToEnd(dataSource);
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Drops least recently used loops that aren't in use until the cache fits its budget.
+     * Must be called while holding entries.
+     */
+    private static void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+        while (cachedBytes > cacheMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+
+            if (entry.getValue().referenceCount > 0) {
+                continue;
+            }
+
+            cachedBytes -= entry.getValue().loopBuffer.getSizeBytes();
+            iterator.remove();
+            Log.d(TAG, "Evicted loop: " + entry.getKey());
+        }
+    }
+
+    /**
+     * @return the source a loop URI was decoded from, or null if it isn't a loop URI
+     */
+    @Nullable
+    public static String getSource(Uri uri) {
+        String key = isLoopUri(uri) ? uri.getQueryParameter(KEY_PARAMETER) : null;
+        String[] parts = key != null ? key.split(":", 3) : new String[0];
+
+        return parts.length == 3 ? parts[2] : null;
+    }
+
+    private static String getKey(String source, long loopStartMs, long loopEndMs) {
+        return loopStartMs + ":" + (loopEndMs == C.TIME_UNSET ? "end" : loopEndMs) + ":" + source;
+    }
+
+    private static Uri toUri(String key) {
+        return new Uri.Builder()
+            .scheme(SCHEME)
+            .authority("loop")
+            .appendQueryParameter(KEY_PARAMETER, key)
+            .build();
+    }
+
+    private static class Entry {
+
+        final LoopBuffer loopBuffer;
+        int referenceCount = 0;
+
+        Entry(LoopBuffer loopBuffer) {
+            this.loopBuffer = loopBuffer;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.BaseDataSource;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceException;
+import androidx.media3.datasource.DataSpec;
+import java.io.FileNotFoundException;
+
+/**
+ * Reads the endless WAV stream of a decoded loop from {@link LoopBuffers}.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class LoopDataSource extends BaseDataSource {
+
+    public static class Factory implements DataSource.Factory {
+
+        @Override
+        public DataSource createDataSource() {
+            return new LoopDataSource();
+        }
+    }
+
+    @Nullable
+    private Uri uri;
+
+    @Nullable
+    private LoopBuffer loopBuffer;
+
+    private long position;
+    private long bytesRemaining;
+    private boolean isOpen = false;
+
+    public LoopDataSource() {
+        super(false);
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws DataSourceException {
+        uri = dataSpec.uri;
+        transferInitializing(dataSpec);
+
+        loopBuffer = LoopBuffers.get(dataSpec.uri);
+
+        if (loopBuffer == null) {
+            throw new DataSourceException(
+                new FileNotFoundException("The loop buffer was released: " + dataSpec.uri),
+                PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND
+            );
+        }
+
+        if (dataSpec.position > loopBuffer.getLength()) {
+            throw new DataSourceException(
+                PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE
+            );
+        }
+
+        position = dataSpec.position;
+        bytesRemaining = dataSpec.length != C.LENGTH_UNSET
+            ? dataSpec.length
+            : loopBuffer.getLength() - position;
+        isOpen = true;
+        transferStarted(dataSpec);
+
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (bytesRemaining == 0 || loopBuffer == null) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        int count = loopBuffer.read(
+            position,
+            buffer,
+            offset,
+            (int) Math.min(length, bytesRemaining)
+        );
+
+        if (count == C.RESULT_END_OF_INPUT) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        position += count;
+        bytesRemaining -= count;
+        bytesTransferred(count);
+
+        return count;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public void close() {
+        uri = null;
+        loopBuffer = null;
+
+        if (isOpen) {
+            isOpen = false;
+            transferEnded();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import androidx.annotation.Nullable;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The integrated loudness of a source and its sample peak, as measured or read from its tags.
+ */
+public class Loudness {
+
+    // ReplayGain 2.0 gains are relative to -18 LUFS, R128 gains of Opus to -23 LUFS
+    private static final double REPLAY_GAIN_REFERENCE_LUFS = -18;
+    private static final double R128_REFERENCE_LUFS = -23;
+
+    public final double loudnessLufs;
+    // Linear, 0 while unknown
+    public final double peak;
+
+    public Loudness(double loudnessLufs, double peak) {
+        this.loudnessLufs = loudnessLufs;
+        this.peak = peak;
+    }
+
+    /**
+     * The gain that brings the source to the target loudness, limited to the maximum boost and
+     * to what the peak allows without clipping.
+     *
+     * @return the linear gain
+     */
+    public float getGain(double targetLufs, double maxGainDb) {
+        double gainDb = Math.min(targetLufs - loudnessLufs, maxGainDb);
+
+        if (peak > 0) {
+            gainDb = Math.min(gainDb, -20 * Math.log10(peak));
+        }
+
+        return (float) Math.pow(10, gainDb / 20);
+    }
+
+    /**
+     * Reads the ReplayGain track gain and peak, or the R128 track gain of Opus files.
+     *
+     * @param tags Tag values by upper case name, e.g. REPLAYGAIN_TRACK_GAIN
+     * @return null if the tags don't have a usable gain
+     */
+    @Nullable
+    public static Loudness fromTags(Map<String, String> tags) {
+        Double replayGainDb = parseNumber(tags.get("REPLAYGAIN_TRACK_GAIN"));
+
+        if (replayGainDb != null) {
+            Double peak = parseNumber(tags.get("REPLAYGAIN_TRACK_PEAK"));
+
+            return new Loudness(REPLAY_GAIN_REFERENCE_LUFS - replayGainDb, peak != null ? peak : 0);
+        }
+
+        // A Q7.8 number in dB
+        Double r128Gain = parseNumber(tags.get("R128_TRACK_GAIN"));
+
+        if (r128Gain != null) {
+            return new Loudness(R128_REFERENCE_LUFS - r128Gain / 256, 0);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return null if the value wasn't written by toString
+     */
+    @Nullable
+    public static Loudness parse(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String[] parts = value.split(";");
+
+        try {
+            return new Loudness(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%.2f;%.6f", loudnessLufs, peak);
+    }
+
+    /**
+     * Reads the number at the start of a tag value, e.g. -6.54 from "-6.54 dB".
+     */
+    @Nullable
+    private static Double parseNumber(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String number = value.trim().split("\\s+")[0];
+
+        try {
+            double parsed = Double.parseDouble(number);
+
+            return Double.isNaN(parsed) || Double.isInfinite(parsed) ? null : parsed;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
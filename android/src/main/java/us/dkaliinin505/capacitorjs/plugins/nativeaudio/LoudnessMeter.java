@@ -0,0 +1,233 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Measures the integrated loudness of decoded audio as in ITU-R BS.1770-4, in a single pass.
+ *
+ * Every channel is K-weighted, the mean square is taken over 400ms blocks that overlap by 75%,
+ * and blocks are gated first at -70 LUFS and then at 10 LU below the loudness of the blocks that
+ * passed. Only the energy of each 100ms step is kept, so memory grows by a few bytes per second.
+ */
+public class LoudnessMeter implements PcmDecoder.SampleListener {
+
+    private static final double ABSOLUTE_GATE_LUFS = -70;
+    private static final double RELATIVE_GATE_LU = -10;
+    private static final int STEPS_PER_BLOCK = 4;
+
+    private int sampleRate = 0;
+    private int channelCount = 0;
+    private double[] channelWeights = new double[0];
+    private Biquad[] shelfFilters = new Biquad[0];
+    private Biquad[] highPassFilters = new Biquad[0];
+
+    private int stepFrames = 0;
+    private int stepFrameCount = 0;
+    private double stepEnergy = 0;
+    private double[] stepEnergies = new double[1024];
+    private int stepCount = 0;
+
+    private double peak = 0;
+
+    @Override
+    public void onFormat(int sampleRate, int channelCount) {
+        if (sampleRate == this.sampleRate && channelCount == this.channelCount) {
+            return;
+        }
+
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        stepFrames = Math.max(1, sampleRate / 10);
+        stepFrameCount = 0;
+        stepEnergy = 0;
+
+        channelWeights = new double[channelCount];
+        shelfFilters = new Biquad[channelCount];
+        highPassFilters = new Biquad[channelCount];
+
+        for (int channel = 0; channel < channelCount; channel++) {
+            channelWeights[channel] = getChannelWeight(channel, channelCount);
+            shelfFilters[channel] = Biquad.highShelf(sampleRate);
+            highPassFilters[channel] = Biquad.highPass(sampleRate);
+        }
+    }
+
+    @Override
+    public void onSamples(ShortBuffer samples) {
+        int frameCount = samples.remaining() / Math.max(1, channelCount);
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            for (int channel = 0; channel < channelCount; channel++) {
+                double sample = samples.get() / 32768.0;
+                peak = Math.max(peak, Math.abs(sample));
+
+                if (channelWeights[channel] == 0) {
+                    continue;
+                }
+
+                double weighted = highPassFilters[channel].process(
+                    shelfFilters[channel].process(sample)
+                );
+                stepEnergy += channelWeights[channel] * weighted * weighted;
+            }
+
+            if (++stepFrameCount == stepFrames) {
+                endStep();
+            }
+        }
+    }
+
+    /**
+     * @return null if there was no audio above the absolute gate
+     */
+    public Loudness getLoudness() {
+        double absoluteGateEnergy = toEnergy(ABSOLUTE_GATE_LUFS);
+        double sum = 0;
+        int count = 0;
+
+        for (int block = 0; block + STEPS_PER_BLOCK <= stepCount; block++) {
+            double energy = getBlockEnergy(block);
+
+            if (energy > absoluteGateEnergy) {
+                sum += energy;
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        double relativeGateEnergy = toEnergy(toLufs(sum / count) + RELATIVE_GATE_LU);
+        sum = 0;
+        count = 0;
+
+        for (int block = 0; block + STEPS_PER_BLOCK <= stepCount; block++) {
+            double energy = getBlockEnergy(block);
+
+            if (energy > absoluteGateEnergy && energy > relativeGateEnergy) {
+                sum += energy;
+                count++;
+            }
+        }
+
+        return new Loudness(toLufs(sum / count), peak);
+    }
+
+    private void endStep() {
+        if (stepCount == stepEnergies.length) {
+            double[] grown = new double[stepEnergies.length * 2];
+            System.arraycopy(stepEnergies, 0, grown, 0, stepCount);
+            stepEnergies = grown;
+        }
+
+        stepEnergies[stepCount++] = stepEnergy / stepFrames;
+        stepFrameCount = 0;
+        stepEnergy = 0;
+    }
+
+    private double getBlockEnergy(int firstStep) {
+        double energy = 0;
+
+        for (int step = firstStep; step < firstStep + STEPS_PER_BLOCK; step++) {
+            energy += stepEnergies[step];
+        }
+
+        return energy / STEPS_PER_BLOCK;
+    }
+
+    private static double toLufs(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private static double toEnergy(double lufs) {
+        return Math.pow(10, (lufs + 0.691) / 10);
+    }
+
+    /**
+     * Surround channels count 1.5dB more, the LFE channel of 5.1 isn't counted.
+     */
+    private static double getChannelWeight(int channel, int channelCount) {
+        if (channelCount == 6) {
+            switch (channel) {
+                case 3:
+                    return 0;
+                case 4:
+                case 5:
+                    return 1.41;
+            }
+        }
+
+        return 1;
+    }
+
+    /**
+     * A second order IIR filter in direct form I, with the coefficients of BS.1770 derived for
+     * any sample rate.
+     */
+    private static class Biquad {
+
+        private final double b0;
+        private final double b1;
+        private final double b2;
+        private final double a1;
+        private final double a2;
+        private double x1;
+        private double x2;
+        private double y1;
+        private double y2;
+
+        Biquad(double b0, double b1, double b2, double a1, double a2) {
+            this.b0 = b0;
+            this.b1 = b1;
+            this.b2 = b2;
+            this.a1 = a1;
+            this.a2 = a2;
+        }
+
+        /**
+         * The first stage, modelling the acoustic effect of the head.
+         */
+        static Biquad highShelf(int sampleRate) {
+            double frequency = 1681.974450955533;
+            double gainDb = 3.999843853973347;
+            double q = 0.7071752369554196;
+
+            double k = Math.tan(Math.PI * frequency / sampleRate);
+            double vh = Math.pow(10, gainDb / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+
+            return new Biquad(
+                (vh + vb * k / q + k * k) / a0,
+                (2 * (k * k - vh)) / a0,
+                (vh - vb * k / q + k * k) / a0,
+                (2 * (k * k - 1)) / a0,
+                (1 - k / q + k * k) / a0
+            );
+        }
+
+        /**
+         * The second stage, the revised low-frequency B-curve.
+         */
+        static Biquad highPass(int sampleRate) {
+            double frequency = 38.13547087602444;
+            double q = 0.5003270373238773;
+
+            double k = Math.tan(Math.PI * frequency / sampleRate);
+            double a0 = 1 + k / q + k * k;
+
+            return new Biquad(1, -2, 1, (2 * (k * k - 1)) / a0, (1 - k / q + k * k) / a0);
+        }
+
+        double process(double x) {
+            double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+
+            return y;
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Metadata;
+import androidx.media3.common.Player;
+import androidx.media3.common.Timeline;
+import androidx.media3.common.Tracks;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.extractor.metadata.id3.InternalFrame;
+import androidx.media3.extractor.metadata.id3.TextInformationFrame;
+import androidx.media3.extractor.metadata.vorbis.VorbisComment;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONObject;
+
+/**
+ * Optional loudness normalization, so sources mastered at different levels play equally loud.
+ *
+ * The loudness of a source is read from its ReplayGain or R128 tags once the player knows its
+ * tracks. Progressive sources without tags are measured once in the background with a
+ * {@link LoudnessMeter}, but only once they are completely in the media cache or downloaded,
+ * so measuring never downloads a source a second time next to the player. Either way the
+ * result is kept per media cache key across app starts, so later plays apply the gain right
+ * away without decoding anything. Until the loudness is known the source plays as is.
+ *
+ * The loudness of the next item in the playlist is read ahead, so players with a
+ * {@link NormalizingAudioRenderer} start it at its gain even on gapless transitions.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class LoudnessNormalizer {
+
+    private static final String TAG = "LoudnessNormalizer";
+    private static final String PREFERENCES_NAME = "AudioPlayerLoudness";
+
+    public static final double DEFAULT_TARGET_LUFS = -14;
+    public static final double DEFAULT_MAX_GAIN_DB = 6;
+
+    private static volatile boolean isEnabled = false;
+    private static volatile double targetLufs = DEFAULT_TARGET_LUFS;
+    private static volatile double maxGainDb = DEFAULT_MAX_GAIN_DB;
+
+    public interface GainTarget {
+        /**
+         * Can be called from any thread.
+         *
+         * @param gain The linear gain, 1 to play the source as is
+         */
+        void setNormalizationGain(float gain);
+    }
+
+    private interface Callback {
+        /**
+         * Called on the analysis thread, with null if the source couldn't be measured.
+         */
+        void onLoudnessMeasured(@Nullable Loudness loudness);
+    }
+
+    // By media cache key, guarded by loudnessBySource
+    private static final Map<String, Loudness> loudnessBySource = new HashMap<>();
+    // Sources that couldn't be measured aren't retried until the app restarts
+    private static final Set<String> failedSources = new HashSet<>();
+
+    private static final Map<String, List<Callback>> pendingCallbacks = new HashMap<>();
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(
+            () -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            },
+            "AudioPlayerLoudness"
+        );
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * @param config The `loudnessNormalization` object from the plugin config, null when not set
+     */
+    public static void configure(JSONObject config) {
+        isEnabled = config != null && config.optBoolean("enabled", false);
+
+        if (config == null) {
+            return;
+        }
+
+        targetLufs = config.optDouble("targetLufs", DEFAULT_TARGET_LUFS);
+        maxGainDb = Math.max(0, config.optDouble("maxGainDb", DEFAULT_MAX_GAIN_DB));
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Keeps the target's gain matched to the player's current source.
+     */
+    public static void attach(Context context, ExoPlayer player, GainTarget target) {
+        Context appContext = context.getApplicationContext();
+        player.addListener(new NormalizingListener(appContext, player, target));
+    }
+
+    /**
+     * The source a media item plays, seamless loops resolve to the source they were decoded from.
+     */
+    @Nullable
+    private static String getSource(@Nullable MediaItem mediaItem) {
+        if (mediaItem == null || mediaItem.localConfiguration == null) {
+            return null;
+        }
+
+        Uri uri = mediaItem.localConfiguration.uri;
+        String loopSource = LoopBuffers.getSource(uri);
+
+        return loopSource != null ? loopSource : uri.toString();
+    }
+
+    /**
+     * The gain for the media item if its loudness is already in memory, without reading the
+     * disk, so it can be called on the playback thread. 1 if it isn't known yet.
+     */
+    public static float getCachedGain(@Nullable MediaItem mediaItem) {
+        String source = getSource(mediaItem);
+        Loudness loudness = null;
+
+        if (source != null) {
+            synchronized (loudnessBySource) {
+                loudness = loudnessBySource.get(getKey(source));
+            }
+        }
+
+        return getGain(loudness);
+    }
+
+    private static float getGain(@Nullable Loudness loudness) {
+        return loudness != null ? loudness.getGain(targetLufs, maxGainDb) : 1;
+    }
+
+    /**
+     * Sources that only differ in ignored query parameters share their loudness like they share
+     * cached media.
+     */
+    private static String getKey(String source) {
+        return MediaCache.buildCacheKey(Uri.parse(source));
+    }
+
+    /**
+     * Reads the disk when the loudness isn't in memory yet, so it's only called on the analysis
+     * thread.
+     */
+    @Nullable
+    private static Loudness getCached(Context context, String source) {
+        String key = getKey(source);
+
+        synchronized (loudnessBySource) {
+            if (loudnessBySource.containsKey(key)) {
+                return loudnessBySource.get(key);
+            }
+        }
+
+        Loudness loudness = Loudness.parse(
+            getPreferences(context).getString(ArtworkLoader.hash(key), null)
+        );
+
+        if (loudness != null) {
+            synchronized (loudnessBySource) {
+                loudnessBySource.put(key, loudness);
+            }
+        }
+
+        return loudness;
+    }
+
+    private static void store(Context context, String source, Loudness loudness) {
+        String key = getKey(source);
+
+        synchronized (loudnessBySource) {
+            loudnessBySource.put(key, loudness);
+        }
+
+        getPreferences(context)
+            .edit()
+            .putString(ArtworkLoader.hash(key), loudness.toString())
+            .apply();
+    }
+
+    private static boolean hasFailed(String source) {
+        synchronized (loudnessBySource) {
+            return failedSources.contains(getKey(source));
+        }
+    }
+
+    /**
+     * Whether the source can be measured from the device, instead of downloading it again.
+     */
+    private static boolean isStoredLocally(Context context, String source) {
+        Uri uri = Uri.parse(source);
+        String scheme = uri.getScheme();
+
+        if (
+            scheme == null ||
+            !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))
+        ) {
+            return true;
+        }
+
+        return MediaCache.isCached(context, uri) || AudioDownloads.isDownloaded(context, uri);
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Measures the source in the background. Concurrent requests for one source share a single
+     * pass.
+     */
+    private static void measure(Context context, String source, Callback callback) {
+        String key = getKey(source);
+
+        synchronized (pendingCallbacks) {
+            List<Callback> callbacks = pendingCallbacks.get(key);
+
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            pendingCallbacks.put(key, callbacks);
+        }
+
+        executor.execute(() -> {
+            Loudness loudness = null;
+
+            try {
+                loudness = measureBlocking(context, source);
+            } catch (Exception ex) {
+                Log.w(TAG, "Could not measure the loudness: " + source, ex);
+            }
+
+            if (loudness != null) {
+                store(context, source, loudness);
+            } else {
+                synchronized (loudnessBySource) {
+                    failedSources.add(key);
+                }
+            }
+
+            List<Callback> callbacks;
+
+            synchronized (pendingCallbacks) {
+                callbacks = pendingCallbacks.remove(key);
+            }
+
+            for (Callback pendingCallback : callbacks) {
+                pendingCallback.onLoudnessMeasured(loudness);
+            }
+        });
+    }
+
+    @Nullable
+    private static Loudness measureBlocking(Context context, String source) throws IOException {
+        long startedAtMs = System.currentTimeMillis();
+        LoudnessMeter loudnessMeter = new LoudnessMeter();
+
+        try (
+            StreamingMediaDataSource dataSource = new StreamingMediaDataSource(
+                context,
+                Uri.parse(source)
+            )
+        ) {
+            PcmDecoder.decode(dataSource, loudnessMeter);
+        }
+
+        Loudness loudness = loudnessMeter.getLoudness();
+
+        Log.d(
+            TAG,
+            String.format(
+                "Measured %s in %sms: %s",
+                loudness,
+                System.currentTimeMillis() - startedAtMs,
+                source
+            )
+        );
+
+        return loudness;
+    }
+
+    /**
+     * Collects the text tags of the audio tracks by upper case name, from ID3 TXXX and COMM
+     * frames, Vorbis comments and the iTunes metadata of MP4 files.
+     */
+    private static Map<String, String> getTags(Tracks tracks) {
+        Map<String, String> tags = new HashMap<>();
+
+        for (Tracks.Group group : tracks.getGroups()) {
+            if (group.getType() != C.TRACK_TYPE_AUDIO) {
+                continue;
+            }
+
+            for (int i = 0; i < group.length; i++) {
+                Format format = group.getTrackFormat(i);
+
+                if (format.metadata == null) {
+                    continue;
+                }
+
+                for (int j = 0; j < format.metadata.length(); j++) {
+                    addTag(tags, format.metadata.get(j));
+                }
+            }
+        }
+
+        return tags;
+    }
+
+    private static void addTag(Map<String, String> tags, Metadata.Entry entry) {
+        if (entry instanceof TextInformationFrame) {
+            TextInformationFrame frame = (TextInformationFrame) entry;
+
+            if (frame.description != null && !frame.values.isEmpty()) {
+                tags.put(frame.description.toUpperCase(Locale.US), frame.values.get(0));
+            }
+        } else if (entry instanceof VorbisComment) {
+            VorbisComment comment = (VorbisComment) entry;
+            tags.put(comment.key.toUpperCase(Locale.US), comment.value);
+        } else if (entry instanceof InternalFrame) {
+            InternalFrame frame = (InternalFrame) entry;
+            tags.put(frame.description.toUpperCase(Locale.US), frame.text);
+        }
+    }
+
+    private static class NormalizingListener implements Player.Listener {
+
+        private final Context context;
+        private final ExoPlayer player;
+        private final GainTarget target;
+        private final Handler handler;
+
+        NormalizingListener(Context context, ExoPlayer player, GainTarget target) {
+            this.context = context;
+            this.player = player;
+            this.target = target;
+            handler = new Handler(player.getApplicationLooper());
+        }
+
+        @Override
+        public void onMediaItemTransition(@Nullable MediaItem mediaItem, int reason) {
+            // Read ahead items are already in memory, the others get their gain once it's read
+            target.setNormalizationGain(getCachedGain(mediaItem));
+
+            String source = getSource(mediaItem);
+
+            if (source != null) {
+                executor.execute(() -> applyIfCurrent(source, getCached(context, source)));
+            }
+
+            readNext();
+        }
+
+        @Override
+        public void onTimelineChanged(@NonNull Timeline timeline, int reason) {
+            readNext();
+        }
+
+        @Override
+        public void onTracksChanged(@NonNull Tracks tracks) {
+            if (!tracks.containsType(C.TRACK_TYPE_AUDIO)) {
+                return;
+            }
+
+            MediaItem mediaItem = player.getCurrentMediaItem();
+            String source = getSource(mediaItem);
+
+            if (source == null) {
+                return;
+            }
+
+            Loudness taggedLoudness = Loudness.fromTags(getTags(tracks));
+
+            executor.execute(() -> {
+                if (getCached(context, source) != null || hasFailed(source)) {
+                    return;
+                }
+
+                if (taggedLoudness != null) {
+                    Log.d(TAG, "Read " + taggedLoudness + " from the tags: " + source);
+                    store(context, source, taggedLoudness);
+                    applyIfCurrent(source, taggedLoudness);
+                    return;
+                }
+
+                measureIfStoredLocally(mediaItem, source);
+            });
+        }
+
+        @Override
+        public void onIsLoadingChanged(boolean isLoading) {
+            // The player may have loaded the rest of the source into the cache, and the tags
+            // were already checked when the tracks were known
+            if (isLoading || !player.getCurrentTracks().containsType(C.TRACK_TYPE_AUDIO)) {
+                return;
+            }
+
+            MediaItem mediaItem = player.getCurrentMediaItem();
+            String source = getSource(mediaItem);
+
+            if (source == null) {
+                return;
+            }
+
+            executor.execute(() -> {
+                if (getCached(context, source) != null || hasFailed(source)) {
+                    return;
+                }
+
+                measureIfStoredLocally(mediaItem, source);
+            });
+        }
+
+        /**
+         * Called on the analysis thread, since checking the cache and the downloads reads the
+         * disk.
+         */
+        private void measureIfStoredLocally(MediaItem mediaItem, String source) {
+            if (AudioMediaSourceFactory.resolveStreamType(mediaItem) != StreamType.PROGRESSIVE) {
+                // Live and adaptive streams have no end to measure up to
+                return;
+            }
+
+            if (!isStoredLocally(context, source)) {
+                // Tried again when the player stops loading
+                return;
+            }
+
+            measure(context, source, measured -> applyIfCurrent(source, measured));
+        }
+
+        /**
+         * Applies the loudness on the player's thread, but only if the player still plays the
+         * source it belongs to.
+         */
+        private void applyIfCurrent(String source, @Nullable Loudness loudness) {
+            if (loudness == null) {
+                return;
+            }
+
+            handler.post(() -> {
+                if (source.equals(getSource(player.getCurrentMediaItem()))) {
+                    apply(loudness);
+                }
+            });
+        }
+
+        private void apply(@Nullable Loudness loudness) {
+            target.setNormalizationGain(getGain(loudness));
+        }
+
+        /**
+         * Loads the next item's stored loudness into memory before the renderer gets to it.
+         */
+        private void readNext() {
+            int nextIndex = player.getNextMediaItemIndex();
+
+            if (nextIndex == C.INDEX_UNSET) {
+                return;
+            }
+
+            String source = getSource(player.getMediaItemAt(nextIndex));
+
+            if (source != null) {
+                executor.execute(() -> getCached(context, source));
+            }
+        }
+    }
+}
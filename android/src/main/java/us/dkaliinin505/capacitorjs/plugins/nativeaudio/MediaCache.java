@@ -0,0 +1,269 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.DatabaseProvider;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.CacheKeyFactory;
+import androidx.media3.datasource.cache.ContentMetadata;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide, size-bounded LRU disk cache shared by every player.
+ *
+ * Only network (http/https) reads go through the cache. HLS/DASH manifests are always fetched
+ * through {@link #createNetworkDataSourceFactory} so live playlists never go stale; their
+ * segments are cached.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class MediaCache {
+
+    private static final String TAG = "MediaCache";
+    private static final String CACHE_DIRECTORY = "audio-cache";
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024; // 256MB
+
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    private static boolean stripAllQueryParams = false;
+    // Lower case names of query params that change per request but not the content, e.g. the
+    // params of signed URLs. Names ending in * match by prefix.
+    private static Set<String> ignoredQueryParams = Collections.emptySet();
+    private static List<String> ignoredQueryParamPrefixes = Collections.emptyList();
+    private static DatabaseProvider databaseProvider;
+    private static SimpleCache cache;
+
+    private static final AtomicLong hitBytes = new AtomicLong();
+    private static final AtomicLong missBytes = new AtomicLong();
+
+    private static final CacheKeyFactory CACHE_KEY_FACTORY = dataSpec ->
+        dataSpec.key != null ? dataSpec.key : buildCacheKey(dataSpec.uri);
+
+    private static final CacheDataSource.EventListener CACHE_EVENT_LISTENER =
+        new CacheDataSource.EventListener() {
+            @Override
+            public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+                hitBytes.addAndGet(cachedBytesRead);
+            }
+
+            @Override
+            public void onCacheIgnored(int reason) {
+                Log.d(TAG, "Cache ignored, reason: " + reason);
+            }
+        };
+
+    private static final TransferListener NETWORK_TRANSFER_LISTENER = new TransferListener() {
+        @Override
+        public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+        @Override
+        public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+        @Override
+        public void onBytesTransferred(
+            DataSource source,
+            DataSpec dataSpec,
+            boolean isNetwork,
+            int bytesTransferred
+        ) {
+            if (isNetwork) {
+                missBytes.addAndGet(bytesTransferred);
+            }
+        }
+
+        @Override
+        public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+    };
+
+    /**
+     * Must be called before the cache is first used, otherwise it has no effect until the
+     * process restarts.
+     */
+    public static synchronized void configure(
+        long maxBytes,
+        boolean stripAllQueryParams,
+        List<String> ignoredQueryParams
+    ) {
+        if (cache != null) {
+            Log.w(TAG, "Cache already created, configuration ignored.");
+            return;
+        }
+
+        MediaCache.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+        MediaCache.stripAllQueryParams = stripAllQueryParams;
+
+        Set<String> names = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+
+        for (String name : ignoredQueryParams) {
+            String lowerName = name.toLowerCase(Locale.US);
+
+            if (lowerName.endsWith("*")) {
+                prefixes.add(lowerName.substring(0, lowerName.length() - 1));
+            } else {
+                names.add(lowerName);
+            }
+        }
+
+        MediaCache.ignoredQueryParams = names;
+        ignoredQueryParamPrefixes = prefixes;
+    }
+
+    public static synchronized SimpleCache getInstance(Context context) {
+        if (cache == null) {
+            Context appContext = context.getApplicationContext();
+
+            cache = new SimpleCache(
+                new File(appContext.getCacheDir(), CACHE_DIRECTORY),
+                new LeastRecentlyUsedCacheEvictor(maxBytes),
+                getDatabaseProvider(appContext)
+            );
+
+            Log.i(TAG, "Created media cache with max size of " + maxBytes + " bytes");
+        }
+
+        return cache;
+    }
+
+    /**
+     * The one database provider shared by the media cache, the download cache and the download
+     * index. Another provider would open a second connection to the same database file.
+     */
+    public static synchronized DatabaseProvider getDatabaseProvider(Context context) {
+        if (databaseProvider == null) {
+            databaseProvider = new StandaloneDatabaseProvider(context.getApplicationContext());
+        }
+
+        return databaseProvider;
+    }
+
+    /**
+     * Builds a factory for network data sources that reads through the shared cache. Streaming
+     * manifests must use {@link #createNetworkDataSourceFactory} instead.
+     */
+    public static CacheDataSource.Factory createCacheDataSourceFactory(
+        Context context,
+        DataSource.Factory upstreamFactory
+    ) {
+        return new CacheDataSource.Factory()
+            .setCache(getInstance(context))
+            .setCacheKeyFactory(CACHE_KEY_FACTORY)
+            .setUpstreamDataSourceFactory(withNetworkListener(upstreamFactory))
+            .setEventListener(CACHE_EVENT_LISTENER)
+            .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+    }
+
+    /**
+     * Builds a factory for network data sources that bypass the cache, while their bytes still
+     * count as cache misses.
+     */
+    public static DataSource.Factory createNetworkDataSourceFactory(
+        DataSource.Factory upstreamFactory
+    ) {
+        return withNetworkListener(upstreamFactory);
+    }
+
+    /**
+     * Also used by the download cache so downloads of signed URLs are found again on playback.
+     */
+    public static CacheKeyFactory getCacheKeyFactory() {
+        return CACHE_KEY_FACTORY;
+    }
+
+    public static String buildCacheKey(Uri uri) {
+        String scheme = uri.getScheme();
+
+        if (
+            scheme == null ||
+            !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https")) ||
+            uri.getQuery() == null
+        ) {
+            return uri.toString();
+        }
+
+        Uri.Builder builder = uri.buildUpon().clearQuery().fragment(null);
+
+        if (!stripAllQueryParams) {
+            for (String name : uri.getQueryParameterNames()) {
+                if (isIgnoredQueryParam(name)) {
+                    continue;
+                }
+
+                for (String value : uri.getQueryParameters(name)) {
+                    builder.appendQueryParameter(name, value);
+                }
+            }
+        }
+
+        return builder.build().toString();
+    }
+
+    /**
+     * Whether the source is completely in the media cache, so reading it again doesn't need the
+     * network.
+     */
+    public static boolean isCached(Context context, Uri uri) {
+        SimpleCache cache = getInstance(context);
+        String key = buildCacheKey(uri);
+        long contentLength = ContentMetadata.getContentLength(cache.getContentMetadata(key));
+
+        return contentLength != C.LENGTH_UNSET && cache.isCached(key, 0, contentLength);
+    }
+
+    public static long getHitBytes() {
+        return hitBytes.get();
+    }
+
+    public static long getMissBytes() {
+        return missBytes.get();
+    }
+
+    public static long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public static synchronized long getCacheSpace() {
+        return cache == null ? 0 : cache.getCacheSpace();
+    }
+
+    private static DataSource.Factory withNetworkListener(DataSource.Factory upstreamFactory) {
+        return () -> {
+            DataSource dataSource = upstreamFactory.createDataSource();
+            dataSource.addTransferListener(NETWORK_TRANSFER_LISTENER);
+
+            return dataSource;
+        };
+    }
+
+    private static boolean isIgnoredQueryParam(String name) {
+        String lowerName = name.toLowerCase(Locale.US);
+
+        if (ignoredQueryParams.contains(lowerName)) {
+            return true;
+        }
+
+        for (String prefix : ignoredQueryParamPrefixes) {
+            if (lowerName.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
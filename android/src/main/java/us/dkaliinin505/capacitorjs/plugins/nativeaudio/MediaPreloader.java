@@ -0,0 +1,337 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.CacheWriter;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Warms the shared media cache with the first bytes of upcoming sources so skipping to them
+ * starts from disk instead of the network.
+ *
+ * Work runs one item at a time on a background priority thread and waits while any playing
+ * source is buffering. While a playing source is loading, preloading is limited to a small
+ * bandwidth budget, so it never competes with the audio the user is hearing.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class MediaPreloader {
+
+    private static final String TAG = "MediaPreloader";
+
+    public static final long DEFAULT_BYTES_PER_ITEM = 512 * 1024; // 512KB
+    public static final long MAX_BYTES_PER_ITEM = 8 * 1024 * 1024; // 8MB
+    public static final int MAX_ITEMS = 10;
+
+    // Bandwidth preloading may use while a playing source is loading
+    public static final long LOADING_BUDGET_BYTES_PER_SECOND = 64 * 1024; // 64KB/s
+
+    private static final long BUFFERING_WAIT_MS = 250;
+
+    private static final Set<String> bufferingSourceIds = ConcurrentHashMap.newKeySet();
+    private static final Set<String> loadingSourceIds = ConcurrentHashMap.newKeySet();
+
+    private final CacheDataSource.Factory cacheDataSourceFactory;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(
+            () -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            },
+            "AudioPlayerPreloader"
+        );
+        thread.setDaemon(true);
+
+        return thread;
+    });
+    private final Map<String, PreloadTask> tasks = new ConcurrentHashMap<>();
+    // Tasks whose callback hasn't been invoked yet, including replaced ones that are still queued
+    private final Set<PreloadTask> unsettledTasks = ConcurrentHashMap.newKeySet();
+
+    public interface Callback {
+        void onComplete(List<Result> results);
+
+        /**
+         * Called instead of onComplete when the preloader is released before the task finished.
+         */
+        void onReleased();
+
+        /**
+         * Called instead of onComplete when the task threw before it finished.
+         */
+        void onFailed(Exception ex);
+    }
+
+    public static class Result {
+
+        public final String source;
+        public final String status;
+        public final long bytesCached;
+
+        Result(String source, String status, long bytesCached) {
+            this.source = source;
+            this.status = status;
+            this.bytesCached = bytesCached;
+        }
+    }
+
+    public MediaPreloader(Context context) {
+        cacheDataSourceFactory = MediaCache.createCacheDataSourceFactory(
+            context,
+            RobustHlsConfig.createRobustHttpDataSourceFactory()
+        );
+    }
+
+    /**
+     * Replaces any pending preload for the audio source. The callback is invoked exactly once,
+     * on the preloader thread once every item has been cached, skipped or cancelled or when the
+     * task throws, or on the releasing thread when the preloader is released first.
+     */
+    public void preload(String audioId, List<String> sources, long bytesPerItem, Callback callback) {
+        cancel(audioId);
+
+        PreloadTask task = new PreloadTask(
+            new ArrayList<>(sources.subList(0, Math.min(sources.size(), MAX_ITEMS))),
+            Math.min(bytesPerItem > 0 ? bytesPerItem : DEFAULT_BYTES_PER_ITEM, MAX_BYTES_PER_ITEM),
+            callback
+        );
+
+        tasks.put(audioId, task);
+        unsettledTasks.add(task);
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                Log.e(TAG, "Preload for audio source " + audioId + " failed", ex);
+                task.fail(ex);
+            } finally {
+                tasks.remove(audioId, task);
+            }
+        });
+    }
+
+    public boolean cancel(String audioId) {
+        PreloadTask task = tasks.remove(audioId);
+
+        if (task == null) {
+            return false;
+        }
+
+        task.cancel();
+        Log.d(TAG, "Cancelled preload for audio source: " + audioId);
+
+        return true;
+    }
+
+    /**
+     * Cancels all work. Callbacks of tasks that haven't finished are told the preloader was
+     * released, including tasks that were still queued.
+     */
+    public void release() {
+        tasks.clear();
+        executor.shutdownNow();
+
+        for (PreloadTask task : unsettledTasks) {
+            task.cancel();
+            task.settle(null);
+        }
+    }
+
+    /**
+     * Called by the player listeners so preloading yields while playback is rebuffering.
+     */
+    public static void setSourceBuffering(String audioId, boolean isBuffering) {
+        if (isBuffering) {
+            bufferingSourceIds.add(audioId);
+        } else {
+            bufferingSourceIds.remove(audioId);
+        }
+    }
+
+    /**
+     * Called by the player listeners so preloading keeps to its bandwidth budget while a
+     * playing source is loading.
+     */
+    public static void setSourceLoading(String audioId, boolean isLoading) {
+        if (isLoading) {
+            loadingSourceIds.add(audioId);
+        } else {
+            loadingSourceIds.remove(audioId);
+        }
+    }
+
+    private class PreloadTask {
+
+        private final List<String> sources;
+        private final long bytesPerItem;
+        private final Callback callback;
+
+        private final AtomicBoolean isSettled = new AtomicBoolean(false);
+        private volatile boolean cancelled = false;
+        private volatile CacheWriter currentWriter;
+
+        PreloadTask(List<String> sources, long bytesPerItem, Callback callback) {
+            this.sources = sources;
+            this.bytesPerItem = bytesPerItem;
+            this.callback = callback;
+        }
+
+        void run() {
+            List<Result> results = new ArrayList<>();
+
+            for (String source : sources) {
+                results.add(preloadSource(source));
+            }
+
+            settle(results);
+        }
+
+        /**
+         * @param results null if the preloader was released
+         */
+        void settle(List<Result> results) {
+            if (!markSettled()) {
+                return;
+            }
+
+            if (results != null) {
+                callback.onComplete(results);
+            } else {
+                callback.onReleased();
+            }
+        }
+
+        void fail(Exception ex) {
+            if (markSettled()) {
+                callback.onFailed(ex);
+            }
+        }
+
+        private boolean markSettled() {
+            if (!isSettled.compareAndSet(false, true)) {
+                return false;
+            }
+
+            unsettledTasks.remove(this);
+
+            return true;
+        }
+
+        void cancel() {
+            cancelled = true;
+
+            CacheWriter writer = currentWriter;
+            if (writer != null) {
+                writer.cancel();
+            }
+        }
+
+        private Result preloadSource(String source) {
+            Uri uri = Uri.parse(source);
+            String scheme = uri.getScheme();
+
+            if (
+                scheme == null ||
+                !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))
+            ) {
+                return new Result(source, "skipped", 0);
+            }
+
+            // Manifests are never cached, their segments get cached once playback starts
+            if (StreamType.detect(source) != StreamType.PROGRESSIVE) {
+                return new Result(source, "skipped", 0);
+            }
+
+            if (!waitForPlaybackToKeepUp()) {
+                return new Result(source, "cancelled", 0);
+            }
+
+            final long[] bytesCached = { 0 };
+
+            try {
+                currentWriter = new CacheWriter(
+                    cacheDataSourceFactory.createDataSourceForDownloading(),
+                    new DataSpec.Builder().setUri(uri).setLength(bytesPerItem).build(),
+                    null,
+                    (requestLength, cached, newBytesCached) -> {
+                        bytesCached[0] = cached;
+                        keepToBudget(newBytesCached);
+                    }
+                );
+
+                if (cancelled) {
+                    return new Result(source, "cancelled", 0);
+                }
+
+                currentWriter.cache();
+                Log.d(TAG, "Preloaded " + bytesCached[0] + " bytes of " + source);
+
+                return new Result(source, "cached", bytesCached[0]);
+            } catch (InterruptedIOException ex) {
+                return new Result(source, "cancelled", bytesCached[0]);
+            } catch (Exception ex) {
+                Log.w(TAG, "Could not preload source: " + source, ex);
+
+                return new Result(source, "failed", bytesCached[0]);
+            } finally {
+                currentWriter = null;
+            }
+        }
+
+        /**
+         * Called on the preloader thread after every chunk. Pauses while playback is buffering
+         * and spreads the chunk over the budget while playback is loading.
+         */
+        private void keepToBudget(long newBytesCached) {
+            if (!waitForPlaybackToKeepUp()) {
+                return;
+            }
+
+            if (loadingSourceIds.isEmpty() || newBytesCached <= 0) {
+                return;
+            }
+
+            // Sleeps in slices so a cancel doesn't wait out the whole delay
+            long remainingMs = (newBytesCached * 1000) / LOADING_BUDGET_BYTES_PER_SECOND;
+
+            while (!cancelled && remainingMs > 0) {
+                long sliceMs = Math.min(remainingMs, BUFFERING_WAIT_MS);
+
+                try {
+                    Thread.sleep(sliceMs);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                remainingMs -= sliceMs;
+            }
+        }
+
+        private boolean waitForPlaybackToKeepUp() {
+            while (!cancelled && !bufferingSourceIds.isEmpty()) {
+                try {
+                    Thread.sleep(BUFFERING_WAIT_MS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            return !cancelled;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import androidx.media3.session.SessionCommands;
 import androidx.media3.session.SessionResult;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
 public class MediaSessionCallback implements MediaSession.Callback {
 
@@ -62,11 +63,15 @@ public class MediaSessionCallback implements MediaSession.Callback {
                 session.setSessionExtras(audioSourcesBundle);
                 Log.d(TAG, "Audio sources set in session extras");
 
+                IBinder audioSourcesBinder = audioSourcesBundle.getBinder("audioSources");
+                if (audioSourcesBinder != null) {
+                    audioService.onAudioSourcesSet((AudioSources) audioSourcesBinder);
+                }
+
             } else if (customCommand.customAction.equals(CREATE_PLAYER)) {
                 AudioSource source = (AudioSource) customCommand.customExtras.getBinder("audioSource");
                 if (source != null) {
-                    source.initialize(audioService);
-                    Log.d(TAG, "Player created for audio source: " + source.id);
+                    return createPlayer(source);
                 }
             }
         } catch (Exception ex) {
@@ -77,6 +82,28 @@ public class MediaSessionCallback implements MediaSession.Callback {
         return Futures.immediateFuture(new SessionResult(SessionResult.RESULT_SUCCESS));
     }
 
+    /**
+     * Builds the player on the command executor's thread, which becomes its application looper,
+     * and completes once it is ready to take commands.
+     */
+    private ListenableFuture<SessionResult> createPlayer(AudioSource source) {
+        SettableFuture<SessionResult> result = SettableFuture.create();
+
+        PlaybackCommandExecutor.getInstance()
+            .execute(PlaybackCommandExecutor.getInstance().getLooper(), () -> {
+                try {
+                    source.initialize(audioService);
+                    Log.d(TAG, "Player created for audio source: " + source.id);
+                    result.set(new SessionResult(SessionResult.RESULT_SUCCESS));
+                } catch (Exception ex) {
+                    Log.e(TAG, "Error creating player for audio source: " + source.id, ex);
+                    result.set(new SessionResult(SessionResult.RESULT_ERROR_UNKNOWN));
+                }
+            });
+
+        return result;
+    }
+
     @Override
     public int onPlayerCommandRequest(
         @NonNull MediaSession session,
@@ -87,12 +114,17 @@ public class MediaSessionCallback implements MediaSession.Callback {
             switch (playerCommand) {
                 case Player.COMMAND_SEEK_TO_NEXT:
                 case Player.COMMAND_SEEK_TO_NEXT_MEDIA_ITEM:
-                    handlePlayNext(session);
+                    // With a native queue the player advances on its own, no JS round-trip needed
+                    if (!session.getPlayer().hasNextMediaItem()) {
+                        handlePlayNext(session);
+                    }
                     return SessionResult.RESULT_SUCCESS;
 
                 case Player.COMMAND_SEEK_TO_PREVIOUS:
                 case Player.COMMAND_SEEK_TO_PREVIOUS_MEDIA_ITEM:
-                    handlePlayPrevious(session);
+                    if (!session.getPlayer().hasPreviousMediaItem()) {
+                        handlePlayPrevious(session);
+                    }
                     return SessionResult.RESULT_SUCCESS;
 
                 default:
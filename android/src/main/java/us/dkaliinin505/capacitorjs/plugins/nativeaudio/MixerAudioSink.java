@@ -0,0 +1,167 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.PlaybackParameters;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.audio.AudioOffloadSupport;
+import androidx.media3.exoplayer.audio.AudioSink;
+import androidx.media3.exoplayer.audio.ForwardingAudioSink;
+import java.nio.ByteBuffer;
+
+/**
+ * Audio sink of a mixed source's player. Instead of opening its own AudioTrack it hands the
+ * decoded audio to a {@link MixerTrack}. The player's clock follows how much of it the mixer has
+ * consumed. Mixed audio still waits in the notification player's sink before it is heard, so
+ * that output latency is subtracted. The source's position then stays within about a buffer of
+ * what is heard.
+ *
+ * Only the data path is implemented here, everything else goes to the wrapped sink, which is
+ * never configured and so never opens an AudioTrack either. Playback always runs at 1x, the
+ * mixer doesn't stretch time.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class MixerAudioSink extends ForwardingAudioSink {
+
+    private final MixerTrack track;
+
+    // Only accessed on the playback thread of the source's player
+    private long startMediaTimeUs = C.TIME_UNSET;
+    private boolean isEndOfStreamQueued = false;
+
+    public MixerAudioSink(MixerTrack track, AudioSink sink) {
+        super(sink);
+        this.track = track;
+    }
+
+    @Override
+    public boolean supportsFormat(Format format) {
+        return getFormatSupport(format) != SINK_FORMAT_UNSUPPORTED;
+    }
+
+    @Override
+    public int getFormatSupport(Format format) {
+        // Anything else is decoded to 16-bit PCM by the renderer first
+        return isPcm16Bit(format) ? SINK_FORMAT_SUPPORTED_DIRECTLY : SINK_FORMAT_UNSUPPORTED;
+    }
+
+    @Override
+    public AudioOffloadSupport getFormatOffloadSupport(Format format) {
+        return AudioOffloadSupport.DEFAULT_UNSUPPORTED;
+    }
+
+    @Override
+    public void configure(
+        Format inputFormat,
+        int specifiedBufferSize,
+        @Nullable int[] outputChannels
+    ) throws ConfigurationException {
+        if (!isPcm16Bit(inputFormat)) {
+            throw new ConfigurationException("Only 16-bit PCM can be mixed", inputFormat);
+        }
+
+        track.configure(inputFormat.sampleRate, inputFormat.channelCount);
+        startMediaTimeUs = C.TIME_UNSET;
+        isEndOfStreamQueued = false;
+    }
+
+    @Override
+    public boolean handleBuffer(
+        ByteBuffer buffer,
+        long presentationTimeUs,
+        int encodedAccessUnitCount
+    ) {
+        if (startMediaTimeUs == C.TIME_UNSET) {
+            startMediaTimeUs = presentationTimeUs;
+        }
+
+        track.write(buffer);
+
+        // The renderer hands the rest of the buffer over again once the mixer made room
+        return !buffer.hasRemaining();
+    }
+
+    @Override
+    public long getCurrentPositionUs(boolean sourceEnded) {
+        if (startMediaTimeUs == C.TIME_UNSET) {
+            return CURRENT_POSITION_NOT_SET;
+        }
+
+        long playedDurationUs = Math.max(
+            0,
+            track.getConsumedDurationUs() - AudioMixer.getOutputLatencyUs()
+        );
+
+        return startMediaTimeUs + playedDurationUs;
+    }
+
+    @Override
+    public void setPlaybackParameters(PlaybackParameters playbackParameters) {
+        // The mixer has no time stretching, so the clock must not run faster or slower than the
+        // consumed audio
+    }
+
+    @Override
+    public PlaybackParameters getPlaybackParameters() {
+        return PlaybackParameters.DEFAULT;
+    }
+
+    @Override
+    public void handleDiscontinuity() {
+        // Positions follow the consumed audio, so there is nothing to resynchronize
+    }
+
+    @Override
+    public void play() {
+        track.setPlaying(true);
+    }
+
+    @Override
+    public void pause() {
+        track.setPlaying(false);
+    }
+
+    @Override
+    public void playToEndOfStream() {
+        isEndOfStreamQueued = true;
+    }
+
+    @Override
+    public boolean isEnded() {
+        return isEndOfStreamQueued && track.getBufferedFrames() == 0;
+    }
+
+    @Override
+    public boolean hasPendingData() {
+        return startMediaTimeUs != C.TIME_UNSET && track.getBufferedFrames() > 0;
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        track.setGain(volume);
+    }
+
+    @Override
+    public void flush() {
+        track.flush();
+        startMediaTimeUs = C.TIME_UNSET;
+        isEndOfStreamQueued = false;
+    }
+
+    @Override
+    public void reset() {
+        flush();
+        track.setPlaying(false);
+        super.reset();
+    }
+
+    private static boolean isPcm16Bit(Format format) {
+        return (
+            MimeTypes.AUDIO_RAW.equals(format.sampleMimeType) &&
+            format.pcmEncoding == C.ENCODING_PCM_16BIT
+        );
+    }
+}
@@ -0,0 +1,97 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.audio.AudioSink;
+import androidx.media3.exoplayer.audio.ForwardingAudioSink;
+import java.nio.ByteBuffer;
+
+/**
+ * Audio sink of the notification player while mixing is enabled. It measures how far the mix
+ * runs ahead of what is heard.
+ *
+ * The mixed tracks are read when the notification player's audio is handed to its sink, but
+ * that audio then waits in the sink's processing chain and AudioTrack buffer before it plays.
+ * The difference between the end of the audio handed over and the sink's played position is
+ * published as {@link AudioMixer#getOutputLatencyUs()}, which the mixed sources subtract from
+ * their clocks.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class MixerOutputSink extends ForwardingAudioSink {
+
+    // Only accessed on the playback thread of the notification player
+    private int pcmFrameSize = C.LENGTH_UNSET;
+    private int sampleRate = 0;
+    private long lastPresentationTimeUs = C.TIME_UNSET;
+    private long writtenEndTimeUs = C.TIME_UNSET;
+
+    public MixerOutputSink(AudioSink sink) {
+        super(sink);
+    }
+
+    @Override
+    public void configure(
+        Format inputFormat,
+        int specifiedBufferSize,
+        @Nullable int[] outputChannels
+    ) throws ConfigurationException {
+        super.configure(inputFormat, specifiedBufferSize, outputChannels);
+
+        // The mixing processor only mixes into 16-bit PCM, other formats have nothing to measure
+        boolean isPcm16Bit =
+            MimeTypes.AUDIO_RAW.equals(inputFormat.sampleMimeType) &&
+            inputFormat.pcmEncoding == C.ENCODING_PCM_16BIT;
+
+        pcmFrameSize = isPcm16Bit ? 2 * inputFormat.channelCount : C.LENGTH_UNSET;
+        sampleRate = inputFormat.sampleRate;
+    }
+
+    @Override
+    public boolean handleBuffer(
+        ByteBuffer buffer,
+        long presentationTimeUs,
+        int encodedAccessUnitCount
+    ) throws InitializationException, WriteException {
+        // A buffer the sink couldn't take at once is handed over again with what is left of it
+        if (pcmFrameSize != C.LENGTH_UNSET && presentationTimeUs != lastPresentationTimeUs) {
+            long frameCount = buffer.remaining() / pcmFrameSize;
+            lastPresentationTimeUs = presentationTimeUs;
+            writtenEndTimeUs = presentationTimeUs + (frameCount * 1000000) / sampleRate;
+        }
+
+        return super.handleBuffer(buffer, presentationTimeUs, encodedAccessUnitCount);
+    }
+
+    @Override
+    public long getCurrentPositionUs(boolean sourceEnded) {
+        long positionUs = super.getCurrentPositionUs(sourceEnded);
+
+        if (positionUs != CURRENT_POSITION_NOT_SET && writtenEndTimeUs != C.TIME_UNSET) {
+            AudioMixer.setOutputLatencyUs(Math.max(0, writtenEndTimeUs - positionUs));
+        }
+
+        return positionUs;
+    }
+
+    @Override
+    public void flush() {
+        super.flush();
+        clear();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        clear();
+    }
+
+    private void clear() {
+        lastPresentationTimeUs = C.TIME_UNSET;
+        writtenEndTimeUs = C.TIME_UNSET;
+        AudioMixer.setOutputLatencyUs(0);
+    }
+}
@@ -0,0 +1,190 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoded 16-bit PCM of one mixed source, waiting to be mixed into the notification player's
+ * output.
+ *
+ * The source's player writes into a ring buffer from its playback thread through a
+ * {@link MixerAudioSink}, the {@link MixingAudioProcessor} reads from it on the notification
+ * player's playback thread. Reading converts the channel layout and sample rate to the output
+ * format and applies the volume and normalization gain, ramped over each buffer so changes don't
+ * click.
+ */
+public class MixerTrack implements LoudnessNormalizer.GainTarget {
+
+    // How much decoded audio is kept ahead of the mixer
+    private static final int BUFFER_DURATION_MS = 500;
+
+    public final String audioId;
+
+    // Guarded by this
+    private short[] samples;
+    private int channelCount;
+    private int sampleRate;
+    private int capacityFrames;
+    private int readFrame = 0;
+    private int bufferedFrames = 0;
+    private double readPhase = 0;
+    private long consumedFrames = 0;
+    private boolean isPlaying = false;
+    private float gain = 0;
+
+    private volatile float targetGain = 1;
+    private volatile float normalizationGain = 1;
+
+    public MixerTrack(String audioId) {
+        this.audioId = audioId;
+    }
+
+    /**
+     * Called by the sink when the format of the decoded audio is known or changes.
+     */
+    public synchronized void configure(int sampleRate, int channelCount) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        capacityFrames = Math.max(1, (int) ((long) sampleRate * BUFFER_DURATION_MS / 1000));
+        samples = new short[capacityFrames * channelCount];
+        clear();
+    }
+
+    /**
+     * Copies as many whole frames as fit, advancing the buffer's position past them.
+     */
+    public synchronized void write(ByteBuffer pcm) {
+        if (samples == null) {
+            return;
+        }
+
+        int frameCount = Math.min(
+            pcm.remaining() / (2 * channelCount),
+            capacityFrames - bufferedFrames
+        );
+        int writeFrame = (readFrame + bufferedFrames) % capacityFrames;
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            int offset = writeFrame * channelCount;
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                samples[offset + channel] = pcm.getShort();
+            }
+
+            writeFrame = (writeFrame + 1) % capacityFrames;
+        }
+
+        bufferedFrames += frameCount;
+    }
+
+    public synchronized void flush() {
+        clear();
+    }
+
+    public synchronized void setPlaying(boolean isPlaying) {
+        if (isPlaying && !this.isPlaying) {
+            // Fade in over the first mixed buffer
+            gain = 0;
+        }
+
+        this.isPlaying = isPlaying;
+    }
+
+    public void setGain(float gain) {
+        targetGain = gain;
+    }
+
+    @Override
+    public void setNormalizationGain(float gain) {
+        normalizationGain = gain;
+    }
+
+    public synchronized int getBufferedFrames() {
+        return bufferedFrames;
+    }
+
+    /**
+     * @return how much of the source has been mixed since the last flush, in microseconds
+     */
+    public synchronized long getConsumedDurationUs() {
+        return sampleRate == 0 ? 0 : consumedFrames * 1000000 / sampleRate;
+    }
+
+    /**
+     * Adds the track's next frames to the mix. The track starts on the first frame of the first
+     * buffer mixed after it was started, so tracks started together stay sample aligned. When
+     * the track runs out of decoded audio the rest of the buffer is left as is.
+     *
+     * @param mix Interleaved samples in the output format
+     */
+    public synchronized void mixInto(
+        int[] mix,
+        int frameCount,
+        int outputChannelCount,
+        int outputSampleRate
+    ) {
+        if (!isPlaying || samples == null || frameCount == 0) {
+            return;
+        }
+
+        double step = (double) sampleRate / outputSampleRate;
+        float startGain = gain;
+        float endGain = targetGain * normalizationGain;
+        gain = endGain;
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            boolean isInterpolated = readPhase > 0;
+
+            if (bufferedFrames < (isInterpolated ? 2 : 1)) {
+                break;
+            }
+
+            float frameGain = startGain + ((endGain - startGain) * frame) / frameCount;
+            int offset = frame * outputChannelCount;
+
+            for (int channel = 0; channel < outputChannelCount; channel++) {
+                float sample = sampleAt(0, channel, outputChannelCount);
+
+                if (isInterpolated) {
+                    sample += (sampleAt(1, channel, outputChannelCount) - sample) * readPhase;
+                }
+
+                mix[offset + channel] += Math.round(sample * frameGain);
+            }
+
+            readPhase += step;
+            int advancedFrames = Math.min((int) readPhase, bufferedFrames);
+            readPhase -= (int) readPhase;
+
+            readFrame = (readFrame + advancedFrames) % capacityFrames;
+            bufferedFrames -= advancedFrames;
+            consumedFrames += advancedFrames;
+        }
+    }
+
+    private float sampleAt(int frameOffset, int outputChannel, int outputChannelCount) {
+        int offset = ((readFrame + frameOffset) % capacityFrames) * channelCount;
+
+        if (channelCount == 1) {
+            return samples[offset];
+        }
+
+        if (outputChannelCount == 1) {
+            float sum = 0;
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                sum += samples[offset + channel];
+            }
+
+            return sum / channelCount;
+        }
+
+        return samples[offset + Math.min(outputChannel, channelCount - 1)];
+    }
+
+    private void clear() {
+        readFrame = 0;
+        bufferedFrames = 0;
+        readPhase = 0;
+        consumedFrames = 0;
+    }
+}
@@ -0,0 +1,83 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.audio.BaseAudioProcessor;
+import androidx.media3.common.util.UnstableApi;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Mixes the tracks of the mixed sources into the notification player's decoded audio, before it
+ * is written to the player's AudioTrack.
+ *
+ * Only 16-bit PCM output is mixed. With any other output format the processor stays inactive
+ * and the mixed sources are silent.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class MixingAudioProcessor extends BaseAudioProcessor {
+
+    private static final String TAG = "MixingAudioProcessor";
+
+    private final List<MixerTrack> tracks = new CopyOnWriteArrayList<>();
+
+    // Only accessed on the playback thread of the notification player
+    private int[] mix = new int[0];
+
+    public void addTrack(MixerTrack track) {
+        tracks.add(track);
+    }
+
+    public void removeTrack(MixerTrack track) {
+        tracks.remove(track);
+    }
+
+    public boolean hasTracks() {
+        return !tracks.isEmpty();
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT) {
+            Log.w(TAG, "Can't mix into " + inputAudioFormat + ", mixed sources will be silent");
+            return AudioFormat.NOT_SET;
+        }
+
+        return inputAudioFormat;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int sampleCount = inputBuffer.remaining() / 2;
+
+        if (sampleCount == 0) {
+            return;
+        }
+
+        if (mix.length < sampleCount) {
+            mix = new int[sampleCount];
+        }
+
+        for (int i = 0; i < sampleCount; i++) {
+            mix[i] = inputBuffer.getShort();
+        }
+
+        int channelCount = inputAudioFormat.channelCount;
+        int frameCount = sampleCount / channelCount;
+
+        for (MixerTrack track : tracks) {
+            track.mixInto(mix, frameCount, channelCount, inputAudioFormat.sampleRate);
+        }
+
+        ByteBuffer outputBuffer = replaceOutputBuffer(sampleCount * 2);
+
+        for (int i = 0; i < sampleCount; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+            outputBuffer.putShort((short) sample);
+        }
+
+        outputBuffer.flip();
+    }
+}
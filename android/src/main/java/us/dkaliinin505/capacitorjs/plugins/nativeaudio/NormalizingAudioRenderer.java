@@ -0,0 +1,132 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.os.Handler;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Timeline;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlaybackException;
+import androidx.media3.exoplayer.audio.AudioRendererEventListener;
+import androidx.media3.exoplayer.audio.AudioSink;
+import androidx.media3.exoplayer.audio.MediaCodecAudioRenderer;
+import androidx.media3.exoplayer.mediacodec.MediaCodecAdapter;
+import androidx.media3.exoplayer.mediacodec.MediaCodecSelector;
+import androidx.media3.exoplayer.source.MediaSource;
+import java.util.ArrayDeque;
+
+/**
+ * Audio renderer of players with loudness normalization. It switches the
+ * {@link GainAudioProcessor} to an item's gain right before the item's first audio is processed,
+ * so after a gapless transition the new item doesn't start at the previous item's gain.
+ *
+ * The renderer reads ahead into the next item while the current one still comes out of the
+ * codec, so the items it was handed wait in a queue until their output starts. That happens
+ * well before the player reports the transition, which is why the gain can't be switched from
+ * the player's listener. Only loudness already known in memory is applied here, see
+ * {@link LoudnessNormalizer#getCachedGain}.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class NormalizingAudioRenderer extends MediaCodecAudioRenderer {
+
+    private final GainAudioProcessor gainProcessor;
+
+    // Only accessed on the playback thread
+    private final ArrayDeque<MediaItem> pendingMediaItems = new ArrayDeque<>();
+    private boolean hasStream = false;
+
+    public NormalizingAudioRenderer(
+        Context context,
+        MediaCodecAdapter.Factory codecAdapterFactory,
+        MediaCodecSelector mediaCodecSelector,
+        boolean enableDecoderFallback,
+        @Nullable Handler eventHandler,
+        @Nullable AudioRendererEventListener eventListener,
+        AudioSink audioSink,
+        GainAudioProcessor gainProcessor
+    ) {
+        super(
+            context,
+            codecAdapterFactory,
+            mediaCodecSelector,
+            enableDecoderFallback,
+            eventHandler,
+            eventListener,
+            audioSink
+        );
+        this.gainProcessor = gainProcessor;
+    }
+
+    @Override
+    protected void onStreamChanged(
+        Format[] formats,
+        long startPositionUs,
+        long offsetUs,
+        MediaSource.MediaPeriodId mediaPeriodId
+    ) throws ExoPlaybackException {
+        MediaItem mediaItem = getMediaItem(mediaPeriodId);
+
+        if (hasStream) {
+            // Queued first, the super call processes the change right away if nothing is pending
+            pendingMediaItems.add(mediaItem);
+        }
+
+        super.onStreamChanged(formats, startPositionUs, offsetUs, mediaPeriodId);
+
+        if (!hasStream) {
+            hasStream = true;
+            switchGain(mediaItem);
+        }
+    }
+
+    @Override
+    protected void onProcessedStreamChange() {
+        super.onProcessedStreamChange();
+
+        if (!pendingMediaItems.isEmpty()) {
+            switchGain(pendingMediaItems.poll());
+        }
+    }
+
+    @Override
+    protected void onPositionReset(long positionUs, boolean joining)
+        throws ExoPlaybackException {
+        super.onPositionReset(positionUs, joining);
+
+        // Like the codec renderer, continue with the last stream that was handed over
+        if (!pendingMediaItems.isEmpty()) {
+            switchGain(pendingMediaItems.getLast());
+            pendingMediaItems.clear();
+        }
+    }
+
+    @Override
+    protected void onDisabled() {
+        pendingMediaItems.clear();
+        hasStream = false;
+        super.onDisabled();
+    }
+
+    private void switchGain(MediaItem mediaItem) {
+        gainProcessor.switchNormalizationGain(LoudnessNormalizer.getCachedGain(mediaItem));
+    }
+
+    /**
+     * @return MediaItem.EMPTY, which plays as is, if the period isn't in the timeline
+     */
+    private MediaItem getMediaItem(MediaSource.MediaPeriodId mediaPeriodId) {
+        Timeline timeline = getTimeline();
+        int periodIndex = timeline.getIndexOfPeriod(mediaPeriodId.periodUid);
+
+        if (periodIndex == C.INDEX_UNSET) {
+            return MediaItem.EMPTY;
+        }
+
+        int windowIndex = timeline.getPeriod(periodIndex, new Timeline.Period()).windowIndex;
+
+        return timeline.getWindow(windowIndex, new Timeline.Window()).mediaItem;
+    }
+}
@@ -0,0 +1,366 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.media.MediaCodec;
+import android.media.MediaDataSource;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Decodes encoded audio into interleaved 16-bit PCM, either a whole clip for audio that is played
+ * from memory or streamed buffer by buffer.
+ *
+ * The encoder delay and padding the extractor reads from the gapless metadata, e.g. the LAME
+ * header of MP3s or iTunSMPB of AAC, are trimmed from whole clips here. Whether MediaCodec trims
+ * them itself depends on the Android version and decoder, so they are hidden from the decoder
+ * and clips come out the same on every device. Streamed audio keeps them, a few milliseconds of
+ * silence that don't matter for what it is measured for.
+ */
+public class PcmDecoder {
+
+    public static final int OUTPUT_CHANNEL_COUNT = 2;
+
+    private static final long DEQUEUE_TIMEOUT_US = 10000;
+
+    // MediaFormat.KEY_ENCODER_DELAY and KEY_ENCODER_PADDING, which are only public on API 30+
+    private static final String KEY_ENCODER_DELAY = "encoder-delay";
+    private static final String KEY_ENCODER_PADDING = "encoder-padding";
+
+    /**
+     * PCM in the source's own sample rate and channel layout.
+     */
+    public static class Decoded {
+
+        public final short[] samples;
+        public final int sampleRate;
+        public final int channelCount;
+
+        Decoded(short[] samples, int sampleRate, int channelCount) {
+            this.samples = samples;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+        }
+
+        public int getFrameCount() {
+            return samples.length / channelCount;
+        }
+    }
+
+    public interface SampleListener {
+        /**
+         * Called before the first samples, and again when the decoder changes its output layout.
+         */
+        void onFormat(int sampleRate, int channelCount);
+
+        /**
+         * @param samples Interleaved 16-bit PCM, only valid during the call
+         */
+        void onSamples(ShortBuffer samples) throws IOException;
+    }
+
+    /**
+     * @param maxDurationMs Decoding fails for longer clips, so they can't use up the memory
+     * @return interleaved stereo at the given sample rate
+     */
+    public static short[] decode(byte[] encoded, int outputSampleRate, long maxDurationMs)
+        throws IOException {
+        Decoded decoded = decode(encoded, maxDurationMs);
+
+        return convert(
+            decoded.samples,
+            decoded.sampleRate,
+            decoded.channelCount,
+            outputSampleRate
+        );
+    }
+
+    /**
+     * @param maxDurationMs Decoding fails for longer clips, so they can't use up the memory
+     */
+    public static Decoded decode(byte[] encoded, long maxDurationMs) throws IOException {
+        ClipCollector collector = new ClipCollector(maxDurationMs);
+        MediaFormat inputFormat = decode(new ByteArrayMediaDataSource(encoded), collector);
+
+        short[] samples = trim(
+            collector.samples.toArray(),
+            collector.channelCount,
+            getInteger(inputFormat, KEY_ENCODER_DELAY),
+            getInteger(inputFormat, KEY_ENCODER_PADDING)
+        );
+
+        return new Decoded(samples, collector.sampleRate, collector.channelCount);
+    }
+
+    /**
+     * Decodes the source as it is read, handing the PCM to the listener buffer by buffer, so
+     * sources of any length can be processed without keeping them in memory. Must not be called
+     * on the main thread.
+     *
+     * @return the format of the audio track in the source, including its gapless metadata
+     */
+    public static MediaFormat decode(MediaDataSource dataSource, SampleListener listener)
+        throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+
+        try {
+            extractor.setDataSource(dataSource);
+
+            int trackIndex = findAudioTrack(extractor);
+            if (trackIndex < 0) {
+                throw new IOException("The source has no audio track");
+            }
+
+            MediaFormat inputFormat = extractor.getTrackFormat(trackIndex);
+            extractor.selectTrack(trackIndex);
+
+            // A copy, so the gapless metadata stays in the returned format
+            MediaFormat codecFormat = extractor.getTrackFormat(trackIndex);
+            codecFormat.setInteger(KEY_ENCODER_DELAY, 0);
+            codecFormat.setInteger(KEY_ENCODER_PADDING, 0);
+
+            codec = MediaCodec.createDecoderByType(inputFormat.getString(MediaFormat.KEY_MIME));
+            codec.configure(codecFormat, null, null, 0);
+            codec.start();
+
+            decode(extractor, codec, inputFormat, listener);
+
+            return inputFormat;
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+
+            extractor.release();
+        }
+    }
+
+    private static void decode(
+        MediaExtractor extractor,
+        MediaCodec codec,
+        MediaFormat inputFormat,
+        SampleListener listener
+    ) throws IOException {
+        listener.onFormat(
+            inputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+            inputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT)
+        );
+
+        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        boolean isInputDone = false;
+
+        while (true) {
+            if (!isInputDone) {
+                int inputIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+
+                if (inputIndex >= 0) {
+                    ByteBuffer inputBuffer = codec.getInputBuffer(inputIndex);
+                    int size = extractor.readSampleData(inputBuffer, 0);
+
+                    if (size < 0) {
+                        codec.queueInputBuffer(
+                            inputIndex,
+                            0,
+                            0,
+                            0,
+                            MediaCodec.BUFFER_FLAG_END_OF_STREAM
+                        );
+                        isInputDone = true;
+                    } else {
+                        codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                        extractor.advance();
+                    }
+                }
+            }
+
+            int outputIndex = codec.dequeueOutputBuffer(bufferInfo, DEQUEUE_TIMEOUT_US);
+
+            if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                // The decoder knows the real layout better than the container
+                MediaFormat outputFormat = codec.getOutputFormat();
+                listener.onFormat(
+                    outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                    outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT)
+                );
+                continue;
+            }
+
+            if (outputIndex < 0) {
+                continue;
+            }
+
+            ByteBuffer outputBuffer = codec.getOutputBuffer(outputIndex);
+
+            try {
+                if (outputBuffer != null && bufferInfo.size > 0) {
+                    outputBuffer.position(bufferInfo.offset);
+                    outputBuffer.limit(bufferInfo.offset + bufferInfo.size);
+                    listener.onSamples(outputBuffer.order(ByteOrder.nativeOrder()).asShortBuffer());
+                }
+            } finally {
+                codec.releaseOutputBuffer(outputIndex, false);
+            }
+
+            if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Drops the given number of frames from the start and the end.
+     */
+    static short[] trim(short[] samples, int channelCount, int delayFrames, int paddingFrames) {
+        int frameCount = samples.length / channelCount;
+        int startFrame = Math.min(Math.max(0, delayFrames), frameCount);
+        int endFrame = Math.max(startFrame, frameCount - Math.max(0, paddingFrames));
+
+        if (startFrame == 0 && endFrame == frameCount) {
+            return samples;
+        }
+
+        short[] trimmed = new short[(endFrame - startFrame) * channelCount];
+        System.arraycopy(samples, startFrame * channelCount, trimmed, 0, trimmed.length);
+
+        return trimmed;
+    }
+
+    /**
+     * Maps the channels to stereo and resamples with linear interpolation.
+     */
+    static short[] convert(short[] input, int sampleRate, int channelCount, int outputSampleRate) {
+        int inputFrames = input.length / channelCount;
+        int outputFrames = (int) ((long) inputFrames * outputSampleRate / sampleRate);
+        short[] output = new short[outputFrames * OUTPUT_CHANNEL_COUNT];
+        double step = (double) sampleRate / outputSampleRate;
+
+        for (int frame = 0; frame < outputFrames; frame++) {
+            double position = frame * step;
+            int inputFrame = (int) position;
+            int nextFrame = Math.min(inputFrame + 1, inputFrames - 1);
+            double fraction = position - inputFrame;
+
+            for (int channel = 0; channel < OUTPUT_CHANNEL_COUNT; channel++) {
+                int inputChannel = Math.min(channel, channelCount - 1);
+                int sample = input[inputFrame * channelCount + inputChannel];
+                int next = input[nextFrame * channelCount + inputChannel];
+
+                output[frame * OUTPUT_CHANNEL_COUNT + channel] = (short) Math.round(
+                    sample + (next - sample) * fraction
+                );
+            }
+        }
+
+        return output;
+    }
+
+    private static int getInteger(MediaFormat format, String key) {
+        return format.containsKey(key) ? format.getInteger(key) : 0;
+    }
+
+    private static int findAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mimeType = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+
+            if (mimeType != null && mimeType.startsWith("audio/")) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Collects a whole clip, up to a maximum duration.
+     */
+    private static class ClipCollector implements SampleListener {
+
+        final ShortArrayBuilder samples = new ShortArrayBuilder();
+        final long maxDurationMs;
+        int sampleRate;
+        int channelCount;
+
+        ClipCollector(long maxDurationMs) {
+            this.maxDurationMs = maxDurationMs;
+        }
+
+        @Override
+        public void onFormat(int sampleRate, int channelCount) {
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+        }
+
+        @Override
+        public void onSamples(ShortBuffer buffer) throws IOException {
+            samples.append(buffer);
+
+            if (samples.size() > (long) sampleRate * channelCount * maxDurationMs / 1000) {
+                throw new IOException(
+                    "The source is longer than the maximum of " + maxDurationMs + "ms"
+                );
+            }
+        }
+    }
+
+    private static class ShortArrayBuilder {
+
+        private short[] samples = new short[64 * 1024];
+        private int size = 0;
+
+        void append(ShortBuffer buffer) {
+            int count = buffer.remaining();
+
+            if (size + count > samples.length) {
+                short[] grown = new short[Math.max(samples.length * 2, size + count)];
+                System.arraycopy(samples, 0, grown, 0, size);
+                samples = grown;
+            }
+
+            buffer.get(samples, size, count);
+            size += count;
+        }
+
+        int size() {
+            return size;
+        }
+
+        short[] toArray() {
+            short[] result = new short[size];
+            System.arraycopy(samples, 0, result, 0, size);
+
+            return result;
+        }
+    }
+
+    private static class ByteArrayMediaDataSource extends MediaDataSource {
+
+        private final byte[] data;
+
+        ByteArrayMediaDataSource(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int readAt(long position, byte[] buffer, int offset, int size) {
+            if (position >= data.length) {
+                return -1;
+            }
+
+            int count = (int) Math.min(size, data.length - position);
+            System.arraycopy(data, (int) position, buffer, offset, count);
+
+            return count;
+        }
+
+        @Override
+        public long getSize() {
+            return data.length;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,164 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs player commands off the main thread.
+ *
+ * Non-notification players are built with this executor's looper as their application looper,
+ * so every command for them is posted to one reused thread instead of the UI thread. Commands
+ * for the same audio source run serially in the order they were posted. The notification
+ * source is driven through a MediaController, which Media3 requires to be used on the main
+ * looper, so its commands keep running there in parallel with the others.
+ */
+public class PlaybackCommandExecutor {
+
+    private static final String TAG = "PlaybackCommandExecutor";
+
+    private static PlaybackCommandExecutor instance;
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong totalQueueLatencyMs = new AtomicLong();
+    private final AtomicLong maxQueueLatencyMs = new AtomicLong();
+    private final AtomicLong totalExecutionMs = new AtomicLong();
+
+    private PlaybackCommandExecutor() {
+        thread = new HandlerThread("AudioPlayerCommands", Process.THREAD_PRIORITY_AUDIO);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized PlaybackCommandExecutor getInstance() {
+        if (instance == null) {
+            instance = new PlaybackCommandExecutor();
+        }
+
+        return instance;
+    }
+
+    /**
+     * The application looper of every non-notification player.
+     */
+    public Looper getLooper() {
+        return thread.getLooper();
+    }
+
+    /**
+     * Posts the command to the looper the audio source's player must be used from.
+     */
+    public void execute(AudioSource audioSource, Runnable command) {
+        execute(getLooperFor(audioSource), command);
+    }
+
+    public void execute(Looper looper, Runnable command) {
+        Handler targetHandler;
+
+        if (looper == thread.getLooper()) {
+            targetHandler = handler;
+        } else if (looper == Looper.getMainLooper()) {
+            targetHandler = mainHandler;
+        } else {
+            targetHandler = new Handler(looper);
+        }
+
+        long enqueuedAtMs = SystemClock.elapsedRealtime();
+        updateMaxQueueDepth(queueDepth.incrementAndGet());
+
+        targetHandler.post(() -> {
+            long startedAtMs = SystemClock.elapsedRealtime();
+            long queueLatencyMs = startedAtMs - enqueuedAtMs;
+
+            queueDepth.decrementAndGet();
+            totalQueueLatencyMs.addAndGet(queueLatencyMs);
+            updateMaxQueueLatency(queueLatencyMs);
+
+            try {
+                command.run();
+            } finally {
+                totalExecutionMs.addAndGet(SystemClock.elapsedRealtime() - startedAtMs);
+                executedCount.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Runs the command right away if already on the looper, otherwise posts it.
+     */
+    public void runOn(Looper looper, Runnable command) {
+        if (looper.isCurrentThread()) {
+            command.run();
+        } else {
+            execute(looper, command);
+        }
+    }
+
+    public Looper getLooperFor(AudioSource audioSource) {
+        if (audioSource.getPlayer() != null) {
+            return audioSource.getPlayer().getApplicationLooper();
+        }
+
+        return audioSource.useForNotification ? Looper.getMainLooper() : thread.getLooper();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    public double getAverageQueueLatencyMs() {
+        long count = executedCount.get();
+
+        return count == 0 ? 0 : (double) totalQueueLatencyMs.get() / count;
+    }
+
+    public long getMaxQueueLatencyMs() {
+        return maxQueueLatencyMs.get();
+    }
+
+    public double getAverageExecutionMs() {
+        long count = executedCount.get();
+
+        return count == 0 ? 0 : (double) totalExecutionMs.get() / count;
+    }
+
+    private void updateMaxQueueDepth(int depth) {
+        int current;
+
+        while (depth > (current = maxQueueDepth.get())) {
+            if (maxQueueDepth.compareAndSet(current, depth)) {
+                return;
+            }
+        }
+    }
+
+    private void updateMaxQueueLatency(long latencyMs) {
+        long current;
+
+        while (latencyMs > (current = maxQueueLatencyMs.get())) {
+            if (maxQueueLatencyMs.compareAndSet(current, latencyMs)) {
+                Log.d(TAG, "New max queue latency: " + latencyMs + "ms");
+                return;
+            }
+        }
+    }
+}
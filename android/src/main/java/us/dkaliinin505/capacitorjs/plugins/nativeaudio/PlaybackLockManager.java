@@ -0,0 +1,170 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the wake lock and the Wi-Fi lock for all audio sources together, and only while they
+ * are needed.
+ *
+ * Every source reports whether it is active (playing, buffering or about to retry with playback
+ * requested) and whether it streams from the network. The wake lock is held while any source is
+ * active, the Wi-Fi lock only while an active source streams, so paused, idle, downloaded and
+ * local-only playback doesn't keep the radio powered.
+ */
+public class PlaybackLockManager {
+
+    private static final String TAG = "PlaybackLockManager";
+
+    private static PlaybackLockManager instance;
+
+    private final PowerManager.WakeLock wakeLock;
+    private final WiFiLockManager wifiLockManager;
+
+    // Guarded by this
+    private final Map<String, Boolean> activeSources = new HashMap<>();
+    private final LockStats wakeLockStats = new LockStats();
+    private final LockStats wifiLockStats = new LockStats();
+
+    private PlaybackLockManager(Context context) {
+        PowerManager powerManager = (PowerManager) context
+            .getApplicationContext()
+            .getSystemService(Context.POWER_SERVICE);
+
+        if (powerManager != null) {
+            wakeLock = powerManager.newWakeLock(
+                PowerManager.PARTIAL_WAKE_LOCK,
+                "AudioPlayerService::WakeLock"
+            );
+            wakeLock.setReferenceCounted(false);
+        } else {
+            wakeLock = null;
+        }
+
+        wifiLockManager = new WiFiLockManager(context);
+    }
+
+    public static synchronized PlaybackLockManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new PlaybackLockManager(context);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Can be called from any thread whenever the state of a source's player changes.
+     */
+    public synchronized void update(String audioId, boolean isActive, boolean isNetwork) {
+        if (isActive) {
+            activeSources.put(audioId, isNetwork);
+        } else {
+            activeSources.remove(audioId);
+        }
+
+        applyLocks();
+    }
+
+    public synchronized void remove(String audioId) {
+        if (activeSources.remove(audioId) != null) {
+            applyLocks();
+        }
+    }
+
+    public synchronized void releaseAll() {
+        activeSources.clear();
+        applyLocks();
+    }
+
+    private void applyLocks() {
+        boolean needsWakeLock = !activeSources.isEmpty();
+        boolean needsWifiLock = activeSources.containsValue(true);
+
+        if (wakeLock != null && needsWakeLock != wakeLock.isHeld()) {
+            if (needsWakeLock) {
+                wakeLock.acquire();
+            } else {
+                wakeLock.release();
+            }
+
+            wakeLockStats.setHeld(needsWakeLock);
+            Log.d(TAG, "Wake lock " + (needsWakeLock ? "acquired" : "released"));
+        }
+
+        if (needsWifiLock != wifiLockManager.isLockHeld()) {
+            if (needsWifiLock) {
+                wifiLockManager.acquireLock();
+            } else {
+                wifiLockManager.releaseLock();
+            }
+
+            wifiLockStats.setHeld(wifiLockManager.isLockHeld());
+        }
+    }
+
+    /**
+     * @return the lock statistics, or all zeros if no lock was ever requested
+     */
+    public static JSObject statsToJSObject() {
+        PlaybackLockManager manager;
+
+        synchronized (PlaybackLockManager.class) {
+            manager = instance;
+        }
+
+        if (manager == null) {
+            return new JSObject()
+                .put("wakeLock", new LockStats().toJSObject())
+                .put("wifiLock", new LockStats().toJSObject());
+        }
+
+        synchronized (manager) {
+            return new JSObject()
+                .put("wakeLock", manager.wakeLockStats.toJSObject())
+                .put("wifiLock", manager.wifiLockStats.toJSObject());
+        }
+    }
+
+    private static class LockStats {
+
+        private boolean isHeld = false;
+        private long heldSinceMs = 0;
+        private long totalHeldMs = 0;
+        private int acquireCount = 0;
+
+        void setHeld(boolean held) {
+            if (held == isHeld) {
+                return;
+            }
+
+            long nowMs = SystemClock.elapsedRealtime();
+
+            if (held) {
+                heldSinceMs = nowMs;
+                acquireCount++;
+            } else {
+                totalHeldMs += nowMs - heldSinceMs;
+            }
+
+            isHeld = held;
+        }
+
+        JSObject toJSObject() {
+            long heldMs = totalHeldMs;
+
+            if (isHeld) {
+                heldMs += SystemClock.elapsedRealtime() - heldSinceMs;
+            }
+
+            return new JSObject()
+                .put("held", isHeld)
+                .put("heldTimeMs", heldMs)
+                .put("acquireCount", acquireCount);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of playback quality metrics.
+ *
+ * Each audio source gets its own counters, fed by a {@link PlaybackMetricsListener} on its
+ * player, while startup and stall durations are also aggregated across every source into
+ * histograms. Counters are updated from the players' threads and read from the plugin.
+ */
+public class PlaybackMetrics {
+
+    // Upper bounds in milliseconds, the last bucket is open ended
+    private static final long[] DURATION_BUCKETS_MS = { 100, 250, 500, 1000, 2000, 5000, 10000 };
+
+    private static final Map<String, SourceMetrics> sources = new ConcurrentHashMap<>();
+    private static final Histogram startupTimeHistogram = new Histogram(DURATION_BUCKETS_MS);
+    private static final Histogram stallDurationHistogram = new Histogram(DURATION_BUCKETS_MS);
+
+    public static SourceMetrics forSource(String audioId) {
+        SourceMetrics metrics = sources.get(audioId);
+
+        if (metrics == null) {
+            metrics = new SourceMetrics(audioId);
+            SourceMetrics existing = sources.putIfAbsent(audioId, metrics);
+
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+
+        return metrics;
+    }
+
+    public static void remove(String audioId) {
+        sources.remove(audioId);
+    }
+
+    public static void recordRetry(String audioId) {
+        forSource(audioId).recordRetry();
+    }
+
+    public static void recordDroppedRetry(String audioId) {
+        forSource(audioId).recordDroppedRetry();
+    }
+
+    /**
+     * @param audioId the source to report, or null for every source
+     */
+    public static JSObject toJSObject(String audioId) {
+        JSArray sourceArray = new JSArray();
+
+        for (SourceMetrics metrics : sources.values()) {
+            if (audioId == null || audioId.equals(metrics.audioId)) {
+                sourceArray.put(metrics.toJSObject());
+            }
+        }
+
+        return new JSObject()
+            .put("sources", sourceArray)
+            .put(
+                "histograms",
+                new JSObject()
+                    .put("startupTimeMs", startupTimeHistogram.toJSObject())
+                    .put("stallDurationMs", stallDurationHistogram.toJSObject())
+            )
+            .put("locks", PlaybackLockManager.statsToJSObject())
+            .put("audioOffload", AudioOffloadController.statsToJSObject())
+            .put("soundEffects", SoundEffects.statsToJSObject());
+    }
+
+    public static class SourceMetrics {
+
+        public final String audioId;
+
+        private long startupTimeMs = -1;
+        private int startupCount = 0;
+        private int rebufferCount = 0;
+        private long stallTimeMs = 0;
+        private long bytesLoaded = 0;
+        private long bitrateEstimate = 0;
+        private int formatBitrate = 0;
+        private int loadErrors = 0;
+        private int retries = 0;
+        private int droppedRetries = 0;
+        private final Map<String, Integer> errorCodes = new HashMap<>();
+
+        SourceMetrics(String audioId) {
+            this.audioId = audioId;
+        }
+
+        synchronized void recordStartup(long durationMs) {
+            startupTimeMs = durationMs;
+            startupCount++;
+            startupTimeHistogram.record(durationMs);
+        }
+
+        synchronized void recordStall(long durationMs) {
+            rebufferCount++;
+            stallTimeMs += durationMs;
+            stallDurationHistogram.record(durationMs);
+        }
+
+        synchronized void recordBytesLoaded(long bytes) {
+            bytesLoaded += bytes;
+        }
+
+        synchronized void recordBitrateEstimate(long bitrate) {
+            bitrateEstimate = bitrate;
+        }
+
+        synchronized void recordFormatBitrate(int bitrate) {
+            formatBitrate = bitrate;
+        }
+
+        synchronized void recordLoadError() {
+            loadErrors++;
+        }
+
+        synchronized void recordError(String errorCodeName) {
+            Integer count = errorCodes.get(errorCodeName);
+            errorCodes.put(errorCodeName, count == null ? 1 : count + 1);
+        }
+
+        synchronized void recordRetry() {
+            retries++;
+        }
+
+        synchronized void recordDroppedRetry() {
+            droppedRetries++;
+        }
+
+        synchronized JSObject toJSObject() {
+            JSObject errors = new JSObject();
+
+            for (Map.Entry<String, Integer> entry : errorCodes.entrySet()) {
+                errors.put(entry.getKey(), entry.getValue());
+            }
+
+            return new JSObject()
+                .put("audioId", audioId)
+                .put("startupTimeMs", startupTimeMs)
+                .put("startupCount", startupCount)
+                .put("rebufferCount", rebufferCount)
+                .put("stallTimeMs", stallTimeMs)
+                .put("bytesLoaded", bytesLoaded)
+                .put("bitrateEstimate", bitrateEstimate)
+                .put("formatBitrate", formatBitrate)
+                .put("loadErrors", loadErrors)
+                .put("retries", retries)
+                .put("droppedRetries", droppedRetries)
+                .put("errors", errors);
+        }
+    }
+
+    static class Histogram {
+
+        private final long[] bucketBounds;
+        private final long[] counts;
+        private long count = 0;
+        private long sum = 0;
+        private long min = Long.MAX_VALUE;
+        private long max = 0;
+
+        Histogram(long[] bucketBounds) {
+            this.bucketBounds = bucketBounds;
+            this.counts = new long[bucketBounds.length + 1];
+        }
+
+        synchronized void record(long value) {
+            int bucket = 0;
+
+            while (bucket < bucketBounds.length && value > bucketBounds[bucket]) {
+                bucket++;
+            }
+
+            counts[bucket]++;
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        synchronized JSObject toJSObject() {
+            JSArray buckets = new JSArray();
+
+            for (int i = 0; i < counts.length; i++) {
+                buckets.put(
+                    new JSObject()
+                        .put("le", i < bucketBounds.length ? bucketBounds[i] : -1)
+                        .put("count", counts[i])
+                );
+            }
+
+            return new JSObject()
+                .put("count", count)
+                .put("sum", sum)
+                .put("min", count == 0 ? 0 : min)
+                .put("max", max)
+                .put("buckets", buckets);
+        }
+    }
+}
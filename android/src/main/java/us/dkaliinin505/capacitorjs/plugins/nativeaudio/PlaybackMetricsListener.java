@@ -0,0 +1,166 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DecoderReuseEvaluation;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+import java.io.IOException;
+
+/**
+ * Feeds an audio source's {@link PlaybackMetrics} from its ExoPlayer.
+ *
+ * Startup time runs from the moment playback is requested until audio is actually playing, once
+ * per media item. A stall is a buffering period after the item has started playing, excluding
+ * the buffering caused by seeks.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class PlaybackMetricsListener implements AnalyticsListener {
+
+    private final PlaybackMetrics.SourceMetrics metrics;
+
+    private boolean playWhenReady = false;
+    private boolean hasStarted = false;
+    private boolean isSeeking = false;
+    private long startRequestedAtMs = C.TIME_UNSET;
+    private long stallStartedAtMs = C.TIME_UNSET;
+
+    public PlaybackMetricsListener(String audioId) {
+        metrics = PlaybackMetrics.forSource(audioId);
+    }
+
+    @Override
+    public void onPlayWhenReadyChanged(
+        EventTime eventTime,
+        boolean playWhenReady,
+        @Player.PlayWhenReadyChangeReason int reason
+    ) {
+        this.playWhenReady = playWhenReady;
+
+        if (playWhenReady && !hasStarted && startRequestedAtMs == C.TIME_UNSET) {
+            startRequestedAtMs = eventTime.realtimeMs;
+        } else if (!playWhenReady) {
+            // A pause before the first audio doesn't count as a slow start
+            startRequestedAtMs = C.TIME_UNSET;
+            endStall(eventTime);
+        }
+    }
+
+    @Override
+    public void onIsPlayingChanged(EventTime eventTime, boolean isPlaying) {
+        if (!isPlaying || hasStarted) {
+            return;
+        }
+
+        hasStarted = true;
+
+        if (startRequestedAtMs != C.TIME_UNSET) {
+            metrics.recordStartup(eventTime.realtimeMs - startRequestedAtMs);
+            startRequestedAtMs = C.TIME_UNSET;
+        }
+    }
+
+    @Override
+    public void onPlaybackStateChanged(EventTime eventTime, @Player.State int state) {
+        if (state == Player.STATE_BUFFERING) {
+            if (hasStarted && playWhenReady && !isSeeking && stallStartedAtMs == C.TIME_UNSET) {
+                stallStartedAtMs = eventTime.realtimeMs;
+            }
+
+            return;
+        }
+
+        isSeeking = false;
+        endStall(eventTime);
+    }
+
+    @Override
+    public void onMediaItemTransition(
+        EventTime eventTime,
+        @Nullable MediaItem mediaItem,
+        @Player.MediaItemTransitionReason int reason
+    ) {
+        endStall(eventTime);
+
+        // Gapless transitions within a queue keep playing, anything else starts over
+        if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_PLAYLIST_CHANGED) {
+            hasStarted = false;
+            startRequestedAtMs = playWhenReady ? eventTime.realtimeMs : C.TIME_UNSET;
+        }
+    }
+
+    @Override
+    public void onPositionDiscontinuity(
+        EventTime eventTime,
+        Player.PositionInfo oldPosition,
+        Player.PositionInfo newPosition,
+        @Player.DiscontinuityReason int reason
+    ) {
+        if (reason == Player.DISCONTINUITY_REASON_SEEK) {
+            isSeeking = true;
+            endStall(eventTime);
+        }
+    }
+
+    @Override
+    public void onLoadCompleted(
+        EventTime eventTime,
+        LoadEventInfo loadEventInfo,
+        MediaLoadData mediaLoadData
+    ) {
+        metrics.recordBytesLoaded(loadEventInfo.bytesLoaded);
+    }
+
+    @Override
+    public void onLoadError(
+        EventTime eventTime,
+        LoadEventInfo loadEventInfo,
+        MediaLoadData mediaLoadData,
+        IOException error,
+        boolean wasCanceled
+    ) {
+        metrics.recordBytesLoaded(loadEventInfo.bytesLoaded);
+        metrics.recordLoadError();
+    }
+
+    @Override
+    public void onBandwidthEstimate(
+        EventTime eventTime,
+        int totalLoadTimeMs,
+        long totalBytesLoaded,
+        long bitrateEstimate
+    ) {
+        metrics.recordBitrateEstimate(bitrateEstimate);
+    }
+
+    @Override
+    public void onAudioInputFormatChanged(
+        EventTime eventTime,
+        Format format,
+        @Nullable DecoderReuseEvaluation decoderReuseEvaluation
+    ) {
+        metrics.recordFormatBitrate(format.bitrate);
+    }
+
+    @Override
+    public void onPlayerError(EventTime eventTime, PlaybackException error) {
+        metrics.recordError(error.getErrorCodeName());
+        endStall(eventTime);
+    }
+
+    private void endStall(EventTime eventTime) {
+        if (stallStartedAtMs == C.TIME_UNSET) {
+            return;
+        }
+
+        metrics.recordStall(eventTime.realtimeMs - stallStartedAtMs);
+        stallStartedAtMs = C.TIME_UNSET;
+    }
+}
@@ -2,12 +2,12 @@ package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
 
 import static androidx.media3.common.Player.*;
 
-import android.content.Context;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
+import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
 import androidx.media3.common.PlaybackException;
 import androidx.media3.common.Player;
 import androidx.media3.datasource.HttpDataSource;
@@ -16,21 +16,35 @@ import com.getcapacitor.PluginCall;
 import java.net.SocketTimeoutException;
 import java.io.IOException;
 
-public class PlayerEventListener implements Player.Listener {
+public class PlayerEventListener implements Player.Listener, StallDetector.Listener {
 
     private static final String TAG = "PlayerEventListener";
-    private static final int MAX_RETRY_ATTEMPTS = 3;
-    private static final long RETRY_DELAY_MS = 2000; // 2 seconds
 
     private AudioPlayerPlugin plugin;
     private AudioSource audioSource;
     private int retryCount = 0;
-    private Handler retryHandler = new Handler(Looper.getMainLooper());
+    private Handler retryHandler;
+    private StallDetector stallDetector;
+    private boolean isRetryPending = false;
+    private boolean isWaitingForNetwork = false;
+    private boolean retryFromLiveEdge = false;
+    private int retryMediaItemIndex = C.INDEX_UNSET;
+    private long retryPositionMs = 0;
+    private int lastQueueIndex = C.INDEX_UNSET;
 
     public PlayerEventListener(AudioPlayerPlugin plugin, AudioSource audioSource) {
         this.plugin = plugin;
         this.audioSource = audioSource;
         this.audioSource.setEventListener(this);
+
+        Looper looper = audioSource.getPlayer() != null
+            ? audioSource.getPlayer().getApplicationLooper()
+            : Looper.getMainLooper();
+
+        // Retries touch the player, so they must run on the player's own thread
+        retryHandler = new Handler(looper);
+        // Separate handler, so cancelling retries leaves the stall timers alone
+        stallDetector = new StallDetector(new Handler(looper), this);
     }
 
     @Override
@@ -55,20 +69,40 @@ public class PlayerEventListener implements Player.Listener {
             audioSource.onPlaybackStatusChangeCallbackId,
             new JSObject().put("status", status)
         );
+        if (plugin != null && plugin.getProgressTicker() != null) {
+            plugin.getProgressTicker().onIsPlayingChanged(audioSource.id, isPlaying);
+        }
+    }
+
+    @Override
+    public void onPlayWhenReadyChanged(
+        boolean playWhenReady,
+        @PlayWhenReadyChangeReason int reason
+    ) {
+        updatePlaybackLocks();
+        updateStallDetector();
+        updatePreloader();
+    }
+
+    @Override
+    public void onIsLoadingChanged(boolean isLoading) {
+        updatePreloader();
     }
 
     @Override
     public void onPlaybackStateChanged(@State int playbackState) {
         Log.d(TAG, "Playback state changed to: " + playbackState + " for audio: " + audioSource.id);
 
+        updatePlaybackLocks();
+        updateStallDetector();
+        updatePreloader();
+
         switch (playbackState) {
             case STATE_READY:
                 // Reset retry count on successful playback
                 retryCount = 0;
                 audioSource.setIsPlaying();
                 makeCall(audioSource.onReadyCallbackId);
-                // Check if we recovered from stalling
-                handleAudioStalled("likely_to_keep_up", false, true);
                 break;
 
             case STATE_ENDED:
@@ -78,65 +112,256 @@ public class PlayerEventListener implements Player.Listener {
                 makeCall(audioSource.onEndCallbackId);
                 break;
 
-            case STATE_BUFFERING:
-                // Audio is buffering/stalling
-                handleAudioStalled("buffer_empty", true, false);
-                break;
-
             case STATE_IDLE:
                 Log.d(TAG, "Player idle for: " + audioSource.id);
                 break;
         }
     }
 
+    @Override
+    public void onPositionDiscontinuity(
+        PositionInfo oldPosition,
+        PositionInfo newPosition,
+        @DiscontinuityReason int reason
+    ) {
+        if (reason == DISCONTINUITY_REASON_SEEK) {
+            stallDetector.onSeek();
+        }
+    }
+
+    @Override
+    public void onStallStarted() {
+        handleAudioStalled("buffer_empty", true, false, C.TIME_UNSET);
+    }
+
+    @Override
+    public void onStallEnded(long durationMs, boolean isRecovered) {
+        if (isRecovered) {
+            handleAudioStalled("likely_to_keep_up", false, true, durationMs);
+        } else {
+            handleAudioStalled("stall_resolved", false, false, durationMs);
+        }
+    }
+
+    @Override
+    public void onMediaItemTransition(MediaItem mediaItem, @MediaItemTransitionReason int reason) {
+        // The next queue item may be local while the previous one was streamed, or the other way
+        updatePlaybackLocks();
+
+        if (reason == MEDIA_ITEM_TRANSITION_REASON_REPEAT) {
+            audioSource.onLoopRepeated();
+        }
+
+        if (!audioSource.isQueueMode()) {
+            return;
+        }
+
+        int index = audioSource.getPlayer().getCurrentMediaItemIndex();
+
+        // A repeated item or a new queue starting at the same index isn't a move, only a new
+        // queue is reported again
+        if (index == lastQueueIndex && reason != MEDIA_ITEM_TRANSITION_REASON_PLAYLIST_CHANGED) {
+            return;
+        }
+
+        lastQueueIndex = index;
+        audioSource.onQueueItemTransition(index);
+
+        AudioQueueItem queueItem = audioSource.getQueueItem(index);
+
+        JSObject result = new JSObject();
+        result.put("index", index);
+        result.put("id", queueItem != null ? queueItem.id : null);
+        result.put("source", queueItem != null ? queueItem.source : null);
+
+        makeCall(audioSource.onQueueIndexChangeCallbackId, result);
+    }
+
     @Override
     public void onPlayerError(PlaybackException error) {
         Log.e(TAG, "Player error occurred for audio: " + audioSource.id, error);
 
-        if (shouldRetryError(error) && retryCount < MAX_RETRY_ATTEMPTS) {
-            Log.i(TAG, "Attempting retry " + (retryCount + 1) + "/" + MAX_RETRY_ATTEMPTS + " for audio: " + audioSource.id);
-            retryCount++;
+        Player player = audioSource.getPlayer();
+        if (player != null && !isRetryPending) {
+            // Where playback failed, so the retry can pick up from there
+            retryMediaItemIndex = player.getCurrentMediaItemIndex();
+            retryPositionMs = player.getCurrentPosition();
+        }
 
-            // Schedule retry after delay
-            retryHandler.postDelayed(() -> {
-                retryPlayback();
-            }, RETRY_DELAY_MS * retryCount); // Exponential backoff
+        if (!shouldRetryError(error)) {
+            Log.e(TAG, "Non-recoverable error for audio: " + audioSource.id);
+            giveUp();
+            return;
+        }
 
-        } else {
-            Log.e(TAG, "Max retries exceeded or non-recoverable error for audio: " + audioSource.id);
-            retryCount = 0;
-            audioSource.setIsStopped();
+        if (retryCount >= RetryPolicy.getMaxPlayerAttempts()) {
+            Log.e(TAG, "Max retries exceeded for audio: " + audioSource.id);
+            PlaybackMetrics.recordDroppedRetry(audioSource.id);
+            giveUp();
+            return;
+        }
 
-            // Trigger error callback
-            handleAudioStalled("playback_stalled", false, false);
-            if (audioSource.onEndCallbackId != null) {
-                makeCall(audioSource.onEndCallbackId);
-            }
+        retryFromLiveEdge = error.errorCode == PlaybackException.ERROR_CODE_BEHIND_LIVE_WINDOW;
+        scheduleRetry();
+    }
+
+    /**
+     * Schedules the next attempt. While the device is offline or the host's circuit is open the
+     * attempt is put off without being counted, since retrying then can only fail.
+     */
+    private void scheduleRetry() {
+        isRetryPending = true;
+        updatePlaybackLocks();
+
+        if (!RetryPolicy.isNetworkAvailable(plugin.getContext())) {
+            // onNetworkAvailable() picks it up again as soon as a network connects
+            Log.i(TAG, "Network unavailable, waiting to retry audio: " + audioSource.id);
+            isWaitingForNetwork = true;
+            return;
         }
+
+        String host = getCurrentHost();
+
+        // Only one source gets the half-open probe, the others wait for its result
+        if (!HostCircuitBreaker.allowRequest(host)) {
+            long cooldownMs = Math.max(1, HostCircuitBreaker.getRemainingCooldownMs(host));
+            Log.i(TAG, "Circuit open for host: " + host + ", waiting " + cooldownMs + "ms");
+            retryHandler.postDelayed(this::scheduleRetry, cooldownMs);
+            return;
+        }
+
+        retryCount++;
+        PlaybackMetrics.recordRetry(audioSource.id);
+
+        long delayMs = RetryPolicy.getDelayMs(retryCount);
+        Log.i(
+            TAG,
+            String.format(
+                "Attempting retry %s/%s in %sms for audio: %s",
+                retryCount,
+                RetryPolicy.getMaxPlayerAttempts(),
+                delayMs,
+                audioSource.id
+            )
+        );
+
+        retryHandler.postDelayed(this::retryPlayback, delayMs);
     }
 
-    @Override
-    public void onLoadingChanged(boolean isLoading) {
-        if (isLoading) {
-            handleAudioStalled("buffer_empty", true, false);
-        } else {
-            // Check if we can likely keep up
-            Player player = audioSource.getPlayer();
-            if (player != null) {
-                boolean likelyToKeepUp = player.getPlaybackState() == Player.STATE_READY;
-                if (likelyToKeepUp) {
-                    handleAudioStalled("likely_to_keep_up", false, true);
-                } else {
-                    handleAudioStalled("stall_resolved", false, false);
-                }
-            }
+    /**
+     * Called on the player's thread when the device comes back online. A retry that was waiting
+     * for the network is scheduled again, so it still waits for an open circuit and its jittered
+     * delay keeps every source from hitting the network at the same moment.
+     */
+    public void onNetworkAvailable() {
+        if (!isWaitingForNetwork) {
+            return;
+        }
+
+        Log.i(TAG, "Network available, scheduling retry for audio: " + audioSource.id);
+        isWaitingForNetwork = false;
+        scheduleRetry();
+    }
+
+    private void giveUp() {
+        cancelRetry();
+        retryCount = 0;
+        audioSource.setIsStopped();
+
+        // Trigger error callback
+        handleAudioStalled("playback_stalled", false, false, C.TIME_UNSET);
+        if (audioSource.onEndCallbackId != null) {
+            makeCall(audioSource.onEndCallbackId);
+        }
+    }
+
+    /**
+     * Reports to the shared lock manager whether this source needs the device to stay awake,
+     * and whether it needs Wi-Fi for that.
+     */
+    private void updatePlaybackLocks() {
+        Player player = audioSource.getPlayer();
+
+        if (player == null || plugin == null) {
+            return;
+        }
+
+        int playbackState = player.getPlaybackState();
+        // A failed player is idle, but while a retry is scheduled, waiting for an open circuit or
+        // waiting for the network the source still needs the device awake to resume
+        boolean isActive =
+            player.getPlayWhenReady() &&
+            (playbackState == STATE_READY ||
+                playbackState == STATE_BUFFERING ||
+                isRetryPending);
+
+        MediaItem mediaItem = player.getCurrentMediaItem();
+        Uri uri = mediaItem != null && mediaItem.localConfiguration != null
+            ? mediaItem.localConfiguration.uri
+            : null;
+        String scheme = uri != null ? uri.getScheme() : null;
+        // Downloaded sources play from the device and don't need Wi-Fi kept on
+        boolean isNetwork =
+            isActive &&
+            scheme != null &&
+            (scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https")) &&
+            !AudioDownloads.isDownloaded(plugin.getContext(), uri);
+
+        PlaybackLockManager.getInstance(plugin.getContext())
+            .update(audioSource.id, isActive, isNetwork);
+    }
+
+    private void updateStallDetector() {
+        Player player = audioSource.getPlayer();
+
+        if (player == null) {
+            return;
+        }
+
+        stallDetector.update(player.getPlayWhenReady(), player.getPlaybackState());
+    }
+
+    /**
+     * Lets preloading yield to this source while it plays.
+     */
+    private void updatePreloader() {
+        Player player = audioSource.getPlayer();
+
+        if (player == null) {
+            return;
         }
+
+        boolean isPlaying = player.getPlayWhenReady();
+
+        MediaPreloader.setSourceBuffering(
+            audioSource.id,
+            isPlaying && player.getPlaybackState() == STATE_BUFFERING
+        );
+        MediaPreloader.setSourceLoading(audioSource.id, isPlaying && player.isLoading());
+    }
+
+    private String getCurrentHost() {
+        Player player = audioSource.getPlayer();
+        MediaItem mediaItem = player != null ? player.getCurrentMediaItem() : null;
+
+        if (mediaItem == null || mediaItem.localConfiguration == null) {
+            return null;
+        }
+
+        return mediaItem.localConfiguration.uri.getHost();
     }
 
     private boolean shouldRetryError(PlaybackException error) {
         // Check if this is a recoverable network error
         Throwable cause = error.getCause();
 
+        // Client errors won't go away by asking again, except timeouts and rate limiting
+        if (cause instanceof HttpDataSource.InvalidResponseCodeException) {
+            int responseCode = ((HttpDataSource.InvalidResponseCodeException) cause).responseCode;
+
+            return responseCode >= 500 || responseCode == 408 || responseCode == 429;
+        }
+
         // Retry for network timeouts and connection issues
         if (cause instanceof HttpDataSource.HttpDataSourceException) {
             HttpDataSource.HttpDataSourceException httpError = (HttpDataSource.HttpDataSourceException) cause;
@@ -150,17 +375,31 @@ public class PlayerEventListener implements Player.Listener {
         // Retry for source errors that might be temporary
         return error.errorCode == PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED ||
                error.errorCode == PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_TIMEOUT ||
-               error.errorCode == PlaybackException.ERROR_CODE_IO_BAD_HTTP_STATUS;
+               error.errorCode == PlaybackException.ERROR_CODE_IO_BAD_HTTP_STATUS ||
+               error.errorCode == PlaybackException.ERROR_CODE_BEHIND_LIVE_WINDOW;
     }
 
+    /**
+     * Re-prepares the player where it failed. Unlike stop() and prepare(), this keeps the
+     * playlist and playback state, and the media cache serves whatever was already downloaded.
+     */
     private void retryPlayback() {
+        isRetryPending = false;
+
         try {
             Player player = audioSource.getPlayer();
             if (player != null) {
                 Log.i(TAG, "Retrying playback for audio: " + audioSource.id);
 
-                // Stop current playback
-                player.stop();
+                if (retryFromLiveEdge || player.isCurrentMediaItemLive()) {
+                    // Live streams resume at the live edge, the failed position may be gone
+                    player.seekToDefaultPosition();
+                } else if (
+                    retryMediaItemIndex != C.INDEX_UNSET &&
+                    retryMediaItemIndex < player.getMediaItemCount()
+                ) {
+                    player.seekTo(retryMediaItemIndex, retryPositionMs);
+                }
 
                 // Re-prepare the media source
                 player.prepare();
@@ -179,17 +418,50 @@ public class PlayerEventListener implements Player.Listener {
     }
 
     public void resetRetryCount() {
+        cancelRetry();
         retryCount = 0;
     }
 
-    private void handleAudioStalled(String reason, boolean bufferEmpty, boolean likelyToKeepUp) {
+    /**
+     * Drops a scheduled retry, e.g. when the source changes or the player is released.
+     */
+    public void cancelRetry() {
+        retryHandler.removeCallbacksAndMessages(null);
+        isRetryPending = false;
+        isWaitingForNetwork = false;
+        retryFromLiveEdge = false;
+        retryMediaItemIndex = C.INDEX_UNSET;
+        retryPositionMs = 0;
+        updatePlaybackLocks();
+    }
+
+    /**
+     * Called when the player is released, drops all pending work without reporting anything.
+     */
+    public void release() {
+        cancelRetry();
+        stallDetector.reset();
+    }
+
+    /**
+     * @param stallDurationMs How long the stall lasted once it is over, C.TIME_UNSET otherwise
+     */
+    private void handleAudioStalled(
+        String reason,
+        boolean bufferEmpty,
+        boolean likelyToKeepUp,
+        long stallDurationMs
+    ) {
         if (audioSource.onAudioStalledCallbackId != null) {
             try {
                 JSObject result = new JSObject();
                 result.put("reason", reason);
                 result.put("currentTime", audioSource.getCurrentTime());
                 result.put("duration", audioSource.getDuration());
-                result.put("networkAvailable", isNetworkAvailable());
+                result.put(
+                    "networkAvailable",
+                    RetryPolicy.isNetworkAvailable(plugin.getContext())
+                );
 
                 if (reason.equals("buffer_empty") || reason.equals("stall_resolved")) {
                     result.put("bufferEmpty", bufferEmpty);
@@ -199,6 +471,10 @@ public class PlayerEventListener implements Player.Listener {
                     result.put("likelyToKeepUp", likelyToKeepUp);
                 }
 
+                if (stallDurationMs != C.TIME_UNSET) {
+                    result.put("stallDurationMs", stallDurationMs);
+                }
+
                 makeCall(audioSource.onAudioStalledCallbackId, result);
                 Log.d(TAG, "Audio stalled callback triggered with reason: " + reason);
             } catch (Exception ex) {
@@ -207,22 +483,6 @@ public class PlayerEventListener implements Player.Listener {
         }
     }
 
-    private boolean isNetworkAvailable() {
-        try {
-            ConnectivityManager connectivityManager = (ConnectivityManager)
-                plugin.getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
-
-            if (connectivityManager != null) {
-                NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
-                return activeNetworkInfo != null && activeNetworkInfo.isConnected();
-            }
-        } catch (Exception ex) {
-            Log.w(TAG, "Error checking network availability", ex);
-        }
-
-        return false;
-    }
-
     private void makeCall(String callbackId) {
         makeCall(callbackId, new JSObject());
     }
@@ -0,0 +1,397 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.Player;
+import androidx.media3.common.audio.AudioProcessor;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultRenderersFactory;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.Renderer;
+import androidx.media3.exoplayer.RenderersFactory;
+import androidx.media3.exoplayer.audio.AudioRendererEventListener;
+import androidx.media3.exoplayer.audio.AudioSink;
+import androidx.media3.exoplayer.audio.DefaultAudioSink;
+import androidx.media3.exoplayer.audio.MediaCodecAudioRenderer;
+import androidx.media3.exoplayer.mediacodec.MediaCodecSelector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of idle ExoPlayer instances for non-notification audio sources.
+ *
+ * Building a player creates its renderers and playback thread, so reusing one is much
+ * cheaper than building a new one. Players are reset before they go back into the pool and
+ * released once they have been idle longer than the timeout. A reused player takes the buffer
+ * profile of the source acquiring it. As a player's back buffer is fixed when it is built, only
+ * players built with the same back buffer are reused. Callers must remove their own listeners
+ * before releasing a player to the pool.
+ */
+public class PlayerPool {
+
+    private static final String TAG = "PlayerPool";
+
+    public static final int DEFAULT_MAX_IDLE_PLAYERS = 3;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 30000; // 30 seconds
+
+    private final int maxIdlePlayers;
+    private final long idleTimeoutMs;
+
+    private final Deque<IdlePlayer> idlePlayers = new ArrayDeque<>();
+    private final Map<ExoPlayer, BudgetedLoadControl> loadControls = new ConcurrentHashMap<>();
+    private final Runnable evictIdlePlayersRunnable = this::evictIdlePlayers;
+    private volatile Handler handler;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PlayerPool() {
+        this(DEFAULT_MAX_IDLE_PLAYERS, DEFAULT_IDLE_TIMEOUT_MS);
+    }
+
+    public PlayerPool(int maxIdlePlayers, long idleTimeoutMs) {
+        this.maxIdlePlayers = maxIdlePlayers;
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    public static ExoPlayer buildPlayer(Context context, BudgetedLoadControl loadControl) {
+        if (!LoudnessNormalizer.isEnabled()) {
+            return buildPlayer(context, loadControl, new DefaultRenderersFactory(context));
+        }
+
+        // The processor belongs to the player, so it keeps normalizing after going to the pool
+        GainAudioProcessor gainProcessor = new GainAudioProcessor();
+        ExoPlayer player = buildPlayer(
+            context,
+            loadControl,
+            createRenderersFactory(context, gainProcessor)
+        );
+        LoudnessNormalizer.attach(context, player, gainProcessor);
+
+        return player;
+    }
+
+    @OptIn(markerClass = UnstableApi.class)
+    public static ExoPlayer buildPlayer(
+        Context context,
+        BudgetedLoadControl loadControl,
+        RenderersFactory renderersFactory
+    ) {
+        return new ExoPlayer.Builder(context, renderersFactory)
+            .setLoadControl(loadControl)
+            .setMediaSourceFactory(RobustHlsConfig.createMediaSourceFactory(context))
+            .setLooper(PlaybackCommandExecutor.getInstance().getLooper())
+            .build();
+    }
+
+    /**
+     * Runs the decoded audio through the processors, in order, before it is written to the
+     * AudioTrack. With a {@link GainAudioProcessor} among them, the player gets a
+     * {@link NormalizingAudioRenderer} for it.
+     */
+    public static RenderersFactory createRenderersFactory(
+        Context context,
+        AudioProcessor... audioProcessors
+    ) {
+        return createRenderersFactory(context, false, audioProcessors);
+    }
+
+    /**
+     * @param isMixerOutput Whether the mixed sources are mixed into this player's output, see
+     *                      {@link MixerOutputSink}
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    public static RenderersFactory createRenderersFactory(
+        Context context,
+        boolean isMixerOutput,
+        AudioProcessor... audioProcessors
+    ) {
+        GainAudioProcessor gainProcessor = findGainProcessor(audioProcessors);
+
+        return new DefaultRenderersFactory(context) {
+            @Override
+            protected void buildAudioRenderers(
+                Context context,
+                int extensionRendererMode,
+                MediaCodecSelector mediaCodecSelector,
+                boolean enableDecoderFallback,
+                AudioSink audioSink,
+                Handler eventHandler,
+                AudioRendererEventListener eventListener,
+                ArrayList<Renderer> out
+            ) {
+                int firstIndex = out.size();
+
+                super.buildAudioRenderers(
+                    context,
+                    extensionRendererMode,
+                    mediaCodecSelector,
+                    enableDecoderFallback,
+                    audioSink,
+                    eventHandler,
+                    eventListener,
+                    out
+                );
+
+                if (gainProcessor == null) {
+                    return;
+                }
+
+                // Extension renderers are kept, only the platform decoder's renderer is replaced
+                for (int i = firstIndex; i < out.size(); i++) {
+                    if (out.get(i).getClass() == MediaCodecAudioRenderer.class) {
+                        out.set(
+                            i,
+                            new NormalizingAudioRenderer(
+                                context,
+                                getCodecAdapterFactory(),
+                                mediaCodecSelector,
+                                enableDecoderFallback,
+                                eventHandler,
+                                eventListener,
+                                audioSink,
+                                gainProcessor
+                            )
+                        );
+                    }
+                }
+            }
+
+            @Override
+            protected AudioSink buildAudioSink(
+                Context context,
+                boolean enableFloatOutput,
+                boolean enableAudioTrackPlaybackParams
+            ) {
+                AudioSink sink = new DefaultAudioSink.Builder(context)
+                    .setAudioProcessors(audioProcessors)
+                    .setEnableFloatOutput(enableFloatOutput)
+                    .setEnableAudioTrackPlaybackParams(enableAudioTrackPlaybackParams)
+                    .build();
+
+                return isMixerOutput ? new MixerOutputSink(sink) : sink;
+            }
+        };
+    }
+
+    @Nullable
+    private static GainAudioProcessor findGainProcessor(AudioProcessor[] audioProcessors) {
+        for (AudioProcessor audioProcessor : audioProcessors) {
+            if (audioProcessor instanceof GainAudioProcessor) {
+                return (GainAudioProcessor) audioProcessor;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Must be called on the thread the players are accessed from.
+     */
+    public ExoPlayer acquire(Context context, BufferProfile profile) {
+        IdlePlayer idlePlayer;
+
+        synchronized (idlePlayers) {
+            idlePlayer = pollIdlePlayer(profile);
+        }
+
+        if (idlePlayer != null) {
+            hits.incrementAndGet();
+            idlePlayer.loadControl.setProfile(profile);
+            Log.d(TAG, "Reusing pooled player, idle count: " + idleCount());
+
+            return idlePlayer.player;
+        }
+
+        misses.incrementAndGet();
+
+        BudgetedLoadControl loadControl = RobustHlsConfig.createLoadControl(profile, false);
+        ExoPlayer player = buildPlayer(context, loadControl);
+        loadControls.put(player, loadControl);
+
+        return player;
+    }
+
+    public BudgetedLoadControl getLoadControl(ExoPlayer player) {
+        return loadControls.get(player);
+    }
+
+    /**
+     * Resets the player and keeps it for reuse, releasing the least recently used idle player
+     * if the pool is full. Must be called on the thread the player is accessed from.
+     */
+    public void release(ExoPlayer player) {
+        if (!loadControls.containsKey(player)) {
+            player.release();
+            return;
+        }
+
+        reset(player);
+
+        IdlePlayer evictedPlayer = null;
+
+        synchronized (idlePlayers) {
+            if (idlePlayers.size() >= maxIdlePlayers) {
+                evictedPlayer = idlePlayers.pollLast();
+            }
+
+            idlePlayers.addFirst(
+                new IdlePlayer(player, loadControls.get(player), SystemClock.elapsedRealtime())
+            );
+        }
+
+        if (evictedPlayer != null) {
+            evict(evictedPlayer);
+        }
+
+        if (handler == null) {
+            handler = new Handler(player.getApplicationLooper());
+        }
+
+        handler.removeCallbacks(evictIdlePlayersRunnable);
+        handler.postDelayed(evictIdlePlayersRunnable, idleTimeoutMs);
+    }
+
+    /**
+     * Can be called from any thread. It runs after any release already posted to the players'
+     * looper, so players being released right now are cleared as well.
+     */
+    public void clear() {
+        Handler handler = this.handler;
+
+        if (handler != null && !handler.getLooper().isCurrentThread()) {
+            handler.post(this::clear);
+            return;
+        }
+
+        List<IdlePlayer> players;
+
+        synchronized (idlePlayers) {
+            players = new ArrayList<>(idlePlayers);
+            idlePlayers.clear();
+        }
+
+        if (handler != null) {
+            handler.removeCallbacks(evictIdlePlayersRunnable);
+        }
+
+        for (IdlePlayer idlePlayer : players) {
+            evict(idlePlayer);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int idleCount() {
+        synchronized (idlePlayers) {
+            return idlePlayers.size();
+        }
+    }
+
+    /**
+     * The most recently used idle player with the profile's back buffer, which can't be changed
+     * once a player is built.
+     */
+    private IdlePlayer pollIdlePlayer(BufferProfile profile) {
+        Iterator<IdlePlayer> iterator = idlePlayers.iterator();
+
+        while (iterator.hasNext()) {
+            IdlePlayer idlePlayer = iterator.next();
+
+            if (idlePlayer.loadControl.getBackBufferMs() == profile.backBufferMs) {
+                iterator.remove();
+                return idlePlayer;
+            }
+        }
+
+        return null;
+    }
+
+    private void reset(ExoPlayer player) {
+        player.stop();
+        player.clearMediaItems();
+        player.setPlayWhenReady(false);
+        player.setVolume(1f);
+        player.setPlaybackSpeed(1f);
+        player.setRepeatMode(Player.REPEAT_MODE_OFF);
+        player.setShuffleModeEnabled(false);
+    }
+
+    private void evictIdlePlayers() {
+        long now = SystemClock.elapsedRealtime();
+        List<IdlePlayer> expiredPlayers = new ArrayList<>();
+
+        synchronized (idlePlayers) {
+            Iterator<IdlePlayer> iterator = idlePlayers.iterator();
+
+            while (iterator.hasNext()) {
+                IdlePlayer idlePlayer = iterator.next();
+
+                if (now - idlePlayer.idleSinceMs >= idleTimeoutMs) {
+                    expiredPlayers.add(idlePlayer);
+                    iterator.remove();
+                }
+            }
+        }
+
+        for (IdlePlayer idlePlayer : expiredPlayers) {
+            evict(idlePlayer);
+        }
+
+        if (idleCount() > 0) {
+            handler.postDelayed(evictIdlePlayersRunnable, idleTimeoutMs);
+        }
+    }
+
+    private void evict(IdlePlayer idlePlayer) {
+        Runnable releaseRunnable = () -> {
+            try {
+                idlePlayer.player.release();
+            } catch (Exception ex) {
+                Log.w(TAG, "Error releasing pooled player", ex);
+            }
+        };
+
+        // Players must be released on their own thread
+        PlaybackCommandExecutor.getInstance()
+            .runOn(idlePlayer.player.getApplicationLooper(), releaseRunnable);
+
+        loadControls.remove(idlePlayer.player);
+        evictions.incrementAndGet();
+        Log.d(TAG, "Evicted pooled player, idle count: " + idleCount());
+    }
+
+    private static class IdlePlayer {
+
+        final ExoPlayer player;
+        final BudgetedLoadControl loadControl;
+        final long idleSinceMs;
+
+        IdlePlayer(ExoPlayer player, BudgetedLoadControl loadControl, long idleSinceMs) {
+            this.player = player;
+            this.loadControl = loadControl;
+            this.idleSinceMs = idleSinceMs;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes playback progress to JS from a single ticker instead of having JS poll each source.
+ *
+ * The ticker only runs while a subscribed source is playing. Every tick samples each source once,
+ * on the thread its player lives on, and sends at most one message per subscription; a
+ * subscription without an audio ID gets every playing source in a single message. The public
+ * methods can be called from any thread, the ticker itself runs on the main looper.
+ */
+public class ProgressTicker {
+
+    private static final String TAG = "ProgressTicker";
+
+    public static final long DEFAULT_INTERVAL_MS = 250;
+    public static final long MIN_INTERVAL_MS = 50;
+    public static final long MAX_INTERVAL_MS = 10000;
+
+    private final AudioPlayerPlugin plugin;
+    private final AudioSources audioSources;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable tickRunnable = this::tick;
+
+    // Only accessed on the main looper
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+    private final Set<String> playingSourceIds = new LinkedHashSet<>();
+    private long tickIntervalMs = DEFAULT_INTERVAL_MS;
+    private boolean isRunning = false;
+
+    public ProgressTicker(AudioPlayerPlugin plugin, AudioSources audioSources) {
+        this.plugin = plugin;
+        this.audioSources = audioSources;
+    }
+
+    /**
+     * @param audioId the source to report, or null to report every playing source at once
+     */
+    public void subscribe(String callbackId, String audioId, long intervalMs) {
+        handler.post(() -> {
+            subscriptions.put(
+                callbackId,
+                new Subscription(
+                    audioId,
+                    Math.max(MIN_INTERVAL_MS, Math.min(intervalMs, MAX_INTERVAL_MS))
+                )
+            );
+
+            updateTickInterval();
+            update();
+        });
+    }
+
+    /**
+     * Drops the subscription and recomputes the tick interval from the ones left.
+     */
+    public void unsubscribe(String callbackId) {
+        handler.post(() -> {
+            if (subscriptions.remove(callbackId) != null) {
+                updateTickInterval();
+                update();
+            }
+        });
+    }
+
+    public void removeSource(String audioId) {
+        handler.post(() -> {
+            Iterator<Subscription> iterator = subscriptions.values().iterator();
+
+            while (iterator.hasNext()) {
+                if (audioId.equals(iterator.next().audioId)) {
+                    iterator.remove();
+                }
+            }
+
+            playingSourceIds.remove(audioId);
+            updateTickInterval();
+            update();
+        });
+    }
+
+    /**
+     * Called when a source's player is released. A released player reports no more playback
+     * changes, so without this a source released while playing would keep the ticker running.
+     */
+    public void onSourceReleased(String audioId) {
+        handler.post(() -> {
+            if (playingSourceIds.remove(audioId)) {
+                update();
+            }
+        });
+    }
+
+    /**
+     * Called by the player listeners whenever a source starts or stops playing. A source that
+     * stops gets one last sample so the position shown in JS is exact.
+     */
+    public void onIsPlayingChanged(String audioId, boolean isPlaying) {
+        handler.post(() -> {
+            if (isPlaying) {
+                playingSourceIds.add(audioId);
+            } else {
+                playingSourceIds.remove(audioId);
+                emit(audioId);
+            }
+
+            update();
+        });
+    }
+
+    public void release() {
+        handler.post(() -> {
+            handler.removeCallbacks(tickRunnable);
+            subscriptions.clear();
+            playingSourceIds.clear();
+            isRunning = false;
+        });
+    }
+
+    /**
+     * Starts or stops the ticker depending on whether a subscribed source is playing.
+     */
+    private void update() {
+        if (hasPlayingSubscription()) {
+            if (!isRunning) {
+                isRunning = true;
+                handler.post(tickRunnable);
+            }
+        } else if (isRunning) {
+            isRunning = false;
+            handler.removeCallbacks(tickRunnable);
+        }
+    }
+
+    private void tick() {
+        if (!isRunning) {
+            return;
+        }
+
+        emit(null);
+
+        if (hasPlayingSubscription()) {
+            handler.postDelayed(tickRunnable, tickIntervalMs);
+        } else {
+            isRunning = false;
+        }
+    }
+
+    /**
+     * @param stoppedAudioId a source that just stopped and must be reported regardless of the
+     *                       subscription intervals, or null for a regular tick
+     */
+    private void emit(String stoppedAudioId) {
+        long now = SystemClock.elapsedRealtime();
+        Map<String, Subscription> dueSubscriptions = new HashMap<>();
+        Set<String> sourceIds = new LinkedHashSet<>();
+
+        for (Map.Entry<String, Subscription> entry : subscriptions.entrySet()) {
+            Subscription subscription = entry.getValue();
+
+            if (stoppedAudioId != null) {
+                if (subscription.audioId != null && !subscription.audioId.equals(stoppedAudioId)) {
+                    continue;
+                }
+            } else if (
+                // Allow half a tick of jitter so subscriptions at the tick interval never skip one
+                now - subscription.lastEmitMs < subscription.intervalMs - tickIntervalMs / 2 ||
+                (subscription.audioId != null && !playingSourceIds.contains(subscription.audioId))
+            ) {
+                continue;
+            }
+
+            if (subscription.audioId == null) {
+                sourceIds.addAll(playingSourceIds);
+
+                if (stoppedAudioId != null) {
+                    sourceIds.add(stoppedAudioId);
+                }
+            } else {
+                sourceIds.add(subscription.audioId);
+            }
+
+            subscription.lastEmitMs = now;
+            dueSubscriptions.put(entry.getKey(), subscription);
+        }
+
+        if (dueSubscriptions.isEmpty() || sourceIds.isEmpty()) {
+            return;
+        }
+
+        sample(sourceIds, samples -> deliver(dueSubscriptions, sourceIds, stoppedAudioId, samples));
+    }
+
+    /**
+     * Reads each source's player once, on the looper it must be used from, and hands the samples
+     * back on the main looper.
+     */
+    private void sample(Set<String> sourceIds, SamplesCallback callback) {
+        Map<Looper, List<AudioSource>> groups = new HashMap<>();
+
+        for (String sourceId : sourceIds) {
+            AudioSource audioSource = audioSources.get(sourceId);
+
+            if (audioSource == null || !audioSource.isInitialized()) {
+                continue;
+            }
+
+            Looper looper = PlaybackCommandExecutor.getInstance().getLooperFor(audioSource);
+
+            if (!groups.containsKey(looper)) {
+                groups.put(looper, new ArrayList<>());
+            }
+
+            groups.get(looper).add(audioSource);
+        }
+
+        Map<String, JSObject> samples = new ConcurrentHashMap<>();
+
+        if (groups.isEmpty()) {
+            callback.onSamples(samples);
+            return;
+        }
+
+        AtomicInteger remainingGroups = new AtomicInteger(groups.size());
+
+        for (Map.Entry<Looper, List<AudioSource>> group : groups.entrySet()) {
+            PlaybackCommandExecutor.getInstance()
+                .runOn(group.getKey(), () -> {
+                    for (AudioSource audioSource : group.getValue()) {
+                        try {
+                            if (audioSource.isInitialized()) {
+                                samples.put(audioSource.id, sample(audioSource));
+                            }
+                        } catch (Exception ex) {
+                            Log.w(TAG, "Could not sample audio source: " + audioSource.id, ex);
+                        }
+                    }
+
+                    if (remainingGroups.decrementAndGet() == 0) {
+                        if (Looper.getMainLooper().isCurrentThread()) {
+                            callback.onSamples(samples);
+                        } else {
+                            handler.post(() -> callback.onSamples(samples));
+                        }
+                    }
+                });
+        }
+    }
+
+    private JSObject sample(AudioSource audioSource) {
+        return new JSObject()
+            .put("audioId", audioSource.id)
+            .put("currentTime", audioSource.getCurrentTime())
+            .put("bufferedPosition", audioSource.getBufferedPositionMs() / 1000.0)
+            .put("duration", audioSource.getDuration());
+    }
+
+    private void deliver(
+        Map<String, Subscription> dueSubscriptions,
+        Set<String> sourceIds,
+        String stoppedAudioId,
+        Map<String, JSObject> samples
+    ) {
+        Set<String> closedCallbackIds = new HashSet<>();
+
+        for (Map.Entry<String, Subscription> entry : dueSubscriptions.entrySet()) {
+            Subscription subscription = entry.getValue();
+            JSObject data;
+
+            if (subscription.audioId == null) {
+                JSArray sources = new JSArray();
+
+                for (String sourceId : sourceIds) {
+                    JSObject sample = samples.get(sourceId);
+
+                    if (
+                        sample != null &&
+                        (playingSourceIds.contains(sourceId) || sourceId.equals(stoppedAudioId))
+                    ) {
+                        sources.put(sample);
+                    }
+                }
+
+                if (sources.length() == 0) {
+                    continue;
+                }
+
+                data = new JSObject().put("sources", sources);
+            } else {
+                data = samples.get(subscription.audioId);
+
+                if (data == null) {
+                    continue;
+                }
+            }
+
+            PluginCall call = plugin.getBridge().getSavedCall(entry.getKey());
+            if (call == null) {
+                closedCallbackIds.add(entry.getKey());
+                continue;
+            }
+
+            try {
+                call.resolve(data);
+            } catch (Exception ex) {
+                Log.w(TAG, "Failed to send progress for callback: " + entry.getKey(), ex);
+            }
+        }
+
+        for (String callbackId : closedCallbackIds) {
+            subscriptions.remove(callbackId);
+        }
+
+        if (!closedCallbackIds.isEmpty()) {
+            updateTickInterval();
+        }
+    }
+
+    private boolean hasPlayingSubscription() {
+        for (Subscription subscription : subscriptions.values()) {
+            if (
+                subscription.audioId == null
+                    ? !playingSourceIds.isEmpty()
+                    : playingSourceIds.contains(subscription.audioId)
+            ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void updateTickInterval() {
+        long minIntervalMs = DEFAULT_INTERVAL_MS;
+        boolean first = true;
+
+        for (Subscription subscription : subscriptions.values()) {
+            if (first || subscription.intervalMs < minIntervalMs) {
+                minIntervalMs = subscription.intervalMs;
+                first = false;
+            }
+        }
+
+        tickIntervalMs = minIntervalMs;
+    }
+
+    private interface SamplesCallback {
+        void onSamples(Map<String, JSObject> samples);
+    }
+
+    private static class Subscription {
+
+        final String audioId;
+        final long intervalMs;
+        long lastEmitMs = 0;
+
+        Subscription(String audioId, long intervalMs) {
+            this.audioId = audioId;
+            this.intervalMs = intervalMs;
+        }
+    }
+}
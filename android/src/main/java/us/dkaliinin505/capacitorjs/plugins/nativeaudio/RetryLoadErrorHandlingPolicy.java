@@ -0,0 +1,61 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.upstream.DefaultLoadErrorHandlingPolicy;
+
+/**
+ * Retries failed segment, playlist and progressive loads inside the player, so a dropped
+ * connection doesn't surface as a player error and throw away the buffer.
+ *
+ * Which errors are retryable is left to {@link DefaultLoadErrorHandlingPolicy}. On top of it the
+ * delays follow {@link RetryPolicy} and hosts whose circuit is open fail fast. Loads also fail
+ * fast while the device is offline: the loader counts every retry as an attempt, so waiting here
+ * would give up after a few checks. {@link PlayerEventListener} instead waits for the network and
+ * resumes playback where it failed, without using up an attempt.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class RetryLoadErrorHandlingPolicy extends DefaultLoadErrorHandlingPolicy {
+
+    private static final String TAG = "RetryLoadErrorPolicy";
+
+    private final Context context;
+
+    public RetryLoadErrorHandlingPolicy(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public long getRetryDelayMsFor(LoadErrorInfo loadErrorInfo) {
+        if (super.getRetryDelayMsFor(loadErrorInfo) == C.TIME_UNSET) {
+            return C.TIME_UNSET;
+        }
+
+        String host = loadErrorInfo.loadEventInfo.uri.getHost();
+
+        if (!RetryPolicy.isNetworkAvailable(context)) {
+            // Not the host's fault, so don't count it against the circuit
+            Log.i(TAG, "Not retrying the load while offline: " + host);
+            return C.TIME_UNSET;
+        }
+
+        if (HostCircuitBreaker.isHostFailure(loadErrorInfo.exception)) {
+            HostCircuitBreaker.recordFailure(host);
+        }
+
+        if (HostCircuitBreaker.isOpen(host)) {
+            Log.w(TAG, "Not retrying the load, the circuit is open for host: " + host);
+            return C.TIME_UNSET;
+        }
+
+        return RetryPolicy.getDelayMs(loadErrorInfo.errorCount);
+    }
+
+    @Override
+    public int getMinimumLoadableRetryCount(int dataType) {
+        return RetryPolicy.getMaxLoadAttempts();
+    }
+}
@@ -0,0 +1,93 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.util.Log;
+import java.util.Random;
+import org.json.JSONObject;
+
+/**
+ * Backoff settings shared by load-level retries ({@link RetryLoadErrorHandlingPolicy}) and
+ * player-level recovery ({@link PlayerEventListener}).
+ *
+ * Delays grow exponentially from the base delay up to the max delay, and a random part of each
+ * delay (the jitter) is taken off so many clients failing at once don't retry in lockstep.
+ */
+public class RetryPolicy {
+
+    private static final String TAG = "RetryPolicy";
+
+    public static final int DEFAULT_MAX_LOAD_ATTEMPTS = 6;
+    public static final int DEFAULT_MAX_PLAYER_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MS = 500;
+    public static final long DEFAULT_MAX_DELAY_MS = 30000; // 30 seconds
+    public static final double DEFAULT_JITTER = 0.5;
+
+    private static volatile int maxLoadAttempts = DEFAULT_MAX_LOAD_ATTEMPTS;
+    private static volatile int maxPlayerAttempts = DEFAULT_MAX_PLAYER_ATTEMPTS;
+    private static volatile long baseDelayMs = DEFAULT_BASE_DELAY_MS;
+    private static volatile long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+    private static volatile double jitter = DEFAULT_JITTER;
+
+    private static final Random random = new Random();
+
+    /**
+     * Reads the optional `retryPolicy` object of the plugin config. Invalid values keep their
+     * defaults.
+     */
+    public static void configure(JSONObject config) {
+        if (config == null) {
+            return;
+        }
+
+        maxLoadAttempts = Math.max(0, config.optInt("maxLoadAttempts", DEFAULT_MAX_LOAD_ATTEMPTS));
+        maxPlayerAttempts = Math.max(
+            0,
+            config.optInt("maxPlayerAttempts", DEFAULT_MAX_PLAYER_ATTEMPTS)
+        );
+        baseDelayMs = Math.max(1, config.optLong("baseDelayMs", DEFAULT_BASE_DELAY_MS));
+        maxDelayMs = Math.max(baseDelayMs, config.optLong("maxDelayMs", DEFAULT_MAX_DELAY_MS));
+        jitter = Math.max(0, Math.min(1, config.optDouble("jitter", DEFAULT_JITTER)));
+
+        Log.i(
+            TAG,
+            String.format(
+                "Retry policy: %s load attempts, %s player attempts, %s-%sms delay, %s jitter",
+                maxLoadAttempts,
+                maxPlayerAttempts,
+                baseDelayMs,
+                maxDelayMs,
+                jitter
+            )
+        );
+    }
+
+    public static int getMaxLoadAttempts() {
+        return maxLoadAttempts;
+    }
+
+    public static int getMaxPlayerAttempts() {
+        return maxPlayerAttempts;
+    }
+
+    /**
+     * @param attempt the 1-based number of the retry about to be made
+     */
+    public static long getDelayMs(int attempt) {
+        // Capping the exponent keeps the shift from overflowing on long outages
+        long exponentialDelayMs = Math.min(
+            maxDelayMs,
+            baseDelayMs << Math.min(Math.max(attempt - 1, 0), 20)
+        );
+
+        double randomFactor;
+        synchronized (random) {
+            randomFactor = random.nextDouble();
+        }
+
+        return Math.max(1, Math.round(exponentialDelayMs * (1 - jitter * randomFactor)));
+    }
+
+    public static boolean isNetworkAvailable(Context context) {
+        return ConnectivityMonitor.getInstance(context).isOnline();
+    }
+}
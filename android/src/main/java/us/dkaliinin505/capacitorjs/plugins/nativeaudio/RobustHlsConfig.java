@@ -2,13 +2,13 @@ package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
 
 import android.content.Context;
 import androidx.media3.common.C;
+import androidx.media3.datasource.DataSource;
 import androidx.media3.datasource.DefaultHttpDataSource;
 import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.exoplayer.hls.HlsDataSourceFactory;
 import androidx.media3.exoplayer.hls.HlsMediaSource;
 import androidx.media3.exoplayer.source.MediaSource;
 import androidx.media3.common.MediaItem;
-import androidx.media3.exoplayer.LoadControl;
-import androidx.media3.exoplayer.DefaultLoadControl;
 
 public class RobustHlsConfig {
 
@@ -19,37 +19,75 @@ public class RobustHlsConfig {
             .setReadTimeoutMs(60000)         // 60 seconds read timeout
             .setAllowCrossProtocolRedirects(true)
             .setUserAgent("YourMusicApp/1.0 (Android)")
-            .setKeepPostFor302Redirects(true);
+            .setKeepPostFor302Redirects(true)
+            .setTransferListener(HostCircuitBreaker.TRANSFER_LISTENER);
     }
 
-    public static HlsMediaSource.Factory createRobustHlsFactory(Context context) {
-        DefaultDataSource.Factory dataSourceFactory = new DefaultDataSource.Factory(
+    public static DataSource.Factory createCachedDataSourceFactory(Context context) {
+        // Network reads check the downloads first, then go through the shared disk cache.
+        // Local files and assets are read directly
+        return new DefaultDataSource.Factory(
             context,
-            createRobustHttpDataSourceFactory()
+            AudioDownloads.createPlaybackDataSourceFactory(
+                context,
+                MediaCache.createCacheDataSourceFactory(
+                    context,
+                    createRobustHttpDataSourceFactory()
+                )
+            )
         );
+    }
 
+    /**
+     * For HLS playlists and DASH manifests. Downloaded ones are read from the device, everything
+     * else always comes from the network, never from the shared media cache.
+     */
+    public static DataSource.Factory createManifestDataSourceFactory(Context context) {
+        return new DefaultDataSource.Factory(
+            context,
+            AudioDownloads.createPlaybackDataSourceFactory(
+                context,
+                MediaCache.createNetworkDataSourceFactory(createRobustHttpDataSourceFactory())
+            )
+        );
+    }
+
+    public static MediaSource.Factory createMediaSourceFactory(Context context) {
+        return new AudioMediaSourceFactory(context);
+    }
+
+    public static HlsMediaSource.Factory createRobustHlsFactory(Context context) {
+        return createRobustHlsFactory(
+            new DefaultDataSource.Factory(context, createRobustHttpDataSourceFactory())
+        );
+    }
+
+    public static HlsMediaSource.Factory createRobustHlsFactory(
+        DataSource.Factory dataSourceFactory
+    ) {
+        return createRobustHlsFactory(dataType -> dataSourceFactory.createDataSource());
+    }
+
+    public static HlsMediaSource.Factory createRobustHlsFactory(
+        HlsDataSourceFactory dataSourceFactory
+    ) {
+        // Chunkless preparation builds the tracks from the master playlist's CODECS attribute
+        // instead of downloading the first segment of every rendition
         return new HlsMediaSource.Factory(dataSourceFactory)
             .setAllowChunklessPreparation(true)
             .setUseSessionKeys(false);
     }
 
-    public static LoadControl createRobustLoadControl() {
-        return new DefaultLoadControl.Builder()
-            // Increase buffer sizes significantly
-            .setBufferDurationsMs(
-                60000,   // Min buffer: 60 seconds
-                300000,  // Max buffer: 5 minutes
-                2500,    // Buffer for playback: 2.5 seconds
-                5000     // Buffer for playback after rebuffer: 5 seconds
-            )
-            .setTargetBufferBytes(
-                DefaultLoadControl.DEFAULT_TARGET_BUFFER_BYTES * 4  // 4x default buffer
-            )
-            .setPrioritizeTimeOverSizeThresholds(true)
-            .setBackBuffer(
-                60000,   // Keep 60 seconds of back buffer
-                true     // Retain back buffer from keyframe
-            )
-            .build();
+    /**
+     * @param isPriority Whether the player belongs to the notification source, which gets
+     *                   priority over background sources for the shared buffer memory budget.
+     */
+    public static BudgetedLoadControl createRobustLoadControl(boolean isPriority) {
+        // Increase buffer sizes significantly: 60s min, 5 minutes max and 60s of back buffer
+        return createLoadControl(BufferProfile.LONG_FORM, isPriority);
+    }
+
+    public static BudgetedLoadControl createLoadControl(BufferProfile profile, boolean isPriority) {
+        return new BudgetedLoadControl(profile, isPriority);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * One pre-opened low-latency AudioTrack that plays decoded sound effects, one at a time.
+ *
+ * Clips are written from the voice's own thread without blocking, so a clip that is cut off by
+ * the next one stops within a few milliseconds. The track is paused between clips rather than
+ * released, so starting a clip doesn't have to open an audio output.
+ */
+public class SoundEffectVoice {
+
+    private static final String TAG = "SoundEffectVoice";
+
+    private static final long WRITE_POLL_MS = 5;
+
+    private final AudioTrack track;
+    private final ExecutorService executor;
+
+    // Written under this, read by the render loop
+    private volatile int generation = 0;
+
+    // Guarded by this
+    private boolean isActive = false;
+    private String effectId;
+    private long startedAtMs;
+
+    public SoundEffectVoice(int index, int sampleRate) {
+        int bufferSize = AudioTrack.getMinBufferSize(
+            sampleRate,
+            AudioFormat.CHANNEL_OUT_STEREO,
+            AudioFormat.ENCODING_PCM_16BIT
+        );
+
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+            .setAudioAttributes(
+                new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_MEDIA)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                    .build()
+            )
+            .setAudioFormat(
+                new AudioFormat.Builder()
+                    .setSampleRate(sampleRate)
+                    .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                    .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                    .build()
+            )
+            .setTransferMode(AudioTrack.MODE_STREAM)
+            .setBufferSizeInBytes(bufferSize);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+
+        track = builder.build();
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(
+                () -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+                    runnable.run();
+                },
+                "AudioPlayerEffect-" + index
+            );
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the clip, cutting off whatever the voice was playing.
+     */
+    public synchronized void play(String effectId, short[] pcm, float volume) {
+        int playGeneration = ++generation;
+
+        this.effectId = effectId;
+        startedAtMs = SystemClock.elapsedRealtime();
+        isActive = true;
+
+        executor.execute(() -> render(playGeneration, pcm, volume));
+    }
+
+    public synchronized void stop() {
+        if (!isActive) {
+            return;
+        }
+
+        int stopGeneration = ++generation;
+        isActive = false;
+
+        executor.execute(() -> {
+            if (generation == stopGeneration) {
+                track.pause();
+                track.flush();
+            }
+        });
+    }
+
+    public synchronized boolean isActive() {
+        return isActive;
+    }
+
+    public synchronized boolean isPlaying(String effectId) {
+        return isActive && effectId.equals(this.effectId);
+    }
+
+    public synchronized long getStartedAtMs() {
+        return startedAtMs;
+    }
+
+    public void release() {
+        synchronized (this) {
+            generation++;
+            isActive = false;
+        }
+
+        executor.execute(track::release);
+        executor.shutdown();
+    }
+
+    private void render(int playGeneration, short[] pcm, float volume) {
+        track.pause();
+        track.flush();
+        track.setVolume(volume);
+
+        int frameCount = pcm.length / PcmDecoder.OUTPUT_CHANNEL_COUNT;
+        int offset = 0;
+        boolean isStarted = false;
+
+        while (generation == playGeneration) {
+            if (offset < pcm.length) {
+                int written = track.write(
+                    pcm,
+                    offset,
+                    pcm.length - offset,
+                    AudioTrack.WRITE_NON_BLOCKING
+                );
+
+                if (written < 0) {
+                    Log.w(TAG, "Couldn't write sound effect, error " + written);
+                    break;
+                }
+
+                offset += written;
+
+                // Start once the buffer is primed, so the first frames aren't an underrun
+                if (!isStarted) {
+                    track.play();
+                    isStarted = true;
+                }
+
+                if (offset < pcm.length) {
+                    sleep();
+                }
+
+                continue;
+            }
+
+            // Everything is queued, wait until it has been heard
+            if (track.getPlaybackHeadPosition() >= frameCount) {
+                break;
+            }
+
+            sleep();
+        }
+
+        synchronized (this) {
+            if (generation == playGeneration) {
+                track.pause();
+                track.flush();
+                isActive = false;
+            }
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(WRITE_POLL_MS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
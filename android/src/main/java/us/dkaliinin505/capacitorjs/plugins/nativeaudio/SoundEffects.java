@@ -0,0 +1,470 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import com.getcapacitor.JSObject;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import org.json.JSONObject;
+
+/**
+ * Low-latency playback of short sound effects, separate from the player based audio sources.
+ *
+ * Clips are decoded once into PCM and played from memory through a small pool of pre-opened
+ * {@link SoundEffectVoice}s, so playing one doesn't involve extractors, codecs or buffering.
+ * Decoded clips are kept in an LRU cache with a byte budget. A clip that was evicted is decoded
+ * again the next time it plays. Every voice plays one clip at a time. When all voices are busy,
+ * or the effect already plays on as many voices as it may use, the voice that started first is
+ * cut off for the new clip.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class SoundEffects {
+
+    private static final String TAG = "SoundEffects";
+
+    public static final int DEFAULT_MAX_VOICES = 4;
+    public static final long DEFAULT_CACHE_MAX_BYTES = 8L * 1024 * 1024; // 8MB
+    public static final long MAX_EFFECT_DURATION_MS = 15000;
+
+    private static final int DEFAULT_SAMPLE_RATE = 48000;
+
+    private static volatile int maxVoices = DEFAULT_MAX_VOICES;
+    private static volatile long cacheMaxBytes = DEFAULT_CACHE_MAX_BYTES;
+
+    private static SoundEffects instance;
+
+    public interface Callback {
+        /**
+         * Called with null on success, on the decoder thread if anything had to be decoded.
+         */
+        void onComplete(@Nullable Exception error);
+    }
+
+    private final Context context;
+    private final int sampleRate;
+    private final SoundEffectVoice[] voices;
+
+    // Guarded by this
+    private final Map<String, Effect> effects = new HashMap<>();
+    // In order of last use
+    private final LinkedHashMap<String, short[]> decodedClips = new LinkedHashMap<>(
+        16,
+        0.75f,
+        true
+    );
+    private long decodedBytes = 0;
+    private int playCount = 0;
+    private int stolenVoiceCount = 0;
+    private int decodeCount = 0;
+
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(
+            () -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            },
+            "AudioPlayerEffectDecoder"
+        );
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private SoundEffects(Context context) {
+        this.context = context.getApplicationContext();
+        sampleRate = getOutputSampleRate(this.context);
+        voices = new SoundEffectVoice[maxVoices];
+
+        for (int i = 0; i < voices.length; i++) {
+            voices[i] = new SoundEffectVoice(i, sampleRate);
+        }
+
+        Log.i(TAG, "Opened " + voices.length + " voices at " + sampleRate + "Hz");
+    }
+
+    public static synchronized SoundEffects getInstance(Context context) {
+        if (instance == null) {
+            instance = new SoundEffects(context);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Releases the voices, the next call to getInstance opens them again.
+     */
+    public static synchronized void releaseInstance() {
+        if (instance != null) {
+            instance.release();
+            instance = null;
+        }
+    }
+
+    /**
+     * @param config The `soundEffects` object from the plugin config, null when not set
+     */
+    public static void configure(JSONObject config) {
+        if (config == null) {
+            return;
+        }
+
+        maxVoices = Math.max(1, config.optInt("maxVoices", DEFAULT_MAX_VOICES));
+        cacheMaxBytes = Math.max(0, config.optLong("cacheMaxBytes", DEFAULT_CACHE_MAX_BYTES));
+    }
+
+    /**
+     * Decodes the effect in the background. Loading an ID again replaces the effect.
+     *
+     * @param maxVoices How many voices the effect may play on at the same time
+     */
+    public void load(String effectId, String source, int maxVoices, Callback callback) {
+        Effect effect = new Effect(source, Math.max(1, maxVoices));
+
+        synchronized (this) {
+            stopEffect(effectId);
+            removeDecodedClip(effectId);
+            effects.put(effectId, effect);
+        }
+
+        runOnDecoder(callback, () -> {
+            try {
+                decodeBlocking(effectId);
+                callback.onComplete(null);
+            } catch (Exception ex) {
+                Log.w(TAG, "Could not load sound effect: " + effectId, ex);
+
+                synchronized (this) {
+                    if (effects.get(effectId) == effect) {
+                        effects.remove(effectId);
+                    }
+                }
+
+                callback.onComplete(ex);
+            }
+        });
+    }
+
+    /**
+     * Plays right away if the clip is decoded, otherwise once it has been decoded again.
+     */
+    public void play(String effectId, float volume, Callback callback) {
+        boolean isLoaded;
+        short[] pcm;
+
+        synchronized (this) {
+            isLoaded = effects.containsKey(effectId);
+            pcm = decodedClips.get(effectId);
+
+            if (pcm != null) {
+                startVoice(effectId, pcm, volume);
+            }
+        }
+
+        if (!isLoaded) {
+            callback.onComplete(
+                new IllegalArgumentException("Sound effect " + effectId + " is not loaded.")
+            );
+            return;
+        }
+
+        if (pcm != null) {
+            callback.onComplete(null);
+            return;
+        }
+
+        runOnDecoder(callback, () -> {
+            try {
+                short[] decoded = decodeBlocking(effectId);
+
+                synchronized (this) {
+                    startVoice(effectId, decoded, volume);
+                }
+
+                callback.onComplete(null);
+            } catch (Exception ex) {
+                Log.w(TAG, "Could not decode sound effect: " + effectId, ex);
+                callback.onComplete(ex);
+            }
+        });
+    }
+
+    public synchronized void unload(String effectId) {
+        stopEffect(effectId);
+        removeDecodedClip(effectId);
+        effects.remove(effectId);
+    }
+
+    /**
+     * @return null until the first effect is loaded
+     */
+    @Nullable
+    public static synchronized JSObject statsToJSObject() {
+        return instance != null ? instance.toJSObject() : null;
+    }
+
+    private synchronized JSObject toJSObject() {
+        int activeVoices = 0;
+
+        for (SoundEffectVoice voice : voices) {
+            if (voice.isActive()) {
+                activeVoices++;
+            }
+        }
+
+        return new JSObject()
+            .put("loaded", effects.size())
+            .put("decoded", decodedClips.size())
+            .put("decodedBytes", decodedBytes)
+            .put("voices", voices.length)
+            .put("activeVoices", activeVoices)
+            .put("playCount", playCount)
+            .put("stolenVoiceCount", stolenVoiceCount)
+            .put("decodeCount", decodeCount);
+    }
+
+    private void release() {
+        synchronized (this) {
+            effects.clear();
+            decodedClips.clear();
+            decodedBytes = 0;
+        }
+
+        for (SoundEffectVoice voice : voices) {
+            voice.release();
+        }
+
+        // The task being decoded fails once it finds its effect gone, the queued ones never run
+        for (Runnable task : decoder.shutdownNow()) {
+            ((DecoderTask) task).callback.onComplete(releasedError());
+        }
+    }
+
+    /**
+     * Queues the task on the decoder thread. The callback gets an error if the engine is
+     * released before the task runs.
+     */
+    private void runOnDecoder(Callback callback, Runnable task) {
+        try {
+            decoder.execute(new DecoderTask(callback, task));
+        } catch (RejectedExecutionException ex) {
+            callback.onComplete(releasedError());
+        }
+    }
+
+    private static Exception releasedError() {
+        return new IllegalStateException("Sound effects were released.");
+    }
+
+    /**
+     * Must be called on the decoder thread.
+     */
+    private short[] decodeBlocking(String effectId) throws IOException {
+        Effect effect;
+
+        synchronized (this) {
+            effect = effects.get(effectId);
+
+            if (effect == null) {
+                throw new IllegalStateException("Sound effect " + effectId + " was unloaded.");
+            }
+
+            short[] pcm = decodedClips.get(effectId);
+
+            if (pcm != null) {
+                return pcm;
+            }
+        }
+
+        short[] pcm = PcmDecoder.decode(
+            readSource(effect.source),
+            sampleRate,
+            MAX_EFFECT_DURATION_MS
+        );
+        long bytes = pcm.length * 2L;
+
+        if (bytes > cacheMaxBytes) {
+            throw new IOException(
+                String.format(
+                    "Sound effect %s needs %s bytes, more than the cache of %s bytes.",
+                    effectId,
+                    bytes,
+                    cacheMaxBytes
+                )
+            );
+        }
+
+        synchronized (this) {
+            Effect currentEffect = effects.get(effectId);
+
+            if (currentEffect == null) {
+                throw new IllegalStateException("Sound effect " + effectId + " was unloaded.");
+            }
+
+            // Replaced while decoding
+            if (currentEffect != effect) {
+                return pcm;
+            }
+
+            decodeCount++;
+            decodedClips.put(effectId, pcm);
+            decodedBytes += bytes;
+            evict(effectId);
+        }
+
+        return pcm;
+    }
+
+    private byte[] readSource(String source) throws IOException {
+        // Goes through the media cache and the downloads like the audio sources
+        DataSource dataSource = RobustHlsConfig.createCachedDataSourceFactory(context)
+            .createDataSource();
+
+        try {
+            dataSource.open(new DataSpec(ArtworkLoader.toUri(source)));
+
+            return DataSourceUtil.readToEnd(dataSource);
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Drops least recently played clips until the cache fits its budget, keeping the given one.
+     */
+    private void evict(String keepEffectId) {
+        Iterator<Map.Entry<String, short[]>> iterator = decodedClips.entrySet().iterator();
+
+        while (decodedBytes > cacheMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, short[]> entry = iterator.next();
+
+            if (entry.getKey().equals(keepEffectId)) {
+                continue;
+            }
+
+            decodedBytes -= entry.getValue().length * 2L;
+            iterator.remove();
+            Log.d(TAG, "Evicted decoded sound effect: " + entry.getKey());
+        }
+    }
+
+    private void removeDecodedClip(String effectId) {
+        short[] pcm = decodedClips.remove(effectId);
+
+        if (pcm != null) {
+            decodedBytes -= pcm.length * 2L;
+        }
+    }
+
+    private void startVoice(String effectId, short[] pcm, float volume) {
+        Effect effect = effects.get(effectId);
+        if (effect == null) {
+            return;
+        }
+
+        SoundEffectVoice voice = pickVoice(effectId, effect.maxVoices);
+
+        if (voice.isActive()) {
+            stolenVoiceCount++;
+        }
+
+        playCount++;
+        voice.play(effectId, pcm, Math.max(0, Math.min(1, volume)));
+    }
+
+    /**
+     * An idle voice if there is one and the effect may use another voice, otherwise the voice
+     * that has been playing the longest, of this effect if it is at its limit.
+     */
+    private SoundEffectVoice pickVoice(String effectId, int effectMaxVoices) {
+        int effectVoiceCount = 0;
+
+        for (SoundEffectVoice voice : voices) {
+            if (voice.isPlaying(effectId)) {
+                effectVoiceCount++;
+            }
+        }
+
+        boolean isEffectAtLimit = effectVoiceCount >= effectMaxVoices;
+        SoundEffectVoice oldest = null;
+
+        for (SoundEffectVoice voice : voices) {
+            if (isEffectAtLimit && !voice.isPlaying(effectId)) {
+                continue;
+            }
+
+            if (!isEffectAtLimit && !voice.isActive()) {
+                return voice;
+            }
+
+            if (oldest == null || voice.getStartedAtMs() < oldest.getStartedAtMs()) {
+                oldest = voice;
+            }
+        }
+
+        return oldest;
+    }
+
+    private void stopEffect(String effectId) {
+        for (SoundEffectVoice voice : voices) {
+            if (voice.isPlaying(effectId)) {
+                voice.stop();
+            }
+        }
+    }
+
+    private static int getOutputSampleRate(Context context) {
+        AudioManager audioManager = (AudioManager) context.getSystemService(
+            Context.AUDIO_SERVICE
+        );
+        String sampleRate = audioManager != null
+            ? audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE)
+            : null;
+
+        try {
+            return sampleRate != null ? Integer.parseInt(sampleRate) : DEFAULT_SAMPLE_RATE;
+        } catch (NumberFormatException ex) {
+            return DEFAULT_SAMPLE_RATE;
+        }
+    }
+
+    private static class DecoderTask implements Runnable {
+
+        final Callback callback;
+        final Runnable task;
+
+        DecoderTask(Callback callback, Runnable task) {
+            this.callback = callback;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private static class Effect {
+
+        final String source;
+        final int maxVoices;
+
+        Effect(String source, int maxVoices) {
+            this.source = source;
+            this.maxVoices = maxVoices;
+        }
+    }
+}
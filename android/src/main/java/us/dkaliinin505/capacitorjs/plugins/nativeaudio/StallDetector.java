@@ -0,0 +1,223 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import androidx.media3.common.Player;
+
+/**
+ * Turns a player's buffering into one event when a real stall starts and one when it ends.
+ *
+ * Buffering only counts as a stall once playback has started, and only after it has lasted
+ * longer than the debounce window, so short rebuffers and the buffering after seeks are never
+ * reported. A stall is only over once playback has kept up for the recovery window. Buffering
+ * again within that window continues the same stall instead of starting a new one.
+ *
+ * Must be used on a single thread, the one the scheduler runs its tasks on.
+ */
+public class StallDetector {
+
+    public static final long DEFAULT_DEBOUNCE_MS = 500;
+    public static final long DEFAULT_RECOVERY_MS = 1000;
+
+    public interface Listener {
+        void onStallStarted();
+
+        /**
+         * @param durationMs  From the start of the buffering until playback resumed
+         * @param isRecovered False when the stall ended because playback was paused, stopped or
+         *                    seeked rather than because the buffer caught up
+         */
+        void onStallEnded(long durationMs, boolean isRecovered);
+    }
+
+    interface Clock {
+        long nowMs();
+    }
+
+    interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    enum State {
+        // Playback isn't requested or hasn't started yet
+        IDLE,
+        PLAYING,
+        // Buffering during playback, not reported until the debounce window has passed
+        BUFFERING,
+        STALLED,
+        // Playing again after a stall, reported once the recovery window has passed
+        RECOVERING,
+    }
+
+    private final Listener listener;
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final long debounceMs;
+    private final long recoveryMs;
+    private final Runnable debounceTask = this::onDebounceElapsed;
+    private final Runnable recoveryTask = this::onRecoveryElapsed;
+
+    private State state = State.IDLE;
+    private boolean isSeeking = false;
+    private long bufferingStartedAtMs = 0;
+    private long recoveryStartedAtMs = 0;
+
+    public StallDetector(Handler handler, Listener listener) {
+        this(
+            listener,
+            SystemClock::elapsedRealtime,
+            new Scheduler() {
+                @Override
+                public void schedule(Runnable task, long delayMs) {
+                    handler.postDelayed(task, delayMs);
+                }
+
+                @Override
+                public void cancel(Runnable task) {
+                    handler.removeCallbacks(task);
+                }
+            },
+            DEFAULT_DEBOUNCE_MS,
+            DEFAULT_RECOVERY_MS
+        );
+    }
+
+    StallDetector(
+        Listener listener,
+        Clock clock,
+        Scheduler scheduler,
+        long debounceMs,
+        long recoveryMs
+    ) {
+        this.listener = listener;
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.debounceMs = debounceMs;
+        this.recoveryMs = recoveryMs;
+    }
+
+    /**
+     * Called whenever the player's playWhenReady or playback state changes.
+     */
+    public void update(boolean playWhenReady, @Player.State int playbackState) {
+        if (playWhenReady && playbackState == Player.STATE_READY) {
+            onReady();
+        } else if (playWhenReady && playbackState == Player.STATE_BUFFERING) {
+            onBuffering();
+        } else {
+            // Paused, stopped, ended or failed
+            endStall();
+            isSeeking = false;
+            state = State.IDLE;
+        }
+    }
+
+    /**
+     * Called when the user seeks. The buffering that follows isn't a stall, and a stall that was
+     * going on is over.
+     */
+    public void onSeek() {
+        isSeeking = true;
+
+        if (state != State.IDLE) {
+            endStall();
+            state = State.PLAYING;
+        }
+    }
+
+    /**
+     * Forgets the current state without reporting anything, e.g. when the player is released.
+     */
+    public void reset() {
+        scheduler.cancel(debounceTask);
+        scheduler.cancel(recoveryTask);
+        isSeeking = false;
+        state = State.IDLE;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    private void onReady() {
+        isSeeking = false;
+
+        switch (state) {
+            case IDLE:
+            case PLAYING:
+                state = State.PLAYING;
+                break;
+            case BUFFERING:
+                // Too short to count as a stall
+                scheduler.cancel(debounceTask);
+                state = State.PLAYING;
+                break;
+            case STALLED:
+                recoveryStartedAtMs = clock.nowMs();
+                scheduler.schedule(recoveryTask, recoveryMs);
+                state = State.RECOVERING;
+                break;
+            case RECOVERING:
+                break;
+        }
+    }
+
+    private void onBuffering() {
+        switch (state) {
+            case IDLE:
+                // Buffering before the first audio is startup, not a stall
+                break;
+            case PLAYING:
+                if (isSeeking) {
+                    break;
+                }
+
+                bufferingStartedAtMs = clock.nowMs();
+                scheduler.schedule(debounceTask, debounceMs);
+                state = State.BUFFERING;
+                break;
+            case BUFFERING:
+            case STALLED:
+                break;
+            case RECOVERING:
+                // Didn't keep up after all, so it is still the same stall
+                scheduler.cancel(recoveryTask);
+                state = State.STALLED;
+                break;
+        }
+    }
+
+    private void onDebounceElapsed() {
+        if (state != State.BUFFERING) {
+            return;
+        }
+
+        state = State.STALLED;
+        listener.onStallStarted();
+    }
+
+    private void onRecoveryElapsed() {
+        if (state != State.RECOVERING) {
+            return;
+        }
+
+        state = State.PLAYING;
+        listener.onStallEnded(recoveryStartedAtMs - bufferingStartedAtMs, true);
+    }
+
+    /**
+     * Ends a reported stall early, at the moment playback resumed if it already had.
+     */
+    private void endStall() {
+        scheduler.cancel(debounceTask);
+        scheduler.cancel(recoveryTask);
+
+        if (state == State.STALLED) {
+            listener.onStallEnded(clock.nowMs() - bufferingStartedAtMs, false);
+        } else if (state == State.RECOVERING) {
+            listener.onStallEnded(recoveryStartedAtMs - bufferingStartedAtMs, false);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import androidx.annotation.Nullable;
+import java.util.Locale;
+
+/**
+ * The kind of media source an audio URI points to.
+ */
+public enum StreamType {
+    HLS,
+    DASH,
+    PROGRESSIVE;
+
+    public static final String MIME_TYPE_HLS = "application/x-mpegURL";
+    public static final String MIME_TYPE_DASH = "application/dash+xml";
+
+    /**
+     * @param value `auto`, `hls`, `dash` or `progressive` as sent from JS.
+     * @return The forced stream type, or null to detect it from the URI.
+     */
+    public static StreamType fromValue(String value) {
+        if (value == null || value.equals("auto")) {
+            return null;
+        }
+
+        switch (value) {
+            case "hls":
+                return HLS;
+            case "dash":
+                return DASH;
+            case "progressive":
+                return PROGRESSIVE;
+            default:
+                throw new IllegalArgumentException("Unknown stream type: " + value);
+        }
+    }
+
+    public static StreamType fromMimeType(String mimeType) {
+        if (mimeType == null) {
+            return null;
+        }
+
+        String lowerMimeType = mimeType.toLowerCase(Locale.US);
+
+        if (
+            lowerMimeType.equals("application/x-mpegurl") ||
+            lowerMimeType.equals("application/vnd.apple.mpegurl") ||
+            lowerMimeType.equals("audio/mpegurl") ||
+            lowerMimeType.equals("audio/x-mpegurl")
+        ) {
+            return HLS;
+        }
+
+        if (lowerMimeType.equals(MIME_TYPE_DASH)) {
+            return DASH;
+        }
+
+        // Any other explicit MIME type is a single file
+        return PROGRESSIVE;
+    }
+
+    /**
+     * Detects the stream type from the URI's file extension, falling back to the format hints
+     * used by Azure/Akamai style manifest URLs. Anything unknown is played as a progressive file.
+     */
+    public static StreamType detect(String uri) {
+        if (uri == null) {
+            return PROGRESSIVE;
+        }
+
+        String lowerUri = uri.toLowerCase(Locale.US);
+        int endOfPath = lowerUri.length();
+
+        for (char delimiter : new char[] { '?', '#' }) {
+            int index = lowerUri.indexOf(delimiter);
+            if (index >= 0 && index < endOfPath) {
+                endOfPath = index;
+            }
+        }
+
+        String path = lowerUri.substring(0, endOfPath);
+
+        if (path.endsWith(".m3u8") || lowerUri.contains("format=m3u8-aapl")) {
+            return HLS;
+        }
+
+        if (path.endsWith(".mpd") || lowerUri.contains("format=mpd-time-csf")) {
+            return DASH;
+        }
+
+        return PROGRESSIVE;
+    }
+
+    /**
+     * @return null for progressive files, whose MIME type depends on the container
+     */
+    @Nullable
+    public String getMimeType() {
+        switch (this) {
+            case HLS:
+                return MIME_TYPE_HLS;
+            case DASH:
+                return MIME_TYPE_DASH;
+            default:
+                return null;
+        }
+    }
+}
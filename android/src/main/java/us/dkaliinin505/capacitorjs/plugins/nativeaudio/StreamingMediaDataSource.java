@@ -0,0 +1,91 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.media.MediaDataSource;
+import android.net.Uri;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import java.io.IOException;
+
+/**
+ * Lets MediaExtractor stream from a Media3 data source, so the bytes come from the media cache
+ * and the downloads. Sequential reads continue the open data source, other reads reopen it at
+ * the requested position.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class StreamingMediaDataSource extends MediaDataSource {
+
+    private final DataSource dataSource;
+    private final Uri uri;
+    private long length = C.LENGTH_UNSET;
+    private long position = C.INDEX_UNSET;
+
+    /**
+     * Reads through the same cached data sources as playback.
+     */
+    public StreamingMediaDataSource(Context context, Uri uri) throws IOException {
+        dataSource = RobustHlsConfig.createCachedDataSourceFactory(context).createDataSource();
+        this.uri = uri;
+
+        open(0);
+    }
+
+    @Override
+    public synchronized int readAt(long position, byte[] buffer, int offset, int size)
+        throws IOException {
+        if (size == 0) {
+            return 0;
+        }
+
+        if (length != C.LENGTH_UNSET && position >= length) {
+            return -1;
+        }
+
+        if (position != this.position) {
+            dataSource.close();
+            open(position);
+        }
+
+        int count = 0;
+
+        while (count < size) {
+            int read = dataSource.read(buffer, offset + count, size - count);
+
+            if (read == C.RESULT_END_OF_INPUT) {
+                break;
+            }
+
+            count += read;
+        }
+
+        this.position += count;
+
+        return count > 0 ? count : -1;
+    }
+
+    @Override
+    public long getSize() {
+        return length != C.LENGTH_UNSET ? length : -1;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        position = C.INDEX_UNSET;
+        dataSource.close();
+    }
+
+    private void open(long position) throws IOException {
+        long remaining = dataSource.open(
+            new DataSpec.Builder().setUri(uri).setPosition(position).build()
+        );
+
+        if (position == 0 && remaining != C.LENGTH_UNSET) {
+            length = remaining;
+        }
+
+        this.position = position;
+    }
+}
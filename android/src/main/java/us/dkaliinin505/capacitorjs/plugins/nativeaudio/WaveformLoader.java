@@ -0,0 +1,269 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Extracts waveform peaks for scrubber UIs off the main thread.
+ *
+ * The source is streamed through the same data sources as playback, so bytes the player already
+ * fetched come from the media cache and downloads, and decoded buffer by buffer into
+ * {@link WaveformPeaks}, so the whole file is never held in memory. Results are cached on disk
+ * keyed by the source's media cache key and the bucket count.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class WaveformLoader {
+
+    private static final String TAG = "WaveformLoader";
+    private static final String CACHE_DIRECTORY = "waveform-cache";
+
+    public static final int MAX_BUCKETS = 16384;
+
+    private static final long DISK_CACHE_BYTES = 4L * 1024 * 1024; // 4MB
+
+    public interface Callback {
+        /**
+         * Called on the loader thread with the waveform, or the error if it couldn't be loaded.
+         */
+        void onWaveformLoaded(@Nullable Waveform waveform, @Nullable Exception error);
+    }
+
+    public static class Waveform {
+
+        /**
+         * The min and max of every bucket as signed 8-bit values, interleaved.
+         */
+        public final byte[] peaks;
+        public final long durationMs;
+
+        Waveform(byte[] peaks, long durationMs) {
+            this.peaks = peaks;
+            this.durationMs = durationMs;
+        }
+
+        public int getBucketCount() {
+            return peaks.length / 2;
+        }
+    }
+
+    private static final Map<String, List<Callback>> pendingCallbacks = new HashMap<>();
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(
+            () -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            },
+            "AudioPlayerWaveform"
+        );
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * Loads the waveform in the background. Concurrent requests for one waveform share a single
+     * extraction.
+     */
+    public static void load(Context context, String source, int bucketCount, Callback callback) {
+        String key = MediaCache.buildCacheKey(Uri.parse(source)) + "@" + bucketCount;
+
+        synchronized (pendingCallbacks) {
+            List<Callback> callbacks = pendingCallbacks.get(key);
+
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            pendingCallbacks.put(key, callbacks);
+        }
+
+        Context appContext = context.getApplicationContext();
+
+        executor.execute(() -> {
+            Waveform waveform = null;
+            Exception error = null;
+
+            try {
+                waveform = loadBlocking(appContext, source, key, bucketCount);
+            } catch (Exception ex) {
+                Log.w(TAG, "Could not extract the waveform: " + source, ex);
+                error = ex;
+            }
+
+            List<Callback> callbacks;
+
+            synchronized (pendingCallbacks) {
+                callbacks = pendingCallbacks.remove(key);
+            }
+
+            for (Callback pendingCallback : callbacks) {
+                pendingCallback.onWaveformLoaded(waveform, error);
+            }
+        });
+    }
+
+    /**
+     * @param key The media cache key of the source and the bucket count, so sources that only
+     *            differ in ignored query parameters share a waveform like they share cached media
+     */
+    private static Waveform loadBlocking(
+        Context context,
+        String source,
+        String key,
+        int bucketCount
+    ) throws IOException {
+        File cacheFile = new File(getCacheDirectory(context), ArtworkLoader.hash(key));
+
+        if (cacheFile.exists()) {
+            Waveform cached = readFromDisk(cacheFile, bucketCount);
+
+            if (cached != null) {
+                cacheFile.setLastModified(System.currentTimeMillis());
+                return cached;
+            }
+        }
+
+        long startedAtMs = System.currentTimeMillis();
+        WaveformPeaks waveformPeaks = new WaveformPeaks();
+
+        try (
+            StreamingMediaDataSource dataSource = new StreamingMediaDataSource(
+                context,
+                Uri.parse(source)
+            )
+        ) {
+            PcmDecoder.decode(dataSource, waveformPeaks);
+        }
+
+        Waveform waveform = new Waveform(
+            waveformPeaks.toBuckets(bucketCount),
+            waveformPeaks.getDurationMs()
+        );
+
+        Log.d(
+            TAG,
+            String.format(
+                "Extracted %s buckets in %sms: %s",
+                bucketCount,
+                System.currentTimeMillis() - startedAtMs,
+                source
+            )
+        );
+
+        writeToDisk(context, cacheFile, waveform);
+
+        return waveform;
+    }
+
+    private static File getCacheDirectory(Context context) {
+        return new File(context.getCacheDir(), CACHE_DIRECTORY);
+    }
+
+    /**
+     * @return null if the file is unreadable, truncated or corrupt, after deleting it
+     */
+    @Nullable
+    private static Waveform readFromDisk(File cacheFile, int bucketCount) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(ArtworkLoader.readFile(cacheFile));
+            long durationMs = buffer.getLong();
+
+            if (buffer.remaining() != bucketCount * 2) {
+                throw new IOException(
+                    "Expected " + bucketCount * 2 + " bytes of peaks, found " + buffer.remaining()
+                );
+            }
+
+            byte[] peaks = new byte[buffer.remaining()];
+            buffer.get(peaks);
+
+            return new Waveform(peaks, durationMs);
+        } catch (IOException | RuntimeException ex) {
+            Log.w(TAG, "Could not read the cached waveform, extracting it again.", ex);
+            cacheFile.delete();
+
+            return null;
+        }
+    }
+
+    private static void writeToDisk(Context context, File cacheFile, Waveform waveform) {
+        File directory = getCacheDirectory(context);
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create the waveform cache directory.");
+            return;
+        }
+
+        File tempFile = new File(directory, cacheFile.getName() + ".tmp");
+
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            outputStream.write(
+                ByteBuffer.allocate(8 + waveform.peaks.length)
+                    .putLong(waveform.durationMs)
+                    .put(waveform.peaks)
+                    .array()
+            );
+        } catch (IOException ex) {
+            Log.w(TAG, "Could not write the waveform to the disk cache.", ex);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(cacheFile)) {
+            tempFile.delete();
+            return;
+        }
+
+        trimDiskCache(directory);
+    }
+
+    private static void trimDiskCache(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+
+        if (totalBytes <= DISK_CACHE_BYTES) {
+            return;
+        }
+
+        // Least recently used first, reads refresh the modification time
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        for (File file : files) {
+            if (totalBytes <= DISK_CACHE_BYTES) {
+                break;
+            }
+
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Reduces decoded audio to min/max peaks in a single pass, without knowing its duration upfront.
+ *
+ * Peaks are first collected per block of frames. Whenever the blocks are full, neighbouring
+ * blocks are merged and the block size doubles, so memory stays bounded for sources of any
+ * length. At the end the blocks are reduced to the requested number of buckets.
+ */
+public class WaveformPeaks implements PcmDecoder.SampleListener {
+
+    private static final int INITIAL_BLOCK_FRAMES = 16;
+    private static final int MAX_BLOCKS = 65536;
+
+    private final short[] blockMin = new short[MAX_BLOCKS];
+    private final short[] blockMax = new short[MAX_BLOCKS];
+    private int blockCount = 0;
+    private int blockFrames = INITIAL_BLOCK_FRAMES;
+    // Frames in the block that is being filled
+    private int currentFrames = 0;
+    private short currentMin = 0;
+    private short currentMax = 0;
+
+    private int sampleRate = 0;
+    private int channelCount = 1;
+    private double durationUs = 0;
+
+    @Override
+    public void onFormat(int sampleRate, int channelCount) {
+        this.sampleRate = sampleRate;
+        this.channelCount = Math.max(1, channelCount);
+    }
+
+    @Override
+    public void onSamples(ShortBuffer samples) {
+        int frameCount = samples.remaining() / channelCount;
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            // Peaks across all channels
+            for (int channel = 0; channel < channelCount; channel++) {
+                short sample = samples.get();
+
+                if (currentFrames == 0 && channel == 0) {
+                    currentMin = sample;
+                    currentMax = sample;
+                } else if (sample < currentMin) {
+                    currentMin = sample;
+                } else if (sample > currentMax) {
+                    currentMax = sample;
+                }
+            }
+
+            if (++currentFrames == blockFrames) {
+                endBlock();
+            }
+        }
+
+        if (sampleRate > 0) {
+            durationUs += frameCount * 1000000.0 / sampleRate;
+        }
+    }
+
+    public long getDurationMs() {
+        return Math.round(durationUs / 1000);
+    }
+
+    /**
+     * @return the min and max of every bucket as signed 8-bit values, interleaved
+     */
+    public byte[] toBuckets(int bucketCount) {
+        if (currentFrames > 0) {
+            endBlock();
+        }
+
+        byte[] peaks = new byte[bucketCount * 2];
+
+        if (blockCount == 0) {
+            return peaks;
+        }
+
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            int firstBlock = (int) ((long) bucket * blockCount / bucketCount);
+            // Short sources have fewer blocks than buckets, so buckets share a block
+            int endBlock = Math.max(
+                firstBlock + 1,
+                (int) ((long) (bucket + 1) * blockCount / bucketCount)
+            );
+            short min = blockMin[firstBlock];
+            short max = blockMax[firstBlock];
+
+            for (int block = firstBlock + 1; block < endBlock; block++) {
+                min = (short) Math.min(min, blockMin[block]);
+                max = (short) Math.max(max, blockMax[block]);
+            }
+
+            peaks[bucket * 2] = (byte) (min >> 8);
+            peaks[bucket * 2 + 1] = (byte) (max >> 8);
+        }
+
+        return peaks;
+    }
+
+    private void endBlock() {
+        blockMin[blockCount] = currentMin;
+        blockMax[blockCount] = currentMax;
+        blockCount++;
+        currentFrames = 0;
+
+        if (blockCount == MAX_BLOCKS) {
+            mergeBlocks();
+        }
+    }
+
+    /**
+     * Halves the resolution, so the blocks have room for the rest of the source.
+     */
+    private void mergeBlocks() {
+        for (int i = 0; i < blockCount / 2; i++) {
+            blockMin[i] = (short) Math.min(blockMin[i * 2], blockMin[i * 2 + 1]);
+            blockMax[i] = (short) Math.max(blockMax[i * 2], blockMax[i * 2 + 1]);
+        }
+
+        blockCount /= 2;
+        blockFrames *= 2;
+    }
+}
@@ -0,0 +1,246 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import us.dkaliinin505.capacitorjs.plugins.nativeaudio.exceptions.AudioSourceAlreadyExistsException;
+
+// The registry is a Binder and its sources release real players, so it runs on Robolectric
+@RunWith(RobolectricTestRunner.class)
+public class AudioSourcesTest {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int OPERATIONS_PER_THREAD = 5000;
+    private static final int SOURCE_ID_COUNT = 32;
+
+    @Test
+    public void tracksNotificationSource() throws Exception {
+        AudioSources audioSources = new AudioSources();
+        AudioSource notificationSource = source("notification", true, false);
+
+        assertFalse(audioSources.hasNotification());
+
+        audioSources.add(notificationSource);
+        audioSources.add(source("effect", false, false));
+
+        assertSame(notificationSource, audioSources.forNotification());
+
+        audioSources.remove("notification");
+
+        assertFalse(audioSources.hasNotification());
+        assertNull(audioSources.forNotification());
+    }
+
+    @Test(expected = AudioSourceAlreadyExistsException.class)
+    public void rejectsDuplicateIds() throws Exception {
+        AudioSources audioSources = new AudioSources();
+
+        audioSources.add(source("a", false, false));
+        audioSources.add(source("a", false, false));
+    }
+
+    @Test
+    public void indexesPlayingAndBackgroundMusicSources() throws Exception {
+        AudioSources audioSources = new AudioSources();
+        AudioSource music = source("music", false, true);
+        AudioSource effect = source("effect", false, false);
+
+        audioSources.add(music);
+        audioSources.add(effect);
+
+        assertEquals(setOf("music"), ids(audioSources.getBackgroundMusicSources()));
+        assertFalse(audioSources.isAnyPlaying());
+
+        effect.setIsPlaying();
+        assertEquals(setOf("effect"), ids(audioSources.getPlayingSources()));
+
+        effect.setIsPaused();
+        assertTrue(audioSources.getPlayingSources().isEmpty());
+
+        music.setIsPlaying();
+        audioSources.remove("music");
+
+        assertFalse(audioSources.isAnyPlaying());
+        assertTrue(audioSources.getBackgroundMusicSources().isEmpty());
+    }
+
+    @Test
+    public void ignoresPlayingChangesAfterRemoval() throws Exception {
+        AudioSources audioSources = new AudioSources();
+        AudioSource effect = source("effect", false, false);
+
+        audioSources.add(effect);
+        audioSources.remove("effect");
+        effect.setIsPlaying();
+
+        assertFalse(audioSources.isAnyPlaying());
+    }
+
+    @Test
+    public void snapshotsCanBeIteratedWhileSourcesChange() throws Exception {
+        AudioSources audioSources = new AudioSources();
+
+        for (int i = 0; i < 10; i++) {
+            audioSources.add(source("source-" + i, false, false));
+        }
+
+        for (AudioSource audioSource : audioSources.getAllSources()) {
+            audioSources.remove(audioSource.id);
+        }
+
+        assertTrue(audioSources.isEmpty());
+    }
+
+    @Test
+    public void staysConsistentUnderConcurrentAccess() throws Exception {
+        AudioSources audioSources = new AudioSources();
+        AudioSource notificationSource = source("notification", true, false);
+        audioSources.add(notificationSource);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        for (int thread = 0; thread < THREAD_COUNT; thread++) {
+            long seed = thread;
+
+            executor.execute(() -> {
+                Random random = new Random(seed);
+
+                try {
+                    start.await();
+
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        runRandomOperation(audioSources, notificationSource, random);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        if (!failures.isEmpty()) {
+            throw new AssertionError("Concurrent access failed", failures.peek());
+        }
+
+        assertSame(notificationSource, audioSources.forNotification());
+
+        Set<String> registeredIds = ids(audioSources.getAllSources());
+        assertEquals(audioSources.count(), registeredIds.size());
+
+        for (AudioSource audioSource : audioSources.getAllSources()) {
+            boolean isPlaying = !audioSource.isStopped() && !audioSource.isPaused();
+
+            assertEquals(
+                audioSource.id,
+                isPlaying,
+                ids(audioSources.getPlayingSources()).contains(audioSource.id)
+            );
+            assertEquals(
+                audioSource.id,
+                audioSource.isBackgroundMusic,
+                ids(audioSources.getBackgroundMusicSources()).contains(audioSource.id)
+            );
+        }
+
+        assertTrue(registeredIds.containsAll(ids(audioSources.getPlayingSources())));
+        assertTrue(registeredIds.containsAll(ids(audioSources.getBackgroundMusicSources())));
+    }
+
+    private static void runRandomOperation(
+        AudioSources audioSources,
+        AudioSource notificationSource,
+        Random random
+    ) {
+        String id = "source-" + random.nextInt(SOURCE_ID_COUNT);
+
+        switch (random.nextInt(7)) {
+            case 0:
+                try {
+                    audioSources.add(source(id, false, random.nextBoolean()));
+                } catch (AudioSourceAlreadyExistsException ex) {
+                    // Another thread created it first
+                }
+                break;
+            case 1:
+                audioSources.remove(id);
+                break;
+            case 2:
+                AudioSource audioSource = audioSources.get(id);
+                if (audioSource != null) {
+                    assertEquals(id, audioSource.id);
+                }
+                break;
+            case 3:
+                assertSame(notificationSource, audioSources.forNotification());
+                break;
+            case 4:
+                AudioSource playingSource = audioSources.get(id);
+                if (playingSource != null) {
+                    if (random.nextBoolean()) {
+                        playingSource.setIsPlaying();
+                    } else {
+                        playingSource.setIsPaused();
+                    }
+                }
+                break;
+            case 5:
+                for (AudioSource source : audioSources.getPlayingSources()) {
+                    assertNotNull(source.id);
+                }
+                break;
+            default:
+                for (AudioSource source : audioSources.getAllSources()) {
+                    assertNotNull(source.id);
+                }
+                break;
+        }
+    }
+
+    private static AudioSource source(String id, boolean useForNotification, boolean isMusic) {
+        return new AudioSource(
+            null,
+            id,
+            "https://example.com/" + id + ".mp3",
+            null,
+            useForNotification,
+            isMusic,
+            false
+        );
+    }
+
+    private static Set<String> ids(List<AudioSource> sources) {
+        Set<String> ids = new HashSet<>();
+
+        for (AudioSource source : sources) {
+            ids.add(source.id);
+        }
+
+        return ids;
+    }
+
+    private static Set<String> setOf(String... values) {
+        Set<String> set = new HashSet<>();
+
+        for (String value : values) {
+            set.add(value);
+        }
+
+        return set;
+    }
+}
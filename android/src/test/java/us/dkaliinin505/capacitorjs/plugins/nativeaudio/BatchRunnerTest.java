@@ -0,0 +1,158 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import com.getcapacitor.JSObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+// Batches run on the main looper and the real command thread
+@RunWith(RobolectricTestRunner.class)
+public class BatchRunnerTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private AudioSources audioSources;
+    private List<String> events;
+
+    @Before
+    public void setUp() throws Exception {
+        audioSources = new AudioSources();
+        audioSources.add(source("notification", true));
+        audioSources.add(source("music", false));
+        events = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    public void keepsCommandsForASourceInTheOrderTheyWerePosted() throws Exception {
+        CountDownLatch completed = new CountDownLatch(1);
+
+        run(
+            operations(op("play", "notification"), op("play", "music")),
+            operation -> {
+                events.add(operation.audioId + " " + operation.method);
+                return null;
+            },
+            result -> completed.countDown()
+        );
+
+        // Sent right after the batch, like a pause() call following batch([play])
+        PlaybackCommandExecutor.getInstance()
+            .execute(Looper.getMainLooper(), () -> events.add("notification pause"));
+        PlaybackCommandExecutor.getInstance()
+            .execute(commandLooper(), () -> events.add("music pause"));
+
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(completed.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        awaitCommandThread();
+
+        assertTrue(events.indexOf("notification play") < events.indexOf("notification pause"));
+        assertTrue(events.indexOf("music play") < events.indexOf("music pause"));
+    }
+
+    @Test
+    public void stopsAThreadAtItsFirstFailure() throws Exception {
+        AtomicReference<JSObject> result = new AtomicReference<>();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        run(
+            operations(
+                op("play", "music"),
+                op("pause", "music"),
+                op("stop", "music"),
+                op("play", "notification")
+            ),
+            operation -> {
+                if (operation.method.equals("pause")) {
+                    throw new IllegalStateException("Pause failed");
+                }
+
+                events.add(operation.audioId + " " + operation.method);
+                return null;
+            },
+            batchResult -> {
+                result.set(batchResult);
+                completed.countDown();
+            }
+        );
+
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(completed.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        JSONArray results = result.get().getJSONArray("results");
+
+        assertEquals(1, result.get().getInt("failedIndex"));
+        assertTrue(results.getJSONObject(0).getBoolean("success"));
+        assertFalse(results.getJSONObject(1).getBoolean("success"));
+        assertTrue(results.getJSONObject(2).getBoolean("skipped"));
+        // The notification source is on the other thread, so it still runs
+        assertTrue(results.getJSONObject(3).getBoolean("success"));
+        assertFalse(events.contains("music stop"));
+        assertTrue(events.contains("notification play"));
+    }
+
+    private void run(
+        List<BatchOperation> operations,
+        BatchRunner.OperationRunner operationRunner,
+        BatchRunner.Callback callback
+    ) {
+        BatchRunner.run(
+            operations,
+            audioId ->
+                audioSources.get(audioId).useForNotification
+                    ? Looper.getMainLooper()
+                    : commandLooper(),
+            operationRunner,
+            callback
+        );
+    }
+
+    private List<BatchOperation> operations(JSONObject... ops) {
+        List<BatchOperation> operations = new ArrayList<>();
+
+        for (int i = 0; i < ops.length; i++) {
+            operations.add(BatchOperation.fromJSON(i, ops[i], audioSources));
+        }
+
+        return operations;
+    }
+
+    private static JSONObject op(String method, String audioId) throws Exception {
+        return new JSONObject().put("method", method).put("audioId", audioId);
+    }
+
+    private static Looper commandLooper() {
+        return PlaybackCommandExecutor.getInstance().getLooper();
+    }
+
+    private static void awaitCommandThread() throws InterruptedException {
+        CountDownLatch drained = new CountDownLatch(1);
+
+        PlaybackCommandExecutor.getInstance().execute(commandLooper(), drained::countDown);
+        assertTrue(drained.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private static AudioSource source(String id, boolean useForNotification) {
+        return new AudioSource(
+            null,
+            id,
+            "https://example.com/" + id + ".mp3",
+            null,
+            useForNotification,
+            false,
+            false
+        );
+    }
+}
@@ -0,0 +1,122 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import androidx.media3.common.C;
+import org.junit.Test;
+
+public class LoopBufferTest {
+
+    // One frame per millisecond, so loop points in ms are frame indices
+    private static final int SAMPLE_RATE = 1000;
+
+    @Test
+    public void wrapsFromTheLoopEndToTheLoopStart() {
+        LoopBuffer loopBuffer = new LoopBuffer(mono(10), 4, 8);
+
+        assertArrayEquals(
+            new short[] { 6, 7, 4, 5, 6, 7, 4, 5 },
+            readFrames(loopBuffer, 6, 8)
+        );
+    }
+
+    @Test
+    public void playsTheIntroOnceBeforeLooping() {
+        LoopBuffer loopBuffer = new LoopBuffer(mono(10), 4, 8);
+
+        assertArrayEquals(
+            new short[] { 0, 1, 2, 3, 4, 5, 6, 7, 4, 5, 6, 7, 4 },
+            readFrames(loopBuffer, 0, 13)
+        );
+    }
+
+    @Test
+    public void readsFromLaterLoopIterations() {
+        LoopBuffer loopBuffer = new LoopBuffer(mono(10), 4, 8);
+
+        // 13 frames past the loop end is 1 frame into the loop
+        assertArrayEquals(new short[] { 5, 6, 7, 4 }, readFrames(loopBuffer, 21, 4));
+    }
+
+    @Test
+    public void splitsSamplesAcrossTheLoopEnd() {
+        LoopBuffer loopBuffer = new LoopBuffer(mono(10), 4, 8);
+        byte[] buffer = new byte[4];
+
+        // Starts on the high byte of frame 7
+        long position = LoopBuffer.HEADER_SIZE + 7 * 2 + 1;
+        assertEquals(4, loopBuffer.read(position, buffer, 0, buffer.length));
+
+        assertArrayEquals(new byte[] { 0, 4, 0, 5 }, buffer);
+    }
+
+    @Test
+    public void wrapsStereoFramesWhole() {
+        short[] samples = new short[12];
+
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) i;
+        }
+
+        LoopBuffer loopBuffer = new LoopBuffer(
+            new PcmDecoder.Decoded(samples, SAMPLE_RATE, 2),
+            2,
+            C.TIME_UNSET
+        );
+        byte[] buffer = new byte[4 * 2 * 2];
+        loopBuffer.read(LoopBuffer.HEADER_SIZE + 5 * 2 * 2, buffer, 0, buffer.length);
+
+        assertArrayEquals(new short[] { 10, 11, 4, 5, 6, 7, 8, 9 }, toShorts(buffer));
+    }
+
+    @Test
+    public void mapsStreamPositionsIntoTheLoop() {
+        LoopBuffer loopBuffer = new LoopBuffer(mono(10), 4, 8);
+
+        assertEquals(7, loopBuffer.toSourcePositionMs(7));
+        assertEquals(4, loopBuffer.toSourcePositionMs(8));
+        assertEquals(6, loopBuffer.toSourcePositionMs(14));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnEmptyLoop() {
+        new LoopBuffer(mono(10), 6, 6);
+    }
+
+    /**
+     * A mono clip whose samples are their frame index.
+     */
+    private static PcmDecoder.Decoded mono(int frameCount) {
+        short[] samples = new short[frameCount];
+
+        for (int i = 0; i < frameCount; i++) {
+            samples[i] = (short) i;
+        }
+
+        return new PcmDecoder.Decoded(samples, SAMPLE_RATE, 1);
+    }
+
+    private static short[] readFrames(LoopBuffer loopBuffer, long startFrame, int frameCount) {
+        byte[] buffer = new byte[frameCount * 2];
+        int count = loopBuffer.read(
+            LoopBuffer.HEADER_SIZE + startFrame * 2,
+            buffer,
+            0,
+            buffer.length
+        );
+
+        assertEquals(buffer.length, count);
+
+        return toShorts(buffer);
+    }
+
+    private static short[] toShorts(byte[] buffer) {
+        short[] samples = new short[buffer.length / 2];
+
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) ((buffer[2 * i] & 0xFF) | (buffer[2 * i + 1] << 8));
+        }
+
+        return samples;
+    }
+}
@@ -0,0 +1,79 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import java.nio.ShortBuffer;
+import org.junit.Test;
+
+public class LoudnessMeterTest {
+
+    private static final int SAMPLE_RATE = 48000;
+
+    @Test
+    public void measuresAFullScaleSineInOneChannelAsMinus3Lufs() {
+        LoudnessMeter loudnessMeter = new LoudnessMeter();
+        loudnessMeter.onFormat(SAMPLE_RATE, 1);
+        loudnessMeter.onSamples(sine(1.0, 10, 1));
+
+        assertEquals(-3.01, loudnessMeter.getLoudness().loudnessLufs, 0.05);
+    }
+
+    @Test
+    public void sumsTheChannels() {
+        LoudnessMeter loudnessMeter = new LoudnessMeter();
+        loudnessMeter.onFormat(SAMPLE_RATE, 2);
+        // -20 dBFS on both channels
+        loudnessMeter.onSamples(sine(0.1, 10, 2));
+
+        assertEquals(-20, loudnessMeter.getLoudness().loudnessLufs, 0.05);
+    }
+
+    @Test
+    public void gatesSilenceOut() {
+        LoudnessMeter loudnessMeter = new LoudnessMeter();
+        loudnessMeter.onFormat(SAMPLE_RATE, 1);
+        loudnessMeter.onSamples(ShortBuffer.wrap(new short[SAMPLE_RATE * 20]));
+        loudnessMeter.onSamples(sine(0.5, 10, 1));
+        loudnessMeter.onSamples(ShortBuffer.wrap(new short[SAMPLE_RATE * 20]));
+
+        // Without gating the silence would pull it down to about -16 LUFS, only the blocks
+        // around the edges of the tone count a little
+        assertEquals(-9.03, loudnessMeter.getLoudness().loudnessLufs, 0.2);
+    }
+
+    @Test
+    public void tracksTheSamplePeak() {
+        LoudnessMeter loudnessMeter = new LoudnessMeter();
+        loudnessMeter.onFormat(SAMPLE_RATE, 1);
+        loudnessMeter.onSamples(sine(0.5, 1, 1));
+
+        assertEquals(0.5, loudnessMeter.getLoudness().peak, 0.001);
+    }
+
+    @Test
+    public void returnsNullForSilence() {
+        LoudnessMeter loudnessMeter = new LoudnessMeter();
+        loudnessMeter.onFormat(SAMPLE_RATE, 2);
+        loudnessMeter.onSamples(ShortBuffer.wrap(new short[SAMPLE_RATE * 2 * 5]));
+
+        assertNull(loudnessMeter.getLoudness());
+    }
+
+    /**
+     * A 997 Hz sine, the frequency BS.1770 is calibrated with, on every channel.
+     */
+    private static ShortBuffer sine(double amplitude, int durationSeconds, int channelCount) {
+        int frameCount = SAMPLE_RATE * durationSeconds;
+        short[] samples = new short[frameCount * channelCount];
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            double value = amplitude * Math.sin((2 * Math.PI * 997 * frame) / SAMPLE_RATE);
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                samples[frame * channelCount + channel] = (short) Math.round(value * 32767);
+            }
+        }
+
+        return ShortBuffer.wrap(samples);
+    }
+}
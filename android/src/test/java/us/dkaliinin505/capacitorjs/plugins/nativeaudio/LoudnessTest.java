@@ -0,0 +1,58 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class LoudnessTest {
+
+    @Test
+    public void readsReplayGainTags() {
+        Map<String, String> tags = new HashMap<>();
+        tags.put("REPLAYGAIN_TRACK_GAIN", "-6.50 dB");
+        tags.put("REPLAYGAIN_TRACK_PEAK", "0.988");
+
+        Loudness loudness = Loudness.fromTags(tags);
+
+        assertEquals(-11.5, loudness.loudnessLufs, 0.001);
+        assertEquals(0.988, loudness.peak, 0.001);
+    }
+
+    @Test
+    public void readsR128Tags() {
+        Map<String, String> tags = new HashMap<>();
+        tags.put("R128_TRACK_GAIN", "-1536");
+
+        assertEquals(-17, Loudness.fromTags(tags).loudnessLufs, 0.001);
+    }
+
+    @Test
+    public void ignoresMissingOrBrokenTags() {
+        Map<String, String> tags = new HashMap<>();
+        assertNull(Loudness.fromTags(tags));
+
+        tags.put("REPLAYGAIN_TRACK_GAIN", "loud");
+        assertNull(Loudness.fromTags(tags));
+    }
+
+    @Test
+    public void limitsTheGain() {
+        // 10 dB too quiet, boosted by at most 6 dB
+        assertEquals(1.995, new Loudness(-24, 0).getGain(-14, 6), 0.001);
+        // 6 dB too loud
+        assertEquals(0.501, new Loudness(-8, 0).getGain(-14, 6), 0.001);
+        // The peak only leaves room for 3 dB
+        assertEquals(1.413, new Loudness(-24, 0.708).getGain(-14, 6), 0.001);
+    }
+
+    @Test
+    public void survivesARoundTripThroughItsStringForm() {
+        Loudness loudness = Loudness.parse(new Loudness(-13.25, 0.5).toString());
+
+        assertEquals(-13.25, loudness.loudnessLufs, 0.001);
+        assertEquals(0.5, loudness.peak, 0.001);
+        assertNull(Loudness.parse("garbage"));
+    }
+}
@@ -0,0 +1,148 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+public class MixerTrackTest {
+
+    @Test
+    public void fadesInOverTheFirstMixedBuffer() {
+        MixerTrack track = new MixerTrack("track");
+        track.configure(48000, 1);
+        track.setPlaying(true);
+        track.write(pcm(1000, 1000, 1000, 1000));
+
+        assertArrayEquals(new int[] { 0, 250, 500, 750 }, mix(track, 4, 1, 48000));
+    }
+
+    @Test
+    public void rampsGainChangesOverOneBuffer() {
+        MixerTrack track = startedTrack(48000, 1);
+        track.write(pcm(1000, 1000, 1000, 1000, 1000, 1000));
+
+        track.setGain(0.5f);
+        assertArrayEquals(new int[] { 1000, 875, 750, 625 }, mix(track, 4, 1, 48000));
+        assertArrayEquals(new int[] { 500, 500 }, mix(track, 2, 1, 48000));
+    }
+
+    @Test
+    public void appliesNormalizationGainOnTopOfVolume() {
+        MixerTrack track = startedTrack(48000, 1);
+        track.setGain(0.5f);
+        track.setNormalizationGain(2f);
+        mix(track, 1, 1, 48000);
+        track.write(pcm(1000, 2000));
+
+        assertArrayEquals(new int[] { 1000, 2000 }, mix(track, 2, 1, 48000));
+    }
+
+    @Test
+    public void addsToTheExistingMix() {
+        MixerTrack track = startedTrack(48000, 1);
+        track.write(pcm(1000, -1000));
+
+        int[] mix = { 500, 500 };
+        track.mixInto(mix, 2, 1, 48000);
+
+        assertArrayEquals(new int[] { 1500, -500 }, mix);
+    }
+
+    @Test
+    public void duplicatesMonoToStereo() {
+        MixerTrack track = startedTrack(48000, 1);
+        track.write(pcm(1000, 2000, 3000));
+
+        assertArrayEquals(
+            new int[] { 1000, 1000, 2000, 2000, 3000, 3000 },
+            mix(track, 3, 2, 48000)
+        );
+    }
+
+    @Test
+    public void averagesStereoToMono() {
+        MixerTrack track = startedTrack(48000, 2);
+        track.write(pcm(1000, 3000, -2000, 0));
+
+        assertArrayEquals(new int[] { 2000, -1000 }, mix(track, 2, 1, 48000));
+    }
+
+    @Test
+    public void interpolatesWhenUpsampling() {
+        MixerTrack track = startedTrack(24000, 1);
+        track.write(pcm(0, 1000, 2000, 3000));
+
+        assertArrayEquals(new int[] { 0, 500, 1000, 1500 }, mix(track, 4, 1, 48000));
+        assertEquals(2, track.getBufferedFrames());
+        assertEquals(2 * 1000000L / 24000, track.getConsumedDurationUs());
+    }
+
+    @Test
+    public void skipsFramesWhenDownsampling() {
+        MixerTrack track = startedTrack(96000, 1);
+        track.write(pcm(0, 100, 200, 300, 400, 500));
+
+        assertArrayEquals(new int[] { 0, 200, 400 }, mix(track, 3, 1, 48000));
+        assertEquals(0, track.getBufferedFrames());
+    }
+
+    @Test
+    public void leavesTheRestOfTheMixWhenRunningOut() {
+        MixerTrack track = startedTrack(48000, 1);
+        track.write(pcm(1000));
+
+        assertArrayEquals(new int[] { 1000, 0, 0 }, mix(track, 3, 1, 48000));
+    }
+
+    @Test
+    public void flushDropsBufferedAudioAndResetsTheClock() {
+        MixerTrack track = startedTrack(48000, 1);
+        track.write(pcm(1000, 1000, 1000));
+        mix(track, 2, 1, 48000);
+
+        track.flush();
+
+        assertEquals(0, track.getBufferedFrames());
+        assertEquals(0, track.getConsumedDurationUs());
+    }
+
+    /**
+     * A playing track whose fade in is already over, so mixed samples keep their values.
+     */
+    private static MixerTrack startedTrack(int sampleRate, int channelCount) {
+        MixerTrack track = new MixerTrack("track");
+        track.configure(sampleRate, channelCount);
+        track.setPlaying(true);
+
+        // Nothing is buffered yet, so this only completes the fade in
+        mix(track, 1, 1, 48000);
+
+        return track;
+    }
+
+    private static int[] mix(
+        MixerTrack track,
+        int frameCount,
+        int outputChannelCount,
+        int outputSampleRate
+    ) {
+        int[] mix = new int[frameCount * outputChannelCount];
+        track.mixInto(mix, frameCount, outputChannelCount, outputSampleRate);
+
+        return mix;
+    }
+
+    private static ByteBuffer pcm(int... samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.nativeOrder());
+
+        for (int sample : samples) {
+            buffer.putShort((short) sample);
+        }
+
+        buffer.flip();
+
+        return buffer;
+    }
+}
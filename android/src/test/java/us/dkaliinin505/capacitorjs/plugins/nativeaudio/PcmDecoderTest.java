@@ -0,0 +1,81 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PcmDecoderTest {
+
+    @Test
+    public void keepsStereoAtTheSameSampleRate() {
+        short[] input = { 1, 2, 3, 4, 5, 6 };
+
+        assertArrayEquals(input, PcmDecoder.convert(input, 48000, 2, 48000));
+    }
+
+    @Test
+    public void duplicatesMonoToBothChannels() {
+        short[] output = PcmDecoder.convert(new short[] { 100, -200 }, 48000, 1, 48000);
+
+        assertArrayEquals(new short[] { 100, 100, -200, -200 }, output);
+    }
+
+    @Test
+    public void keepsTheFrontChannelsOfSurroundAudio() {
+        short[] input = { 1, 2, 3, 4, 5, 6, 11, 12, 13, 14, 15, 16 };
+
+        assertArrayEquals(
+            new short[] { 1, 2, 11, 12 },
+            PcmDecoder.convert(input, 48000, 6, 48000)
+        );
+    }
+
+    @Test
+    public void interpolatesWhenUpsampling() {
+        short[] output = PcmDecoder.convert(new short[] { 0, 1000 }, 24000, 1, 48000);
+
+        // The last input frame is held, there is nothing after it to interpolate towards
+        assertArrayEquals(new short[] { 0, 0, 500, 500, 1000, 1000, 1000, 1000 }, output);
+    }
+
+    @Test
+    public void skipsFramesWhenDownsampling() {
+        short[] input = { 0, 10, 100, 110, 200, 210, 300, 310 };
+
+        assertArrayEquals(
+            new short[] { 0, 10, 200, 210 },
+            PcmDecoder.convert(input, 48000, 2, 24000)
+        );
+    }
+
+    @Test
+    public void keepsTheDurationWhenResampling() {
+        short[] output = PcmDecoder.convert(new short[44100], 44100, 1, 48000);
+
+        assertEquals(48000 * PcmDecoder.OUTPUT_CHANNEL_COUNT, output.length);
+    }
+
+    @Test
+    public void convertsEmptyInput() {
+        assertEquals(0, PcmDecoder.convert(new short[0], 44100, 1, 48000).length);
+    }
+
+    @Test
+    public void trimsEncoderDelayAndPaddingFrames() {
+        short[] input = { 1, 1, 2, 2, 3, 3, 4, 4, 5, 5 };
+
+        assertArrayEquals(new short[] { 3, 3, 4, 4 }, PcmDecoder.trim(input, 2, 2, 1));
+    }
+
+    @Test
+    public void trimsNothingWithoutGaplessMetadata() {
+        short[] input = { 1, 2, 3 };
+
+        assertSame(input, PcmDecoder.trim(input, 1, 0, 0));
+    }
+
+    @Test
+    public void trimsClipsShorterThanTheDelayToNothing() {
+        assertEquals(0, PcmDecoder.trim(new short[] { 1, 2, 3 }, 1, 2, 2).length);
+    }
+}
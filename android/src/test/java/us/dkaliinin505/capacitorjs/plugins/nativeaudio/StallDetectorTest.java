@@ -0,0 +1,251 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import androidx.media3.common.Player;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StallDetectorTest {
+
+    private static final long DEBOUNCE_MS = 500;
+    private static final long RECOVERY_MS = 1000;
+
+    private FakeScheduler scheduler;
+    private List<String> events;
+    private StallDetector stallDetector;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        events = new ArrayList<>();
+        stallDetector = new StallDetector(
+            new StallDetector.Listener() {
+                @Override
+                public void onStallStarted() {
+                    events.add("started");
+                }
+
+                @Override
+                public void onStallEnded(long durationMs, boolean isRecovered) {
+                    events.add((isRecovered ? "recovered " : "resolved ") + durationMs);
+                }
+            },
+            scheduler,
+            scheduler,
+            DEBOUNCE_MS,
+            RECOVERY_MS
+        );
+    }
+
+    @Test
+    public void ignoresBufferingBeforePlaybackStarts() {
+        buffering();
+        scheduler.advance(5000);
+        ready();
+
+        assertEquals(StallDetector.State.PLAYING, stallDetector.getState());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void ignoresRebuffersShorterThanTheDebounceWindow() {
+        startPlaying();
+
+        for (int i = 0; i < 10; i++) {
+            buffering();
+            scheduler.advance(DEBOUNCE_MS - 1);
+            ready();
+            scheduler.advance(10000);
+        }
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void reportsOneStallWithItsDuration() {
+        startPlaying();
+
+        buffering();
+        scheduler.advance(DEBOUNCE_MS);
+        assertEquals(List.of("started"), events);
+
+        scheduler.advance(1500);
+        ready();
+        scheduler.advance(RECOVERY_MS - 1);
+        assertEquals(StallDetector.State.RECOVERING, stallDetector.getState());
+
+        scheduler.advance(1);
+        assertEquals(List.of("started", "recovered 2000"), events);
+        assertEquals(StallDetector.State.PLAYING, stallDetector.getState());
+    }
+
+    @Test
+    public void bufferingAgainDuringRecoveryContinuesTheSameStall() {
+        startPlaying();
+
+        buffering();
+        scheduler.advance(1000);
+        ready();
+        scheduler.advance(RECOVERY_MS / 2);
+        buffering();
+        scheduler.advance(1000);
+        ready();
+        scheduler.advance(RECOVERY_MS);
+
+        assertEquals(List.of("started", "recovered 2500"), events);
+    }
+
+    @Test
+    public void ignoresBufferingAfterSeeks() {
+        startPlaying();
+
+        stallDetector.onSeek();
+        buffering();
+        scheduler.advance(5000);
+        ready();
+
+        buffering();
+        scheduler.advance(DEBOUNCE_MS);
+
+        assertEquals(List.of("started"), events);
+    }
+
+    @Test
+    public void pausingEndsAStallEarly() {
+        startPlaying();
+
+        buffering();
+        scheduler.advance(3000);
+        stallDetector.update(false, Player.STATE_BUFFERING);
+        scheduler.advance(10000);
+
+        assertEquals(List.of("started", "resolved 3000"), events);
+        assertEquals(StallDetector.State.IDLE, stallDetector.getState());
+    }
+
+    @Test
+    public void pausingDuringRecoveryEndsTheStallWhenPlaybackResumed() {
+        startPlaying();
+
+        buffering();
+        scheduler.advance(1000);
+        ready();
+        scheduler.advance(RECOVERY_MS / 2);
+        stallDetector.update(false, Player.STATE_READY);
+
+        assertEquals(List.of("started", "resolved 1000"), events);
+    }
+
+    @Test
+    public void resetDropsPendingTimersSilently() {
+        startPlaying();
+
+        buffering();
+        stallDetector.reset();
+        scheduler.advance(10000);
+
+        assertTrue(events.isEmpty());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    public void endedPlaybackIsNotAStall() {
+        startPlaying();
+
+        stallDetector.update(true, Player.STATE_ENDED);
+        stallDetector.update(true, Player.STATE_IDLE);
+        buffering();
+        scheduler.advance(5000);
+
+        assertTrue(events.isEmpty());
+    }
+
+    private void startPlaying() {
+        ready();
+        scheduler.advance(10000);
+    }
+
+    private void ready() {
+        stallDetector.update(true, Player.STATE_READY);
+    }
+
+    private void buffering() {
+        stallDetector.update(true, Player.STATE_BUFFERING);
+    }
+
+    /**
+     * Runs scheduled tasks in order as time is advanced by hand.
+     */
+    private static class FakeScheduler implements StallDetector.Clock, StallDetector.Scheduler {
+
+        private final List<ScheduledTask> tasks = new ArrayList<>();
+        private long nowMs = 0;
+
+        @Override
+        public long nowMs() {
+            return nowMs;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            tasks.add(new ScheduledTask(task, nowMs + delayMs));
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            Iterator<ScheduledTask> iterator = tasks.iterator();
+
+            while (iterator.hasNext()) {
+                if (iterator.next().task == task) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        void advance(long durationMs) {
+            long targetMs = nowMs + durationMs;
+
+            while (true) {
+                ScheduledTask next = null;
+
+                for (ScheduledTask scheduledTask : tasks) {
+                    if (
+                        scheduledTask.dueAtMs <= targetMs &&
+                        (next == null || scheduledTask.dueAtMs < next.dueAtMs)
+                    ) {
+                        next = scheduledTask;
+                    }
+                }
+
+                if (next == null) {
+                    break;
+                }
+
+                tasks.remove(next);
+                nowMs = next.dueAtMs;
+                next.task.run();
+            }
+
+            nowMs = targetMs;
+        }
+
+        int pendingCount() {
+            return tasks.size();
+        }
+    }
+
+    private static class ScheduledTask {
+
+        final Runnable task;
+        final long dueAtMs;
+
+        ScheduledTask(Runnable task, long dueAtMs) {
+            this.task = task;
+            this.dueAtMs = dueAtMs;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StreamTypeTest {
+
+    @Test
+    public void detectsHlsFromExtension() {
+        assertEquals(StreamType.HLS, StreamType.detect("https://example.com/live/master.m3u8"));
+        assertEquals(
+            StreamType.HLS,
+            StreamType.detect("https://example.com/live/MASTER.M3U8?Expires=1&Signature=abc")
+        );
+    }
+
+    @Test
+    public void detectsHlsFromFormatHint() {
+        assertEquals(
+            StreamType.HLS,
+            StreamType.detect("https://example.com/show.ism/manifest(format=m3u8-aapl)")
+        );
+    }
+
+    @Test
+    public void detectsDash() {
+        assertEquals(StreamType.DASH, StreamType.detect("https://example.com/audio/stream.mpd"));
+        assertEquals(
+            StreamType.DASH,
+            StreamType.detect("https://example.com/show.ism/manifest(format=mpd-time-csf)")
+        );
+    }
+
+    @Test
+    public void fallsBackToProgressive() {
+        assertEquals(StreamType.PROGRESSIVE, StreamType.detect("https://example.com/episode.mp3"));
+        assertEquals(StreamType.PROGRESSIVE, StreamType.detect("audio/bed.m4a"));
+        assertEquals(StreamType.PROGRESSIVE, StreamType.detect(null));
+    }
+
+    @Test
+    public void ignoresExtensionsInTheQueryString() {
+        assertEquals(
+            StreamType.PROGRESSIVE,
+            StreamType.detect("https://example.com/episode.mp3?next=playlist.m3u8")
+        );
+    }
+
+    @Test
+    public void forcedMimeTypeWinsOverUri() {
+        assertEquals(StreamType.HLS, StreamType.fromMimeType(StreamType.MIME_TYPE_HLS));
+        assertEquals(StreamType.DASH, StreamType.fromMimeType(StreamType.MIME_TYPE_DASH));
+        assertEquals(StreamType.PROGRESSIVE, StreamType.fromMimeType("audio/mpeg"));
+        assertNull(StreamType.fromMimeType(null));
+    }
+
+    @Test
+    public void leavesTheMimeTypeOfProgressiveFilesUnset() {
+        assertEquals(StreamType.MIME_TYPE_HLS, StreamType.HLS.getMimeType());
+        assertEquals(StreamType.MIME_TYPE_DASH, StreamType.DASH.getMimeType());
+        assertNull(StreamType.PROGRESSIVE.getMimeType());
+    }
+
+    @Test
+    public void parsesValuesFromJs() {
+        assertNull(StreamType.fromValue(null));
+        assertNull(StreamType.fromValue("auto"));
+        assertEquals(StreamType.HLS, StreamType.fromValue("hls"));
+        assertEquals(StreamType.DASH, StreamType.fromValue("dash"));
+        assertEquals(StreamType.PROGRESSIVE, StreamType.fromValue("progressive"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownValues() {
+        StreamType.fromValue("rtsp");
+    }
+}
@@ -0,0 +1,94 @@
+package us.dkaliinin505.capacitorjs.plugins.nativeaudio;
+
+import static org.junit.Assert.*;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class WaveformPeaksTest {
+
+    @Test
+    public void reducesFramesToMinAndMaxPerBucket() {
+        WaveformPeaks waveformPeaks = new WaveformPeaks();
+        waveformPeaks.onFormat(1000, 1);
+
+        // A quiet half followed by a loud half
+        short[] samples = new short[1024];
+        for (int i = 0; i < samples.length; i++) {
+            int amplitude = i < 512 ? 256 : 32767;
+            samples[i] = (short) (i % 2 == 0 ? amplitude : -amplitude);
+        }
+        waveformPeaks.onSamples(ShortBuffer.wrap(samples));
+
+        byte[] peaks = waveformPeaks.toBuckets(2);
+
+        assertArrayEquals(new byte[] { -1, 1, -128, 127 }, peaks);
+    }
+
+    @Test
+    public void takesPeaksAcrossChannels() {
+        WaveformPeaks waveformPeaks = new WaveformPeaks();
+        waveformPeaks.onFormat(1000, 2);
+
+        // Left is silent, right is loud
+        short[] samples = new short[64];
+        for (int frame = 0; frame < samples.length / 2; frame++) {
+            samples[frame * 2 + 1] = (short) (frame % 2 == 0 ? 16384 : -16384);
+        }
+        waveformPeaks.onSamples(ShortBuffer.wrap(samples));
+
+        assertArrayEquals(new byte[] { -64, 64 }, waveformPeaks.toBuckets(1));
+    }
+
+    @Test
+    public void keepsPeaksOfLongSourcesWhileMergingBlocks() {
+        WaveformPeaks waveformPeaks = new WaveformPeaks();
+        waveformPeaks.onFormat(48000, 1);
+
+        // About 10 minutes of silence with a single click in the last quarter
+        int frameCount = 4096 * 7000;
+        int clickFrame = frameCount / 4 * 3 + 100;
+        short[] buffer = new short[4096];
+
+        for (int offset = 0; offset < frameCount; offset += buffer.length) {
+            Arrays.fill(buffer, (short) 0);
+
+            if (clickFrame >= offset && clickFrame < offset + buffer.length) {
+                buffer[clickFrame - offset] = Short.MAX_VALUE;
+            }
+
+            waveformPeaks.onSamples(ShortBuffer.wrap(buffer));
+        }
+
+        byte[] peaks = waveformPeaks.toBuckets(4);
+
+        assertArrayEquals(new byte[] { 0, 0, 0, 0, 0, 0, 0, 127 }, peaks);
+        assertEquals(597333, waveformPeaks.getDurationMs());
+    }
+
+    @Test
+    public void spreadsShortSourcesOverAllBuckets() {
+        WaveformPeaks waveformPeaks = new WaveformPeaks();
+        waveformPeaks.onFormat(1000, 1);
+
+        short[] samples = new short[16];
+        Arrays.fill(samples, (short) 8192);
+        waveformPeaks.onSamples(ShortBuffer.wrap(samples));
+
+        byte[] peaks = waveformPeaks.toBuckets(100);
+
+        assertEquals(200, peaks.length);
+        for (int i = 0; i < peaks.length; i++) {
+            assertEquals(32, peaks[i]);
+        }
+    }
+
+    @Test
+    public void returnsSilenceWithoutAudio() {
+        WaveformPeaks waveformPeaks = new WaveformPeaks();
+
+        assertArrayEquals(new byte[6], waveformPeaks.toBuckets(3));
+        assertEquals(0, waveformPeaks.getDurationMs());
+    }
+}
@@ -52,55 +52,789 @@ export interface AudioPlayerPrepareParams extends AudioPlayerDefaultParams {
      *
      * A PNG is the best option with square dimensions. 1200 x 1200px is a good option.
      *
+     * On Android, `file://` and `content://` URIs work too. The image is loaded in the background,
+     * scaled down to notification size and cached, and shows up on the notification once ready.
+     *
      * @example A public web source: https://example.com/artwork.png
      * @example An in-app source: images/artwork.png
      * @since 1.0.0
      */
-    artworkSource?: string;
+    artworkSource?: string;
+    /**
+     * Is this audio for background music/audio.
+     *
+     * Should not be `true` when `useForNotification = true`.
+     *
+     * @default false
+     * @since 1.0.0
+     */
+    isBackgroundMusic?: boolean;
+    /**
+     * Whether or not to loop other audio like background music
+     * while the primary audio (`useForNotification = true`) is playing.
+     *
+     * @default false
+     * @since 1.0.0
+     */
+    loop?: boolean;
+    /**
+     * Loop from a decoded copy of the audio in memory instead of restarting it at every loop,
+     * so background beds loop without a gap, e.g. the encoder padding of MP3s, and without
+     * decoding while they play.
+     *
+     * The source is decoded in the background after `initialize`, and repeats as usual until
+     * it is ready. Sources longer than the configured maximum always loop as usual.
+     *
+     * Only has affect when `loop = true` and `useForNotification = false`.
+     * Only available on Android.
+     *
+     * @default false
+     * @since 1.1.0
+     */
+    seamlessLoop?: boolean;
+    /**
+     * Where the loop starts in seconds when `seamlessLoop = true`. The audio before it plays
+     * once, as an intro.
+     *
+     * Only available on Android.
+     *
+     * @default 0
+     * @since 1.1.0
+     */
+    loopStart?: number;
+    /**
+     * Where the loop ends in seconds when `seamlessLoop = true`. The audio after it is never
+     * played. Defaults to the end of the source.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    loopEnd?: number;
+    /**
+     * Whether or not to show the seek backward button on the OS's notification.
+     * Only has affect when `useForNotification = true`.
+     *
+     * @default true
+     * @since 1.2.0
+     */
+    showSeekBackward?: boolean;
+    /**
+     * Whether or not to show the seek forward button on the OS's notification.
+     * Only has affect when `useForNotification = true`.
+     *
+     * @default true
+     * @since 1.2.0
+     */
+    showSeekForward?: boolean;
+    /**
+     * How much audio to buffer ahead before and during playback.
+     *
+     * - `lowLatency`: tiny buffers so short clips and sound effects start instantly
+     * - `balanced`: moderate buffers for regular tracks
+     * - `longForm`: deep buffers for long streams on unreliable networks
+     * - `local`: minimal buffers for files on the device
+     *
+     * Or an object with custom durations in milliseconds and a byte cap.
+     *
+     * Defaults to `local` for on-device sources and `longForm` for web sources.
+     * Only available on Android. For the notification source the back buffer stays at the
+     * `longForm` value, as its player is created before the source.
+     *
+     * @since 1.1.0
+     */
+    bufferProfile?: 'lowLatency' | 'balanced' | 'longForm' | 'local' | AudioPlayerBufferProfile;
+    /**
+     * The kind of stream `audioSource` points to.
+     *
+     * `auto` detects it from the URI: `.m3u8` is HLS, `.mpd` is DASH and anything else is played
+     * as a single file. Set it when the URI doesn't end with the usual extension.
+     *
+     * Only available on Android.
+     *
+     * @default 'auto'
+     * @since 1.1.0
+     */
+    streamType?: 'auto' | 'hls' | 'dash' | 'progressive';
+}
+export interface AudioPlayerBufferProfile {
+    /**
+     * Keep loading until at least this much audio is buffered.
+     *
+     * @since 1.1.0
+     */
+    minBufferMs?: number;
+    /**
+     * Never buffer more than this much audio ahead.
+     *
+     * @since 1.1.0
+     */
+    maxBufferMs?: number;
+    /**
+     * Audio that must be buffered before playback starts.
+     *
+     * @since 1.1.0
+     */
+    bufferForPlaybackMs?: number;
+    /**
+     * Audio that must be buffered before playback resumes after running out of buffer.
+     *
+     * @since 1.1.0
+     */
+    bufferForPlaybackAfterRebufferMs?: number;
+    /**
+     * Audio kept behind the playback position for fast seeking backward.
+     *
+     * @since 1.1.0
+     */
+    backBufferMs?: number;
+    /**
+     * Once `minBufferMs` is buffered, stop loading when the buffer holds this many bytes.
+     *
+     * @since 1.1.0
+     */
+    maxBufferBytes?: number;
+}
+export interface AudioPlayerListenerParams {
+    /**
+     * The `audioId` set when `create` was called.
+     *
+     * @since 1.0.0
+     */
+    audioId: string;
+}
+export interface AudioPlayerListenerResult {
+    callbackId: string;
+}
+export interface AudioPlayerCacheStats {
+    /**
+     * Total bytes read from the on-disk media cache.
+     *
+     * @since 1.1.0
+     */
+    hitBytes: number;
+    /**
+     * Total bytes downloaded from the network.
+     *
+     * @since 1.1.0
+     */
+    missBytes: number;
+    /**
+     * `hitBytes / (hitBytes + missBytes)`, `0` when nothing has been read yet.
+     *
+     * @since 1.1.0
+     */
+    hitRatio: number;
+    /**
+     * Bytes currently stored in the cache.
+     *
+     * @since 1.1.0
+     */
+    cacheSizeBytes: number;
+    /**
+     * Maximum size of the cache before least recently used content is evicted.
+     *
+     * @since 1.1.0
+     */
+    maxBytes: number;
+}
+export interface AudioPlayerPoolStats {
+    /**
+     * Number of times an idle player was reused instead of building a new one.
+     *
+     * @since 1.1.0
+     */
+    hits: number;
+    /**
+     * Number of times a new player had to be built.
+     *
+     * @since 1.1.0
+     */
+    misses: number;
+    /**
+     * Number of idle players released because the pool was full or they timed out.
+     *
+     * @since 1.1.0
+     */
+    evictions: number;
+    /**
+     * Number of players currently idle in the pool.
+     *
+     * @since 1.1.0
+     */
+    idle: number;
+}
+export interface AudioPlayerCommandStats {
+    /**
+     * Number of player commands run so far.
+     *
+     * @since 1.1.0
+     */
+    executed: number;
+    /**
+     * Number of commands waiting to run right now.
+     *
+     * @since 1.1.0
+     */
+    queueDepth: number;
+    /**
+     * @since 1.1.0
+     */
+    maxQueueDepth: number;
+    /**
+     * Average time a command waited before it started running, in milliseconds.
+     *
+     * @since 1.1.0
+     */
+    averageQueueLatencyMs: number;
+    /**
+     * @since 1.1.0
+     */
+    maxQueueLatencyMs: number;
+    /**
+     * Average time a command took to run, in milliseconds.
+     *
+     * @since 1.1.0
+     */
+    averageExecutionMs: number;
+}
+export interface AudioPlayerHistogram {
+    /**
+     * @since 1.1.0
+     */
+    count: number;
+    /**
+     * @since 1.1.0
+     */
+    sum: number;
+    /**
+     * @since 1.1.0
+     */
+    min: number;
+    /**
+     * @since 1.1.0
+     */
+    max: number;
+    /**
+     * Number of values at or below each upper bound `le`, in milliseconds.
+     * The last bucket has `le: -1` and holds everything above the previous bound.
+     *
+     * @since 1.1.0
+     */
+    buckets: { le: number; count: number }[];
+}
+export interface AudioPlayerSourceMetrics {
+    /**
+     * @since 1.1.0
+     */
+    audioId: string;
+    /**
+     * Time from asking to play until audio was playing, for the latest media item. -1 until known.
+     *
+     * @since 1.1.0
+     */
+    startupTimeMs: number;
+    /**
+     * @since 1.1.0
+     */
+    startupCount: number;
+    /**
+     * Number of times playback stalled to buffer after it had started, not counting seeks.
+     *
+     * @since 1.1.0
+     */
+    rebufferCount: number;
+    /**
+     * @since 1.1.0
+     */
+    stallTimeMs: number;
+    /**
+     * @since 1.1.0
+     */
+    bytesLoaded: number;
+    /**
+     * Latest bandwidth estimate in bits per second.
+     *
+     * @since 1.1.0
+     */
+    bitrateEstimate: number;
+    /**
+     * Bitrate of the audio format being played, or -1 if unknown.
+     *
+     * @since 1.1.0
+     */
+    formatBitrate: number;
+    /**
+     * @since 1.1.0
+     */
+    loadErrors: number;
+    /**
+     * @since 1.1.0
+     */
+    retries: number;
+    /**
+     * Number of times the player gave up after running out of retries.
+     *
+     * @since 1.1.0
+     */
+    droppedRetries: number;
+    /**
+     * Player error counts keyed by error code name, like `ERROR_CODE_IO_NETWORK_CONNECTION_FAILED`.
+     *
+     * @since 1.1.0
+     */
+    errors: { [errorCodeName: string]: number };
+}
+export interface AudioPlayerPlaybackMetrics {
+    /**
+     * @since 1.1.0
+     */
+    sources: AudioPlayerSourceMetrics[];
+    /**
+     * Aggregated across all audio sources.
+     *
+     * @since 1.1.0
+     */
+    histograms: {
+        startupTimeMs: AudioPlayerHistogram;
+        stallDurationMs: AudioPlayerHistogram;
+    };
+    /**
+     * How long the wake lock and the Wi-Fi lock have been held. The wake lock is only held while
+     * something plays or buffers, the Wi-Fi lock only while that audio is streamed.
+     *
+     * @since 1.1.0
+     */
+    locks: {
+        wakeLock: AudioPlayerLockStats;
+        wifiLock: AudioPlayerLockStats;
+    };
+    /**
+     * Whether the notification source's decoding is handed to the audio hardware. See the
+     * `audioOffload` plugin config.
+     *
+     * @since 1.1.0
+     */
+    audioOffload: AudioPlayerAudioOffloadStats;
+    /**
+     * Only set once a sound effect has been loaded.
+     *
+     * @since 1.1.0
+     */
+    soundEffects?: AudioPlayerSoundEffectStats;
+}
+export interface AudioPlayerAudioOffloadStats {
+    /**
+     * Whether offload is turned on in the plugin config.
+     *
+     * @since 1.1.0
+     */
+    enabled: boolean;
+    /**
+     * Whether offload is currently requested, which is only the case while the app is in the
+     * background and the notification source is the only source playing.
+     *
+     * @since 1.1.0
+     */
+    requested: boolean;
+    /**
+     * Whether the audio hardware is decoding right now. Stays false when the device can't
+     * offload the format.
+     *
+     * @since 1.1.0
+     */
+    active: boolean;
+    /**
+     * Whether the player is sleeping while the audio hardware plays its buffer.
+     *
+     * @since 1.1.0
+     */
+    sleeping: boolean;
+    /**
+     * Total time playback has been offloaded, including the current period.
+     *
+     * @since 1.1.0
+     */
+    activeTimeMs: number;
+    /**
+     * @since 1.1.0
+     */
+    activationCount: number;
+}
+export interface AudioPlayerLockStats {
+    /**
+     * @since 1.1.0
+     */
+    held: boolean;
+    /**
+     * Total time the lock has been held, including the current hold.
+     *
+     * @since 1.1.0
+     */
+    heldTimeMs: number;
+    /**
+     * @since 1.1.0
+     */
+    acquireCount: number;
+}
+export interface AudioPlayerNetworkStatus {
+    /**
+     * Whether the device has a network connection with internet access.
+     *
+     * @since 1.1.0
+     */
+    online: boolean;
+    /**
+     * Whether the connection is metered, e.g. mobile data. Streams that use the default
+     * buffer profile buffer less ahead on metered connections.
+     *
+     * @since 1.1.0
+     */
+    metered: boolean;
+}
+export interface AudioPlayerQueueItem {
+    /**
+     * Optional identifier passed back in `onQueueIndexChange`.
+     *
+     * @since 1.1.0
+     */
+    id?: string;
+    /**
+     * A URI for the audio file to play
+     *
+     * @since 1.1.0
+     */
+    audioSource: string;
+    /**
+     * @since 1.1.0
+     */
+    albumTitle?: string;
+    /**
+     * @since 1.1.0
+     */
+    artistName?: string;
+    /**
+     * @since 1.1.0
+     */
+    friendlyTitle?: string;
+    /**
+     * @since 1.1.0
+     */
+    artworkSource?: string;
+}
+export interface AudioPlayerQueueParams extends AudioPlayerDefaultParams {
+    /**
+     * @since 1.1.0
+     */
+    items: AudioPlayerQueueItem[];
+}
+export interface AudioPlayerPreloadParams extends AudioPlayerDefaultParams {
+    /**
+     * URIs of the upcoming audio files to warm the cache for, in the order they will likely be played.
+     *
+     * Only the first 10 are preloaded. Local sources and HLS/DASH manifests are skipped.
+     *
+     * @since 1.1.0
+     */
+    sources: string[];
+    /**
+     * How many bytes to cache from the start of each source. Capped at 8MB.
+     *
+     * @default 524288
+     * @since 1.1.0
+     */
+    bytesPerItem?: number;
+}
+export interface AudioPlayerPreloadResult {
+    /**
+     * @since 1.1.0
+     */
+    results: {
+        source: string;
+        status: 'cached' | 'skipped' | 'cancelled' | 'failed';
+        bytesCached: number;
+    }[];
+}
+export interface AudioPlayerDownloadParams {
+    /**
+     * Identifies the download in `getDownloads`, `removeDownload` and progress events.
+     * Defaults to `audioSource`.
+     *
+     * @since 1.1.0
+     */
+    id?: string;
+    /**
+     * A URI for the audio file or HLS/DASH stream to download.
+     * Once downloaded, any audio source playing this URI plays the downloaded copy.
+     *
+     * @since 1.1.0
+     */
+    audioSource: string;
+    /**
+     * Same as `streamType` when creating an audio source.
+     *
+     * @default 'auto'
+     * @since 1.1.0
+     */
+    streamType?: 'auto' | 'hls' | 'dash' | 'progressive';
+    /**
+     * Free-form text stored with the download and returned in `getDownloads`.
+     *
+     * @since 1.1.0
+     */
+    title?: string;
+}
+export interface AudioPlayerDownload {
+    /**
+     * @since 1.1.0
+     */
+    id: string;
+    /**
+     * @since 1.1.0
+     */
+    audioSource: string;
+    /**
+     * @since 1.1.0
+     */
+    title?: string;
+    /**
+     * `removed` is only sent to `onDownloadProgress`.
+     *
+     * @since 1.1.0
+     */
+    state: 'queued' | 'stopped' | 'downloading' | 'completed' | 'failed' | 'removing' | 'restarting' | 'removed';
+    /**
+     * From 0 to 100, or -1 while it is unknown.
+     *
+     * @since 1.1.0
+     */
+    percentDownloaded: number;
+    /**
+     * @since 1.1.0
+     */
+    bytesDownloaded: number;
+    /**
+     * -1 while it is unknown.
+     *
+     * @since 1.1.0
+     */
+    contentLength: number;
+    /**
+     * Why the download failed. Only set in the `onDownloadProgress` event that reports the
+     * failure, `getDownloads` only knows that it failed.
+     *
+     * @since 1.1.0
+     */
+    error?: string;
+}
+export interface AudioPlayerEffectParams {
+    /**
+     * Identifies the effect in `playEffect` and `unloadEffect`. Loading an existing ID again
+     * replaces the effect.
+     *
+     * @since 1.1.0
+     */
+    effectId: string;
+    /**
+     * A URI for a short audio file of at most 15 seconds, or a path in the app's public assets.
+     *
+     * @since 1.1.0
+     */
+    source: string;
+    /**
+     * How many instances of the effect can play at the same time. Playing it once more cuts
+     * off the instance that started first.
+     *
+     * @default 2
+     * @since 1.1.0
+     */
+    maxVoices?: number;
+}
+export interface AudioPlayerSoundEffectStats {
+    /**
+     * @since 1.1.0
+     */
+    loaded: number;
+    /**
+     * Effects whose decoded audio is in memory. Others are decoded again when they are played.
+     *
+     * @since 1.1.0
+     */
+    decoded: number;
     /**
-     * Is this audio for background music/audio.
-     *
-     * Should not be `true` when `useForNotification = true`.
+     * @since 1.1.0
+     */
+    decodedBytes: number;
+    /**
+     * @since 1.1.0
+     */
+    voices: number;
+    /**
+     * @since 1.1.0
+     */
+    activeVoices: number;
+    /**
+     * @since 1.1.0
+     */
+    playCount: number;
+    /**
+     * Plays that cut off another effect because no voice was free.
      *
-     * @default false
-     * @since 1.0.0
+     * @since 1.1.0
      */
-    isBackgroundMusic?: boolean;
+    stolenVoiceCount: number;
     /**
-     * Whether or not to loop other audio like background music
-     * while the primary audio (`useForNotification = true`) is playing.
+     * @since 1.1.0
+     */
+    decodeCount: number;
+}
+export interface AudioPlayerWaveformParams extends AudioPlayerDefaultParams {
+    /**
+     * How many min/max pairs to return, e.g. one per pixel of the scrubber. At most 16384.
      *
-     * @default false
-     * @since 1.0.0
+     * @since 1.1.0
      */
-    loop?: boolean;
+    buckets: number;
+}
+export interface AudioPlayerWaveform {
     /**
-     * Whether or not to show the seek backward button on the OS's notification.
-     * Only has affect when `useForNotification = true`.
+     * @since 1.1.0
+     */
+    buckets: number;
+    /**
+     * The duration of the decoded audio in milliseconds.
      *
-     * @default true
-     * @since 1.2.0
+     * @since 1.1.0
      */
-    showSeekBackward?: boolean;
+    durationMs: number;
     /**
-     * Whether or not to show the seek forward button on the OS's notification.
-     * Only has affect when `useForNotification = true`.
+     * Base64 of an `Int8Array` with the min and max of every bucket, interleaved, from -128 to
+     * 127 across all channels. Decode it with
+     * `Int8Array.from(atob(peaks), (c) => c.charCodeAt(0))`.
      *
-     * @default true
-     * @since 1.2.0
+     * @since 1.1.0
      */
-    showSeekForward?: boolean;
+    peaks: string;
 }
-export interface AudioPlayerListenerParams {
+export interface AudioPlayerBatchOperation {
+    /**
+     * The method to call on the audio source.
+     *
+     * @since 1.1.0
+     */
+    method:
+        | 'play'
+        | 'pause'
+        | 'stop'
+        | 'seek'
+        | 'setVolume'
+        | 'setRate'
+        | 'getCurrentTime'
+        | 'getDuration'
+        | 'isPlaying';
     /**
      * The `audioId` set when `create` was called.
      *
-     * @since 1.0.0
+     * @since 1.1.0
      */
     audioId: string;
+    /**
+     * Required for `seek` unless `timeMs` is set.
+     *
+     * @since 1.1.0
+     */
+    timeInSeconds?: number;
+    /**
+     * Seek position in milliseconds, takes precedence over `timeInSeconds`.
+     *
+     * @since 1.1.0
+     */
+    timeMs?: number;
+    /**
+     * Required for `setVolume`.
+     *
+     * @since 1.1.0
+     */
+    volume?: number;
+    /**
+     * Required for `setRate`.
+     *
+     * @since 1.1.0
+     */
+    rate?: number;
 }
-export interface AudioPlayerListenerResult {
-    callbackId: string;
+export interface AudioPlayerBatchResult {
+    /**
+     * One result per operation, in the same order.
+     *
+     * @since 1.1.0
+     */
+    results: {
+        method: string;
+        audioId: string;
+        success: boolean;
+        /**
+         * Set when the operation didn't run because an earlier one on the same thread failed.
+         */
+        skipped?: boolean;
+        error?: string;
+        value?: {
+            currentTime?: number;
+            currentTimeMs?: number;
+            bufferedPosition?: number;
+            bufferedPositionMs?: number;
+            duration?: number;
+            durationMs?: number;
+            isPlaying?: boolean;
+        };
+    }[];
+    /**
+     * The index of the first operation that failed, not set when every operation
+     * succeeded. Only the operations after it on the same thread were skipped, see `batch`.
+     *
+     * @since 1.1.0
+     */
+    failedIndex?: number;
+}
+export interface AudioPlayerProgressParams {
+    /**
+     * The `audioId` set when `create` was called.
+     * Leave it out to get every playing audio source in one message per tick.
+     *
+     * @since 1.1.0
+     */
+    audioId?: string;
+    /**
+     * How often to report progress while playing. Clamped between 50 and 10000.
+     *
+     * @default 250
+     * @since 1.1.0
+     */
+    intervalMs?: number;
+}
+export interface AudioPlayerProgress {
+    /**
+     * @since 1.1.0
+     */
+    audioId: string;
+    /**
+     * Current position in seconds, with millisecond precision.
+     *
+     * @since 1.1.0
+     */
+    currentTime: number;
+    /**
+     * How far the audio has been buffered, in seconds.
+     *
+     * @since 1.1.0
+     */
+    bufferedPosition: number;
+    /**
+     * Duration in seconds, or -1 while it is unknown.
+     *
+     * @since 1.1.0
+     */
+    duration: number;
 }
 export interface AudioPlayerPlugin {
     /**
@@ -153,6 +887,14 @@ export interface AudioPlayerPlugin {
      */
     getDuration(params: AudioPlayerDefaultParams): Promise<{
         duration: number;
+        /**
+         * The duration in whole milliseconds, or -1 while it is unknown.
+         *
+         * Only available on Android.
+         *
+         * @since 1.1.0
+         */
+        durationMs?: number;
     }>;
     /**
      * Get the current time of the audio source being played.
@@ -161,6 +903,28 @@ export interface AudioPlayerPlugin {
      */
     getCurrentTime(params: AudioPlayerDefaultParams): Promise<{
         currentTime: number;
+        /**
+         * The current time in whole milliseconds.
+         *
+         * Only available on Android.
+         *
+         * @since 1.1.0
+         */
+        currentTimeMs?: number;
+        /**
+         * How far the audio has been buffered, in seconds.
+         *
+         * Only available on Android.
+         *
+         * @since 1.1.0
+         */
+        bufferedPosition?: number;
+        /**
+         * Only available on Android.
+         *
+         * @since 1.1.0
+         */
+        bufferedPositionMs?: number;
     }>;
     /**
      * Play the audio source.
@@ -180,7 +944,18 @@ export interface AudioPlayerPlugin {
      * @since 1.0.0
      */
     seek(params: AudioPlayerDefaultParams & {
+        /**
+         * Fractions of a second are honored on Android.
+         */
         timeInSeconds: number;
+        /**
+         * The time to seek to in milliseconds. Takes precedence over `timeInSeconds`.
+         *
+         * Only available on Android.
+         *
+         * @since 1.1.0
+         */
+        timeMs?: number;
     }): Promise<void>;
     /**
      * Stop playing the audio source and reset the current time to zero.
@@ -201,6 +976,7 @@ export interface AudioPlayerPlugin {
     /**
      * Set the rate for the audio source to be played at.
      * Should be a decimal. An example being `1` is normal speed, `0.5` being half the speed and `1.5` being 1.5 times faster.
+     * Sources mixed by the `mixing` config always play at `1` and reject any other rate.
      *
      * @since 1.0.0
      */
@@ -270,6 +1046,12 @@ export interface AudioPlayerPlugin {
      * Registers a callback for when the audio source playback is stalled.
      * This can happen due to network issues, buffering problems, or other playback interruptions.
      *
+     * On Android a stall is reported once with `buffer_empty` after playback has been buffering
+     * for half a second, and once more when it is over: with `likely_to_keep_up` after playback
+     * kept up for a second, or with `stall_resolved` when it was paused, stopped or seeked
+     * first. Both end events include `stallDurationMs`. Shorter rebuffers, startup and seeks
+     * aren't reported.
+     *
      * @since 1.0.0
      */
     onAudioStalled(
@@ -281,6 +1063,298 @@ export interface AudioPlayerPlugin {
             networkAvailable: boolean;
             bufferEmpty?: boolean;
             likelyToKeepUp?: boolean;
+            /**
+             * How long the stall lasted, when it is over.
+             *
+             * Only available on Android.
+             *
+             * @since 1.1.0
+             */
+            stallDurationMs?: number;
+        }) => void
+    ): Promise<AudioPlayerListenerResult>;
+    /**
+     * Get the hit/miss counters of the on-disk media cache shared by all audio sources.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    getCacheStats(): Promise<AudioPlayerCacheStats>;
+    /**
+     * Replace the audio of the notification audio source with a queue of items.
+     * The next item is buffered ahead and played gaplessly, and the notification's
+     * next/previous buttons move through the queue natively. `onPlayNext`/`onPlayPrevious`
+     * are only called when there is no next/previous item in the queue.
+     *
+     * Only available on Android and for the audio source with `useForNotification = true`.
+     *
+     * @since 1.1.0
+     */
+    setQueue(params: AudioPlayerQueueParams & {
+        startIndex?: number;
+    }): Promise<void>;
+    /**
+     * Add items to the end of the queue.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    appendToQueue(params: AudioPlayerQueueParams): Promise<void>;
+    /**
+     * Remove the item at `index` from the queue. The last item can't be removed.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    removeFromQueue(params: AudioPlayerDefaultParams & {
+        index: number;
+    }): Promise<void>;
+    /**
+     * Move a queue item from one position to another.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    moveQueueItem(params: AudioPlayerDefaultParams & {
+        fromIndex: number;
+        toIndex: number;
+    }): Promise<void>;
+    /**
+     * Start the queue item at `index` from its beginning.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    skipTo(params: AudioPlayerDefaultParams & {
+        index: number;
+    }): Promise<void>;
+    /**
+     * Registers a callback for when the queue moves to another item,
+     * either on its own or from the notification controls.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    onQueueIndexChange(
+        params: AudioPlayerListenerParams,
+        callback: (result: {
+            index: number;
+            id?: string;
+            source?: string;
         }) => void
     ): Promise<AudioPlayerListenerResult>;
+    /**
+     * Run several commands on one or more audio sources in a single call.
+     *
+     * The batch is not all-or-nothing. Every operation is validated up front, so an unknown
+     * method or `audioId` rejects the whole batch before anything runs. Commands already sent
+     * for a source run before the batch, commands sent after it run after it.
+     *
+     * The notification source and the other sources are driven from two threads. The
+     * operations of each thread run in order in a single pass, and the two passes start
+     * together, so a scene's sources start much more tightly than with separate calls. Because
+     * the passes run side by side, a failure only stops its own thread: the operations after it
+     * on that thread are skipped, while the other thread's operations still run and report
+     * their own results.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    batch(params: { ops: AudioPlayerBatchOperation[] }): Promise<AudioPlayerBatchResult>;
+    /**
+     * Registers a callback that receives the playback progress while the audio is playing,
+     * instead of polling `getCurrentTime`. A single native ticker serves every callback and
+     * only runs while something is playing. One last update is sent when playback stops.
+     *
+     * Without `audioId` the callback receives every playing audio source at once. The
+     * callback keeps being called until it is removed with `removeProgressListener`.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    onProgress(
+        params: AudioPlayerProgressParams,
+        callback: (result: AudioPlayerProgress | { sources: AudioPlayerProgress[] }) => void
+    ): Promise<AudioPlayerListenerResult>;
+    /**
+     * Stops the progress callback registered with `onProgress`. To change its interval, remove
+     * it and register it again.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    removeProgressListener(params: AudioPlayerListenerResult): Promise<void>;
+    /**
+     * Get the counters of the pool that reuses players between non-notification audio sources.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    getPlayerPoolStats(): Promise<AudioPlayerPoolStats>;
+    /**
+     * Get the counters of the executor that runs player commands off the main thread.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    getCommandStats(): Promise<AudioPlayerCommandStats>;
+    /**
+     * Get the playback quality metrics: startup time, stalls, bytes, bitrate, retries
+     * and errors for each audio source, plus histograms across all of them.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    getPlaybackMetrics(params?: { audioId?: string }): Promise<AudioPlayerPlaybackMetrics>;
+    /**
+     * Registers a callback that periodically receives the same metrics as `getPlaybackMetrics`.
+     * It keeps being called until it is removed with `removeMetricsListener`.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    onMetrics(
+        params: {
+            /**
+             * Clamped to at least 1000.
+             *
+             * @default 10000
+             */
+            intervalMs?: number;
+        },
+        callback: (result: AudioPlayerPlaybackMetrics) => void
+    ): Promise<AudioPlayerListenerResult>;
+    /**
+     * Stops the metrics callback registered with `onMetrics`. To change its interval, remove it
+     * and register it again.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    removeMetricsListener(params: AudioPlayerListenerResult): Promise<void>;
+    /**
+     * Registers a callback for connectivity changes. It is called right away with the current
+     * status, then whenever the device goes online or offline or the connection switches
+     * between metered and unmetered.
+     *
+     * Playback that failed while offline is retried shortly after the network returns.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    onNetworkChange(callback: (result: AudioPlayerNetworkStatus) => void): Promise<AudioPlayerListenerResult>;
+    /**
+     * Download audio for offline playback. Downloads continue in the background, survive app
+     * restarts and are kept until removed with `removeDownload`.
+     *
+     * Any audio source whose URI was downloaded plays from the device instead of the network.
+     * Downloading the same `id` again restarts it.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    download(params: AudioPlayerDownloadParams): Promise<{ id: string }>;
+    /**
+     * Cancel the download if it is still running and delete the downloaded data.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    removeDownload(params: { id: string }): Promise<void>;
+    /**
+     * Every download, in progress, failed or completed.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    getDownloads(): Promise<{ downloads: AudioPlayerDownload[] }>;
+    /**
+     * Registers a callback that receives every change of a download's state, and the progress of
+     * running downloads once a second.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    onDownloadProgress(callback: (result: AudioPlayerDownload) => void): Promise<AudioPlayerListenerResult>;
+    /**
+     * Load a short sound effect, e.g. a UI sound, for low-latency playback with `playEffect`.
+     * The effect is decoded once and played from memory, without an audio source.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    loadEffect(params: AudioPlayerEffectParams): Promise<void>;
+    /**
+     * Play a loaded sound effect. Several effects can play at the same time, and with the
+     * effects of the audio sources. When every voice is busy, the effect that started first is
+     * cut off.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    playEffect(params: { effectId: string; volume?: number }): Promise<void>;
+    /**
+     * Stop the sound effect and free its memory.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    unloadEffect(params: { effectId: string }): Promise<void>;
+    /**
+     * Get min/max peaks of the audio source for drawing a waveform, e.g. in a scrubber.
+     *
+     * The source is decoded natively in the background, through the same cache as playback, so
+     * it isn't downloaded again. Results are cached on disk by source and bucket count.
+     * HLS and DASH streams aren't supported.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    getWaveform(params: AudioPlayerWaveformParams): Promise<AudioPlayerWaveform>;
+    /**
+     * Warm the on-disk media cache with the start of upcoming sources in the background
+     * so switching to them with `changeAudioSource` starts without waiting on the network.
+     *
+     * Calling it again for the same `audioId` cancels the previous preload.
+     * Resolves once every source has been handled, rejects if the plugin is torn down first.
+     * Preloading pauses while a playing source is buffering and is slowed down while one is loading.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    preload(params: AudioPlayerPreloadParams): Promise<AudioPlayerPreloadResult>;
+    /**
+     * Cancel the pending preload for the audio source.
+     *
+     * Only available on Android.
+     *
+     * @since 1.1.0
+     */
+    cancelPreload(params: AudioPlayerDefaultParams): Promise<{
+        cancelled: boolean;
+    }>;
 }
@@ -1,9 +1,9 @@
 import { WebPlugin } from '@capacitor/core';
-import type { AudioPlayerDefaultParams, AudioPlayerListenerParams, AudioPlayerListenerResult, AudioPlayerPlugin, AudioPlayerPrepareParams } from './definitions';
+import type { AudioPlayerBatchOperation, AudioPlayerBatchResult, AudioPlayerCacheStats, AudioPlayerCommandStats, AudioPlayerDefaultParams, AudioPlayerDownload, AudioPlayerDownloadParams, AudioPlayerEffectParams, AudioPlayerListenerParams, AudioPlayerListenerResult, AudioPlayerNetworkStatus, AudioPlayerPlaybackMetrics, AudioPlayerPlugin, AudioPlayerPoolStats, AudioPlayerPrepareParams, AudioPlayerPreloadParams, AudioPlayerPreloadResult, AudioPlayerProgress, AudioPlayerProgressParams, AudioPlayerQueueParams, AudioPlayerWaveform, AudioPlayerWaveformParams } from './definitions';
 export declare class AudioPlayerWeb extends WebPlugin implements AudioPlayerPlugin {
     onPlayNext(params: { audioId: string; }, callback: () => void): Promise<{ callbackId: string; }>;
     onPlayPrevious(params: { audioId: string; }, callback: () => void): Promise<{ callbackId: string; }>;
-    onAudioStalled(params: AudioPlayerListenerParams, callback: (result: { reason: 'playback_stalled' | 'buffer_empty' | 'stall_resolved' | 'likely_to_keep_up'; currentTime: number; duration: number; networkAvailable: boolean; bufferEmpty?: boolean; likelyToKeepUp?: boolean; }) => void): Promise<AudioPlayerListenerResult>;
+    onAudioStalled(params: AudioPlayerListenerParams, callback: (result: { reason: 'playback_stalled' | 'buffer_empty' | 'stall_resolved' | 'likely_to_keep_up'; currentTime: number; duration: number; networkAvailable: boolean; bufferEmpty?: boolean; likelyToKeepUp?: boolean; stallDurationMs?: number; }) => void): Promise<AudioPlayerListenerResult>;
     create(params: AudioPlayerPrepareParams): Promise<{
         success: boolean;
     }>;
@@ -19,14 +19,19 @@ export declare class AudioPlayerWeb extends WebPlugin implements AudioPlayerPlug
     }): Promise<void>;
     getDuration(params: AudioPlayerDefaultParams): Promise<{
         duration: number;
+        durationMs?: number;
     }>;
     getCurrentTime(params: AudioPlayerDefaultParams): Promise<{
         currentTime: number;
+        currentTimeMs?: number;
+        bufferedPosition?: number;
+        bufferedPositionMs?: number;
     }>;
     play(params: AudioPlayerDefaultParams): Promise<void>;
     pause(params: AudioPlayerDefaultParams): Promise<void>;
     seek(params: AudioPlayerDefaultParams & {
         timeInSeconds: number;
+        timeMs?: number;
     }): Promise<void>;
     stop(params: AudioPlayerDefaultParams): Promise<void>;
     setVolume(params: AudioPlayerDefaultParams & {
@@ -46,4 +51,64 @@ export declare class AudioPlayerWeb extends WebPlugin implements AudioPlayerPlug
     onPlaybackStatusChange(params: AudioPlayerListenerParams, callback: (result: {
         status: 'playing' | 'paused' | 'stopped';
     }) => void): Promise<AudioPlayerListenerResult>;
+    getCacheStats(): Promise<AudioPlayerCacheStats>;
+    setQueue(params: AudioPlayerQueueParams & {
+        startIndex?: number;
+    }): Promise<void>;
+    appendToQueue(params: AudioPlayerQueueParams): Promise<void>;
+    removeFromQueue(params: AudioPlayerDefaultParams & {
+        index: number;
+    }): Promise<void>;
+    moveQueueItem(params: AudioPlayerDefaultParams & {
+        fromIndex: number;
+        toIndex: number;
+    }): Promise<void>;
+    skipTo(params: AudioPlayerDefaultParams & {
+        index: number;
+    }): Promise<void>;
+    onQueueIndexChange(params: AudioPlayerListenerParams, callback: (result: {
+        index: number;
+        id?: string;
+        source?: string;
+    }) => void): Promise<AudioPlayerListenerResult>;
+    batch(params: {
+        ops: AudioPlayerBatchOperation[];
+    }): Promise<AudioPlayerBatchResult>;
+    onProgress(params: AudioPlayerProgressParams, callback: (result: AudioPlayerProgress | {
+        sources: AudioPlayerProgress[];
+    }) => void): Promise<AudioPlayerListenerResult>;
+    removeProgressListener(params: AudioPlayerListenerResult): Promise<void>;
+    getPlayerPoolStats(): Promise<AudioPlayerPoolStats>;
+    getCommandStats(): Promise<AudioPlayerCommandStats>;
+    getPlaybackMetrics(params?: {
+        audioId?: string;
+    }): Promise<AudioPlayerPlaybackMetrics>;
+    onMetrics(params: {
+        intervalMs?: number;
+    }, callback: (result: AudioPlayerPlaybackMetrics) => void): Promise<AudioPlayerListenerResult>;
+    removeMetricsListener(params: AudioPlayerListenerResult): Promise<void>;
+    onNetworkChange(callback: (result: AudioPlayerNetworkStatus) => void): Promise<AudioPlayerListenerResult>;
+    download(params: AudioPlayerDownloadParams): Promise<{
+        id: string;
+    }>;
+    removeDownload(params: {
+        id: string;
+    }): Promise<void>;
+    getDownloads(): Promise<{
+        downloads: AudioPlayerDownload[];
+    }>;
+    onDownloadProgress(callback: (result: AudioPlayerDownload) => void): Promise<AudioPlayerListenerResult>;
+    loadEffect(params: AudioPlayerEffectParams): Promise<void>;
+    playEffect(params: {
+        effectId: string;
+        volume?: number;
+    }): Promise<void>;
+    unloadEffect(params: {
+        effectId: string;
+    }): Promise<void>;
+    getWaveform(params: AudioPlayerWaveformParams): Promise<AudioPlayerWaveform>;
+    preload(params: AudioPlayerPreloadParams): Promise<AudioPlayerPreloadResult>;
+    cancelPreload(params: AudioPlayerDefaultParams): Promise<{
+        cancelled: boolean;
+    }>;
 }